@@ -0,0 +1,39 @@
+package com.drivelite.benchmarks;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point của benchmarks.jar: giống org.openjdk.jmh.Main nhưng mặc định ghi kết quả
+ * dạng JSON vào jmh-results/{timestamp}.json để so sánh giữa các release
+ * (vd: jmh.morethan.me hoặc diff hai file).
+ *
+ * Mọi option của JMH vẫn dùng được; truyền -rf/-rff để ghi kết quả ra chỗ khác.
+ * Chạy: java -jar benchmarks/target/benchmarks.jar [regex] [options]
+ */
+public final class BenchmarkMain {
+
+    private static final String RESULTS_DIR = "jmh-results";
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        boolean listOrHelp = jmhArgs.contains("-l") || jmhArgs.contains("-lp") || jmhArgs.contains("-h");
+        if (!listOrHelp && !jmhArgs.contains("-rf") && !jmhArgs.contains("-rff")) {
+            File dir = new File(RESULTS_DIR);
+            dir.mkdirs();
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            jmhArgs.add("-rf");
+            jmhArgs.add("json");
+            jmhArgs.add("-rff");
+            jmhArgs.add(new File(dir, timestamp + ".json").getPath());
+        }
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
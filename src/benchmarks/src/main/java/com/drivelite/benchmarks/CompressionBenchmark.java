@@ -0,0 +1,159 @@
+package com.drivelite.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.drivelite.common.compression.ChunkedCompressionInputStream;
+import com.drivelite.common.compression.ChunkedCompressionOutputStream;
+import com.drivelite.common.compression.CompressionCodec;
+
+/**
+ * So sánh throughput nén/giải nén của các codec dùng cho transfer.
+ *
+ * Dataset:
+ * - text: log server (lặp nhiều, nén tốt)
+ * - csv: bảng số liệu (nén trung bình)
+ * - random: dữ liệu ngẫu nhiên (mô phỏng zip/jpg - không nén được)
+ *
+ * Chạy: java -jar benchmarks/target/benchmarks.jar CompressionBenchmark
+ * Cột "wireBytes" cho biết số bytes thực sự gửi trên dây mỗi lần nén → tính compression ratio.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final int DATA_SIZE = 4 * 1024 * 1024;
+
+    @Param({"LZ4", "DEFLATE"})
+    public String codec;
+
+    @Param({"1", "6", "9"})
+    public int level;
+
+    @Param({"text", "csv", "random"})
+    public String dataset;
+
+    private byte[] data;
+    private byte[] compressed;
+    private byte[] readBuffer;
+    private CompressionCodec compressionCodec;
+
+    /**
+     * Đếm bytes nén mỗi lần gọi (JMH in ra cùng kết quả).
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireCounter {
+        public long wireBytes;
+        public long rawBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            wireBytes = 0;
+            rawBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        compressionCodec = CompressionCodec.valueOf(codec);
+        data = generate(dataset, DATA_SIZE);
+        readBuffer = new byte[64 * 1024];
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(DATA_SIZE);
+        try (ChunkedCompressionOutputStream out = new ChunkedCompressionOutputStream(baos, compressionCodec, level)) {
+            out.write(data);
+        }
+        compressed = baos.toByteArray();
+    }
+
+    @Benchmark
+    public long compress(WireCounter counter) throws IOException {
+        ChunkedCompressionOutputStream out = new ChunkedCompressionOutputStream(
+            OutputStream.nullOutputStream(), compressionCodec, level);
+        out.write(data);
+        out.finish();
+        counter.wireBytes += out.getWireBytes();
+        counter.rawBytes += out.getRawBytes();
+        return out.getWireBytes();
+    }
+
+    @Benchmark
+    public long decompress() throws IOException {
+        long total = 0;
+        try (ChunkedCompressionInputStream in = new ChunkedCompressionInputStream(new ByteArrayInputStream(compressed))) {
+            int n;
+            while ((n = in.read(readBuffer)) != -1) {
+                total += n;
+            }
+        }
+        return total;
+    }
+
+    static byte[] generate(String dataset, int size) {
+        Random random = new Random(42);
+        switch (dataset) {
+            case "text": {
+                String[] levels = {"INFO", "DEBUG", "WARN", "ERROR"};
+                String[] types = {"LOGIN", "LIST_MY_FILES", "UPLOAD_BEGIN", "DOWNLOAD_BEGIN", "GET_VERSIONS"};
+                StringBuilder sb = new StringBuilder(size + 256);
+                while (sb.length() < size) {
+                    sb.append("2025-01-").append(10 + random.nextInt(20))
+                      .append(" [").append(levels[random.nextInt(levels.length)]).append("] [DISPATCHER] Request: type=")
+                      .append(types[random.nextInt(types.length)])
+                      .append(", requestId=req-").append(1700000000000L + random.nextInt(1_000_000))
+                      .append(", client=192.168.1.").append(random.nextInt(255)).append('\n');
+                }
+                return slice(sb.toString().getBytes(StandardCharsets.UTF_8), size);
+            }
+            case "csv": {
+                StringBuilder sb = new StringBuilder(size + 256);
+                sb.append("fileId,versionNumber,sizeBytes,sha256,uploadedAt\n");
+                while (sb.length() < size) {
+                    sb.append(random.nextInt(100_000)).append(',')
+                      .append(1 + random.nextInt(20)).append(',')
+                      .append(random.nextInt(Integer.MAX_VALUE)).append(',')
+                      .append(Long.toHexString(random.nextLong())).append(Long.toHexString(random.nextLong())).append(',')
+                      .append("2025-").append(1 + random.nextInt(12)).append('-').append(1 + random.nextInt(28))
+                      .append('\n');
+                }
+                return slice(sb.toString().getBytes(StandardCharsets.UTF_8), size);
+            }
+            case "random":
+            default: {
+                byte[] bytes = new byte[size];
+                random.nextBytes(bytes);
+                return bytes;
+            }
+        }
+    }
+
+    private static byte[] slice(byte[] bytes, int size) {
+        byte[] result = new byte[size];
+        System.arraycopy(bytes, 0, result, 0, size);
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+package com.drivelite.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.drivelite.common.codec.FrameEncoding;
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.protocol.Response;
+
+/**
+ * JSON vs Smile cho response LIST_MY_FILES, cùng shape với ListMyFilesHandler
+ * (fileId, fileName, currentVersion, createdAt, permission, ownerEmail, sizeBytes, sha256, uploadedAt).
+ *
+ * Đo CPU encode/decode của cả frame qua JsonCodec; kích thước frame in ra lúc setup
+ * ("# frame bytes ...") để so sánh bytes trên dây.
+ *
+ * Chạy: java -jar benchmarks/target/benchmarks.jar FrameEncodingBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameEncodingBenchmark {
+
+    @Param({"JSON", "SMILE"})
+    public FrameEncoding encoding;
+
+    @Param({"100", "5000"})
+    public int files;
+
+    private Response response;
+    private byte[] frame;
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+
+    @Setup
+    public void setup() throws Exception {
+        Random random = new Random(42);
+        HexFormat hex = HexFormat.of();
+        byte[] digest = new byte[32];
+
+        List<Map<String, Object>> fileList = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            random.nextBytes(digest);
+            Map<String, Object> fileData = new HashMap<>();
+            fileData.put("fileId", 100_000 + i);
+            fileData.put("fileName", "Báo cáo tháng " + (1 + i % 12) + " - bản " + i + ".docx");
+            fileData.put("currentVersion", 1 + random.nextInt(8));
+            fileData.put("createdAt", "2025-0" + (1 + i % 9) + "-1" + (i % 10) + " 08:30:15.123");
+            fileData.put("permission", "OWNER");
+            fileData.put("ownerEmail", "nguyen.van.a@example.com");
+            fileData.put("sizeBytes", 1024L + random.nextInt(50 * 1024 * 1024));
+            fileData.put("sha256", hex.formatHex(digest));
+            fileData.put("uploadedAt", "2025-0" + (1 + i % 9) + "-2" + (i % 10) + " 17:45:02.456");
+            fileList.add(fileData);
+        }
+        response = Response.success("Files retrieved", Map.of("files", fileList, "count", fileList.size()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonCodec.writeFrame(out, response, encoding);
+        frame = out.toByteArray();
+        System.out.println("# frame bytes " + encoding + " files=" + files + ": " + frame.length);
+    }
+
+    @Benchmark
+    public int encode() throws Exception {
+        sink.reset();
+        JsonCodec.writeFrame(sink, response, encoding);
+        return sink.size();
+    }
+
+    @Benchmark
+    public Response decode() throws Exception {
+        return JsonCodec.readResponse(new ByteArrayInputStream(frame));
+    }
+}
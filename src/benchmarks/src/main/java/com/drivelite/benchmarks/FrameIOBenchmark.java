@@ -0,0 +1,112 @@
+package com.drivelite.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.drivelite.common.framing.FrameIO;
+
+/**
+ * Chi phí encode/decode frame (4 bytes length + JSON UTF-8) theo kích thước payload.
+ *
+ * readChunk mô phỏng TCP trả về từng phần: 0 = cả frame trong một lần read,
+ * 1460 = một MSS mỗi lần read (nhánh partial read của readFrame).
+ *
+ * Chạy: java -jar benchmarks/target/benchmarks.jar FrameIOBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameIOBenchmark {
+
+    @Param({"128", "4096", "65536", "1048576"})
+    public int payloadSize;
+
+    private String payload;
+    private byte[] encoded;
+    private ByteArrayOutputStream sink;
+
+    @Setup
+    public void setup() throws IOException {
+        payload = jsonLike(payloadSize);
+        sink = new ByteArrayOutputStream(payloadSize + 4);
+        FrameIO.sendFrame(sink, payload);
+        encoded = sink.toByteArray();
+    }
+
+    @Benchmark
+    public int sendFrame() throws IOException {
+        sink.reset();
+        FrameIO.sendFrame(sink, payload);
+        return sink.size();
+    }
+
+    /**
+     * Cách stream nguồn trả bytes cho readFrame (chỉ áp dụng cho readFrame).
+     */
+    @State(Scope.Thread)
+    public static class ReadMode {
+        @Param({"0", "1460"})
+        public int readChunk;
+    }
+
+    @Benchmark
+    public String readFrame(ReadMode mode) throws IOException {
+        InputStream in = new ByteArrayInputStream(encoded);
+        if (mode.readChunk > 0) {
+            in = new ChunkedInputStream(in, mode.readChunk);
+        }
+        return FrameIO.readFrame(in);
+    }
+
+    /**
+     * Payload giống JSON thật (ASCII + vài ký tự tiếng Việt để encoder UTF-8 không đi nhánh ASCII thuần).
+     */
+    static String jsonLike(int size) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(size + 64);
+        sb.append("{\"type\":\"LIST_MY_FILES\",\"requestId\":\"req-1700000000000\",\"data\":[");
+        while (sb.length() < size - 2) {
+            sb.append("{\"fileId\":").append(random.nextInt(100_000))
+              .append(",\"fileName\":\"Báo cáo tháng ").append(1 + random.nextInt(12)).append(".docx\"},");
+        }
+        sb.setLength(Math.max(0, size - 2));
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * Trả về tối đa chunk bytes mỗi lần read.
+     */
+    static final class ChunkedInputStream extends FilterInputStream {
+        private final int chunk;
+
+        ChunkedInputStream(InputStream in, int chunk) {
+            super(in);
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, chunk));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.drivelite.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.protocol.MessageType;
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+
+/**
+ * Round trip JSON của Request/Response qua API public (toJson/fromJson) như client và server đang gọi.
+ *
+ * Dataset:
+ * - request*: request LOGIN nhỏ (email/password)
+ * - response*: response LIST_MY_FILES với {@code files} entries (đường trả về lớn nhất hiện nay)
+ * - *Frame: đường socket thật qua JsonCodec (serialize/parse thẳng với buffer tái sử dụng, không qua String)
+ *
+ * Chạy: java -jar benchmarks/target/benchmarks.jar ProtocolJsonBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolJsonBenchmark {
+
+    /**
+     * Request LOGIN (nhỏ, cố định).
+     */
+    @State(Scope.Thread)
+    public static class LoginRequest {
+        Request request;
+        String json;
+
+        @Setup
+        public void setup() throws Exception {
+            request = new Request(MessageType.LOGIN, "session-0123456789abcdef", "req-1700000000000",
+                                  Map.of("email", "user@example.com", "password", "correct horse battery staple"));
+            json = request.toJson();
+        }
+    }
+
+    /**
+     * Response LIST_MY_FILES với {@code files} entries.
+     */
+    @State(Scope.Thread)
+    public static class ListingResponse {
+        @Param({"10", "500"})
+        public int files;
+
+        Response response;
+        String json;
+        byte[] frame;
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+
+        @Setup
+        public void setup() throws Exception {
+            List<Map<String, Object>> entries = new ArrayList<>(files);
+            for (int i = 0; i < files; i++) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("fileId", 10_000 + i);
+                entry.put("fileName", "Tài liệu " + i + ".pdf");
+                entry.put("ownerEmail", "owner" + (i % 7) + "@example.com");
+                entry.put("sizeBytes", 1024L * (i + 1));
+                entry.put("currentVersion", 1 + i % 5);
+                entry.put("updatedAt", "2025-01-" + (10 + i % 20) + "T08:30:00");
+                entries.add(entry);
+            }
+            response = Response.success(entries);
+            json = response.toJson();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            JsonCodec.writeFrame(out, response);
+            frame = out.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public String requestToJson(LoginRequest login) throws Exception {
+        return login.request.toJson();
+    }
+
+    @Benchmark
+    public Request requestFromJson(LoginRequest login) throws Exception {
+        return Request.fromJson(login.json);
+    }
+
+    @Benchmark
+    public String responseToJson(ListingResponse listing) throws Exception {
+        return listing.response.toJson();
+    }
+
+    @Benchmark
+    public Response responseFromJson(ListingResponse listing) throws Exception {
+        return Response.fromJson(listing.json);
+    }
+
+    @Benchmark
+    public Response responseRoundTrip(ListingResponse listing) throws Exception {
+        return Response.fromJson(listing.response.toJson());
+    }
+
+    @Benchmark
+    public int responseWriteFrame(ListingResponse listing) throws Exception {
+        listing.sink.reset();
+        JsonCodec.writeFrame(listing.sink, listing.response);
+        return listing.sink.size();
+    }
+
+    @Benchmark
+    public Response responseReadFrame(ListingResponse listing) throws Exception {
+        return JsonCodec.readResponse(new ByteArrayInputStream(listing.frame));
+    }
+}
@@ -0,0 +1,114 @@
+package com.drivelite.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.drivelite.server.db.DatabaseConfig;
+import com.drivelite.server.db.DatabaseManager;
+import com.drivelite.server.db.entity.FileMetadata;
+import com.drivelite.server.db.entity.FileVersion;
+import com.drivelite.server.db.entity.Session;
+import com.drivelite.server.db.entity.User;
+import com.drivelite.server.db.repository.FilePermissionRepository;
+import com.drivelite.server.db.repository.FileRepository;
+import com.drivelite.server.db.repository.FileVersionRepository;
+import com.drivelite.server.db.repository.SessionRepository;
+import com.drivelite.server.db.repository.UserRepository;
+
+/**
+ * Repository calls trên H2 in-memory (DB_DIALECT=h2, cùng T-SQL với SQL Server), không cần server DB.
+ *
+ * Dữ liệu: 2 user, owner có {@code filesPerUser} files (mỗi file 3 versions) và share hết cho user còn lại.
+ * Số đo gồm chi phí mở connection + instrumentation như server thật; chỉ so sánh giữa các lần chạy
+ * trên H2, không suy ra latency tuyệt đối của SQL Server.
+ *
+ * Chạy: java -jar benchmarks/target/benchmarks.jar RepositoryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @Param({"20", "500"})
+    public int filesPerUser;
+
+    private final UserRepository userRepository = new UserRepository();
+    private final SessionRepository sessionRepository = new SessionRepository();
+    private final FileRepository fileRepository = new FileRepository();
+    private final FileVersionRepository versionRepository = new FileVersionRepository();
+    private final FilePermissionRepository permissionRepository = new FilePermissionRepository();
+
+    private User owner;
+    private User viewer;
+    private String token;
+    private int sampleFileId;
+
+    @Setup
+    public void setup() throws Exception {
+        // Mỗi fork là một JVM mới → mỗi giá trị filesPerUser có DB in-memory riêng
+        DatabaseManager.initialize(DatabaseConfig.embedded(null));
+
+        owner = userRepository.create("owner@bench.local", "$2a$10$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbench", "Owner");
+        viewer = userRepository.create("viewer@bench.local", "$2a$10$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbench", "Viewer");
+        token = sessionRepository.create(owner.getUserId(), 24).getToken();
+
+        for (int i = 0; i < filesPerUser; i++) {
+            FileMetadata file = fileRepository.create(owner.getUserId(), "file-" + i + ".bin");
+            permissionRepository.addPermission(file.getFileId(), owner.getUserId(), "OWNER", owner.getUserId());
+            permissionRepository.addPermission(file.getFileId(), viewer.getUserId(), "VIEW", owner.getUserId());
+            for (int v = 1; v <= 3; v++) {
+                versionRepository.create(file.getFileId(), v, file.getFileId() + "/" + v, 1024L * v,
+                                         "0".repeat(64), owner.getUserId(), null);
+            }
+            fileRepository.updateCurrentVersion(file.getFileId(), 3);
+            sampleFileId = file.getFileId();
+        }
+    }
+
+    @Benchmark
+    public Optional<User> findUserByEmail() throws Exception {
+        return userRepository.findByEmail("owner@bench.local");
+    }
+
+    @Benchmark
+    public Optional<Session> findSessionByToken() throws Exception {
+        return sessionRepository.findByToken(token);
+    }
+
+    @Benchmark
+    public List<FileMetadata> findFilesByOwner() throws Exception {
+        return fileRepository.findByOwner(owner.getUserId());
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> findSharedFilesForUser() throws Exception {
+        return permissionRepository.findSharedFilesForUser(viewer.getUserId());
+    }
+
+    @Benchmark
+    public List<FileVersion> findVersionsByFile() throws Exception {
+        return versionRepository.findByFileId(sampleFileId);
+    }
+
+    @Benchmark
+    public boolean checkPermission() throws Exception {
+        return permissionRepository.hasMinimumPermission(sampleFileId, viewer.getUserId(), "VIEW");
+    }
+}
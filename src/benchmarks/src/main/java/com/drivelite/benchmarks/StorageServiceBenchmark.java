@@ -0,0 +1,103 @@
+package com.drivelite.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.drivelite.server.service.StorageService;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * StorageService.saveFile/readFile trên thư mục tạm (SHA-256 + ghi disk, đọc tuần tự).
+ *
+ * - size: kích thước version (pack tắt để mọi size đi đường file riêng trên root)
+ * - chunk: số bytes mỗi lần read từ stream nguồn khi save (mô phỏng socket read)
+ *   và kích thước buffer của caller khi đọc lại
+ *
+ * Kết quả phụ thuộc disk và page cache của máy chạy: chỉ so sánh các lần chạy trên cùng máy.
+ *
+ * Chạy: java -jar benchmarks/target/benchmarks.jar StorageServiceBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageServiceBenchmark {
+
+    private static final int READ_FILE_ID = 1;
+    private static final int SAVE_FILE_ID = 2;
+
+    @Param({"65536", "1048576", "16777216"})
+    public int size;
+
+    @Param({"8192", "65536", "1048576"})
+    public int chunk;
+
+    private Path storageDir;
+    private StorageService storage;
+    private byte[] data;
+    private byte[] readBuffer;
+
+    @Setup
+    public void setup() throws Exception {
+        storageDir = Files.createTempDirectory("drivelite-bench-");
+        Files.write(storageDir.resolve(".env"), String.join("\n",
+            "STORAGE_PATH=" + storageDir.resolve("storage").toAbsolutePath(),
+            "PACK_SMALL_FILES=false").getBytes(StandardCharsets.UTF_8));
+        Dotenv dotenv = Dotenv.configure().directory(storageDir.toString()).load();
+        storage = new StorageService(dotenv);
+
+        data = new byte[size];
+        new Random(42).nextBytes(data);
+        readBuffer = new byte[chunk];
+        storage.saveFile(READ_FILE_ID, 1, new ByteArrayInputStream(data), size);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(storageDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String saveFile() throws Exception {
+        InputStream source = new FrameIOBenchmark.ChunkedInputStream(new ByteArrayInputStream(data), chunk);
+        return storage.saveFile(SAVE_FILE_ID, 1, source, size);
+    }
+
+    @Benchmark
+    public long readFile() throws IOException {
+        long total = 0;
+        try (InputStream in = storage.readFile(READ_FILE_ID, 1)) {
+            int n;
+            while ((n = in.read(readBuffer)) != -1) {
+                total += n;
+            }
+        }
+        return total;
+    }
+}
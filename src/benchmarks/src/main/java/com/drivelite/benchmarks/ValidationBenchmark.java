@@ -0,0 +1,51 @@
+package com.drivelite.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.drivelite.server.security.ValidationUtils;
+
+/**
+ * ValidationUtils.sanitizeFileName (gọi trên mọi UPLOAD_BEGIN/RENAME).
+ *
+ * Dataset:
+ * - plain: tên file bình thường (đường nhanh)
+ * - path: tên kèm đường dẫn client gửi lên
+ * - dangerous: ký tự điều khiển/reserved cần thay thế
+ * - reserved: tên thiết bị Windows
+ * - unicode: tên tiếng Việt dài
+ *
+ * Chạy: java -jar benchmarks/target/benchmarks.jar ValidationBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    @Param({
+        "report-2025-01.pdf",
+        "C:\\Users\\alice\\Documents\\Quarterly Report.xlsx",
+        "inv<oice>:\"2025\"|?*.txt",
+        "CON.txt",
+        "Biên bản họp hội đồng quản trị quý IV năm 2025 - bản cuối cùng đã ký.docx"
+    })
+    public String fileName;
+
+    @Benchmark
+    public String sanitizeFileName() {
+        return ValidationUtils.sanitizeFileName(fileName);
+    }
+}
@@ -1,10 +1,18 @@
 package com.drivelite.client;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import com.drivelite.client.net.TcpClient;
 import com.drivelite.client.service.AuthService;
+import com.drivelite.client.service.ContentCache;
 import com.drivelite.client.service.FileService;
+import com.drivelite.client.service.TransferManager;
 import com.drivelite.client.ui.FileManagerScreen;
 import com.drivelite.client.ui.LoginScreen;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -17,12 +25,15 @@ import javafx.stage.Stage;
  */
 public class ClientMain extends Application {
 
+    private static final Logger LOG = Log.getLogger("CLIENT");
+
     private static ClientMain instance;
     
     private Stage primaryStage;
     private TcpClient tcpClient;
     private AuthService authService;
     private FileService fileService;
+    private TransferManager transferManager;
     
     private String currentUserEmail;
 
@@ -34,7 +45,7 @@ public class ClientMain extends Application {
         // Initialize services
         tcpClient = new TcpClient();
         authService = new AuthService(tcpClient);
-        fileService = new FileService(tcpClient);
+        fileService = new FileService(tcpClient, openContentCache());
         
         // Show login screen
         showLoginScreen();
@@ -43,6 +54,7 @@ public class ClientMain extends Application {
         primaryStage.setMinWidth(800);
         primaryStage.setMinHeight(600);
         primaryStage.setOnCloseRequest(e -> {
+            stopTransfers();
             tcpClient.close();
             Platform.exit();
         });
@@ -59,11 +71,46 @@ public class ClientMain extends Application {
 
     public void showFileManager(String userEmail) {
         this.currentUserEmail = userEmail;
+        stopTransfers();
+        transferManager = new TransferManager(fileService, transferQueueFile(userEmail),
+                                              TcpClient.MAX_TRANSFER_CONNECTIONS);
         FileManagerScreen fileManager = new FileManagerScreen(this);
+        tcpClient.setConnectionListener(fileManager::onConnectionChanged);
         Scene scene = new Scene(fileManager, 1000, 700);
         loadStylesheet(scene);
         primaryStage.setScene(scene);
         primaryStage.setTitle("Drive-lite - " + userEmail);
+        // Chạy tiếp hàng đợi upload/download còn dở từ lần trước
+        transferManager.restore();
+    }
+
+    /**
+     * File lưu hàng đợi transfer, riêng cho từng user: ~/.drivelite/transfers-<email>.json
+     */
+    private static Path transferQueueFile(String userEmail) {
+        String safeName = userEmail.replaceAll("[^A-Za-z0-9._-]", "_");
+        return Paths.get(System.getProperty("user.home"), ".drivelite", "transfers-" + safeName + ".json");
+    }
+
+    /**
+     * Cache nội dung download/preview: ~/.drivelite/cache (dùng chung mọi user, key là sha256).
+     * Không mở được thì chạy không cache.
+     */
+    private static ContentCache openContentCache() {
+        try {
+            return new ContentCache(Paths.get(System.getProperty("user.home"), ".drivelite", "cache"),
+                                    ContentCache.DEFAULT_MAX_BYTES);
+        } catch (IOException e) {
+            LOG.warn("Content cache disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void stopTransfers() {
+        if (transferManager != null) {
+            transferManager.shutdown();
+            transferManager = null;
+        }
     }
 
     private void loadStylesheet(Scene scene) {
@@ -71,13 +118,16 @@ public class ClientMain extends Application {
         if (cssUrl != null) {
             scene.getStylesheets().add(cssUrl.toExternalForm());
         } else {
-            System.out.println("[WARN] CSS file not found: /styles/app.css");
+            LOG.warn("CSS file not found: /styles/app.css");
         }
     }
 
     public void logout() {
+        stopTransfers();
+        tcpClient.setConnectionListener(null);
         authService.logout();
         tcpClient.disconnect();
+        fileService.clearCache();
         currentUserEmail = null;
         showLoginScreen();
     }
@@ -87,6 +137,7 @@ public class ClientMain extends Application {
     public TcpClient getTcpClient() { return tcpClient; }
     public AuthService getAuthService() { return authService; }
     public FileService getFileService() { return fileService; }
+    public TransferManager getTransferManager() { return transferManager; }
     public String getCurrentUserEmail() { return currentUserEmail; }
     public Stage getPrimaryStage() { return primaryStage; }
 
@@ -0,0 +1,39 @@
+package com.drivelite.client.model;
+
+/**
+ * DTO cho preview do server tạo (GET_PREVIEW): thumbnail ảnh hoặc đoạn đầu file text.
+ */
+public class FilePreview {
+    private boolean image;
+    private byte[] imageBytes;
+    private String text;
+    private boolean truncated;
+
+    public FilePreview() {}
+
+    public static FilePreview ofImage(byte[] imageBytes) {
+        FilePreview preview = new FilePreview();
+        preview.setImage(true);
+        preview.setImageBytes(imageBytes);
+        return preview;
+    }
+
+    public static FilePreview ofText(String text, boolean truncated) {
+        FilePreview preview = new FilePreview();
+        preview.setText(text);
+        preview.setTruncated(truncated);
+        return preview;
+    }
+
+    public boolean isImage() { return image; }
+    public void setImage(boolean image) { this.image = image; }
+
+    public byte[] getImageBytes() { return imageBytes; }
+    public void setImageBytes(byte[] imageBytes) { this.imageBytes = imageBytes; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public boolean isTruncated() { return truncated; }
+    public void setTruncated(boolean truncated) { this.truncated = truncated; }
+}
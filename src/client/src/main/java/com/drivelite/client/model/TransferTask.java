@@ -0,0 +1,126 @@
+package com.drivelite.client.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Một upload/download trong hàng đợi của TransferManager.
+ *
+ * Trạng thái và tiến độ được worker thread cập nhật, UI thread đọc → các field thay đổi là volatile.
+ * Được lưu xuống file (JSON) để hàng đợi còn sau khi tắt client.
+ */
+public class TransferTask {
+
+    public enum Kind {
+        UPLOAD,
+        UPLOAD_VERSION,
+        UPLOAD_FOLDER,
+        DOWNLOAD
+    }
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        PAUSED,
+        COMPLETED,
+        FAILED,
+        CANCELLED;
+
+        /** Đã kết thúc, không chạy lại được. */
+        public boolean isFinished() {
+            return this == COMPLETED || this == CANCELLED;
+        }
+    }
+
+    private long id;
+    private Kind kind;
+    private String fileName;
+    private String localPath;
+    private Integer fileId;          // UPLOAD_VERSION, DOWNLOAD
+    private Integer versionNumber;   // DOWNLOAD phiên bản cũ (null = mới nhất)
+    private String note;             // UPLOAD_VERSION
+    private int committedFiles;      // UPLOAD_FOLDER: số file đầu (theo thứ tự duyệt) đã commit, resume bỏ qua
+    private Integer partialVersion;  // DOWNLOAD: version của phần đã tải vào localPath, resume tải tiếp
+    private String partialSha256;    // DOWNLOAD: sha256 của version đó (null = chưa tải gì)
+    private volatile State state = State.QUEUED;
+    private volatile long bytesDone;
+    private volatile long bytesTotal;
+    private volatile String error;
+
+    // Yêu cầu dừng (PAUSED/CANCELLED, QUEUED khi shutdown) cho transfer đang chạy, worker kiểm tra ở mỗi chunk
+    @JsonIgnore
+    private volatile State stopRequest;
+
+    public TransferTask() {}
+
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+
+    public Kind getKind() { return kind; }
+    public void setKind(Kind kind) { this.kind = kind; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public String getLocalPath() { return localPath; }
+    public void setLocalPath(String localPath) { this.localPath = localPath; }
+
+    public Integer getFileId() { return fileId; }
+    public void setFileId(Integer fileId) { this.fileId = fileId; }
+
+    public Integer getVersionNumber() { return versionNumber; }
+    public void setVersionNumber(Integer versionNumber) { this.versionNumber = versionNumber; }
+
+    public String getNote() { return note; }
+    public void setNote(String note) { this.note = note; }
+
+    public int getCommittedFiles() { return committedFiles; }
+    public void setCommittedFiles(int committedFiles) { this.committedFiles = committedFiles; }
+
+    public Integer getPartialVersion() { return partialVersion; }
+    public void setPartialVersion(Integer partialVersion) { this.partialVersion = partialVersion; }
+
+    public String getPartialSha256() { return partialSha256; }
+    public void setPartialSha256(String partialSha256) { this.partialSha256 = partialSha256; }
+
+    public State getState() { return state; }
+    public void setState(State state) { this.state = state; }
+
+    public long getBytesDone() { return bytesDone; }
+    public void setBytesDone(long bytesDone) { this.bytesDone = bytesDone; }
+
+    public long getBytesTotal() { return bytesTotal; }
+    public void setBytesTotal(long bytesTotal) { this.bytesTotal = bytesTotal; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    @JsonIgnore
+    public State getStopRequest() { return stopRequest; }
+    public void setStopRequest(State stopRequest) { this.stopRequest = stopRequest; }
+
+    @JsonIgnore
+    public boolean isUpload() {
+        return kind != Kind.DOWNLOAD;
+    }
+
+    /**
+     * Tiến độ 0..1, -1 nếu chưa biết kích thước.
+     */
+    @JsonIgnore
+    public double getProgress() {
+        long total = bytesTotal;
+        return total > 0 ? Math.min(1.0, (double) bytesDone / total) : -1;
+    }
+
+    @JsonIgnore
+    public String getFormattedProgress() {
+        return formatSize(bytesDone) + " / " + (bytesTotal > 0 ? formatSize(bytesTotal) : "?");
+    }
+
+    public static String formatSize(long size) {
+        if (size < 1024) return size + " B";
+        if (size < 1024 * 1024) return String.format("%.1f KB", size / 1024.0);
+        if (size < 1024 * 1024 * 1024) return String.format("%.1f MB", size / (1024.0 * 1024));
+        return String.format("%.2f GB", size / (1024.0 * 1024 * 1024));
+    }
+}
@@ -0,0 +1,156 @@
+package com.drivelite.client.net;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+
+/**
+ * Control lane đã negotiate pipelining: nhiều request cùng bay trên một connection.
+ *
+ * Writer: mỗi request được ghi ngay (dưới write lock) và đăng ký một CompletableFuture theo requestId.
+ * Reader: một thread duy nhất đọc response liên tục và complete future có cùng requestId,
+ * nên response về không theo thứ tự vẫn đến đúng người gọi.
+ *
+ * Mỗi request có timeout riêng; response đến sau timeout bị bỏ qua, connection vẫn dùng tiếp.
+ * Riêng khi từ lúc gửi request tới lúc timeout không nhận được response nào (thay cho SO_TIMEOUT
+ * của connection tuần tự): connection coi như half-open (peer mất mà không có FIN/RST) và bị đóng.
+ * Lỗi I/O ở reader hay writer làm fail mọi request đang chờ và đóng connection.
+ */
+final class PipelinedChannel {
+
+    private static final Logger TCP_LOG = Log.getLogger("TCP");
+
+    private final ServerConnection connection;
+    private final Supplier<String> requestIds;
+    private final Consumer<PipelinedChannel> onConnectionLost;
+    private final long timeoutMs;
+    private final Map<String, CompletableFuture<Response>> pending = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // System.nanoTime() lúc reader nhận response gần nhất
+    private volatile long lastResponseNanos = System.nanoTime();
+    private final Thread reader;
+
+    /**
+     * @param requestIds sinh requestId mới khi request chưa có id hoặc id đang trùng request khác
+     * @param onConnectionLost gọi (từ reader/writer thread) khi connection chết ngoài ý muốn
+     */
+    PipelinedChannel(ServerConnection connection, Supplier<String> requestIds,
+                     Consumer<PipelinedChannel> onConnectionLost, long timeoutMs) throws IOException {
+        this.connection = connection;
+        this.requestIds = requestIds;
+        this.onConnectionLost = onConnectionLost;
+        this.timeoutMs = timeoutMs;
+        // Reader block chờ response bất kỳ lúc nào; timeout tính theo từng request thay vì SO_TIMEOUT
+        connection.setReadTimeout(0);
+        this.reader = new Thread(this::readLoop, "TcpClient-Reader");
+        this.reader.setDaemon(true);
+    }
+
+    void start() {
+        reader.start();
+    }
+
+    /**
+     * Gửi request, không chờ response.
+     *
+     * @return future complete với response có cùng requestId, hoặc exceptionally với IOException
+     *         (SocketTimeoutException nếu quá timeout)
+     */
+    CompletableFuture<Response> submit(Request request) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        String requestId = request.getRequestId();
+        if (requestId == null || pending.putIfAbsent(requestId, future) != null) {
+            do {
+                requestId = requestIds.get();
+            } while (pending.putIfAbsent(requestId, future) != null);
+            request.setRequestId(requestId);
+        }
+        String key = requestId;
+        future.whenComplete((response, error) -> pending.remove(key, future));
+
+        // Đăng ký trước rồi mới kiểm tra closed: close() đồng thời sẽ thấy future này trong pending
+        if (closed.get()) {
+            future.completeExceptionally(new IOException("Not connected to server"));
+            return future;
+        }
+        long submittedAt = System.nanoTime();
+        CompletableFuture.delayedExecutor(timeoutMs, TimeUnit.MILLISECONDS).execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            if (lastResponseNanos - submittedAt < 0) {
+                // Không có byte nào từ server suốt timeout: connection chết, để TcpClient reconnect
+                connectionLost(new SocketTimeoutException("No response from server in " + timeoutMs + "ms"));
+            } else {
+                future.completeExceptionally(new SocketTimeoutException("Request timed out"));
+            }
+        });
+
+        try {
+            synchronized (writeLock) {
+                connection.sendRequestOnly(request);
+            }
+        } catch (IOException e) {
+            connectionLost(e);
+        }
+        return future;
+    }
+
+    /**
+     * Đóng chủ động (disconnect): không gọi onConnectionLost.
+     */
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            connection.close();
+            failPending(new IOException("Connection closed"));
+        }
+    }
+
+    private void readLoop() {
+        try {
+            while (!closed.get()) {
+                Response response = connection.readResponse();
+                lastResponseNanos = System.nanoTime();
+                String requestId = response.getRequestId();
+                CompletableFuture<Response> future = requestId != null ? pending.remove(requestId) : null;
+                if (future != null) {
+                    future.complete(response);
+                } else {
+                    // Response của request đã timeout, hoặc lỗi server không gắn được với request nào
+                    TCP_LOG.debug("Dropping unmatched response: requestId=" + requestId +
+                        ", code=" + response.getCode());
+                }
+            }
+        } catch (IOException e) {
+            connectionLost(e);
+        }
+    }
+
+    private void connectionLost(IOException cause) {
+        if (closed.compareAndSet(false, true)) {
+            TCP_LOG.debug("Control connection lost: " + cause.getMessage());
+            connection.close();
+            failPending(cause);
+            onConnectionLost.accept(this);
+        }
+    }
+
+    private void failPending(IOException cause) {
+        for (CompletableFuture<Response> future : pending.values()) {
+            future.completeExceptionally(cause);
+        }
+        pending.clear();
+    }
+}
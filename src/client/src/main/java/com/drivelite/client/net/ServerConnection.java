@@ -0,0 +1,190 @@
+package com.drivelite.client.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+
+import com.drivelite.common.codec.FrameEncoding;
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.drivelite.common.protocol.MessageType;
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Một socket tới server: connect (SSL nếu có), negotiate encoding/pipelining bằng HELLO, gửi/nhận frame.
+ *
+ * Không thread-safe: TcpClient đảm bảo mỗi chiều (ghi/đọc) chỉ được một thread dùng tại một thời điểm
+ * (control lane qua lock hoặc {@link PipelinedChannel}, transfer connection qua lease).
+ */
+final class ServerConnection implements AutoCloseable {
+
+    private static final Logger TCP_LOG = Log.getLogger("TCP");
+
+    private static final int CONNECT_TIMEOUT_MS = 10_000; // 10s
+    static final int READ_TIMEOUT_MS = 60_000;    // 60s
+
+    private final Socket socket;
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+    private FrameEncoding frameEncoding = FrameEncoding.JSON;
+    private boolean pipelining;
+    private volatile long lastUsedNanos = System.nanoTime();
+
+    private ServerConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.inputStream = socket.getInputStream();
+        this.outputStream = socket.getOutputStream();
+    }
+
+    /**
+     * Mở connection mới và negotiate encoding.
+     *
+     * @param sslContext null = không mã hóa
+     * @param preferredEncoding JSON + không pipelining = không gửi HELLO (protocol v1)
+     * @param pipelining xin server cho phép pipelining (chỉ control lane)
+     */
+    static ServerConnection open(String host, int port, SSLContext sslContext,
+                                 FrameEncoding preferredEncoding, boolean pipelining) throws IOException {
+        Socket socket;
+        if (sslContext != null) {
+            socket = sslContext.getSocketFactory().createSocket();
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+
+            // Cấu hình SSL socket
+            SSLSocket sslSocket = (SSLSocket) socket;
+            sslSocket.setEnabledProtocols(new String[]{"TLSv1.3", "TLSv1.2"});
+            sslSocket.startHandshake();
+        } else {
+            socket = new Socket();
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        }
+        socket.setSoTimeout(READ_TIMEOUT_MS);
+        socket.setKeepAlive(true);
+        socket.setTcpNoDelay(true);
+
+        ServerConnection connection = new ServerConnection(socket);
+        try {
+            connection.negotiate(preferredEncoding, pipelining);
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * Gửi HELLO (bằng JSON) để chọn encoding và bật pipelining cho connection.
+     * Server cũ không biết HELLO → trả lỗi → giữ JSON, tuần tự.
+     */
+    private void negotiate(FrameEncoding preferredEncoding, boolean requestPipelining) throws IOException {
+        if (preferredEncoding == FrameEncoding.JSON && !requestPipelining) {
+            return;
+        }
+        Map<String, Object> offer = new HashMap<>();
+        offer.put("encodings", List.of(preferredEncoding.name(), FrameEncoding.JSON.name()));
+        if (requestPipelining) {
+            offer.put("pipelining", true);
+        }
+        Request hello = new Request(MessageType.HELLO, null, "hello-" + System.currentTimeMillis(), offer);
+        JsonCodec.writeFrame(outputStream, hello);
+        Response response = readResponse();
+        if (response.isOk() && response.getData() instanceof Map) {
+            Map<?, ?> accepted = (Map<?, ?>) response.getData();
+            frameEncoding = FrameEncoding.fromName((String) accepted.get("encoding"));
+            pipelining = Boolean.TRUE.equals(accepted.get("pipelining"));
+        } else {
+            TCP_LOG.debug("HELLO not supported by server, using JSON: " + response.getMessage());
+        }
+    }
+
+    Response sendRequest(Request request) throws IOException {
+        sendRequestOnly(request);
+        return readResponse();
+    }
+
+    void sendRequestOnly(Request request) throws IOException {
+        touch();
+        JsonCodec.writeFrame(outputStream, request, frameEncoding);
+    }
+
+    Response readResponse() throws IOException {
+        Response response;
+        try {
+            response = JsonCodec.readResponse(inputStream);
+        } catch (JsonProcessingException e) {
+            throw new IOException("Failed to parse response: " + e.getOriginalMessage(), e);
+        }
+        touch();
+        if (TCP_LOG.isDebugEnabled()) {
+            TCP_LOG.debug("Parsed response - ok: " + response.isOk() + ", data type: " +
+                (response.getData() != null ? response.getData().getClass().getName() : "null"));
+        }
+        return response;
+    }
+
+    /**
+     * Health check: PING phải trả về OK trong read timeout.
+     */
+    boolean ping() {
+        try {
+            return sendRequest(new Request(MessageType.PING, null, "ping-" + System.currentTimeMillis(), null)).isOk();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    InputStream getInputStream() {
+        return inputStream;
+    }
+
+    OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    FrameEncoding getFrameEncoding() {
+        return frameEncoding;
+    }
+
+    /**
+     * Server đồng ý pipelining: response mang requestId, có thể về không theo thứ tự.
+     */
+    boolean isPipelining() {
+        return pipelining;
+    }
+
+    void setReadTimeout(int timeoutMs) throws IOException {
+        socket.setSoTimeout(timeoutMs);
+    }
+
+    boolean isOpen() {
+        return !socket.isClosed();
+    }
+
+    void touch() {
+        lastUsedNanos = System.nanoTime();
+    }
+
+    long idleNanos() {
+        return System.nanoTime() - lastUsedNanos;
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+}
@@ -1,20 +1,32 @@
 package com.drivelite.client.net;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.Socket;
+import java.io.InterruptedIOException;
 import java.net.SocketTimeoutException;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocket;
-import javax.net.ssl.SSLSocketFactory;
 
+import com.drivelite.common.codec.FrameEncoding;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.ssl.SSLContextFactory;
@@ -22,19 +34,62 @@ import com.drivelite.common.ssl.SSLContextFactory;
 /**
  * TCP Client để kết nối tới server.
  * Thread-safe, sử dụng length-prefix framing.
+ *
+ * Pool connection dùng chung một session token:
+ * - Control lane: một connection cố định cho request/response ngắn (list, share, rename...).
+ *   Nếu server hỗ trợ pipelining (HELLO), nhiều request cùng bay trên control lane và response được
+ *   ghép theo requestId ({@link PipelinedChannel}); server cũ thì gửi tuần tự từng request.
+ * - Transfer connections: mở theo nhu cầu cho upload/download qua {@link #openTransfer()},
+ *   tối đa {@link #MAX_TRANSFER_CONNECTIONS} cùng lúc. Raw bytes của file chỉ đi trên transfer
+ *   connection nên control lane không bị chặn (hay lệch stream) trong lúc truyền file lớn.
+ *
+ * Transfer connection rảnh được giữ lại để dùng tiếp (tối đa {@link #MAX_IDLE_TRANSFERS}),
+ * PING lại trước khi dùng nếu đã rảnh lâu, và bị đóng khi rảnh quá {@link #IDLE_TIMEOUT_MS}.
+ *
+ * Mất control lane (server restart, mạng chập chờn) mà không phải do {@link #disconnect()}:
+ * client tự kết nối lại nền với backoff lũy thừa ({@link #INITIAL_RECONNECT_DELAY_MS} →
+ * {@link #MAX_RECONNECT_DELAY_MS}, có jitter). Session token được giữ nguyên và gửi kèm mọi request
+ * trên connection mới nên không phải đăng nhập lại (server xác thực lại theo token).
+ * connectionListener nhận false khi mất kết nối và true khi đã kết nối lại.
  */
 public class TcpClient implements AutoCloseable {
 
-    private static final int CONNECT_TIMEOUT_MS = 10_000; // 10s
-    private static final int READ_TIMEOUT_MS = 60_000;    // 60s
+    private static final Logger LOG = Log.getLogger("CLIENT");
+
+    public static final int MAX_TRANSFER_CONNECTIONS = 3;
+    static final int MAX_IDLE_TRANSFERS = 1;
+    private static final long IDLE_TIMEOUT_MS = 60_000;          // đóng transfer connection rảnh quá 60s
+    private static final long HEALTH_CHECK_AFTER_MS = 15_000;    // PING trước khi dùng lại nếu rảnh quá 15s
+    private static final long REAP_INTERVAL_MS = 15_000;
+    static final long INITIAL_RECONNECT_DELAY_MS = 500;
+    static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    // Một thread daemon dùng chung cho mọi TcpClient (loadgen tạo nhiều client trong một process)
+    private static final ScheduledExecutorService REAPER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "TcpClient-Reaper");
+        t.setDaemon(true);
+        return t;
+    });
 
     private String host;
     private int port;
-    private Socket socket;
-    private InputStream inputStream;
-    private OutputStream outputStream;
     private String sessionToken;
-    
+
+    // Control lane: lock riêng để disconnect/openTransfer không phải chờ request đang chạy.
+    // pipeline != null khi server cho phép pipelining; khi đó không dùng controlLock.
+    private final Object controlLock = new Object();
+    private volatile ServerConnection control;
+    private volatile PipelinedChannel pipeline;
+
+    // requestId duy nhất trong client (pipelining ghép response theo requestId)
+    private final AtomicLong requestCounter = new AtomicLong();
+
+    // Transfer pool: idle + đang cho mượn, guard bởi chính deque idleTransfers
+    private final Deque<ServerConnection> idleTransfers = new ArrayDeque<>();
+    private final Set<ServerConnection> leasedTransfers = ConcurrentHashMap.newKeySet();
+    private final Semaphore transferPermits = new Semaphore(MAX_TRANSFER_CONNECTIONS, true);
+    private ScheduledFuture<?> reaperTask;
+
     private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
         Thread t = new Thread(r, "TcpClient-Worker");
         t.setDaemon(true);
@@ -43,24 +98,50 @@ public class TcpClient implements AutoCloseable {
 
     private volatile boolean connected = false;
     private Consumer<Boolean> connectionListener;
-    
+
+    // Auto reconnect: wantConnected = đã connect() và chưa disconnect() (guard bởi this)
+    private volatile boolean autoReconnect = true;
+    private volatile boolean wantConnected;
+    private ScheduledFuture<?> reconnectTask;
+    private int reconnectAttempts;
+    private final Object connectionMonitor = new Object();
+
     private SSLContext sslContext;
     private boolean sslEnabled = false;
 
+    // Encoding muốn dùng cho control frames (negotiate riêng trên từng connection bằng HELLO)
+    private FrameEncoding preferredEncoding = FrameEncoding.SMILE;
+
     public TcpClient() {
     }
 
+    /**
+     * Chọn encoding cho control frames (mặc định SMILE, fallback JSON nếu server không hỗ trợ).
+     * JSON = không gửi HELLO, giữ nguyên protocol v1. Phải gọi trước connect().
+     */
+    public void setPreferredEncoding(FrameEncoding encoding) {
+        this.preferredEncoding = encoding != null ? encoding : FrameEncoding.JSON;
+    }
+
+    /**
+     * Encoding đang dùng trên control lane.
+     */
+    public FrameEncoding getFrameEncoding() {
+        ServerConnection current = control;
+        return current != null ? current.getFrameEncoding() : FrameEncoding.JSON;
+    }
+
     /**
      * Enable SSL/TLS encryption.
      * Phải gọi trước connect().
-     * 
+     *
      * @param truststorePath Đường dẫn đến truststore (.p12)
      * @param truststorePassword Password của truststore
      */
     public void enableSSL(String truststorePath, String truststorePassword) throws Exception {
         this.sslContext = SSLContextFactory.createClientContext(truststorePath, truststorePassword);
         this.sslEnabled = true;
-        System.out.println("[CLIENT] SSL/TLS enabled");
+        LOG.info("SSL/TLS enabled");
     }
 
     /**
@@ -70,229 +151,441 @@ public class TcpClient implements AutoCloseable {
     public void enableSSLTrustAll() throws Exception {
         this.sslContext = SSLContextFactory.createTrustAllContext();
         this.sslEnabled = true;
-        System.out.println("[CLIENT] SSL/TLS enabled (TRUST ALL - DEV ONLY!)");
+        LOG.info("SSL/TLS enabled (TRUST ALL - DEV ONLY!)");
     }
 
     /**
-     * Kết nối tới server.
+     * Kết nối tới server (mở control lane).
      */
     public synchronized void connect(String host, int port) throws IOException {
         if (connected) {
             disconnect();
         }
-        
+
         this.host = host;
         this.port = port;
-        
-        if (sslEnabled && sslContext != null) {
-            SSLSocketFactory factory = sslContext.getSocketFactory();
-            socket = factory.createSocket();
-            socket.connect(new java.net.InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
-            
-            // Cấu hình SSL socket
-            SSLSocket sslSocket = (SSLSocket) socket;
-            sslSocket.setEnabledProtocols(new String[]{"TLSv1.3", "TLSv1.2"});
-            sslSocket.startHandshake();
-            System.out.println("[CLIENT] SSL handshake completed");
+        wantConnected = true;
+        openControl();
+    }
+
+    /**
+     * Mở control lane tới host/port hiện tại, giữ nguyên session token.
+     */
+    private void openControl() throws IOException {
+        ServerConnection connection = ServerConnection.open(host, port, activeSslContext(), preferredEncoding, true);
+        PipelinedChannel channel = null;
+        if (connection.isPipelining()) {
+            channel = new PipelinedChannel(connection, this::nextRequestId, this::onPipelineLost,
+                ServerConnection.READ_TIMEOUT_MS);
+            channel.start();
+        }
+        if (activeSslContext() != null) {
+            LOG.info("SSL handshake completed");
         } else {
-            socket = new Socket();
-            socket.connect(new java.net.InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
-            System.out.println("[CLIENT] WARNING: Connected without SSL/TLS encryption!");
-        }
-        socket.setSoTimeout(READ_TIMEOUT_MS);
-        socket.setKeepAlive(true);
-        socket.setTcpNoDelay(true);
-        
-        inputStream = socket.getInputStream();
-        outputStream = socket.getOutputStream();
+            LOG.warn("WARNING: Connected without SSL/TLS encryption!");
+        }
+        synchronized (controlLock) {
+            control = connection;
+            pipeline = channel;
+        }
         connected = true;
-        
+        startReaper();
+        synchronized (connectionMonitor) {
+            connectionMonitor.notifyAll();
+        }
+
         notifyConnectionChange(true);
-        System.out.println("[CLIENT] Connected to " + host + ":" + port);
+        LOG.info("Connected to " + host + ":" + port + " (" + connection.getFrameEncoding() +
+            (channel != null ? ", pipelined" : "") + ")");
     }
 
     /**
-     * Ngắt kết nối.
+     * Ngắt kết nối: đóng control lane và mọi transfer connection (kể cả đang cho mượn).
      */
     public synchronized void disconnect() {
-        if (socket != null && !socket.isClosed()) {
-            try {
-                socket.close();
-            } catch (IOException e) {
-                // Ignore
-            }
+        // Trước khi đóng channel: onPipelineLost không được lên lịch reconnect
+        wantConnected = false;
+        cancelReconnect();
+        PipelinedChannel channel = pipeline;
+        if (channel != null) {
+            channel.close();
+            pipeline = null;
         }
+        ServerConnection current = control;
+        if (current != null) {
+            current.close();
+        }
+        closeTransfers();
+        stopReaper();
         connected = false;
         sessionToken = null;
         notifyConnectionChange(false);
-        System.out.println("[CLIENT] Disconnected");
+        LOG.info("Disconnected");
     }
 
     /**
-     * Gửi request và nhận response (blocking).
+     * Gửi request và nhận response (blocking) trên control lane.
+     * Khi pipelining, nhiều thread gọi đồng thời không phải chờ nhau.
      */
-    public synchronized Response sendRequest(Request request) throws IOException {
-        if (!isConnected()) {
-            throw new IOException("Not connected to server");
+    public Response sendRequest(Request request) throws IOException {
+        PipelinedChannel channel = pipeline;
+        if (channel != null) {
+            requireControl();
+            applySessionToken(request);
+            return await(channel.submit(request));
         }
-        
-        // Set session token nếu có
-        if (sessionToken != null && request.getSessionToken() == null) {
-            request.setSessionToken(sessionToken);
-        }
-        
+        // Ngoài controlLock: requireControl/markControlLost có thể cần lock this (lên lịch reconnect),
+        // trong khi connect/reconnect giữ this rồi mới lấy controlLock
+        requireControl();
+        ServerConnection connection = null;
+        boolean lost = false;
         try {
-            // Send request
-            String json;
-            try {
-                json = request.toJson();
-            } catch (Exception e) {
-                throw new IOException("Failed to serialize request", e);
+            synchronized (controlLock) {
+                connection = control;
+                applySessionToken(request);
+                try {
+                    return connection.sendRequest(request);
+                } catch (SocketTimeoutException e) {
+                    throw new IOException("Request timed out", e);
+                } catch (IOException e) {
+                    lost = true;
+                    throw e;
+                }
+            }
+        } finally {
+            // Bỏ qua connection cũ lỗi muộn sau khi đã reconnect
+            if (lost && connection == control) {
+                markControlLost();
             }
-            byte[] payload = json.getBytes(StandardCharsets.UTF_8);
-            
-            // Write length prefix (4 bytes big-endian)
-            outputStream.write((payload.length >> 24) & 0xFF);
-            outputStream.write((payload.length >> 16) & 0xFF);
-            outputStream.write((payload.length >> 8) & 0xFF);
-            outputStream.write(payload.length & 0xFF);
-            outputStream.write(payload);
-            outputStream.flush();
-            
-            // Read response
-            return readResponse();
-            
-        } catch (SocketTimeoutException e) {
-            throw new IOException("Request timed out", e);
-        } catch (IOException e) {
-            connected = false;
-            notifyConnectionChange(false);
-            throw e;
         }
     }
 
     /**
      * Gửi request async.
+     *
+     * Khi pipelining, request được ghi ngay và future complete khi response cùng requestId về;
+     * gọi liên tiếp nhiều lần để pipeline nhiều request nhỏ. Server cũ: chạy sendRequest trên worker.
+     *
+     * @return future complete exceptionally với IOException (SocketTimeoutException nếu quá hạn)
      */
     public CompletableFuture<Response> sendRequestAsync(Request request) {
-        return CompletableFuture.supplyAsync(() -> {
+        PipelinedChannel channel = pipeline;
+        if (channel != null && isConnected()) {
+            applySessionToken(request);
+            return channel.submit(request);
+        }
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        executor.execute(() -> {
             try {
-                return sendRequest(request);
+                future.complete(sendRequest(request));
             } catch (IOException e) {
-                throw new RuntimeException(e);
+                future.completeExceptionally(e);
             }
-        }, executor);
+        });
+        return future;
     }
 
     /**
-     * Đọc response từ server.
+     * requestId mới, không trùng trong client này.
      */
-    private Response readResponse() throws IOException {
-        // Read length prefix (4 bytes)
-        byte[] lengthBytes = readExactly(4);
-        int length = ((lengthBytes[0] & 0xFF) << 24) |
-                     ((lengthBytes[1] & 0xFF) << 16) |
-                     ((lengthBytes[2] & 0xFF) << 8) |
-                     (lengthBytes[3] & 0xFF);
-        
-        if (length <= 0 || length > 10 * 1024 * 1024) { // Max 10MB response
-            throw new IOException("Invalid response length: " + length);
-        }
-        
-        // Read payload
-        byte[] payload = readExactly(length);
-        String json = new String(payload, StandardCharsets.UTF_8);
-        
-        // Debug: print raw JSON
-        System.out.println("[TCP] Raw response JSON: " + json);
-        
+    public String nextRequestId() {
+        return "req-" + requestCounter.incrementAndGet();
+    }
+
+    private static Response await(CompletableFuture<Response> future) throws IOException {
         try {
-            Response response = Response.fromJson(json);
-            System.out.println("[TCP] Parsed response - ok: " + response.isOk() + ", data type: " + 
-                (response.getData() != null ? response.getData().getClass().getName() : "null"));
-            return response;
-        } catch (Exception e) {
-            throw new IOException("Failed to parse response: " + e.getMessage(), e);
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SocketTimeoutException) {
+                throw new IOException("Request timed out", cause);
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
         }
     }
 
+    // ========== Transfer Pool ==========
+
     /**
-     * Đọc chính xác n bytes (xử lý partial reads).
+     * Mượn một transfer connection cho upload/download (blocking nếu đã đủ
+     * {@link #MAX_TRANSFER_CONNECTIONS} transfer đang chạy).
+     *
+     * Dùng trong try-with-resources; gọi {@link TransferConnection#markBroken()} nếu
+     * stream có thể đã lệch (lỗi I/O giữa chừng) để connection bị đóng thay vì trả về pool.
      */
-    private byte[] readExactly(int n) throws IOException {
-        byte[] buffer = new byte[n];
-        int totalRead = 0;
-        while (totalRead < n) {
-            int read = inputStream.read(buffer, totalRead, n - totalRead);
-            if (read < 0) {
-                throw new IOException("Connection closed by server");
+    public TransferConnection openTransfer() throws IOException {
+        if (!isConnected()) {
+            throw new IOException("Not connected to server");
+        }
+        try {
+            transferPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a transfer connection");
+        }
+        try {
+            ServerConnection connection = pollHealthyIdle();
+            if (connection == null) {
+                connection = ServerConnection.open(host, port, activeSslContext(), preferredEncoding, false);
+                LOG.debug("Opened transfer connection (" + connection.getFrameEncoding() + ")");
             }
-            totalRead += read;
+            leasedTransfers.add(connection);
+            return new TransferConnection(this, connection);
+        } catch (IOException | RuntimeException e) {
+            transferPermits.release();
+            throw e;
         }
-        return buffer;
     }
 
     /**
-     * Gửi request mà không đọc response (dùng cho READY signal trước khi nhận file bytes).
+     * Nhận lại connection từ TransferConnection.close().
      */
-    public synchronized void sendRequestOnly(Request request) throws IOException {
-        if (!isConnected()) {
-            throw new IOException("Not connected to server");
+    void releaseTransfer(ServerConnection connection, boolean reusable) {
+        try {
+            if (!leasedTransfers.remove(connection)) {
+                // disconnect() đã đóng connection này trong lúc đang cho mượn
+                connection.close();
+                return;
+            }
+            if (reusable && connected && connection.isOpen()) {
+                synchronized (idleTransfers) {
+                    if (idleTransfers.size() < MAX_IDLE_TRANSFERS) {
+                        connection.touch();
+                        idleTransfers.push(connection);
+                        return;
+                    }
+                }
+            }
+            connection.close();
+        } finally {
+            transferPermits.release();
         }
-        
+    }
+
+    void applySessionToken(Request request) {
         if (sessionToken != null && request.getSessionToken() == null) {
             request.setSessionToken(sessionToken);
         }
-        
-        try {
-            String json;
-            try {
-                json = request.toJson();
-            } catch (Exception e) {
-                throw new IOException("Failed to serialize request", e);
+    }
+
+    /**
+     * Lấy connection rảnh mới nhất; PING trước nếu đã rảnh lâu, bỏ connection chết.
+     */
+    private ServerConnection pollHealthyIdle() {
+        while (true) {
+            ServerConnection connection;
+            synchronized (idleTransfers) {
+                connection = idleTransfers.poll();
             }
-            byte[] payload = json.getBytes(StandardCharsets.UTF_8);
-            
-            outputStream.write((payload.length >> 24) & 0xFF);
-            outputStream.write((payload.length >> 16) & 0xFF);
-            outputStream.write((payload.length >> 8) & 0xFF);
-            outputStream.write(payload.length & 0xFF);
-            outputStream.write(payload);
-            outputStream.flush();
-        } catch (IOException e) {
-            connected = false;
+            if (connection == null) {
+                return null;
+            }
+            if (!connection.isOpen()) {
+                continue;
+            }
+            if (connection.idleNanos() < TimeUnit.MILLISECONDS.toNanos(HEALTH_CHECK_AFTER_MS)
+                    || connection.ping()) {
+                return connection;
+            }
+            LOG.debug("Discarding stale transfer connection");
+            connection.close();
+        }
+    }
+
+    /**
+     * Đóng transfer connection rảnh quá IDLE_TIMEOUT_MS (chạy định kỳ trên REAPER).
+     */
+    private void reapIdleTransfers() {
+        List<ServerConnection> expired = new ArrayList<>();
+        synchronized (idleTransfers) {
+            Iterator<ServerConnection> it = idleTransfers.iterator();
+            while (it.hasNext()) {
+                ServerConnection connection = it.next();
+                if (!connection.isOpen()
+                        || connection.idleNanos() > TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MS)) {
+                    it.remove();
+                    expired.add(connection);
+                }
+            }
+        }
+        for (ServerConnection connection : expired) {
+            connection.close();
+        }
+        if (!expired.isEmpty()) {
+            LOG.debug("Reaped " + expired.size() + " idle transfer connection(s)");
+        }
+    }
+
+    private void closeTransfers() {
+        closeIdleTransfers();
+        // Connection đang cho mượn: đóng socket để transfer đang chạy nhận IOException
+        for (ServerConnection connection : leasedTransfers) {
+            connection.close();
+        }
+        leasedTransfers.clear();
+    }
+
+    private void closeIdleTransfers() {
+        synchronized (idleTransfers) {
+            for (ServerConnection connection : idleTransfers) {
+                connection.close();
+            }
+            idleTransfers.clear();
+        }
+    }
+
+    private void startReaper() {
+        if (reaperTask == null) {
+            reaperTask = REAPER.scheduleWithFixedDelay(this::reapIdleTransfers,
+                REAP_INTERVAL_MS, REAP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void stopReaper() {
+        if (reaperTask != null) {
+            reaperTask.cancel(false);
+            reaperTask = null;
+        }
+    }
+
+    private SSLContext activeSslContext() {
+        return sslEnabled ? sslContext : null;
+    }
+
+    private ServerConnection requireControl() throws IOException {
+        if (!isConnected()) {
+            throw new IOException("Not connected to server");
+        }
+        return control;
+    }
+
+    private void onPipelineLost(PipelinedChannel lost) {
+        // Bỏ qua channel cũ chết muộn sau khi đã reconnect
+        if (pipeline == lost) {
+            markControlLost();
+        }
+    }
+
+    private void markControlLost() {
+        boolean wasConnected = connected;
+        connected = false;
+        if (wasConnected) {
             notifyConnectionChange(false);
-            throw e;
         }
+        scheduleReconnect();
     }
 
+    // ========== Auto Reconnect ==========
+
     /**
-     * Gửi raw bytes (cho upload).
+     * Bật/tắt tự kết nối lại khi mất control lane (mặc định bật).
      */
-    public void sendRawBytes(byte[] data, int offset, int length) throws IOException {
-        outputStream.write(data, offset, length);
-        outputStream.flush();
+    public void setAutoReconnect(boolean autoReconnect) {
+        this.autoReconnect = autoReconnect;
+        if (!autoReconnect) {
+            synchronized (this) {
+                cancelReconnect();
+            }
+        }
     }
 
     /**
-     * Đọc raw bytes (cho download).
+     * Chờ tới khi control lane kết nối (lại).
+     *
+     * @return true nếu đã kết nối, false nếu hết thời gian hoặc client đã disconnect()
      */
-    public int readRawBytes(byte[] buffer, int offset, int length) throws IOException {
-        return inputStream.read(buffer, offset, length);
+    public boolean awaitConnected(long timeoutMillis) throws InterruptedIOException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (connectionMonitor) {
+            // Không gọi isConnected() ở đây: nó có thể cần lock this (lên lịch reconnect)
+            while (!isControlOpen()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || !wantConnected) {
+                    return false;
+                }
+                try {
+                    connectionMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for reconnect");
+                }
+            }
+            return true;
+        }
     }
 
     /**
-     * Lấy OutputStream để upload file.
+     * Lên lịch lần kết nối lại kế tiếp (delay tăng gấp đôi mỗi lần thất bại).
      */
-    public OutputStream getOutputStream() {
-        return outputStream;
+    private synchronized void scheduleReconnect() {
+        if (!autoReconnect || !wantConnected || host == null || reconnectTask != null) {
+            return;
+        }
+        long delay = Math.min(MAX_RECONNECT_DELAY_MS,
+            INITIAL_RECONNECT_DELAY_MS << Math.min(reconnectAttempts, 16));
+        // Jitter ±20%: nhiều client mất kết nối cùng lúc không reconnect dồn một thời điểm
+        delay = (long) (delay * (0.8 + 0.4 * ThreadLocalRandom.current().nextDouble()));
+        LOG.info("Connection lost, reconnecting in " + delay + "ms (attempt " + (reconnectAttempts + 1) + ")");
+        // Connect blocking: chạy trên worker, không giữ thread REAPER dùng chung
+        reconnectTask = REAPER.schedule(() -> executor.execute(this::attemptReconnect),
+            delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void attemptReconnect() {
+        reconnectTask = null;
+        if (!wantConnected || connected) {
+            reconnectAttempts = 0;
+            return;
+        }
+        try {
+            closeControl();
+            openControl();
+            LOG.info("Reconnected after " + (reconnectAttempts + 1) + " attempt(s)");
+            reconnectAttempts = 0;
+        } catch (IOException e) {
+            reconnectAttempts++;
+            LOG.warn("Reconnect failed: " + e.getMessage());
+            scheduleReconnect();
+        }
+    }
+
+    private void cancelReconnect() {
+        if (reconnectTask != null) {
+            reconnectTask.cancel(false);
+            reconnectTask = null;
+        }
+        reconnectAttempts = 0;
+        synchronized (connectionMonitor) {
+            connectionMonitor.notifyAll();
+        }
     }
 
     /**
-     * Lấy InputStream để download file.
+     * Đóng control lane cũ và transfer connection rảnh (không đụng tới session token).
+     * Transfer đang cho mượn do chính transfer đó đóng khi gặp lỗi.
      */
-    public InputStream getInputStream() {
-        return inputStream;
+    private void closeControl() {
+        PipelinedChannel channel = pipeline;
+        pipeline = null;
+        if (channel != null) {
+            channel.close();
+        }
+        ServerConnection current = control;
+        if (current != null) {
+            current.close();
+        }
+        closeIdleTransfers();
+    }
+
+    private boolean isControlOpen() {
+        ServerConnection current = control;
+        return connected && current != null && current.isOpen();
     }
 
     // ========== Session Management ==========
@@ -312,22 +605,28 @@ public class TcpClient implements AutoCloseable {
     // ========== Connection Status ==========
 
     public boolean isConnected() {
-        boolean actuallyConnected = connected && socket != null && !socket.isClosed();
+        boolean actuallyConnected = isControlOpen();
         if (!actuallyConnected && connected) {
             // Socket was closed but connected flag not updated
-            connected = false;
-            notifyConnectionChange(false);
+            markControlLost();
         }
         return actuallyConnected;
     }
 
     /**
-     * Kiểm tra và reconnect nếu đã disconnect.
+     * Kiểm tra và reconnect ngay nếu đã mất kết nối (giữ session token).
      */
     public synchronized void ensureConnected() throws IOException {
         if (!isConnected() && host != null && port > 0) {
-            System.out.println("[CLIENT] Reconnecting to " + host + ":" + port);
-            connect(host, port);
+            LOG.info("Reconnecting to " + host + ":" + port);
+            if (reconnectTask != null) {
+                reconnectTask.cancel(false);
+                reconnectTask = null;
+            }
+            wantConnected = true;
+            closeControl();
+            openControl();
+            reconnectAttempts = 0;
         }
     }
 
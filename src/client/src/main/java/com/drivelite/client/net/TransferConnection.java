@@ -0,0 +1,92 @@
+package com.drivelite.client.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+
+/**
+ * Transfer connection mượn từ pool của {@link TcpClient} cho một lần upload/download.
+ *
+ * Request gửi qua đây tự mang session token của client. Raw bytes của file đi qua
+ * {@link #getInputStream()} / {@link #getOutputStream()}.
+ *
+ * close() trả connection về pool; nếu đã {@link #markBroken()} (hoặc request/response lỗi I/O)
+ * thì connection bị đóng, vì stream có thể đang nằm giữa một frame hay giữa file bytes.
+ */
+public final class TransferConnection implements AutoCloseable {
+
+    private final TcpClient owner;
+    private final ServerConnection connection;
+    private boolean broken;
+    private boolean closed;
+
+    TransferConnection(TcpClient owner, ServerConnection connection) {
+        this.owner = owner;
+        this.connection = connection;
+    }
+
+    public Response sendRequest(Request request) throws IOException {
+        owner.applySessionToken(request);
+        try {
+            return connection.sendRequest(request);
+        } catch (IOException e) {
+            broken = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Gửi request mà không đọc response (dùng cho READY signal trước khi nhận file bytes).
+     */
+    public void sendRequestOnly(Request request) throws IOException {
+        owner.applySessionToken(request);
+        try {
+            connection.sendRequestOnly(request);
+        } catch (IOException e) {
+            broken = true;
+            throw e;
+        }
+    }
+
+    public Response readResponse() throws IOException {
+        try {
+            return connection.readResponse();
+        } catch (IOException e) {
+            broken = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Lấy OutputStream để upload file bytes.
+     */
+    public OutputStream getOutputStream() {
+        return connection.getOutputStream();
+    }
+
+    /**
+     * Lấy InputStream để download file bytes.
+     */
+    public InputStream getInputStream() {
+        return connection.getInputStream();
+    }
+
+    /**
+     * Đánh dấu stream không còn đồng bộ với protocol: connection sẽ bị đóng khi close().
+     */
+    public void markBroken() {
+        broken = true;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        owner.releaseTransfer(connection, !broken);
+    }
+}
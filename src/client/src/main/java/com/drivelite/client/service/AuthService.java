@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.util.Map;
 
 import com.drivelite.client.net.TcpClient;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.MessageType;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
@@ -13,6 +15,8 @@ import com.drivelite.common.protocol.Response;
  */
 public class AuthService {
 
+    private static final Logger LOG = Log.getLogger("AUTH");
+
     private final TcpClient client;
 
     public AuthService(TcpClient client) {
@@ -34,7 +38,7 @@ public class AuthService {
         Response response = client.sendRequest(request);
         
         if (!response.isOk()) {
-            throw new ServiceException(response.getMessage());
+            throw new ServiceException(response.getCode(), response.getMessage());
         }
         
         Object rawData = response.getData();
@@ -42,9 +46,11 @@ public class AuthService {
             throw new ServiceException("Server returned null data");
         }
         
-        // Debug: print data type
-        System.out.println("[AUTH] Response data type: " + rawData.getClass().getName());
-        System.out.println("[AUTH] Response data: " + rawData);
+        // Debug: print data type (payload chỉ log ở level DEBUG)
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Response data type: " + rawData.getClass().getName());
+            LOG.debug("Response data: " + rawData);
+        }
         
         if (!(rawData instanceof Map)) {
             throw new ServiceException("Unexpected response format: " + rawData.getClass().getName());
@@ -74,7 +80,7 @@ public class AuthService {
         Response response = client.sendRequest(request);
         
         if (!response.isOk()) {
-            throw new ServiceException(response.getMessage());
+            throw new ServiceException(response.getCode(), response.getMessage());
         }
     }
 
@@ -92,7 +98,7 @@ public class AuthService {
         Response response = client.sendRequest(request);
         
         if (!response.isOk()) {
-            throw new ServiceException(response.getMessage());
+            throw new ServiceException(response.getCode(), response.getMessage());
         }
     }
 
@@ -110,7 +116,7 @@ public class AuthService {
         Response response = client.sendRequest(request);
         
         if (!response.isOk()) {
-            throw new ServiceException(response.getMessage());
+            throw new ServiceException(response.getCode(), response.getMessage());
         }
     }
 
@@ -122,6 +128,6 @@ public class AuthService {
     }
 
     private String generateRequestId() {
-        return "req-" + System.currentTimeMillis();
+        return client.nextRequestId();
     }
 }
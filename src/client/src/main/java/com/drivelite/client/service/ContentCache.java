@@ -0,0 +1,200 @@
+package com.drivelite.client.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+/**
+ * ContentCache - Cache nội dung file trên disk, key là SHA-256 của version.
+ *
+ * - Mỗi entry là một file tên = sha256 (hex thường) trong thư mục cache.
+ * - Giới hạn tổng dung lượng, bỏ entry dùng lâu nhất trước (LRU theo lần truy cập,
+ *   thứ tự khởi tạo lại từ lastModified khi mở cache).
+ * - Chỉ lưu nội dung đã verify SHA-256 sau download. Cache hit vẫn đi qua DOWNLOAD_BEGIN
+ *   (server kiểm tra quyền, trả sha256) nên dùng chung thư mục giữa các user được.
+ */
+public class ContentCache {
+
+    private static final Logger LOG = Log.getLogger("CONTENT_CACHE");
+
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final String TEMP_PREFIX = "tmp-";
+    private static final long STALE_TEMP_MILLIS = 60L * 60 * 1000;
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-fA-F]{64}");
+
+    private final Path directory;
+    private final long maxBytes;
+    // sha256 → size, thứ tự truy cập (đầu = dùng lâu nhất)
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public ContentCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /**
+     * File trong cache có đúng nội dung sha256/size, null nếu chưa có.
+     */
+    public synchronized File get(String sha256, long size) {
+        String key = key(sha256);
+        Long cachedSize = entries.get(key);
+        if (cachedSize == null) {
+            return null;
+        }
+        File file = directory.resolve(key).toFile();
+        if (cachedSize != size || !file.isFile() || file.length() != size) {
+            // Bị xóa/sửa từ bên ngoài: coi như miss
+            remove(key);
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * File tạm trong thư mục cache (cùng filesystem để commit() chỉ cần rename).
+     */
+    public File createTempFile() throws IOException {
+        return Files.createTempFile(directory, TEMP_PREFIX, null).toFile();
+    }
+
+    /**
+     * Chuyển file tạm đã verify vào cache. File lớn hơn 1/4 dung lượng cache không được cache
+     * (như {@link #store}), file tạm giữ nguyên chỗ cũ.
+     *
+     * @return file trong cache, hoặc chính {@code verifiedTemp} nếu file quá lớn
+     */
+    public synchronized File commit(String sha256, File verifiedTemp) throws IOException {
+        if (!isCacheable(verifiedTemp.length())) {
+            return verifiedTemp;
+        }
+        String key = key(sha256);
+        Path target = directory.resolve(key);
+        Files.move(verifiedTemp.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+        add(key, target.toFile().length());
+        return target.toFile();
+    }
+
+    /**
+     * Chép file đã download (đã verify) vào cache; bỏ qua file lớn hơn 1/4 dung lượng cache
+     * để một lần tải file lớn không đẩy hết các entry khác ra.
+     */
+    public void store(String sha256, File verifiedFile) {
+        if (!isCacheable(verifiedFile.length())) {
+            return;
+        }
+        synchronized (this) {
+            if (entries.containsKey(key(sha256))) {
+                return;
+            }
+        }
+        File temp = null;
+        try {
+            temp = createTempFile();
+            Files.copy(verifiedFile.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            commit(sha256, temp);
+        } catch (IOException e) {
+            // Cache chỉ là tối ưu: lỗi ghi không làm hỏng download
+            LOG.warn("Cannot cache " + verifiedFile.getName() + ": " + e.getMessage());
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private boolean isCacheable(long size) {
+        return size <= maxBytes / 4;
+    }
+
+    private void add(String key, long size) {
+        Long previous = entries.put(key, size);
+        if (previous != null) {
+            totalBytes -= previous;
+        }
+        totalBytes += size;
+        evict(key);
+    }
+
+    /**
+     * Bỏ entry dùng lâu nhất cho tới khi về dưới maxBytes (không bỏ entry vừa thêm).
+     */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            it.remove();
+            totalBytes -= eldest.getValue();
+            directory.resolve(eldest.getKey()).toFile().delete();
+        }
+    }
+
+    private void remove(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        directory.resolve(key).toFile().delete();
+    }
+
+    /**
+     * Đọc entry có sẵn trên disk (cũ → mới theo lastModified), dọn file tạm còn sót.
+     */
+    private void load() throws IOException {
+        List<File> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.map(Path::toFile)
+                         .filter(File::isFile)
+                         .sorted(Comparator.comparingLong(File::lastModified))
+                         .collect(Collectors.toList());
+        }
+        for (File file : files) {
+            if (file.getName().startsWith(TEMP_PREFIX)) {
+                // File tạm sót lại từ lần chạy bị ngắt (bỏ qua file còn mới: client khác có thể đang ghi)
+                if (System.currentTimeMillis() - file.lastModified() > STALE_TEMP_MILLIS) {
+                    file.delete();
+                }
+            } else if (SHA256_HEX.matcher(file.getName()).matches()) {
+                entries.put(file.getName(), file.length());
+                totalBytes += file.length();
+            }
+        }
+        evict(null);
+        LOG.info("Content cache " + directory + ": " + entries.size() + " entries, " + totalBytes + " bytes");
+    }
+
+    /**
+     * sha256 dùng được làm key (64 ký tự hex); giá trị khác thì không cache.
+     */
+    public static boolean isValidKey(String sha256) {
+        return sha256 != null && SHA256_HEX.matcher(sha256).matches();
+    }
+
+    private static String key(String sha256) {
+        return sha256.toLowerCase(Locale.ROOT);
+    }
+}
@@ -2,70 +2,147 @@ package com.drivelite.client.service;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.drivelite.client.model.FileItem;
+import com.drivelite.client.model.FilePreview;
 import com.drivelite.client.model.ShareInfo;
 import com.drivelite.client.model.VersionInfo;
 import com.drivelite.client.net.TcpClient;
+import com.drivelite.client.net.TransferConnection;
+import com.drivelite.common.compression.ChunkedCompressionInputStream;
+import com.drivelite.common.compression.ChunkedCompressionOutputStream;
+import com.drivelite.common.compression.CompressionCodec;
+import com.drivelite.common.compression.CompressionUtils;
 import com.drivelite.common.protocol.MessageType;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
+import com.drivelite.common.protocol.ResponseCode;
 
 /**
  * Service xử lý file operations: List, Upload, Download, Share, Versions.
+ *
+ * Listing (file, share, version) được cache kèm etag server trả về. Lần gọi sau gửi "ifNoneMatch";
+ * server trả NOT_MODIFIED nếu không có gì đổi và bản cache được dùng lại (list không sửa được).
+ *
+ * Upload/download bị ngắt do mất kết nối được thử lại (tối đa {@link #MAX_TRANSFER_ATTEMPTS} lần)
+ * sau khi TcpClient kết nối lại: upload gửi kèm "resume" và chỉ gửi tiếp từ offset server báo đã nhận,
+ * download gửi "offset" = số bytes đã ghi vào file đích và nhận phần còn lại của đúng version đó.
+ * Download dừng giữa chừng (pause) được tải tiếp ở lần gọi sau qua {@link DownloadState}.
  */
 public class FileService {
 
+    /** Codec client hỗ trợ cho phase raw bytes, theo thứ tự ưu tiên. */
+    private static final List<String> SUPPORTED_COMPRESSION = List.of(
+        CompressionCodec.LZ4.name(), CompressionCodec.DEFLATE.name());
+
+    /** Số lần thử một transfer bị ngắt giữa chừng (lần sau tiếp tục từ offset đã xác nhận). */
+    static final int MAX_TRANSFER_ATTEMPTS = 5;
+    private static final long RECONNECT_WAIT_MS = 60_000;
+    private static final long RETRY_BACKOFF_MS = 500;
+    private static final long MAX_RETRY_BACKOFF_MS = 8_000;
+
     private final TcpClient client;
+    private final ContentCache contentCache;        // null = không cache nội dung
+
+    // Cache listing theo etag
+    private volatile Cached<FileItem> myFilesCache;
+    private volatile Cached<FileItem> sharedWithMeCache;
+    private final Map<Integer, Cached<VersionInfo>> versionsCache = new ConcurrentHashMap<>();
+    private final Map<Integer, Cached<ShareInfo>> sharesCache = new ConcurrentHashMap<>();
 
     public FileService(TcpClient client) {
+        this(client, null);
+    }
+
+    /**
+     * @param contentCache cache nội dung theo sha256 cho download/preview (null = luôn tải bytes)
+     */
+    public FileService(TcpClient client, ContentCache contentCache) {
         this.client = client;
+        this.contentCache = contentCache;
     }
 
     /**
      * Lấy danh sách files của user.
      */
     public List<FileItem> listMyFiles() throws IOException, ServiceException {
+        Cached<FileItem> cached = myFilesCache;
         Request request = new Request(
             MessageType.LIST_MY_FILES,
             client.getSessionToken(),
             generateRequestId(),
-            null
+            withIfNoneMatch(null, cached)
         );
         
         Response response = client.sendRequest(request);
         
-        if (!response.isOk()) {
-            throw new ServiceException(response.getMessage());
-        }
-        
-        return parseFileList(response.getData());
+        return unwrap(() -> resolve(response, cached, this::parseFileList, fresh -> myFilesCache = fresh));
     }
 
     /**
      * Lấy danh sách files được share cho user.
      */
     public List<FileItem> listSharedWithMe() throws IOException, ServiceException {
+        Cached<FileItem> cached = sharedWithMeCache;
         Request request = new Request(
             MessageType.LIST_SHARED_WITH_ME,
             client.getSessionToken(),
             generateRequestId(),
-            null
+            withIfNoneMatch(null, cached)
         );
         
         Response response = client.sendRequest(request);
         
-        if (!response.isOk()) {
-            throw new ServiceException(response.getMessage());
-        }
-        
-        return parseFileList(response.getData());
+        return unwrap(() -> resolve(response, cached, this::parseFileList, fresh -> sharedWithMeCache = fresh));
+    }
+
+    /**
+     * Listing file của lần tải gần nhất (để UI hiện ngay trong lúc refresh), null nếu chưa có.
+     */
+    public List<FileItem> getCachedMyFiles() {
+        Cached<FileItem> cached = myFilesCache;
+        return cached != null ? cached.items : null;
+    }
+
+    public List<FileItem> getCachedSharedWithMe() {
+        Cached<FileItem> cached = sharedWithMeCache;
+        return cached != null ? cached.items : null;
+    }
+
+    /**
+     * Bỏ toàn bộ cache (gọi khi logout).
+     */
+    public void clearCache() {
+        myFilesCache = null;
+        sharedWithMeCache = null;
+        versionsCache.clear();
+        sharesCache.clear();
     }
 
     /**
@@ -76,45 +153,21 @@ public class FileService {
         String sha256 = calculateSha256(file);
         
         // Send UPLOAD_BEGIN
+        Map<String, Object> requestData = new HashMap<>();
+        requestData.put("fileName", file.getName());
+        requestData.put("fileSize", file.length());
+        requestData.put("sha256", sha256);
+        requestData.put("resume", true);
+        offerCompression(file, requestData);
+        
         Request beginRequest = new Request(
             MessageType.UPLOAD_BEGIN,
             client.getSessionToken(),
             generateRequestId(),
-            Map.of(
-                "fileName", file.getName(),
-                "fileSize", file.length(),
-                "sha256", sha256
-            )
+            requestData
         );
         
-        Response readyResponse = client.sendRequest(beginRequest);
-        
-        if (!readyResponse.isOk()) {
-            throw new ServiceException(readyResponse.getMessage());
-        }
-        
-        // Send file bytes
-        long totalSent = 0;
-        long fileSize = file.length();
-        byte[] buffer = new byte[64 * 1024]; // 64KB buffer
-        
-        try (FileInputStream fis = new FileInputStream(file)) {
-            int read;
-            while ((read = fis.read(buffer)) > 0) {
-                client.sendRawBytes(buffer, 0, read);
-                totalSent += read;
-                if (callback != null) {
-                    callback.onProgress(totalSent, fileSize);
-                }
-            }
-        }
-        
-        // Read final response
-        Response uploadResponse = readResponse();
-        
-        if (!uploadResponse.isOk()) {
-            throw new ServiceException(uploadResponse.getMessage());
-        }
+        Response uploadResponse = uploadOnTransfer(beginRequest, file, callback);
         
         @SuppressWarnings("unchecked")
         Map<String, Object> data = (Map<String, Object>) uploadResponse.getData();
@@ -126,6 +179,89 @@ public class FileService {
         return result;
     }
 
+    /**
+     * Upload nhiều file trong một UPLOAD_BATCH_BEGIN: một manifest, bytes các file nối tiếp
+     * trên cùng transfer connection, server commit cả batch một lần.
+     * File lỗi riêng lẻ (bị server từ chối, sai SHA256) không làm hỏng cả batch.
+     *
+     * @param callback tiến độ theo tổng bytes của batch
+     * @return lỗi của từng file ("tên: lý do"), rỗng nếu tất cả đã upload
+     */
+    public List<String> uploadBatch(List<File> files, ProgressCallback callback) throws IOException, ServiceException {
+        List<Map<String, Object>> manifest = new ArrayList<>(files.size());
+        long batchSize = 0;
+        for (File file : files) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("fileName", file.getName());
+            entry.put("fileSize", file.length());
+            entry.put("sha256", calculateSha256(file));
+            manifest.add(entry);
+            batchSize += file.length();
+        }
+
+        Request beginRequest = new Request(
+            MessageType.UPLOAD_BATCH_BEGIN,
+            client.getSessionToken(),
+            generateRequestId(),
+            Map.of("files", manifest)
+        );
+
+        List<String> failures = new ArrayList<>();
+        try (TransferConnection transfer = client.openTransfer()) {
+            try {
+                Response readyResponse = transfer.sendRequest(beginRequest);
+
+                if (!readyResponse.isOk()) {
+                    throw new ServiceException(readyResponse.getCode(), readyResponse.getMessage());
+                }
+
+                // Entry bị từ chối: không gửi bytes
+                Map<?, ?> ready = (Map<?, ?>) readyResponse.getData();
+                boolean[] rejected = new boolean[files.size()];
+                for (Object item : (List<?>) ready.get("rejected")) {
+                    Map<?, ?> rejection = (Map<?, ?>) item;
+                    int index = ((Number) rejection.get("index")).intValue();
+                    rejected[index] = true;
+                    failures.add(files.get(index).getName() + ": " + rejection.get("message"));
+                }
+
+                long batchSent = 0;
+                for (int i = 0; i < files.size(); i++) {
+                    if (rejected[i]) {
+                        batchSize -= files.get(i).length();
+                        continue;
+                    }
+                    long offset = batchSent;
+                    long total = batchSize;
+                    sendRawFileBytes(transfer, files.get(i), callback == null ? null
+                        : (current, fileTotal) -> callback.onProgress(offset + current, total));
+                    batchSent += files.get(i).length();
+                }
+                transfer.getOutputStream().flush();
+
+                Response batchResponse = transfer.readResponse();
+
+                if (!batchResponse.isOk()) {
+                    throw new ServiceException(batchResponse.getCode(), batchResponse.getMessage());
+                }
+
+                Map<?, ?> result = (Map<?, ?>) batchResponse.getData();
+                for (Object item : (List<?>) result.get("files")) {
+                    Map<?, ?> file = (Map<?, ?>) item;
+                    if (!Boolean.TRUE.equals(file.get("ok"))) {
+                        int index = ((Number) file.get("index")).intValue();
+                        failures.add(files.get(index).getName() + ": " + file.get("message"));
+                    }
+                }
+                return failures;
+            } catch (IOException | RuntimeException e) {
+                // Dừng giữa file bytes: stream lệch, không trả connection về pool
+                transfer.markBroken();
+                throw e;
+            }
+        }
+    }
+
     /**
      * Download file.
      */
@@ -135,12 +271,95 @@ public class FileService {
 
     /**
      * Download file với version cụ thể.
+     * Nội dung đã có trong ContentCache (theo sha256 của FILE_META) thì chép từ cache, không tải bytes.
      */
     public void downloadFile(int fileId, Integer versionNumber, File destination, ProgressCallback callback) throws IOException, ServiceException {
+        resumeDownload(fileId, new DownloadState(versionNumber, null), destination, callback);
+    }
+
+    /**
+     * Download tiếp phần còn lại: {@code state} của lần gọi trước (bị dừng giữa chừng) cho biết
+     * destination đang chứa phần đầu của version/sha256 nào. Server vẫn trả đúng nội dung đó thì chỉ
+     * tải phần sau destination.length(), khác thì tải lại từ đầu. {@code state} được cập nhật theo FILE_META.
+     */
+    public void resumeDownload(int fileId, DownloadState state, File destination, ProgressCallback callback) throws IOException, ServiceException {
+        Fetched fetched = fetch(fileId, state, destination, callback);
+        if (fetched.cached != null) {
+            Files.copy(fetched.cached.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            if (callback != null) {
+                callback.onProgress(fetched.fileSize, fetched.fileSize);
+            }
+        } else if (contentCache != null) {
+            contentCache.store(fetched.sha256, destination);
+        }
+    }
+
+    /**
+     * Nội dung file (version hiện tại hoặc versionNumber) dạng file local để xem trước.
+     * Có ContentCache thì trả thẳng file trong cache (không được sửa/xóa); không có cache
+     * hoặc file quá lớn để cache thì file tạm (xóa khi thoát).
+     */
+    public File fetchContent(int fileId, Integer versionNumber, ProgressCallback callback) throws IOException, ServiceException {
+        if (contentCache == null) {
+            File temp = File.createTempFile("drivelite_content_", null);
+            temp.deleteOnExit();
+            downloadFile(fileId, versionNumber, temp, callback);
+            return temp;
+        }
+        File temp = contentCache.createTempFile();
+        File content = null;
+        try {
+            Fetched fetched = fetch(fileId, new DownloadState(versionNumber, null), temp, callback);
+            content = fetched.cached != null ? fetched.cached : contentCache.commit(fetched.sha256, temp);
+            return content;
+        } finally {
+            if (content == temp) {
+                // Quá lớn để cache: dùng file tạm như khi không có cache
+                temp.deleteOnExit();
+            } else {
+                // Đã commit thì temp không còn (rename vào cache)
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * DOWNLOAD_BEGIN → FILE_META, rồi READY + nhận bytes vào destination (đã verify SHA-256),
+     * hoặc CANCEL nếu ContentCache đã có nội dung (destination không bị đụng tới).
+     * Mất kết nối giữa chừng: chờ reconnect rồi tải tiếp phần còn lại của cùng version.
+     */
+    private Fetched fetch(int fileId, DownloadState state, File destination, ProgressCallback callback) throws IOException, ServiceException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Fetched fetched = fetchOnce(fileId, state, destination, callback);
+                if (fetched != null) {
+                    return fetched;
+                }
+                // Nội dung đổi giữa hai lần thử: lượt sau tải lại từ đầu
+            } catch (IOException e) {
+                awaitRetry(e, attempt);
+            }
+        }
+    }
+
+    /**
+     * @return null nếu phải tải lại từ đầu (server đã nhận offset nhưng nội dung khác lần trước)
+     */
+    private Fetched fetchOnce(int fileId, DownloadState state, File destination, ProgressCallback callback) throws IOException, ServiceException {
+        // Lần thử lại (hoặc download tiếp): tải sau phần đã ghi, cùng version với lần đầu
+        long offset = state.sha256 != null && destination.isFile() ? destination.length() : 0;
+
         // Send DOWNLOAD_BEGIN
-        Map<String, Object> requestData = versionNumber != null
-            ? Map.of("fileId", fileId, "versionNumber", versionNumber)
-            : Map.of("fileId", fileId);
+        Map<String, Object> requestData = new HashMap<>();
+        requestData.put("fileId", fileId);
+        if (state.versionNumber != null) {
+            requestData.put("versionNumber", state.versionNumber);
+        }
+        if (offset > 0) {
+            requestData.put("offset", offset);
+        }
+        // Server tự quyết định có nén hay không (dựa trên nội dung file)
+        requestData.put("compression", SUPPORTED_COMPRESSION);
             
         Request beginRequest = new Request(
             MessageType.DOWNLOAD_BEGIN,
@@ -149,27 +368,6 @@ public class FileService {
             requestData
         );
         
-        Response metaResponse = client.sendRequest(beginRequest);
-        
-        if (!metaResponse.isOk()) {
-            throw new ServiceException(metaResponse.getMessage());
-        }
-        
-        @SuppressWarnings("unchecked")
-        Map<String, Object> meta = (Map<String, Object>) metaResponse.getData();
-        long fileSize = ((Number) meta.get("fileSize")).longValue();
-        String expectedSha256 = (String) meta.get("sha256");
-        
-        // Send READY signal (không đọc response vì server sẽ gửi file bytes trực tiếp)
-        Request readyRequest = new Request(
-            MessageType.READY,
-            client.getSessionToken(),
-            generateRequestId(),
-            null
-        );
-        client.sendRequestOnly(readyRequest);
-        
-        // Receive file bytes
         MessageDigest digest;
         try {
             digest = MessageDigest.getInstance("SHA-256");
@@ -177,42 +375,68 @@ public class FileService {
             throw new IOException("SHA-256 not available", e);
         }
         
-        long totalReceived = 0;
-        byte[] buffer = new byte[64 * 1024];
-        
-        // Phải đọc hết file bytes từ socket, kể cả khi có lỗi ghi file
-        // Nếu không đọc hết, connection sẽ bị "desync"
-        FileOutputStream fos = null;
-        IOException writeError = null;
-        
-        try {
-            fos = new FileOutputStream(destination);
-        } catch (IOException e) {
-            writeError = e;
-            // Vẫn phải đọc hết bytes từ socket để giữ connection sync
-        }
-        
-        try {
-            while (totalReceived < fileSize) {
-                int toRead = (int) Math.min(buffer.length, fileSize - totalReceived);
-                int read = client.readRawBytes(buffer, 0, toRead);
-                if (read < 0) {
-                    throw new IOException("Connection closed during download");
+        String expectedSha256;
+        long fileSize;
+        IOException writeError;
+        // File bytes đi trên transfer connection riêng, control lane vẫn rảnh cho UI
+        try (TransferConnection transfer = client.openTransfer()) {
+            try {
+                Response metaResponse = transfer.sendRequest(beginRequest);
+                
+                if (!metaResponse.isOk()) {
+                    throw new ServiceException(metaResponse.getCode(), metaResponse.getMessage());
                 }
-                if (fos != null) {
-                    fos.write(buffer, 0, read);
+                
+                @SuppressWarnings("unchecked")
+                Map<String, Object> meta = (Map<String, Object>) metaResponse.getData();
+                fileSize = ((Number) meta.get("fileSize")).longValue();
+                expectedSha256 = (String) meta.get("sha256");
+                CompressionCodec codec = CompressionCodec.fromName((String) meta.get("compression"));
+
+                boolean serverResumed = meta.get("offset") instanceof Number;
+                if (offset > 0 && !expectedSha256.equalsIgnoreCase(state.sha256)) {
+                    if (serverResumed) {
+                        // Nội dung đã khác nhưng server sẽ chỉ gửi phần sau offset: bỏ transfer này
+                        cancelTransfer(transfer);
+                        state.sha256 = null;
+                        return null;
+                    }
+                    offset = 0;
+                } else if (!serverResumed) {
+                    // Server không hỗ trợ offset: gửi lại từ đầu
+                    offset = 0;
                 }
-                digest.update(buffer, 0, read);
-                totalReceived += read;
-                if (callback != null) {
-                    callback.onProgress(totalReceived, fileSize);
+                state.sha256 = expectedSha256;
+                state.versionNumber = ((Number) meta.get("versionNumber")).intValue();
+
+                File cached = contentCache != null && ContentCache.isValidKey(expectedSha256)
+                    ? contentCache.get(expectedSha256, fileSize)
+                    : null;
+                if (cached != null) {
+                    // Cache hit: server bỏ phần bytes, connection trả về pool bình thường
+                    cancelTransfer(transfer);
+                    return new Fetched(expectedSha256, fileSize, cached);
                 }
-            }
-        } finally {
-            if (fos != null) {
-                try {
-                    fos.close();
-                } catch (IOException ignored) {}
+                
+                if (offset > 0) {
+                    // SHA-256 tính trên cả file: đọc lại phần đã có
+                    updateDigest(digest, destination, offset);
+                }
+                
+                // Send READY signal (không đọc response vì server sẽ gửi file bytes trực tiếp)
+                Request readyRequest = new Request(
+                    MessageType.READY,
+                    client.getSessionToken(),
+                    generateRequestId(),
+                    null
+                );
+                transfer.sendRequestOnly(readyRequest);
+                
+                writeError = receiveFileBytes(transfer, codec, fileSize, offset, destination, digest, callback);
+            } catch (IOException | RuntimeException e) {
+                // Dừng giữa file bytes: stream lệch, không trả connection về pool
+                transfer.markBroken();
+                throw e;
             }
         }
         
@@ -228,6 +452,66 @@ public class FileService {
             destination.delete();
             throw new ServiceException("SHA256 mismatch! File corrupted.");
         }
+        return new Fetched(expectedSha256, fileSize, null);
+    }
+
+    /**
+     * Gửi CANCEL thay cho READY: server không gửi file bytes, connection dùng tiếp được.
+     */
+    private void cancelTransfer(TransferConnection transfer) throws IOException {
+        transfer.sendRequestOnly(new Request(
+            MessageType.CANCEL,
+            client.getSessionToken(),
+            generateRequestId(),
+            null
+        ));
+    }
+
+    /**
+     * Chờ trước lần thử lại transfer: backoff rồi chờ TcpClient kết nối lại.
+     * Lỗi không do kết nối (file local, bị interrupt) hoặc đã hết lượt thử thì ném lại {@code error}.
+     */
+    private void awaitRetry(IOException error, int attempt) throws IOException {
+        if (attempt >= MAX_TRANSFER_ATTEMPTS || !isConnectionFailure(error)) {
+            throw error;
+        }
+        try {
+            Thread.sleep(Math.min(MAX_RETRY_BACKOFF_MS, RETRY_BACKOFF_MS << (attempt - 1)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry transfer");
+        }
+        if (!client.awaitConnected(RECONNECT_WAIT_MS)) {
+            throw error;
+        }
+    }
+
+    private static boolean isConnectionFailure(IOException e) {
+        if (e instanceof SocketTimeoutException) {
+            return true;
+        }
+        // Lỗi đọc/ghi file local hoặc user hủy: thử lại cũng vậy
+        return !(e instanceof InterruptedIOException)
+            && !(e instanceof FileNotFoundException)
+            && !(e instanceof FileSystemException);
+    }
+
+    /**
+     * Đưa {@code length} bytes đầu của file vào digest.
+     */
+    private static void updateDigest(MessageDigest digest, File file, long length) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = length;
+        try (FileInputStream fis = new FileInputStream(file)) {
+            while (remaining > 0) {
+                int read = fis.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new IOException("Partial download shorter than expected");
+                }
+                digest.update(buffer, 0, read);
+                remaining -= read;
+            }
+        }
     }
 
     /**
@@ -244,8 +528,10 @@ public class FileService {
         Response response = client.sendRequest(request);
         
         if (!response.isOk()) {
-            throw new ServiceException(response.getMessage());
+            throw new ServiceException(response.getCode(), response.getMessage());
         }
+        versionsCache.remove(fileId);
+        sharesCache.remove(fileId);
     }
 
     /**
@@ -262,7 +548,7 @@ public class FileService {
         Response response = client.sendRequest(request);
         
         if (!response.isOk()) {
-            throw new ServiceException(response.getMessage());
+            throw new ServiceException(response.getCode(), response.getMessage());
         }
     }
 
@@ -280,7 +566,7 @@ public class FileService {
         Response response = client.sendRequest(request);
         
         if (!response.isOk()) {
-            throw new ServiceException(response.getMessage());
+            throw new ServiceException(response.getCode(), response.getMessage());
         }
     }
 
@@ -288,72 +574,411 @@ public class FileService {
      * Lấy danh sách người được share file.
      */
     public List<ShareInfo> listShares(int fileId) throws IOException, ServiceException {
+        Cached<ShareInfo> cached = sharesCache.get(fileId);
         Request request = new Request(
             MessageType.LIST_SHARES_OF_FILE,
             client.getSessionToken(),
             generateRequestId(),
-            Map.of("fileId", fileId)
+            withIfNoneMatch(Map.of("fileId", fileId), cached)
         );
         
         Response response = client.sendRequest(request);
         
-        if (!response.isOk()) {
-            throw new ServiceException(response.getMessage());
-        }
-        
-        return parseShareList(response.getData());
+        return unwrap(() -> resolve(response, cached, this::parseShareList, fresh -> sharesCache.put(fileId, fresh)));
     }
 
     /**
      * Lấy danh sách versions của file.
      */
     public List<VersionInfo> getVersions(int fileId) throws IOException, ServiceException {
+        Cached<VersionInfo> cached = versionsCache.get(fileId);
         Request request = new Request(
             MessageType.GET_VERSIONS,
             client.getSessionToken(),
             generateRequestId(),
-            Map.of("fileId", fileId)
+            withIfNoneMatch(Map.of("fileId", fileId), cached)
         );
         
         Response response = client.sendRequest(request);
         
+        return unwrap(() -> resolve(response, cached, this::parseVersionList, fresh -> versionsCache.put(fileId, fresh)));
+    }
+
+    /**
+     * Preview do server tạo (thumbnail ảnh / đoạn đầu file text), vài chục KB thay vì cả file.
+     *
+     * @param versionNumber null = version hiện tại
+     * @throws ServiceException nếu server không tạo được preview (loại file không hỗ trợ, quá tải...)
+     */
+    public FilePreview getPreview(int fileId, Integer versionNumber) throws IOException, ServiceException {
+        Map<String, Object> requestData = new HashMap<>();
+        requestData.put("fileId", fileId);
+        if (versionNumber != null) {
+            requestData.put("versionNumber", versionNumber);
+        }
+        Request request = new Request(
+            MessageType.GET_PREVIEW,
+            client.getSessionToken(),
+            generateRequestId(),
+            requestData
+        );
+
+        Response response = client.sendRequest(request);
+
         if (!response.isOk()) {
-            throw new ServiceException(response.getMessage());
+            throw new ServiceException(response.getCode(), response.getMessage());
         }
-        
-        return parseVersionList(response.getData());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> data = (Map<String, Object>) response.getData();
+        if ("IMAGE".equals(data.get("kind"))) {
+            // Smile giữ nguyên binary, JSON gửi base64
+            Object image = data.get("image");
+            return FilePreview.ofImage(image instanceof byte[]
+                ? (byte[]) image
+                : Base64.getDecoder().decode((String) image));
+        }
+        return FilePreview.ofText((String) data.get("text"), Boolean.TRUE.equals(data.get("truncated")));
+    }
+
+    // ========== Pipelined (async) ==========
+
+    /**
+     * Lấy danh sách người được share file, không chờ response.
+     * Gọi liên tiếp cho nhiều file để pipeline các request trên control lane.
+     *
+     * @return future complete exceptionally với IOException hoặc ServiceException
+     */
+    public CompletableFuture<List<ShareInfo>> listSharesAsync(int fileId) {
+        Cached<ShareInfo> cached = sharesCache.get(fileId);
+        Request request = new Request(
+            MessageType.LIST_SHARES_OF_FILE,
+            client.getSessionToken(),
+            generateRequestId(),
+            withIfNoneMatch(Map.of("fileId", fileId), cached)
+        );
+        return client.sendRequestAsync(request).thenApply(
+            response -> resolve(response, cached, this::parseShareList, fresh -> sharesCache.put(fileId, fresh)));
+    }
+
+    /**
+     * Lấy danh sách versions của file, không chờ response.
+     *
+     * @return future complete exceptionally với IOException hoặc ServiceException
+     */
+    public CompletableFuture<List<VersionInfo>> getVersionsAsync(int fileId) {
+        Cached<VersionInfo> cached = versionsCache.get(fileId);
+        Request request = new Request(
+            MessageType.GET_VERSIONS,
+            client.getSessionToken(),
+            generateRequestId(),
+            withIfNoneMatch(Map.of("fileId", fileId), cached)
+        );
+        return client.sendRequestAsync(request).thenApply(
+            response -> resolve(response, cached, this::parseVersionList, fresh -> versionsCache.put(fileId, fresh)));
+    }
+
+    /**
+     * Lấy versions của nhiều file: gửi hết request trước rồi mới chờ (một round-trip thay vì N).
+     */
+    public Map<Integer, List<VersionInfo>> getVersions(Collection<Integer> fileIds) throws IOException, ServiceException {
+        Map<Integer, CompletableFuture<List<VersionInfo>>> futures = new LinkedHashMap<>();
+        for (Integer fileId : fileIds) {
+            futures.put(fileId, getVersionsAsync(fileId));
+        }
+        Map<Integer, List<VersionInfo>> result = new LinkedHashMap<>();
+        for (Map.Entry<Integer, CompletableFuture<List<VersionInfo>>> entry : futures.entrySet()) {
+            result.put(entry.getKey(), await(entry.getValue()));
+        }
+        return result;
     }
 
     // ========== Helper Methods ==========
 
-    private Response readResponse() throws IOException {
-        // Read length prefix
-        byte[] lengthBytes = new byte[4];
-        int totalRead = 0;
-        while (totalRead < 4) {
-            int read = client.readRawBytes(lengthBytes, totalRead, 4 - totalRead);
-            if (read < 0) throw new IOException("Connection closed");
-            totalRead += read;
+    /**
+     * Trả data của response OK; response lỗi thành ServiceException (bọc trong CompletionException).
+     */
+    private static Object requireOk(Response response) {
+        if (!response.isOk()) {
+            throw new CompletionException(new ServiceException(response.getCode(), response.getMessage()));
+        }
+        return response.getData();
+    }
+
+    /**
+     * Response NOT_MODIFIED → list đang cache; response OK → parse, lưu cache mới (nếu server gửi etag).
+     * Response lỗi thành ServiceException (bọc trong CompletionException).
+     */
+    private static <T> List<T> resolve(Response response, Cached<T> cached,
+                                       Function<Object, List<T>> parser, Consumer<Cached<T>> store) {
+        if (response.getCode() == ResponseCode.NOT_MODIFIED && cached != null) {
+            return cached.items;
+        }
+        Object data = requireOk(response);
+        List<T> items = Collections.unmodifiableList(parser.apply(data));
+        Object etag = data instanceof Map ? ((Map<?, ?>) data).get("etag") : null;
+        if (etag instanceof String) {
+            store.accept(new Cached<>((String) etag, items));
+        }
+        return items;
+    }
+
+    /**
+     * Thêm "ifNoneMatch" vào request data nếu đã có bản cache.
+     */
+    private static Map<String, Object> withIfNoneMatch(Map<String, Object> data, Cached<?> cached) {
+        if (cached == null) {
+            return data;
         }
+        Map<String, Object> conditional = data != null ? new HashMap<>(data) : new HashMap<>();
+        conditional.put("ifNoneMatch", cached.etag);
+        return conditional;
+    }
+
+    /**
+     * Chạy resolve() trên thread hiện tại, trả lại ServiceException đã bị bọc.
+     */
+    private static <T> T unwrap(Supplier<T> call) throws ServiceException {
+        try {
+            return call.get();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ServiceException) {
+                throw (ServiceException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException, ServiceException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ServiceException) {
+                throw (ServiceException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * BEGIN → READY → file bytes → response cuối, tất cả trên một transfer connection.
+     * Mất kết nối giữa chừng: chờ reconnect rồi BEGIN lại, server báo offset đã nhận trong READY.
+     */
+    private Response uploadOnTransfer(Request beginRequest, File file, ProgressCallback callback)
+            throws IOException, ServiceException {
+        Request request = beginRequest;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return uploadOnce(request, file, callback);
+            } catch (IOException e) {
+                awaitRetry(e, attempt);
+                request = new Request(beginRequest.getType(), client.getSessionToken(),
+                    generateRequestId(), beginRequest.getData());
+            }
+        }
+    }
+
+    private Response uploadOnce(Request beginRequest, File file, ProgressCallback callback)
+            throws IOException, ServiceException {
+        try (TransferConnection transfer = client.openTransfer()) {
+            try {
+                Response readyResponse = transfer.sendRequest(beginRequest);
+                
+                if (readyResponse.getCode() == ResponseCode.CONFLICT) {
+                    // Connection cũ (trước khi mất kết nối) vẫn đang giữ phần đã nhận trên server
+                    throw new IOException(readyResponse.getMessage());
+                }
+                if (!readyResponse.isOk()) {
+                    throw new ServiceException(readyResponse.getCode(), readyResponse.getMessage());
+                }
+                
+                // Send file bytes
+                sendFileBytes(transfer, file, readyResponse, callback);
+                
+                // Read final response
+                Response uploadResponse = transfer.readResponse();
+                
+                if (!uploadResponse.isOk()) {
+                    throw new ServiceException(uploadResponse.getCode(), uploadResponse.getMessage());
+                }
+                return uploadResponse;
+            } catch (IOException | RuntimeException e) {
+                // Dừng giữa file bytes: stream lệch, không trả connection về pool
+                transfer.markBroken();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Nhận file bytes sau READY.
+     *
+     * Phải đọc hết file bytes từ socket, kể cả khi có lỗi ghi file,
+     * nếu không connection sẽ bị "desync".
+     *
+     * @param offset số bytes đầu đã có trong destination (download tiếp)
+     * @return lỗi mở file đích (nếu có), để throw sau khi đã đọc hết bytes
+     */
+    private IOException receiveFileBytes(TransferConnection transfer, CompressionCodec codec, long fileSize,
+                                         long offset, File destination, MessageDigest digest,
+                                         ProgressCallback callback) throws IOException {
+        // Server chỉ gửi phần sau offset; ghi nối vào phần đã có
+        long totalReceived = offset;
+        byte[] buffer = new byte[64 * 1024];
         
-        int length = ((lengthBytes[0] & 0xFF) << 24) |
-                     ((lengthBytes[1] & 0xFF) << 16) |
-                     ((lengthBytes[2] & 0xFF) << 8) |
-                     (lengthBytes[3] & 0xFF);
+        FileOutputStream fos = null;
+        IOException writeError = null;
         
-        // Read payload
-        byte[] payload = new byte[length];
-        totalRead = 0;
-        while (totalRead < length) {
-            int read = client.readRawBytes(payload, totalRead, length - totalRead);
-            if (read < 0) throw new IOException("Connection closed");
-            totalRead += read;
+        try {
+            fos = new FileOutputStream(destination, offset > 0);
+        } catch (IOException e) {
+            writeError = e;
+            // Vẫn phải đọc hết bytes từ socket để giữ connection sync
         }
         
+        // Transfer có nén: đọc qua decoder (bytes trên dây là chunked compression stream)
+        ChunkedCompressionInputStream decoder = codec != CompressionCodec.NONE
+            ? new ChunkedCompressionInputStream(transfer.getInputStream())
+            : null;
+        InputStream source = decoder != null ? decoder : transfer.getInputStream();
+        
         try {
-            return Response.fromJson(new String(payload, java.nio.charset.StandardCharsets.UTF_8));
-        } catch (Exception e) {
-            throw new IOException("Failed to parse response", e);
+            while (totalReceived < fileSize) {
+                int toRead = (int) Math.min(buffer.length, fileSize - totalReceived);
+                int read = source.read(buffer, 0, toRead);
+                if (read < 0) {
+                    throw new IOException("Connection closed during download");
+                }
+                if (fos != null) {
+                    fos.write(buffer, 0, read);
+                }
+                digest.update(buffer, 0, read);
+                totalReceived += read;
+                if (callback != null) {
+                    callback.onProgress(totalReceived, fileSize);
+                }
+            }
+            if (decoder != null) {
+                // Đọc chunk kết thúc để response tiếp theo không bị lệch
+                decoder.finish();
+            }
+        } finally {
+            if (decoder != null) {
+                decoder.close();
+            }
+            if (fos != null) {
+                try {
+                    fos.close();
+                } catch (IOException ignored) {}
+            }
+        }
+        return writeError;
+    }
+
+    /**
+     * Đề xuất nén cho upload nếu nội dung đầu file nén được
+     * (bỏ qua file nhỏ hoặc file đã nén sẵn như zip, jpg, mp4).
+     */
+    private void offerCompression(File file, Map<String, Object> requestData) throws IOException {
+        if (file.length() < CompressionUtils.MIN_COMPRESS_SIZE) {
+            return;
+        }
+        byte[] sample = new byte[(int) Math.min(CompressionUtils.SAMPLE_SIZE, file.length())];
+        int length;
+        try (FileInputStream fis = new FileInputStream(file)) {
+            length = CompressionUtils.readSample(fis, sample);
+        }
+        if (CompressionUtils.isWorthCompressing(sample, length, file.length())) {
+            requestData.put("compression", SUPPORTED_COMPRESSION);
+        }
+    }
+
+    /**
+     * Gửi file bytes sau khi nhận READY.
+     * Nếu server chọn codec trong READY, bytes được gửi qua chunked compression stream.
+     * READY có "offset" thì chỉ gửi phần sau offset.
+     */
+    private void sendFileBytes(TransferConnection transfer, File file, Response readyResponse,
+                               ProgressCallback callback) throws IOException {
+        CompressionCodec codec = CompressionCodec.NONE;
+        int level = 0;
+        long offset = 0;
+        if (readyResponse.getData() instanceof Map) {
+            Map<?, ?> ready = (Map<?, ?>) readyResponse.getData();
+            codec = CompressionCodec.fromName((String) ready.get("compression"));
+            Object levelObj = ready.get("compressionLevel");
+            level = levelObj instanceof Number ? ((Number) levelObj).intValue() : codec.getDefaultLevel();
+            // Upload tiếp: server đã có offset bytes đầu từ lần trước
+            Object offsetObj = ready.get("offset");
+            offset = offsetObj instanceof Number ? ((Number) offsetObj).longValue() : 0;
+        }
+        
+        long totalSent = offset;
+        long fileSize = file.length();
+        byte[] buffer = new byte[64 * 1024]; // 64KB buffer
+        
+        OutputStream out = transfer.getOutputStream();
+        ChunkedCompressionOutputStream encoder = codec != CompressionCodec.NONE
+            ? new ChunkedCompressionOutputStream(out, codec, level)
+            : null;
+        
+        try (FileInputStream fis = new FileInputStream(file)) {
+            fis.getChannel().position(offset);
+            int read;
+            while ((read = fis.read(buffer)) > 0) {
+                if (encoder != null) {
+                    encoder.write(buffer, 0, read);
+                } else {
+                    out.write(buffer, 0, read);
+                }
+                totalSent += read;
+                if (callback != null) {
+                    callback.onProgress(totalSent, fileSize);
+                }
+            }
+        }
+        
+        if (encoder != null) {
+            // Ghi chunk cuối + chunk kết thúc (không đóng socket)
+            encoder.finish();
+        } else {
+            out.flush();
+        }
+    }
+
+    /**
+     * Gửi nguyên bytes của file (không nén, không flush) - dùng cho batch upload.
+     */
+    private void sendRawFileBytes(TransferConnection transfer, File file, ProgressCallback callback)
+            throws IOException {
+        long totalSent = 0;
+        long fileSize = file.length();
+        byte[] buffer = new byte[64 * 1024];
+        OutputStream out = transfer.getOutputStream();
+
+        try (FileInputStream fis = new FileInputStream(file)) {
+            while (totalSent < fileSize) {
+                int read = fis.read(buffer, 0, (int) Math.min(buffer.length, fileSize - totalSent));
+                if (read < 0) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                totalSent += read;
+                if (callback != null) {
+                    callback.onProgress(totalSent, fileSize);
+                }
+            }
+        }
+        if (totalSent != fileSize) {
+            // Không gửi bù được: server đang chờ đúng fileSize bytes
+            throw new IOException("File changed during upload: " + file.getName());
         }
     }
 
@@ -463,6 +1088,8 @@ public class FileService {
         if (note != null && !note.isEmpty()) {
             requestData.put("note", note);
         }
+        requestData.put("resume", true);
+        offerCompression(file, requestData);
         
         Request beginRequest = new Request(
             MessageType.UPLOAD_NEW_VERSION_BEGIN,
@@ -471,38 +1098,61 @@ public class FileService {
             requestData
         );
         
-        Response readyResponse = client.sendRequest(beginRequest);
-        
-        if (!readyResponse.isOk()) {
-            throw new ServiceException(readyResponse.getMessage());
-        }
-        
-        // Send file bytes
-        long totalSent = 0;
-        long fileSize = file.length();
-        byte[] buffer = new byte[64 * 1024]; // 64KB buffer
-        
-        try (FileInputStream fis = new FileInputStream(file)) {
-            int read;
-            while ((read = fis.read(buffer)) > 0) {
-                client.sendRawBytes(buffer, 0, read);
-                totalSent += read;
-                if (callback != null) {
-                    callback.onProgress(totalSent, fileSize);
-                }
-            }
+        uploadOnTransfer(beginRequest, file, callback);
+    }
+
+    private String generateRequestId() {
+        return client.nextRequestId();
+    }
+
+    /**
+     * Kết quả fetch(): sha256/size theo FILE_META và file trong cache nếu hit.
+     */
+    private static final class Fetched {
+        private final String sha256;
+        private final long fileSize;
+        private final File cached;
+
+        Fetched(String sha256, long fileSize, File cached) {
+            this.sha256 = sha256;
+            this.fileSize = fileSize;
+            this.cached = cached;
         }
-        
-        // Read final response
-        Response uploadResponse = readResponse();
-        
-        if (!uploadResponse.isOk()) {
-            throw new ServiceException(uploadResponse.getMessage());
+    }
+
+    /**
+     * Version và sha256 của nội dung đang tải vào file đích: lần thử lại tải tiếp đúng nội dung đó.
+     * sha256 null = file đích chưa có gì của download này (tải từ đầu).
+     */
+    public static final class DownloadState {
+        private volatile Integer versionNumber;
+        private volatile String sha256;
+
+        /**
+         * @param versionNumber null = phiên bản mới nhất
+         * @param sha256 nội dung phần đã có trong file đích (null = tải từ đầu)
+         */
+        public DownloadState(Integer versionNumber, String sha256) {
+            this.versionNumber = versionNumber;
+            this.sha256 = sha256;
         }
+
+        public Integer getVersionNumber() { return versionNumber; }
+
+        public String getSha256() { return sha256; }
     }
 
-    private String generateRequestId() {
-        return "req-" + System.currentTimeMillis();
+    /**
+     * Listing đã tải kèm etag của server.
+     */
+    private static final class Cached<T> {
+        private final String etag;
+        private final List<T> items;
+
+        Cached(String etag, List<T> items) {
+            this.etag = etag;
+            this.items = items;
+        }
     }
 
     /**
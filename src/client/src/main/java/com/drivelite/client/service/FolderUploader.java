@@ -0,0 +1,281 @@
+package com.drivelite.client.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+/**
+ * FolderUploader - Upload cả cây thư mục.
+ *
+ * - Duyệt cây (thứ tự path cố định) rồi gom file thành batch theo số file / tổng bytes,
+ *   mỗi batch là một UPLOAD_BATCH_BEGIN (một round-trip, server commit một lần).
+ * - Tối đa {@code parallelStreams} batch chạy song song, mỗi batch trên một transfer connection.
+ * - Tiến độ tổng (bytes) của mọi batch báo qua một ProgressCallback; callback ném exception
+ *   (pause/cancel) thì dừng ở ranh giới batch.
+ * - Báo số file đầu tiên (theo thứ tự duyệt) đã commit liên tục, để lần sau bỏ qua khi resume.
+ *
+ * Server chưa có khái niệm thư mục: file được upload với tên gốc (không kèm đường dẫn).
+ */
+public class FolderUploader {
+
+    private static final Logger LOG = Log.getLogger("FOLDER_UPLOAD");
+
+    /** Số file tối đa trong một batch (server mặc định nhận tới 500). */
+    public static final int BATCH_MAX_FILES = 200;
+
+    /** Tổng bytes tối đa của một batch; file lớn hơn đi thành batch riêng. */
+    public static final long BATCH_MAX_BYTES = 16L * 1024 * 1024;
+
+    private final FileService fileService;
+    private final int parallelStreams;
+
+    public FolderUploader(FileService fileService, int parallelStreams) {
+        this.fileService = fileService;
+        this.parallelStreams = Math.max(1, parallelStreams);
+    }
+
+    /**
+     * Upload các file trong {@code folder} (đệ quy), chặn đến khi xong.
+     *
+     * @param skipFiles số file đầu (theo thứ tự duyệt) đã upload ở lần chạy trước
+     * @param callback tiến độ theo tổng bytes còn phải upload; exception ném từ callback dừng folder
+     *                 sau các batch đang chạy và được ném lại từ method này
+     * @param onCommitted nhận số file đầu đã commit liên tục (tính cả skipFiles)
+     */
+    public Result upload(File folder, int skipFiles, FileService.ProgressCallback callback,
+                         IntConsumer onCommitted) throws IOException {
+        List<File> files = listFiles(folder.toPath());
+        Result result = new Result();
+
+        // Gom batch: file rỗng bị bỏ qua (server không nhận file 0 byte)
+        List<Batch> batches = new ArrayList<>();
+        Batch current = null;
+        long totalBytes = 0;
+        int first = Math.min(skipFiles, files.size());
+        for (int i = first; i < files.size(); i++) {
+            File file = files.get(i);
+            long size = file.length();
+            if (current == null || current.files.size() >= BATCH_MAX_FILES
+                    || (!current.files.isEmpty() && current.bytes + size > BATCH_MAX_BYTES)) {
+                current = new Batch(batches.size());
+                batches.add(current);
+            }
+            current.end = i + 1;
+            if (size == 0) {
+                result.failures.add(file.getName() + ": empty file skipped");
+                continue;
+            }
+            current.files.add(file);
+            current.bytes += size;
+            totalBytes += size;
+        }
+        LOG.info("Uploading " + (files.size() - first) + " file(s), " + totalBytes + " bytes in "
+               + batches.size() + " batch(es) from " + folder);
+
+        Progress progress = new Progress(totalBytes, callback, batches, first, onCommitted);
+        progress.report(0);
+
+        AtomicInteger streamCount = new AtomicInteger();
+        ExecutorService streams = Executors.newFixedThreadPool(parallelStreams, r -> {
+            Thread t = new Thread(r, "Folder-Upload-" + streamCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        CompletionService<Batch> completion = new ExecutorCompletionService<>(streams);
+        Exception failure = null;
+        try {
+            // Chỉ giữ parallelStreams batch đang chạy: dừng (pause/cancel, lỗi I/O) thì không mở batch mới,
+            // còn batch đang chạy được chờ xong để biết đã commit chưa (tránh upload trùng khi resume)
+            int next = 0;
+            int running = 0;
+            while (running > 0 || (next < batches.size() && failure == null && progress.stop == null)) {
+                while (running < parallelStreams && next < batches.size() && failure == null && progress.stop == null) {
+                    submit(completion, batches.get(next++), progress);
+                    running++;
+                }
+                try {
+                    Batch batch = awaitNext(completion);
+                    result.failures.addAll(batch.failures);
+                    result.uploaded += batch.files.size() - batch.failures.size();
+                    progress.committed(batch);
+                } catch (IOException | RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                } finally {
+                    running--;
+                }
+            }
+        } finally {
+            streams.shutdownNow();
+        }
+
+        if (progress.stop != null) {
+            throw progress.stop;
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+        return result;
+    }
+
+    private void submit(CompletionService<Batch> completion, Batch batch, Progress progress) {
+        completion.submit(() -> {
+            if (!batch.files.isEmpty()) {
+                try {
+                    batch.failures = fileService.uploadBatch(batch.files,
+                        (sent, total) -> progress.report(batch.setSent(sent)));
+                } catch (ServiceException e) {
+                    // Cả batch bị từ chối (validation, DB): ghi nhận, các batch khác vẫn chạy
+                    batch.failures = new ArrayList<>();
+                    for (File file : batch.files) {
+                        batch.failures.add(file.getName() + ": " + e.getMessage());
+                    }
+                }
+            }
+            return batch;
+        });
+    }
+
+    /**
+     * Chờ batch kế tiếp xong; lỗi I/O của batch được ném lại nguyên dạng.
+     */
+    private static Batch awaitNext(CompletionService<Batch> completion) throws IOException {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while uploading folder", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Mọi file thường trong cây, sắp theo path để thứ tự giống nhau giữa các lần chạy.
+     */
+    private static List<File> listFiles(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile)
+                        .sorted()
+                        .map(Path::toFile)
+                        .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Một nhóm file liên tiếp theo thứ tự duyệt.
+     */
+    private static final class Batch {
+        private final int index;
+        private int end;                                        // file sau file cuối (theo thứ tự duyệt)
+        private final List<File> files = new ArrayList<>();
+        private long bytes;
+        private long sent;                                      // chỉ stream của batch này ghi
+        private List<String> failures = Collections.emptyList();
+
+        Batch(int index) {
+            this.index = index;
+        }
+
+        /** @return số bytes mới gửi kể từ lần báo trước */
+        long setSent(long sent) {
+            long delta = sent - this.sent;
+            this.sent = sent;
+            return delta;
+        }
+    }
+
+    /**
+     * Cộng dồn tiến độ từ các stream song song; callback được gọi tuần tự.
+     */
+    private static final class Progress {
+        private final long totalBytes;
+        private final FileService.ProgressCallback callback;
+        private final boolean[] done;
+        private final List<Batch> batches;
+        private final IntConsumer onCommitted;
+        private long sentBytes;
+        private int committedPrefix;                            // số batch đầu đã xong liên tục
+        private int committedFiles;
+        private volatile RuntimeException stop;                 // exception từ callback (pause/cancel)
+
+        Progress(long totalBytes, FileService.ProgressCallback callback, List<Batch> batches,
+                 int skipFiles, IntConsumer onCommitted) {
+            this.totalBytes = totalBytes;
+            this.callback = callback;
+            this.batches = batches;
+            this.done = new boolean[batches.size()];
+            this.committedFiles = skipFiles;
+            this.onCommitted = onCommitted;
+        }
+
+        synchronized void report(long delta) {
+            sentBytes += delta;
+            if (callback == null || stop != null) {
+                return;
+            }
+            try {
+                callback.onProgress(sentBytes, totalBytes);
+            } catch (RuntimeException e) {
+                // Callback yêu cầu dừng: batch đang chạy vẫn gửi nốt, không mở batch mới
+                stop = e;
+            }
+        }
+
+        synchronized void committed(Batch batch) {
+            done[batch.index] = true;
+            int before = committedPrefix;
+            while (committedPrefix < done.length && done[committedPrefix]) {
+                committedFiles = batches.get(committedPrefix).end;
+                committedPrefix++;
+            }
+            if (committedPrefix != before && onCommitted != null) {
+                onCommitted.accept(committedFiles);
+            }
+        }
+    }
+
+    /**
+     * Kết quả upload folder.
+     */
+    public static final class Result {
+        private int uploaded;
+        private final List<String> failures = new ArrayList<>();
+
+        public int getUploaded() {
+            return uploaded;
+        }
+
+        /** Lỗi từng file ("tên: lý do"). */
+        public List<String> getFailures() {
+            return failures;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.drivelite.client.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.drivelite.client.model.TransferTask;
+import com.drivelite.client.model.TransferTask.State;
+
+/**
+ * ProgressAggregator - Lấy mẫu tiến độ transfer theo nhịp cố định cho UI.
+ *
+ * Worker chỉ ghi counter (bytesDone của TransferTask, tổng bytes của TransferManager) ở mỗi chunk;
+ * UI gọi {@link #sample()} định kỳ (vd: 4-5 lần/giây trên FX thread) rồi đọc throughput đã làm mượt
+ * (trung bình trượt mũ, hằng số thời gian {@link #SMOOTHING_SECONDS}) và ETA. Số event lên UI
+ * không phụ thuộc tốc độ truyền.
+ *
+ * Không thread-safe: chỉ gọi từ một thread (FX thread).
+ */
+public class ProgressAggregator {
+
+    /** Hằng số thời gian của trung bình trượt: tốc độ phản ánh khoảng vài giây gần nhất. */
+    public static final double SMOOTHING_SECONDS = 3.0;
+
+    private final TransferManager transferManager;
+    private final Map<Long, Rate> taskRates = new HashMap<>();
+    private final Rate totalRate = new Rate();
+    private long remainingBytes;
+    private boolean running;
+
+    public ProgressAggregator(TransferManager transferManager) {
+        this.transferManager = transferManager;
+    }
+
+    /**
+     * Đọc counter hiện tại và cập nhật throughput/ETA.
+     *
+     * @return true nếu có transfer đang chạy (UI cần vẽ lại tiến độ)
+     */
+    public boolean sample() {
+        long now = System.nanoTime();
+        List<TransferTask> tasks = transferManager.getTasks();
+        Map<Long, Rate> seen = new HashMap<>();
+        long remaining = 0;
+        boolean anyRunning = false;
+
+        for (TransferTask task : tasks) {
+            if (task.getState() != State.RUNNING) {
+                continue;
+            }
+            anyRunning = true;
+            Rate rate = taskRates.getOrDefault(task.getId(), new Rate());
+            rate.update(task.getBytesDone(), now);
+            seen.put(task.getId(), rate);
+            long total = task.getBytesTotal();
+            if (total > 0) {
+                remaining += Math.max(0, total - task.getBytesDone());
+            }
+        }
+        // Transfer đã dừng: bỏ trạng thái cũ (chạy lại thì tính tốc độ từ đầu)
+        taskRates.clear();
+        taskRates.putAll(seen);
+
+        if (anyRunning) {
+            totalRate.update(transferManager.getTransferredBytes(), now);
+        } else {
+            totalRate.reset();
+        }
+        remainingBytes = remaining;
+        boolean wasRunning = running;
+        running = anyRunning;
+        // Vẽ thêm một lần sau khi transfer cuối dừng để hiện số liệu cuối
+        return anyRunning || wasRunning;
+    }
+
+    /**
+     * Throughput đã làm mượt (bytes/s) của transfer đang chạy, 0 nếu chưa có mẫu.
+     */
+    public double getThroughput(TransferTask task) {
+        Rate rate = taskRates.get(task.getId());
+        return rate != null ? rate.bytesPerSecond : 0;
+    }
+
+    /**
+     * Số giây còn lại ước tính của transfer, -1 nếu chưa biết.
+     */
+    public long getEtaSeconds(TransferTask task) {
+        long total = task.getBytesTotal();
+        if (total <= 0) {
+            return -1;
+        }
+        return eta(total - task.getBytesDone(), getThroughput(task));
+    }
+
+    /**
+     * Throughput tổng đã làm mượt (bytes/s) của mọi transfer.
+     */
+    public double getTotalThroughput() {
+        return running ? totalRate.bytesPerSecond : 0;
+    }
+
+    /**
+     * Số giây còn lại ước tính cho các transfer đang chạy, -1 nếu chưa biết.
+     */
+    public long getTotalEtaSeconds() {
+        return running ? eta(remainingBytes, totalRate.bytesPerSecond) : -1;
+    }
+
+    /**
+     * ETA dạng m:ss hoặc h:mm:ss ("--" nếu chưa biết).
+     */
+    public static String formatEta(long seconds) {
+        if (seconds < 0) {
+            return "--";
+        }
+        if (seconds >= 3600) {
+            return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+        }
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    private static long eta(long remaining, double bytesPerSecond) {
+        if (remaining <= 0) {
+            return 0;
+        }
+        return bytesPerSecond > 1 ? (long) Math.ceil(remaining / bytesPerSecond) : -1;
+    }
+
+    /**
+     * Tốc độ trượt mũ của một counter tăng dần.
+     */
+    private static final class Rate {
+        private long lastBytes = -1;
+        private long lastNanos;
+        private double bytesPerSecond;
+
+        void reset() {
+            lastBytes = -1;
+            bytesPerSecond = 0;
+        }
+
+        void update(long bytes, long now) {
+            if (lastBytes < 0 || bytes < lastBytes) {
+                // Mẫu đầu tiên, hoặc transfer chạy lại từ đầu
+                lastBytes = bytes;
+                lastNanos = now;
+                bytesPerSecond = 0;
+                return;
+            }
+            double seconds = (now - lastNanos) / 1e9;
+            if (seconds <= 0) {
+                return;
+            }
+            double instant = (bytes - lastBytes) / seconds;
+            // Mẫu đầu tiên có tốc độ: lấy luôn, không kéo dần từ 0
+            double alpha = bytesPerSecond == 0 ? 1.0 : 1 - Math.exp(-seconds / SMOOTHING_SECONDS);
+            bytesPerSecond += alpha * (instant - bytesPerSecond);
+            lastBytes = bytes;
+            lastNanos = now;
+        }
+    }
+}
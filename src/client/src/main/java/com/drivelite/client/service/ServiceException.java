@@ -1,15 +1,33 @@
 package com.drivelite.client.service;
 
+import com.drivelite.common.protocol.ResponseCode;
+
 /**
  * Exception cho các lỗi từ service layer.
+ * Lỗi do server trả về mang kèm ResponseCode để caller phân biệt (vd: NOT_FOUND với SERVER_ERROR).
  */
 public class ServiceException extends Exception {
     
+    private final ResponseCode code;
+    
     public ServiceException(String message) {
+        this(null, message);
+    }
+    
+    public ServiceException(ResponseCode code, String message) {
         super(message);
+        this.code = code;
     }
     
     public ServiceException(String message, Throwable cause) {
         super(message, cause);
+        this.code = null;
+    }
+    
+    /**
+     * @return ResponseCode server trả về, null nếu lỗi phát sinh ở client
+     */
+    public ResponseCode getCode() {
+        return code;
     }
 }
@@ -0,0 +1,475 @@
+package com.drivelite.client.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.drivelite.client.model.TransferTask;
+import com.drivelite.client.model.TransferTask.Kind;
+import com.drivelite.client.model.TransferTask.State;
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+/**
+ * TransferManager - Hàng đợi upload/download của client.
+ *
+ * - Tối đa {@code maxConcurrent} transfer chạy cùng lúc (mặc định bằng số transfer connection
+ *   của TcpClient), phần còn lại xếp hàng FIFO.
+ * - Pause/resume/cancel từng transfer. Pause dừng transfer đang chạy ở chunk kế tiếp; resume tiếp tục
+ *   từ offset: upload từ phần server còn giữ, download từ phần đã ghi vào file đích nếu nội dung trên
+ *   server không đổi (version/sha256 lưu trong TransferTask). Cancel bỏ file download dở.
+ * - Hàng đợi chưa xong được lưu xuống {@code queueFile} (JSON) sau mỗi lần đổi trạng thái
+ *   và nạp lại khi đăng nhập lần sau.
+ * - Tiến độ chỉ được ghi vào counter (TransferTask, {@link #getTransferredBytes()}), không bắn event:
+ *   UI lấy mẫu định kỳ qua {@link ProgressAggregator}.
+ *
+ * Listener (đổi trạng thái, đổi danh sách) được gọi từ worker thread; UI tự chuyển về FX thread.
+ */
+public class TransferManager {
+
+    private static final Logger LOG = Log.getLogger("TRANSFER");
+
+    // shutdown() chờ worker dừng tối đa chừng này trước khi lưu hàng đợi lần cuối
+    private static final long SHUTDOWN_WAIT_MS = 5_000;
+
+    private final FileService fileService;
+    private final FolderUploader folderUploader;
+    private final Path queueFile;
+    private final int maxConcurrent;
+
+    private final List<TransferTask> tasks = new CopyOnWriteArrayList<>();
+    private final Deque<TransferTask> queue = new ArrayDeque<>();   // guard bởi this
+    private int active;                                             // guard bởi this
+    private final AtomicLong nextId = new AtomicLong();
+    private final ExecutorService workers;
+    private final List<TransferListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean shutdown;
+
+    // Tổng bytes đã truyền (mọi transfer), worker cộng ở mỗi chunk
+    private final LongAdder transferredBytes = new LongAdder();
+
+    /**
+     * @param queueFile file lưu hàng đợi (null = không lưu)
+     * @param maxConcurrent số transfer chạy cùng lúc
+     */
+    public TransferManager(FileService fileService, Path queueFile, int maxConcurrent) {
+        this.fileService = fileService;
+        this.queueFile = queueFile;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.folderUploader = new FolderUploader(fileService, this.maxConcurrent);
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.maxConcurrent, r -> {
+            Thread t = new Thread(r, "Transfer-Worker-" + workerCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // ========== Enqueue ==========
+
+    public TransferTask enqueueUpload(File file) {
+        TransferTask task = newTask(Kind.UPLOAD, file.getName(), file);
+        task.setBytesTotal(file.length());
+        return submit(task);
+    }
+
+    public TransferTask enqueueNewVersion(int fileId, String fileName, File file, String note) {
+        TransferTask task = newTask(Kind.UPLOAD_VERSION, fileName, file);
+        task.setFileId(fileId);
+        task.setNote(note);
+        task.setBytesTotal(file.length());
+        return submit(task);
+    }
+
+    /**
+     * Upload cả thư mục (đệ quy) bằng các batch song song, xem {@link FolderUploader}.
+     * Chiếm một chỗ trong hàng đợi; resume bỏ qua các file đã commit ở lần chạy trước.
+     */
+    public TransferTask enqueueFolderUpload(File folder) {
+        return submit(newTask(Kind.UPLOAD_FOLDER, folder.getName(), folder));
+    }
+
+    /**
+     * @param versionNumber null = phiên bản mới nhất
+     */
+    public TransferTask enqueueDownload(int fileId, Integer versionNumber, String fileName, File destination) {
+        TransferTask task = newTask(Kind.DOWNLOAD, fileName, destination);
+        task.setFileId(fileId);
+        task.setVersionNumber(versionNumber);
+        return submit(task);
+    }
+
+    // ========== Control ==========
+
+    /**
+     * Tạm dừng: transfer đang chờ thì rời hàng đợi, đang chạy thì dừng ở chunk kế tiếp.
+     */
+    public void pause(TransferTask task) {
+        stop(task, State.PAUSED);
+    }
+
+    /**
+     * Hủy: như pause nhưng không resume được; file download dở bị xóa.
+     */
+    public void cancel(TransferTask task) {
+        stop(task, State.CANCELLED);
+    }
+
+    /**
+     * Chạy lại transfer đã pause hoặc lỗi, tiếp từ phần đã truyền.
+     */
+    public void resume(TransferTask task) {
+        synchronized (this) {
+            State state = task.getState();
+            if (state != State.PAUSED && state != State.FAILED) {
+                return;
+            }
+            task.setState(State.QUEUED);
+            task.setStopRequest(null);
+            task.setError(null);
+            task.setBytesDone(resumeOffset(task));
+            queue.addLast(task);
+        }
+        changed(task);
+        schedule();
+    }
+
+    /**
+     * Bỏ các mục đã xong (COMPLETED/CANCELLED) khỏi danh sách.
+     */
+    public void clearFinished() {
+        tasks.removeIf(task -> task.getState().isFinished());
+        fireListChanged();
+    }
+
+    public List<TransferTask> getTasks() {
+        return new ArrayList<>(tasks);
+    }
+
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Tổng bytes đã truyền từ khi tạo manager (tăng dần, dùng để tính throughput).
+     */
+    public long getTransferredBytes() {
+        return transferredBytes.sum();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public void addListener(TransferListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(TransferListener listener) {
+        listeners.remove(listener);
+    }
+
+    // ========== Persistence ==========
+
+    /**
+     * Nạp hàng đợi đã lưu và bắt đầu chạy. Transfer đang chạy lúc tắt client được xếp hàng lại.
+     */
+    public void restore() {
+        if (queueFile == null || !Files.exists(queueFile)) {
+            return;
+        }
+        try {
+            TransferTask[] saved = JsonCodec.mapper().readValue(queueFile.toFile(), TransferTask[].class);
+            for (TransferTask task : saved) {
+                nextId.accumulateAndGet(task.getId(), Math::max);
+                if (task.getState() == State.RUNNING || task.getState() == State.QUEUED) {
+                    task.setState(State.QUEUED);
+                    task.setBytesDone(resumeOffset(task));
+                    synchronized (this) {
+                        queue.addLast(task);
+                    }
+                }
+                tasks.add(task);
+            }
+            LOG.info("Restored " + saved.length + " transfer(s) from " + queueFile);
+        } catch (IOException e) {
+            LOG.warn("Failed to restore transfer queue: " + e.getMessage());
+        }
+        fireListChanged();
+        schedule();
+    }
+
+    /**
+     * Dừng mọi transfer (lưu lại để chạy tiếp lần sau), chờ worker dừng rồi lưu hàng đợi lần cuối.
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (TransferTask task : tasks) {
+            if (task.getState() == State.RUNNING) {
+                // Dừng ở chunk kế tiếp và quay về QUEUED → restore xếp hàng lại
+                task.setStopRequest(State.QUEUED);
+            }
+        }
+        workers.shutdown();
+        try {
+            // Transfer đang commit (không còn chunk nào để dừng) có thể xong ngay sau đó:
+            // chờ để trạng thái cuối được lưu, không để nó nằm lại ở RUNNING rồi bị upload lại
+            if (!workers.awaitTermination(SHUTDOWN_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                LOG.warn("Transfer workers still running after " + SHUTDOWN_WAIT_MS + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        persist();
+    }
+
+    private synchronized void persist() {
+        if (queueFile == null) {
+            return;
+        }
+        List<TransferTask> pending = new ArrayList<>();
+        for (TransferTask task : tasks) {
+            if (!task.getState().isFinished()) {
+                pending.add(task);
+            }
+        }
+        try {
+            Files.createDirectories(queueFile.getParent());
+            Path tmp = queueFile.resolveSibling(queueFile.getFileName() + ".tmp");
+            JsonCodec.mapper().writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), pending);
+            Files.move(tmp, queueFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Failed to save transfer queue: " + e.getMessage());
+        }
+    }
+
+    // ========== Scheduler ==========
+
+    private TransferTask newTask(Kind kind, String fileName, File localFile) {
+        TransferTask task = new TransferTask();
+        task.setId(nextId.incrementAndGet());
+        task.setKind(kind);
+        task.setFileName(fileName);
+        task.setLocalPath(localFile.getAbsolutePath());
+        return task;
+    }
+
+    private TransferTask submit(TransferTask task) {
+        tasks.add(task);
+        synchronized (this) {
+            queue.addLast(task);
+        }
+        fireListChanged();
+        persist();
+        schedule();
+        return task;
+    }
+
+    private void stop(TransferTask task, State target) {
+        synchronized (this) {
+            State state = task.getState();
+            if (state.isFinished() || (state == State.PAUSED && target == State.PAUSED)) {
+                return;
+            }
+            if (state == State.RUNNING) {
+                // Worker thấy stopRequest ở chunk kế tiếp rồi tự chuyển trạng thái
+                task.setStopRequest(target);
+                return;
+            }
+            queue.remove(task);
+            task.setState(target);
+        }
+        if (target == State.CANCELLED) {
+            discardPartial(task);
+        }
+        changed(task);
+    }
+
+    private void schedule() {
+        List<TransferTask> started = new ArrayList<>();
+        synchronized (this) {
+            while (!shutdown && active < maxConcurrent && !queue.isEmpty()) {
+                TransferTask task = queue.pollFirst();
+                if (task.getState() != State.QUEUED) {
+                    continue;
+                }
+                task.setState(State.RUNNING);
+                active++;
+                started.add(task);
+            }
+        }
+        for (TransferTask task : started) {
+            changed(task);
+            workers.execute(() -> run(task));
+        }
+    }
+
+    private void run(TransferTask task) {
+        ProgressTracker tracker = new ProgressTracker(task);
+        try {
+            File local = new File(task.getLocalPath());
+            switch (task.getKind()) {
+                case UPLOAD:
+                    fileService.uploadFile(local, tracker);
+                    break;
+                case UPLOAD_VERSION:
+                    fileService.uploadNewVersion(task.getFileId(), local, task.getNote(), tracker);
+                    break;
+                case UPLOAD_FOLDER:
+                    FolderUploader.Result result = folderUploader.upload(local, task.getCommittedFiles(), tracker,
+                        committedFiles -> {
+                            task.setCommittedFiles(committedFiles);
+                            persist();
+                        });
+                    if (!result.getFailures().isEmpty()) {
+                        task.setError(result.getFailures().size() + " file lỗi, ví dụ " + result.getFailures().get(0));
+                    }
+                    break;
+                case DOWNLOAD:
+                    download(task, local, tracker);
+                    break;
+            }
+            task.setState(State.COMPLETED);
+        } catch (TransferStoppedException e) {
+            task.setState(e.target);
+            if (e.target == State.CANCELLED) {
+                discardPartial(task);
+            }
+        } catch (Exception e) {
+            LOG.warn(task.getKind() + " " + task.getFileName() + " failed: " + e.getMessage());
+            task.setError(e.getMessage());
+            task.setState(State.FAILED);
+        } finally {
+            task.setStopRequest(null);
+            synchronized (this) {
+                active--;
+            }
+        }
+        changed(task);
+        schedule();
+    }
+
+    /**
+     * Download tiếp phần đã tải ở lần chạy trước (pause, lỗi, tắt client), cùng version với lần đó.
+     */
+    private void download(TransferTask task, File local, ProgressTracker tracker) throws IOException, ServiceException {
+        Integer version = task.getPartialSha256() != null ? task.getPartialVersion() : task.getVersionNumber();
+        FileService.DownloadState state = new FileService.DownloadState(version, task.getPartialSha256());
+        try {
+            fileService.resumeDownload(task.getFileId(), state, local, tracker);
+        } finally {
+            // Kể cả khi bị dừng: lần resume sau biết phần đã có trong file đích là nội dung nào
+            task.setPartialVersion(state.getVersionNumber());
+            task.setPartialSha256(state.getSha256());
+        }
+    }
+
+    /**
+     * Số bytes đã có khi chạy lại: phần download đã ghi vào file đích (upload do server báo khi BEGIN).
+     */
+    private static long resumeOffset(TransferTask task) {
+        File local = new File(task.getLocalPath());
+        return task.getKind() == Kind.DOWNLOAD && task.getPartialSha256() != null && local.isFile() ? local.length() : 0;
+    }
+
+    /**
+     * Bỏ file download dở. Chỉ xóa khi file đích đã được download này ghi vào
+     * (chưa bắt đầu thì có thể là file cũ của người dùng).
+     */
+    private static void discardPartial(TransferTask task) {
+        if (task.getKind() == Kind.DOWNLOAD && task.getPartialSha256() != null) {
+            new File(task.getLocalPath()).delete();
+            task.setPartialSha256(null);
+            task.setPartialVersion(null);
+        }
+    }
+
+    private void changed(TransferTask task) {
+        // Vẫn lưu sau shutdown: worker chưa dừng kịp ghi đè trạng thái RUNNING bằng trạng thái cuối
+        persist();
+        fireTaskChanged(task);
+    }
+
+    private void fireTaskChanged(TransferTask task) {
+        for (TransferListener listener : listeners) {
+            listener.onTransferChanged(task);
+        }
+    }
+
+    private void fireListChanged() {
+        for (TransferListener listener : listeners) {
+            listener.onTransfersChanged();
+        }
+    }
+
+    /**
+     * ProgressCallback của FileService: cập nhật tiến độ, cộng throughput, và dừng transfer
+     * (ném TransferStoppedException) khi có pause/cancel.
+     */
+    private final class ProgressTracker implements FileService.ProgressCallback {
+
+        private final TransferTask task;
+
+        ProgressTracker(TransferTask task) {
+            this.task = task;
+        }
+
+        @Override
+        public void onProgress(long current, long total) {
+            // Chỉ ghi counter; UI lấy mẫu theo nhịp riêng (ProgressAggregator).
+            // Tải lại từ đầu (nội dung đổi) làm current lùi: throughput không trừ đi
+            transferredBytes.add(Math.max(0, current - task.getBytesDone()));
+            task.setBytesDone(current);
+            task.setBytesTotal(total);
+
+            State stopRequest = task.getStopRequest();
+            if (stopRequest != null) {
+                throw new TransferStoppedException(stopRequest);
+            }
+        }
+    }
+
+    /**
+     * Ném từ ProgressCallback để dừng transfer giữa chừng; FileService coi như lỗi I/O
+     * và bỏ transfer connection (stream đang lệch).
+     */
+    private static final class TransferStoppedException extends RuntimeException {
+
+        private final State target;
+
+        TransferStoppedException(State target) {
+            super("Transfer " + target.name().toLowerCase(), null, false, false);
+            this.target = target;
+        }
+    }
+
+    /**
+     * Listener cho UI (gọi từ worker thread).
+     */
+    public interface TransferListener {
+
+        /** Trạng thái hoặc tiến độ của một transfer thay đổi. */
+        void onTransferChanged(TransferTask task);
+
+        /** Danh sách transfer thay đổi (thêm, nạp lại, xóa mục đã xong). */
+        void onTransfersChanged();
+    }
+}
@@ -0,0 +1,497 @@
+package com.drivelite.client.sync;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.drivelite.client.model.FileItem;
+import com.drivelite.client.service.FileService;
+import com.drivelite.client.service.ServiceException;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.drivelite.common.protocol.ResponseCode;
+
+/**
+ * SyncAgent - Giữ một thư mục local đồng bộ lên server (upload file mới, version mới khi file đổi).
+ *
+ * - Watcher thread nhận event từ {@link WatchService} (đăng ký mọi thư mục con) và chỉ gom path
+ *   vào tập pending, không đụng tới disk hay network.
+ * - Processor thread lấy batch khi thư mục đã yên {@code debounceMillis} (hoặc đã chờ quá
+ *   {@link #MAX_DELAY_MILLIS}, hoặc đủ {@link #MAX_BATCH} path): một file sửa nhiều lần liên tiếp
+ *   chỉ được xử lý một lần.
+ * - Mỗi path so với {@link SyncIndex}: size + mtime khớp thì bỏ qua không hash; khác thì hash
+ *   SHA-256, nội dung đổi mới upload (song song trên các transfer connection).
+ *
+ * Cây thư mục chỉ được quét lúc start và khi WatchService báo OVERFLOW (mất event).
+ * File bị xóa local chỉ bị bỏ khỏi index, bản trên server được giữ nguyên.
+ */
+public class SyncAgent implements AutoCloseable {
+
+    private static final Logger LOG = Log.getLogger("SYNC");
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+    /** Thư mục thay đổi liên tục vẫn được xử lý sau tối đa chừng này. */
+    public static final long MAX_DELAY_MILLIS = 5000;
+    /** Số path tối đa mỗi batch (index được lưu sau mỗi batch). */
+    public static final int MAX_BATCH = 2000;
+    private static final long RETRY_DELAY_MILLIS = 5000;
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private enum Outcome { UPLOADED, CREATED, UNCHANGED, SKIPPED, REMOVED, FAILED }
+
+    private final FileService fileService;
+    private final Path root;
+    private final SyncIndex index;
+    private final long debounceMillis;
+    private final ExecutorService workers;
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+
+    // Path chờ xử lý (Set: event lặp lại của cùng file gộp làm một), guard bởi chính nó
+    private final Set<Path> pending = new LinkedHashSet<>();
+    private long firstPendingMillis;
+    private long lastEventMillis;
+
+    private WatchService watchService;
+    private Thread watcherThread;
+    private Thread processorThread;
+    private volatile boolean running;
+
+    /**
+     * @param parallelism số file upload cùng lúc (thường bằng số transfer connection)
+     */
+    public SyncAgent(FileService fileService, Path root, SyncIndex index, int parallelism, long debounceMillis) {
+        this.fileService = fileService;
+        this.root = root.toAbsolutePath().normalize();
+        this.index = index;
+        this.debounceMillis = debounceMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread t = new Thread(r, "Sync-Upload-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Đăng ký watch toàn bộ cây rồi đối chiếu lần đầu: mọi file hiện có và mọi path trong index
+     * (bắt thay đổi xảy ra lúc agent không chạy).
+     */
+    public void start() throws IOException {
+        if (!Files.isDirectory(root)) {
+            throw new IOException("Not a directory: " + root);
+        }
+        watchService = root.getFileSystem().newWatchService();
+        running = true;
+        scan(root);
+        enqueueIndexed();
+        LOG.info("Watching " + root + " (" + watchedDirs.size() + " directories, " +
+               index.size() + " indexed files)");
+
+        watcherThread = new Thread(this::watchLoop, "Sync-Watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        processorThread = new Thread(this::processLoop, "Sync-Processor");
+        processorThread.setDaemon(true);
+        processorThread.start();
+    }
+
+    /**
+     * Chờ tới khi agent dừng (dùng cho chế độ headless).
+     */
+    public void awaitTermination() throws InterruptedException {
+        if (processorThread != null) {
+            processorThread.join();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to close watch service: " + e.getMessage());
+        }
+        synchronized (pending) {
+            pending.notifyAll();
+        }
+        try {
+            if (processorThread != null) {
+                // Batch đang chạy được làm xong để index khớp với server
+                processorThread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+        index.save();
+        LOG.info("Stopped, " + index.size() + " files indexed");
+    }
+
+    // ==================== Watcher ====================
+
+    private void watchLoop() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                break;
+            }
+            Path dir = watchedDirs.get(key);
+            if (dir == null) {
+                key.cancel();
+                continue;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Hàng đợi event của OS bị tràn: không biết file nào đổi, quét lại cả cây
+                    LOG.warn("Watch events overflowed, rescanning " + root);
+                    scan(root);
+                    enqueueIndexed();
+                    continue;
+                }
+                Path child = dir.resolve((Path) event.context());
+                if (isIgnored(child)) {
+                    continue;
+                }
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                        && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    // Thư mục mới (hoặc đổi tên tới): watch nó và lấy các file đã có bên trong
+                    scan(child);
+                } else {
+                    enqueue(child);
+                }
+            }
+            if (!key.reset()) {
+                // Thư mục đã bị xóa/đổi tên
+                watchedDirs.remove(key);
+                enqueue(dir);
+            }
+        }
+    }
+
+    /**
+     * Đăng ký watch cho {@code start} và các thư mục con, đưa mọi file vào pending.
+     */
+    private void scan(Path start) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(root) && isIgnored(dir)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                    watchedDirs.put(key, dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && !isIgnored(file)) {
+                        enqueue(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    LOG.warn("Cannot read " + file + ": " + e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (ClosedWatchServiceException e) {
+            // Agent đang dừng
+        } catch (IOException e) {
+            LOG.warn("Failed to scan " + start + ": " + e.getMessage());
+        }
+    }
+
+    private void enqueueIndexed() {
+        for (String relativePath : index.paths()) {
+            enqueue(root.resolve(relativePath));
+        }
+    }
+
+    private void enqueue(Path path) {
+        long now = System.currentTimeMillis();
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                firstPendingMillis = now;
+            }
+            pending.add(path);
+            lastEventMillis = now;
+            pending.notifyAll();
+        }
+    }
+
+    /**
+     * File tạm của editor/ứng dụng khác (và file ẩn) không được đồng bộ.
+     */
+    private static boolean isIgnored(Path path) {
+        Path fileName = path.getFileName();
+        if (fileName == null) {
+            return false;
+        }
+        String name = fileName.toString();
+        return name.startsWith(".") || name.endsWith("~") || name.endsWith(".tmp")
+            || name.endsWith(".swp") || name.endsWith(".part");
+    }
+
+    // ==================== Processor ====================
+
+    private void processLoop() {
+        while (running) {
+            List<Path> batch;
+            try {
+                batch = awaitBatch();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            List<Path> failed = process(batch);
+            index.save();
+            if (!failed.isEmpty() && running) {
+                // Thường do mất kết nối: chờ rồi thử lại cùng batch sau
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                for (Path path : failed) {
+                    enqueue(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Chờ tới khi có path và không có event mới trong {@code debounceMillis}
+     * (hoặc đã chờ quá {@link #MAX_DELAY_MILLIS}, hoặc pending đủ {@link #MAX_BATCH}), rồi lấy batch.
+     */
+    private List<Path> awaitBatch() throws InterruptedException {
+        synchronized (pending) {
+            while (running) {
+                if (pending.isEmpty()) {
+                    pending.wait();
+                    continue;
+                }
+                long now = System.currentTimeMillis();
+                long quietUntil = lastEventMillis + debounceMillis;
+                long deadline = firstPendingMillis + MAX_DELAY_MILLIS;
+                if (now >= quietUntil || now >= deadline || pending.size() >= MAX_BATCH) {
+                    break;
+                }
+                pending.wait(Math.max(1, Math.min(quietUntil, deadline) - now));
+            }
+            if (!running) {
+                return List.of();
+            }
+
+            List<Path> batch = new ArrayList<>(Math.min(pending.size(), MAX_BATCH));
+            Iterator<Path> it = pending.iterator();
+            while (it.hasNext() && batch.size() < MAX_BATCH) {
+                batch.add(it.next());
+                it.remove();
+            }
+            // Phần còn lại được xử lý ngay ở batch sau
+            firstPendingMillis = 0;
+            return batch;
+        }
+    }
+
+    /**
+     * Đồng bộ một batch: path xóa xử lý ngay, file cần kiểm tra chạy song song trên workers.
+     *
+     * @return các path bị lỗi (cần thử lại)
+     */
+    private List<Path> process(List<Path> batch) {
+        long start = System.nanoTime();
+        int[] counts = new int[Outcome.values().length];
+        List<Path> failed = new ArrayList<>();
+        List<Path> submitted = new ArrayList<>();
+        List<Future<Outcome>> futures = new ArrayList<>();
+
+        for (Path path : batch) {
+            if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+                submitted.add(path);
+                futures.add(workers.submit(() -> syncPath(path)));
+            } else {
+                counts[syncPath(path).ordinal()]++;
+            }
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            Outcome outcome;
+            try {
+                outcome = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                outcome = Outcome.FAILED;
+            } catch (ExecutionException e) {
+                LOG.warn("Sync failed for " + submitted.get(i) + ": " + e.getCause());
+                outcome = Outcome.FAILED;
+            }
+            if (outcome == Outcome.FAILED) {
+                failed.add(submitted.get(i));
+            }
+            counts[outcome.ordinal()]++;
+        }
+
+        if (counts[Outcome.UPLOADED.ordinal()] + counts[Outcome.CREATED.ordinal()]
+                + counts[Outcome.REMOVED.ordinal()] + counts[Outcome.FAILED.ordinal()] > 0) {
+            LOG.info("Batch of " + batch.size() + " paths in " + (System.nanoTime() - start) / 1_000_000 +
+                   "ms: " + counts[Outcome.CREATED.ordinal()] + " new, " +
+                   counts[Outcome.UPLOADED.ordinal()] + " updated, " +
+                   counts[Outcome.UNCHANGED.ordinal()] + " unchanged, " +
+                   counts[Outcome.REMOVED.ordinal()] + " removed, " +
+                   counts[Outcome.FAILED.ordinal()] + " failed");
+        }
+        return failed;
+    }
+
+    /**
+     * Đối chiếu một path với index và upload nếu nội dung đổi.
+     */
+    private Outcome syncPath(Path path) {
+        String relativePath = relativize(path);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return removed(relativePath);
+        } catch (IOException e) {
+            LOG.warn("Cannot read " + path + ": " + e.getMessage());
+            return Outcome.FAILED;
+        }
+        if (!attrs.isRegularFile()) {
+            // Thư mục: các file bên trong đến qua event riêng
+            return Outcome.SKIPPED;
+        }
+
+        long size = attrs.size();
+        long modifiedMillis = attrs.lastModifiedTime().toMillis();
+        SyncIndex.Entry entry = index.get(relativePath);
+        if (entry != null && entry.matches(size, modifiedMillis)) {
+            return Outcome.UNCHANGED;
+        }
+        if (size == 0) {
+            // Server không nhận file rỗng; đợi tới khi có nội dung
+            return Outcome.SKIPPED;
+        }
+
+        try {
+            String sha256 = sha256(path);
+            if (entry != null && sha256.equalsIgnoreCase(entry.getSha256())) {
+                // Chỉ mtime đổi (touch, copy giữ nguyên nội dung): cập nhật index, không upload
+                index.put(relativePath, new SyncIndex.Entry(size, modifiedMillis, sha256, entry.getFileId()));
+                return Outcome.UNCHANGED;
+            }
+
+            Outcome outcome;
+            int fileId;
+            if (entry != null) {
+                try {
+                    fileService.uploadNewVersion(entry.getFileId(), path.toFile(), "sync", null);
+                    fileId = entry.getFileId();
+                    outcome = Outcome.UPLOADED;
+                } catch (ServiceException e) {
+                    // Chỉ khi file trên server đã bị xóa hoặc mất quyền EDIT mới upload thành file mới;
+                    // lỗi tạm thời (SERVER_ERROR, sha256 lệch vì file đổi giữa chừng...) để retry xử lý
+                    if (e.getCode() != ResponseCode.NOT_FOUND && e.getCode() != ResponseCode.FORBIDDEN) {
+                        throw e;
+                    }
+                    LOG.warn("Cannot update fileId=" + entry.getFileId() + " (" + e.getMessage() +
+                           "), uploading " + relativePath + " as a new file");
+                    fileId = uploadNew(path);
+                    outcome = Outcome.CREATED;
+                }
+            } else {
+                fileId = uploadNew(path);
+                outcome = Outcome.CREATED;
+            }
+            // Ghi size/mtime đã đọc trước khi hash: file đổi trong lúc upload sẽ lệch index và
+            // được upload lại ở event kế tiếp
+            index.put(relativePath, new SyncIndex.Entry(size, modifiedMillis, sha256, fileId));
+            return outcome;
+        } catch (NoSuchFileException e) {
+            return removed(relativePath);
+        } catch (IOException | ServiceException e) {
+            LOG.warn("Failed to sync " + relativePath + ": " + e.getMessage());
+            return Outcome.FAILED;
+        }
+    }
+
+    private int uploadNew(Path path) throws IOException, ServiceException {
+        FileItem item = fileService.uploadFile(path.toFile(), null);
+        return item.getFileId();
+    }
+
+    /**
+     * Path không còn: bỏ khỏi index (cả các file dưới nó nếu là thư mục).
+     */
+    private Outcome removed(String relativePath) {
+        boolean any = index.get(relativePath) != null;
+        index.remove(relativePath);
+        for (String child : index.pathsUnder(relativePath)) {
+            index.remove(child);
+            any = true;
+        }
+        return any ? Outcome.REMOVED : Outcome.SKIPPED;
+    }
+
+    private String relativize(Path path) {
+        return root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder sb = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
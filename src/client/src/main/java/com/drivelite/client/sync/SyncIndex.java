@@ -0,0 +1,129 @@
+package com.drivelite.client.sync;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+/**
+ * SyncIndex - Trạng thái đã đồng bộ của từng file: path tương đối → (size, mtime, sha256, fileId).
+ *
+ * File có size và mtime khớp index được coi là không đổi và không bị hash lại.
+ * Lưu xuống JSON (ghi file tạm rồi rename) sau mỗi batch để lần chạy sau không upload lại.
+ */
+public class SyncIndex {
+
+    private static final Logger LOG = Log.getLogger("SYNC_INDEX");
+
+    private final Path indexFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public SyncIndex(Path indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Nạp index đã lưu (không có file thì bắt đầu rỗng).
+     */
+    public void load() throws IOException {
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        Map<String, Entry> saved = JsonCodec.mapper().readValue(indexFile.toFile(),
+            new TypeReference<TreeMap<String, Entry>>() {});
+        entries.putAll(saved);
+        LOG.info("Loaded " + entries.size() + " entries from " + indexFile);
+    }
+
+    public synchronized void save() {
+        try {
+            Files.createDirectories(indexFile.getParent());
+            Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            // TreeMap: file index ổn định giữa các lần lưu (dễ so sánh)
+            JsonCodec.mapper().writeValue(tmp.toFile(), new TreeMap<>(entries));
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Failed to save sync index: " + e.getMessage());
+        }
+    }
+
+    public Entry get(String relativePath) {
+        return entries.get(relativePath);
+    }
+
+    public void put(String relativePath, Entry entry) {
+        entries.put(relativePath, entry);
+    }
+
+    public void remove(String relativePath) {
+        entries.remove(relativePath);
+    }
+
+    /**
+     * Các path trong index nằm dưới {@code directory} (dùng khi cả thư mục bị xóa/đổi tên).
+     */
+    public List<String> pathsUnder(String directory) {
+        String prefix = directory.isEmpty() ? "" : directory + "/";
+        List<String> result = new ArrayList<>();
+        for (String path : entries.keySet()) {
+            if (path.startsWith(prefix)) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    public List<String> paths() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Trạng thái của một file lúc đồng bộ xong.
+     */
+    public static class Entry {
+        private long size;
+        private long modifiedMillis;
+        private String sha256;
+        private int fileId;
+
+        public Entry() {}
+
+        public Entry(long size, long modifiedMillis, String sha256, int fileId) {
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.sha256 = sha256;
+            this.fileId = fileId;
+        }
+
+        /** Size và mtime khớp: coi như nội dung không đổi, không cần hash. */
+        public boolean matches(long size, long modifiedMillis) {
+            return this.size == size && this.modifiedMillis == modifiedMillis;
+        }
+
+        public long getSize() { return size; }
+        public void setSize(long size) { this.size = size; }
+
+        public long getModifiedMillis() { return modifiedMillis; }
+        public void setModifiedMillis(long modifiedMillis) { this.modifiedMillis = modifiedMillis; }
+
+        public String getSha256() { return sha256; }
+        public void setSha256(String sha256) { this.sha256 = sha256; }
+
+        public int getFileId() { return fileId; }
+        public void setFileId(int fileId) { this.fileId = fileId; }
+    }
+}
@@ -0,0 +1,136 @@
+package com.drivelite.client.sync;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+
+import com.drivelite.client.net.TcpClient;
+import com.drivelite.client.service.AuthService;
+import com.drivelite.client.service.FileService;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+/**
+ * Chế độ client không giao diện: đăng nhập rồi giữ một thư mục local đồng bộ lên server.
+ *
+ * Ví dụ:
+ *   java -cp client.jar com.drivelite.client.sync.SyncMain --email=a@b.com --dir=~/Documents/drive
+ *
+ * Mật khẩu lấy từ --password, biến môi trường DRIVELITE_PASSWORD, hoặc hỏi trên console.
+ * Index đồng bộ lưu ở ~/.drivelite/sync-{email}-{hash thư mục}.json.
+ */
+public final class SyncMain {
+
+    private static final Logger LOG = Log.getLogger("SYNC_MAIN");
+
+    static final String USAGE = String.join(System.lineSeparator(),
+        "Usage: java -cp client.jar com.drivelite.client.sync.SyncMain [options]",
+        "  --host=localhost         Server host",
+        "  --port=9000              Server port",
+        "  --ssl                    Kết nối SSL (trust all, chỉ dùng cho test)",
+        "  --email=...              Email đăng nhập (bắt buộc)",
+        "  --password=...           Mật khẩu (mặc định: biến môi trường DRIVELITE_PASSWORD)",
+        "  --dir=...                Thư mục cần đồng bộ (bắt buộc)",
+        "  --debounce=" + SyncAgent.DEFAULT_DEBOUNCE_MILLIS + "            Thời gian chờ thư mục yên trước khi xử lý (ms)",
+        "  --parallel=" + TcpClient.MAX_TRANSFER_CONNECTIONS + "             Số file upload cùng lúc");
+
+    private SyncMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = "localhost";
+        int port = 9000;
+        boolean ssl = false;
+        String email = null;
+        String password = System.getenv("DRIVELITE_PASSWORD");
+        String dir = null;
+        long debounceMillis = SyncAgent.DEFAULT_DEBOUNCE_MILLIS;
+        int parallelism = TcpClient.MAX_TRANSFER_CONNECTIONS;
+
+        try {
+            for (String arg : args) {
+                if ("--help".equals(arg) || "-h".equals(arg)) {
+                    System.out.println(USAGE);
+                    return;
+                }
+                if (!arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+                String[] kv = arg.substring(2).split("=", 2);
+                String key = kv[0];
+                String value = kv.length > 1 ? kv[1] : "true";
+                switch (key) {
+                    case "host": host = value; break;
+                    case "port": port = Integer.parseInt(value); break;
+                    case "ssl": ssl = Boolean.parseBoolean(value); break;
+                    case "email": email = value; break;
+                    case "password": password = value; break;
+                    case "dir": dir = value; break;
+                    case "debounce": debounceMillis = Long.parseLong(value); break;
+                    case "parallel": parallelism = Integer.parseInt(value); break;
+                    default: throw new IllegalArgumentException("Unknown option: --" + key);
+                }
+            }
+            if (email == null || dir == null) {
+                throw new IllegalArgumentException("--email and --dir are required");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        if (password == null && System.console() != null) {
+            char[] typed = System.console().readPassword("Password for %s: ", email);
+            password = typed != null ? new String(typed) : null;
+        }
+        if (password == null) {
+            System.err.println("No password given (--password or DRIVELITE_PASSWORD)");
+            System.exit(2);
+            return;
+        }
+
+        Path root = Paths.get(dir.replaceFirst("^~", System.getProperty("user.home"))).toAbsolutePath().normalize();
+
+        TcpClient client = new TcpClient();
+        if (ssl) {
+            client.enableSSLTrustAll();
+        }
+        client.connect(host, port);
+        AuthService authService = new AuthService(client);
+        authService.login(email, password);
+        LOG.info("Logged in as " + email);
+
+        SyncIndex index = new SyncIndex(indexFileFor(email, root));
+        index.load();
+        SyncAgent agent = new SyncAgent(new FileService(client), root, index, parallelism, debounceMillis);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            agent.close();
+            authService.logout();
+            client.close();
+        }, "Sync-Shutdown"));
+
+        agent.start();
+        agent.awaitTermination();
+    }
+
+    /**
+     * Mỗi cặp (tài khoản, thư mục) có index riêng.
+     */
+    private static Path indexFileFor(String email, Path root) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hash = digest.digest(root.toString().getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            sb.append(String.format("%02x", hash[i]));
+        }
+        String safeEmail = email.replaceAll("[^A-Za-z0-9@._-]", "_");
+        Path dir = Paths.get(System.getProperty("user.home"), ".drivelite");
+        Files.createDirectories(dir);
+        return dir.resolve("sync-" + safeEmail + "-" + sb + ".json");
+    }
+}
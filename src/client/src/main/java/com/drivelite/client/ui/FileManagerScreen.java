@@ -1,7 +1,7 @@
 package com.drivelite.client.ui;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.List;
@@ -9,8 +9,12 @@ import java.util.Optional;
 
 import com.drivelite.client.ClientMain;
 import com.drivelite.client.model.FileItem;
+import com.drivelite.client.model.FilePreview;
+import com.drivelite.client.model.TransferTask;
 import com.drivelite.client.model.VersionInfo;
 import com.drivelite.client.service.FileService;
+import com.drivelite.client.service.ServiceException;
+import com.drivelite.client.service.TransferManager;
 
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
@@ -53,13 +57,14 @@ public class FileManagerScreen extends BorderPane {
 
     private final ClientMain app;
     private final FileService fileService;
+    private final TransferManager transferManager;
     
     private TableView<FileItem> tblFiles;
     private ObservableList<FileItem> fileList;
     private Label lblStatus;
     private Label lblUser;
     private ProgressIndicator progress;
-    private Button btnUpload, btnDownload, btnShare, btnDelete, btnVersions, btnRefresh, btnUpdateVersion;
+    private Button btnUpload, btnUploadFolder, btnDownload, btnShare, btnDelete, btnVersions, btnRefresh, btnUpdateVersion;
     
     private FileItem selectedFile;
     private boolean showingMyFiles = true;
@@ -67,7 +72,18 @@ public class FileManagerScreen extends BorderPane {
     public FileManagerScreen(ClientMain app) {
         this.app = app;
         this.fileService = app.getFileService();
+        this.transferManager = app.getTransferManager();
         initUI();
+        transferManager.addListener(new TransferManager.TransferListener() {
+            @Override
+            public void onTransferChanged(TransferTask task) {
+                onTransferFinished(task);
+            }
+
+            @Override
+            public void onTransfersChanged() {
+            }
+        });
         loadFiles();
     }
 
@@ -81,8 +97,8 @@ public class FileManagerScreen extends BorderPane {
         // Right panel - Actions
         setRight(createActionPanel());
         
-        // Bottom - Status bar
-        setBottom(createStatusBar());
+        // Bottom - Hàng đợi transfer + status bar
+        setBottom(new VBox(new TransfersPanel(transferManager), createStatusBar()));
     }
 
     private HBox createTopBar() {
@@ -178,6 +194,10 @@ public class FileManagerScreen extends BorderPane {
         btnUpload.setPrefWidth(150);
         btnUpload.setOnAction(e -> handleUpload());
 
+        btnUploadFolder = new Button("📁 Upload thư mục");
+        btnUploadFolder.setPrefWidth(150);
+        btnUploadFolder.setOnAction(e -> handleUploadFolder());
+
         btnDownload = new Button("📥 Download");
         btnDownload.setPrefWidth(150);
         btnDownload.setDisable(true);
@@ -208,7 +228,7 @@ public class FileManagerScreen extends BorderPane {
         progress.setVisible(false);
         progress.setPrefSize(40, 40);
 
-        panel.getChildren().addAll(lblActions, btnUpload, btnDownload, btnShare, btnDelete, btnVersions, btnUpdateVersion, progress);
+        panel.getChildren().addAll(lblActions, btnUpload, btnUploadFolder, btnDownload, btnShare, btnDelete, btnVersions, btnUpdateVersion, progress);
         return panel;
     }
 
@@ -242,6 +262,12 @@ public class FileManagerScreen extends BorderPane {
         setLoading(true);
         setStatus("Đang tải danh sách file...");
 
+        // Hiện ngay listing đã cache; refresh có điều kiện chỉ thay bảng khi server báo có thay đổi
+        List<FileItem> cached = showingMyFiles ? fileService.getCachedMyFiles() : fileService.getCachedSharedWithMe();
+        if (cached != null) {
+            fileList.setAll(cached);
+        }
+
         Task<List<FileItem>> task = new Task<>() {
             @Override
             protected List<FileItem> call() throws Exception {
@@ -254,7 +280,9 @@ public class FileManagerScreen extends BorderPane {
         };
 
         task.setOnSucceeded(e -> {
-            fileList.setAll(task.getValue());
+            if (task.getValue() != cached) {
+                fileList.setAll(task.getValue());
+            }
             setLoading(false);
             setStatus("Đã tải " + fileList.size() + " file");
         });
@@ -270,35 +298,26 @@ public class FileManagerScreen extends BorderPane {
     private void handleUpload() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Chọn file để upload");
-        File file = fileChooser.showOpenDialog(app.getPrimaryStage());
+        List<File> files = fileChooser.showOpenMultipleDialog(app.getPrimaryStage());
         
-        if (file == null) return;
+        if (files == null || files.isEmpty()) return;
 
-        setLoading(true);
-        setStatus("Đang upload: " + file.getName());
-
-        Task<FileItem> task = new Task<>() {
-            @Override
-            protected FileItem call() throws Exception {
-                return fileService.uploadFile(file, (current, total) -> {
-                    double percent = (double) current / total * 100;
-                    Platform.runLater(() -> setStatus(String.format("Upload: %.1f%%", percent)));
-                });
-            }
-        };
+        // Xếp hàng; TransferManager giới hạn số upload chạy cùng lúc
+        for (File file : files) {
+            transferManager.enqueueUpload(file);
+        }
+        setStatus("Đã thêm " + files.size() + " file vào hàng đợi upload");
+    }
 
-        task.setOnSucceeded(e -> {
-            setLoading(false);
-            setStatus("Upload thành công: " + file.getName());
-            loadFiles();
-        });
+    private void handleUploadFolder() {
+        DirectoryChooser dirChooser = new DirectoryChooser();
+        dirChooser.setTitle("Chọn thư mục để upload");
+        File dir = dirChooser.showDialog(app.getPrimaryStage());
 
-        task.setOnFailed(e -> {
-            setLoading(false);
-            showError("Upload thất bại: " + task.getException().getMessage());
-        });
+        if (dir == null) return;
 
-        new Thread(task).start();
+        transferManager.enqueueFolderUpload(dir);
+        setStatus("Đã thêm thư mục vào hàng đợi upload: " + dir.getName());
     }
 
     private void handleDownload() {
@@ -323,37 +342,36 @@ public class FileManagerScreen extends BorderPane {
             }
         }
 
-        setLoading(true);
-        setStatus("Đang download: " + selectedFile.getFileName());
-
-        Task<Void> task = new Task<>() {
-            @Override
-            protected Void call() throws Exception {
-                fileService.downloadFile(selectedFile.getFileId(), destination, (current, total) -> {
-                    double percent = (double) current / total * 100;
-                    Platform.runLater(() -> setStatus(String.format("Download: %.1f%%", percent)));
-                });
-                return null;
-            }
-        };
-
-        task.setOnSucceeded(e -> {
-            setLoading(false);
-            setStatus("Download thành công: " + selectedFile.getFileName());
-            
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Thành công");
-            alert.setHeaderText(null);
-            alert.setContentText("Đã tải file về: " + destination.getAbsolutePath());
-            alert.showAndWait();
-        });
-
-        task.setOnFailed(e -> {
-            setLoading(false);
-            showError("Download thất bại: " + task.getException().getMessage());
-        });
+        transferManager.enqueueDownload(selectedFile.getFileId(), null, selectedFile.getFileName(), destination);
+        setStatus("Đã thêm vào hàng đợi download: " + selectedFile.getFileName());
+    }
 
-        new Thread(task).start();
+    /**
+     * Thông báo khi một transfer kết thúc (gọi từ worker thread của TransferManager).
+     */
+    private void onTransferFinished(TransferTask task) {
+        switch (task.getState()) {
+            case COMPLETED:
+                if (task.isUpload()) {
+                    Platform.runLater(this::loadFiles);
+                    if (task.getKind() == TransferTask.Kind.UPLOAD_FOLDER) {
+                        setStatus("Upload thư mục xong: " + task.getFileName()
+                            + (task.getError() != null ? " (" + task.getError() + ")" : ""));
+                    } else {
+                        setStatus((task.getKind() == TransferTask.Kind.UPLOAD_VERSION ? "Cập nhật" : "Upload")
+                            + " thành công: " + task.getFileName());
+                    }
+                } else {
+                    setStatus("Download thành công: " + task.getLocalPath());
+                }
+                break;
+            case FAILED:
+                setStatus("Lỗi: " + (task.isUpload() ? "Upload" : "Download") + " thất bại: "
+                    + task.getFileName() + " (" + task.getError() + ")");
+                break;
+            default:
+                break;
+        }
     }
 
     private void handleShare() {
@@ -495,41 +513,8 @@ public class FileManagerScreen extends BorderPane {
         
         String note = noteDialog.showAndWait().orElse("");
         
-        final int fileId = selectedFile.getFileId();
-        final String fileName = selectedFile.getFileName();
-        
-        setLoading(true);
-        setStatus("Đang cập nhật: " + fileName);
-        
-        Task<Void> task = new Task<>() {
-            @Override
-            protected Void call() throws Exception {
-                fileService.uploadNewVersion(fileId, file, note, (current, total) -> {
-                    double percent = (double) current / total * 100;
-                    Platform.runLater(() -> setStatus(String.format("Cập nhật: %.1f%%", percent)));
-                });
-                return null;
-            }
-        };
-        
-        task.setOnSucceeded(e -> {
-            setLoading(false);
-            setStatus("Cập nhật thành công: " + fileName);
-            loadFiles();
-            
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Thành công");
-            alert.setHeaderText(null);
-            alert.setContentText("Đã cập nhật phiên bản mới cho \"" + fileName + "\"");
-            alert.showAndWait();
-        });
-        
-        task.setOnFailed(e -> {
-            setLoading(false);
-            showError("Cập nhật thất bại: " + task.getException().getMessage());
-        });
-        
-        new Thread(task).start();
+        transferManager.enqueueNewVersion(selectedFile.getFileId(), selectedFile.getFileName(), file, note);
+        setStatus("Đã thêm vào hàng đợi cập nhật: " + selectedFile.getFileName());
     }
 
     private void handleVersionHistory() {
@@ -610,37 +595,15 @@ public class FileManagerScreen extends BorderPane {
             
         File destination = new File(dir, newName);
 
-        setLoading(true);
-        setStatus("Đang download phiên bản " + versionNumber);
-
-        Task<Void> task = new Task<>() {
-            @Override
-            protected Void call() throws Exception {
-                fileService.downloadFile(selectedFile.getFileId(), versionNumber, destination, (current, total) -> {
-                    double percent = (double) current / total * 100;
-                    Platform.runLater(() -> setStatus(String.format("Download: %.1f%%", percent)));
-                });
-                return null;
-            }
-        };
-
-        task.setOnSucceeded(e -> {
-            setLoading(false);
-            setStatus("Download thành công phiên bản " + versionNumber);
-        });
-
-        task.setOnFailed(e -> {
-            setLoading(false);
-            showError("Download thất bại: " + task.getException().getMessage());
-        });
-
-        new Thread(task).start();
+        transferManager.enqueueDownload(selectedFile.getFileId(), versionNumber, newName, destination);
+        setStatus("Đã thêm vào hàng đợi download: phiên bản " + versionNumber);
     }
 
     private void setLoading(boolean loading) {
         Platform.runLater(() -> {
             progress.setVisible(loading);
             btnUpload.setDisable(loading);
+            btnUploadFolder.setDisable(loading);
             btnRefresh.setDisable(loading);
         });
     }
@@ -649,6 +612,19 @@ public class FileManagerScreen extends BorderPane {
         Platform.runLater(() -> lblStatus.setText(status));
     }
 
+    /**
+     * TcpClient báo mất/có lại kết nối (gọi từ thread network).
+     * Transfer đang chạy tự chờ kết nối lại và làm tiếp; có lại kết nối thì tải lại danh sách.
+     */
+    public void onConnectionChanged(boolean connected) {
+        if (connected) {
+            setStatus("Đã kết nối lại");
+            Platform.runLater(this::loadFiles);
+        } else {
+            setStatus("Mất kết nối, đang kết nối lại...");
+        }
+    }
+
     private void showError(String message) {
         Platform.runLater(() -> {
             lblStatus.setText("Lỗi: " + message);
@@ -702,20 +678,21 @@ public class FileManagerScreen extends BorderPane {
         dialog.getDialogPane().setMinWidth(650);
         dialog.getDialogPane().setMinHeight(500);
         
-        // Tải file về temp và hiển thị preview
+        // Preview do server tạo (thumbnail / đoạn đầu text); server không tạo được thì lấy cả file
         final int fileId = file.getFileId();
-        Task<File> downloadTask = new Task<>() {
+        Task<FilePreview> downloadTask = new Task<>() {
             @Override
-            protected File call() throws Exception {
-                File tempFile = File.createTempFile("drivelite_preview_", "_" + file.getFileName());
-                tempFile.deleteOnExit();
-                fileService.downloadFile(fileId, tempFile, null);
-                return tempFile;
+            protected FilePreview call() throws Exception {
+                try {
+                    return fileService.getPreview(fileId, null);
+                } catch (ServiceException ex) {
+                    return loadFullPreview(fileId, isImage);
+                }
             }
         };
         
         downloadTask.setOnSucceeded(e -> {
-            File tempFile = downloadTask.getValue();
+            FilePreview preview = downloadTask.getValue();
             content.getChildren().clear();
             
             // File info bar
@@ -732,7 +709,7 @@ public class FileManagerScreen extends BorderPane {
             if (isImage) {
                 // Image preview
                 try {
-                    Image image = new Image(tempFile.toURI().toString());
+                    Image image = new Image(new ByteArrayInputStream(preview.getImageBytes()));
                     ImageView imageView = new ImageView(image);
                     imageView.setPreserveRatio(true);
                     imageView.setFitWidth(600);
@@ -747,22 +724,17 @@ public class FileManagerScreen extends BorderPane {
                 }
             } else if (isText) {
                 // Text preview
-                try {
-                    String textContent = Files.readString(tempFile.toPath(), StandardCharsets.UTF_8);
-                    // Giới hạn 50KB text để tránh lag
-                    if (textContent.length() > 50000) {
-                        textContent = textContent.substring(0, 50000) + "\n\n... (Nội dung bị cắt bớt, tải xuống để xem đầy đủ)";
-                    }
-                    
-                    TextArea textArea = new TextArea(textContent);
-                    textArea.setEditable(false);
-                    textArea.setWrapText(true);
-                    textArea.setPrefSize(600, 400);
-                    textArea.setStyle("-fx-font-family: 'Consolas', 'Courier New', monospace; -fx-font-size: 12px;");
-                    content.getChildren().add(textArea);
-                } catch (IOException ex) {
-                    content.getChildren().add(new Label("❌ Không thể đọc file: " + ex.getMessage()));
+                String textContent = preview.getText();
+                if (preview.isTruncated()) {
+                    textContent += "\n\n... (Nội dung bị cắt bớt, tải xuống để xem đầy đủ)";
                 }
+                
+                TextArea textArea = new TextArea(textContent);
+                textArea.setEditable(false);
+                textArea.setWrapText(true);
+                textArea.setPrefSize(600, 400);
+                textArea.setStyle("-fx-font-family: 'Consolas', 'Courier New', monospace; -fx-font-size: 12px;");
+                content.getChildren().add(textArea);
             }
             
         });
@@ -778,6 +750,20 @@ public class FileManagerScreen extends BorderPane {
         dialog.showAndWait();
     }
     
+    /**
+     * Preview từ nội dung đầy đủ (qua content cache), dùng khi server không trả được GET_PREVIEW.
+     */
+    private FilePreview loadFullPreview(int fileId, boolean isImage) throws Exception {
+        File contentFile = fileService.fetchContent(fileId, null, null);
+        if (isImage) {
+            return FilePreview.ofImage(Files.readAllBytes(contentFile.toPath()));
+        }
+        String text = Files.readString(contentFile.toPath(), StandardCharsets.UTF_8);
+        // Giới hạn 50KB text để tránh lag
+        boolean truncated = text.length() > 50000;
+        return FilePreview.ofText(truncated ? text.substring(0, 50000) : text, truncated);
+    }
+    
     private void showBasicFileInfo(FileItem file) {
         Dialog<Void> dialog = new Dialog<>();
         dialog.setTitle("Thông tin file");
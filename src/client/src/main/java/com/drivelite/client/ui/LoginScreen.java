@@ -4,6 +4,8 @@ import java.util.prefs.Preferences;
 
 import com.drivelite.client.ClientMain;
 import com.drivelite.client.service.ServiceException;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 
 import javafx.application.Platform;
 import javafx.concurrent.Task;
@@ -30,6 +32,9 @@ import javafx.scene.layout.VBox;
  */
 public class LoginScreen extends VBox {
 
+    private static final Logger LOG = Log.getLogger("LOGIN");
+    private static final Logger SSL_LOG = Log.getLogger("SSL");
+
     private final ClientMain app;
     
     private TextField txtServerHost;
@@ -191,7 +196,7 @@ public class LoginScreen extends VBox {
                 try {
                     app.getTcpClient().enableSSLTrustAll();
                 } catch (Exception e) {
-                    System.err.println("[SSL] Failed to enable SSL: " + e.getMessage());
+                    SSL_LOG.error("Failed to enable SSL: " + e.getMessage());
                     // Continue without SSL if it fails
                 }
                 
@@ -212,9 +217,7 @@ public class LoginScreen extends VBox {
         loginTask.setOnFailed(e -> {
             setLoading(false);
             Throwable ex = loginTask.getException();
-            // Debug: print full stack trace
-            System.err.println("[LOGIN ERROR]");
-            ex.printStackTrace();
+            LOG.error("Login failed", ex);
             
             if (ex instanceof ServiceException) {
                 showError(ex.getMessage());
@@ -439,7 +442,7 @@ public class LoginScreen extends VBox {
             String savedHost = prefs.get(PREF_HOST, "localhost");
             String savedPort = prefs.get(PREF_PORT, "9000");
             
-            System.out.println("[LOGIN] Loading saved credentials: remember=" + remember + 
+            LOG.info("Loading saved credentials: remember=" + remember + 
                 ", email=" + savedEmail + ", host=" + savedHost + ", port=" + savedPort);
             
             chkRememberMe.setSelected(remember);
@@ -450,7 +453,7 @@ public class LoginScreen extends VBox {
                 txtEmail.setText(savedEmail);
             }
         } catch (Exception e) {
-            System.err.println("[LOGIN] Error loading credentials: " + e.getMessage());
+            LOG.error("Error loading credentials: " + e.getMessage());
         }
     }
 
@@ -468,10 +471,10 @@ public class LoginScreen extends VBox {
                 prefs.remove(PREF_EMAIL);
             }
             prefs.flush(); // Ghi xuống disk ngay lập tức
-            System.out.println("[LOGIN] Saved credentials: remember=" + chkRememberMe.isSelected() + 
+            LOG.info("Saved credentials: remember=" + chkRememberMe.isSelected() + 
                 ", email=" + txtEmail.getText().trim());
         } catch (Exception e) {
-            System.err.println("[LOGIN] Error saving credentials: " + e.getMessage());
+            LOG.error("Error saving credentials: " + e.getMessage());
         }
     }
 }
@@ -0,0 +1,222 @@
+package com.drivelite.client.ui;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.drivelite.client.model.TransferTask;
+import com.drivelite.client.model.TransferTask.State;
+import com.drivelite.client.service.ProgressAggregator;
+import com.drivelite.client.service.TransferManager;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.ProgressBarTableCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+
+/**
+ * Panel "Truyền file" - hàng đợi upload/download của TransferManager.
+ * Hiển thị trạng thái, tiến độ, tốc độ/ETA từng transfer, nút tạm dừng/tiếp tục/hủy và throughput tổng.
+ *
+ * Không vẽ lại theo từng event: listener chỉ đánh dấu cần vẽ, bảng được cập nhật theo nhịp
+ * REFRESH_INTERVAL cùng với lần lấy mẫu tiến độ của ProgressAggregator.
+ */
+public class TransfersPanel extends VBox {
+
+    private static final Duration REFRESH_INTERVAL = Duration.millis(250);
+
+    private final TransferManager transferManager;
+    private final ProgressAggregator progress;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final ObservableList<TransferTask> transfers = FXCollections.observableArrayList();
+    private final TableView<TransferTask> tblTransfers;
+    private final Label lblSummary;
+    private final Timeline refreshTimer;
+
+    public TransfersPanel(TransferManager transferManager) {
+        super(5);
+        this.transferManager = transferManager;
+        this.progress = new ProgressAggregator(transferManager);
+        setPadding(new Insets(5, 10, 5, 10));
+        getStyleClass().add("transfers-panel");
+
+        Label lblTitle = new Label("Truyền file");
+        lblTitle.getStyleClass().add("section-label");
+
+        lblSummary = new Label();
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+
+        Button btnClear = new Button("Xóa mục đã xong");
+        btnClear.getStyleClass().add("link-button");
+        btnClear.setOnAction(e -> transferManager.clearFinished());
+
+        HBox header = new HBox(10, lblTitle, lblSummary, spacer, btnClear);
+        header.setAlignment(Pos.CENTER_LEFT);
+
+        tblTransfers = createTable();
+        tblTransfers.setPrefHeight(160);
+
+        getChildren().addAll(header, tblTransfers);
+
+        transferManager.addListener(new TransferManager.TransferListener() {
+            @Override
+            public void onTransferChanged(TransferTask task) {
+                dirty.set(true);
+            }
+
+            @Override
+            public void onTransfersChanged() {
+                Platform.runLater(() -> transfers.setAll(transferManager.getTasks()));
+            }
+        });
+        transfers.setAll(transferManager.getTasks());
+
+        // Lấy mẫu tiến độ và vẽ lại theo nhịp cố định; tự dừng khi manager đã shutdown (logout)
+        refreshTimer = new Timeline(new KeyFrame(REFRESH_INTERVAL, e -> refresh()));
+        refreshTimer.setCycleCount(Timeline.INDEFINITE);
+        refreshTimer.play();
+        refresh();
+    }
+
+    @SuppressWarnings("unchecked")
+    private TableView<TransferTask> createTable() {
+        TableView<TransferTask> table = new TableView<>(transfers);
+        table.setPlaceholder(new Label("Không có transfer nào"));
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+
+        TableColumn<TransferTask, String> colKind = new TableColumn<>("");
+        colKind.setCellValueFactory(cell -> new SimpleStringProperty(kindIcon(cell.getValue().getKind())));
+        colKind.setMaxWidth(40);
+
+        TableColumn<TransferTask, String> colName = new TableColumn<>("Tên file");
+        colName.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getFileName()));
+
+        TableColumn<TransferTask, Double> colProgress = new TableColumn<>("Tiến độ");
+        colProgress.setCellValueFactory(cell -> new SimpleDoubleProperty(cell.getValue().getProgress()).asObject());
+        colProgress.setCellFactory(ProgressBarTableCell.forTableColumn());
+
+        TableColumn<TransferTask, String> colSize = new TableColumn<>("Dung lượng");
+        colSize.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getFormattedProgress()));
+
+        TableColumn<TransferTask, String> colSpeed = new TableColumn<>("Tốc độ");
+        colSpeed.setCellValueFactory(cell -> new SimpleStringProperty(formatSpeed(cell.getValue())));
+
+        TableColumn<TransferTask, String> colState = new TableColumn<>("Trạng thái");
+        colState.setCellValueFactory(cell -> new SimpleStringProperty(formatState(cell.getValue())));
+
+        TableColumn<TransferTask, TransferTask> colActions = new TableColumn<>("");
+        colActions.setCellValueFactory(cell -> new SimpleObjectProperty<>(cell.getValue()));
+        colActions.setCellFactory(col -> new ActionsCell());
+        colActions.setMinWidth(130);
+
+        table.getColumns().addAll(colKind, colName, colProgress, colSize, colSpeed, colState, colActions);
+        return table;
+    }
+
+    private void refresh() {
+        if (transferManager.isShutdown()) {
+            refreshTimer.stop();
+            return;
+        }
+        boolean active = progress.sample();
+        if (dirty.getAndSet(false) || active) {
+            tblTransfers.refresh();
+        }
+        String summary = String.format("%d đang chạy · %d đang chờ · %s/s",
+            transferManager.getActiveCount(), transferManager.getQueuedCount(),
+            TransferTask.formatSize((long) progress.getTotalThroughput()));
+        if (progress.getTotalEtaSeconds() >= 0) {
+            summary += " · còn " + ProgressAggregator.formatEta(progress.getTotalEtaSeconds());
+        }
+        lblSummary.setText(summary);
+    }
+
+    private String formatSpeed(TransferTask task) {
+        if (task.getState() != State.RUNNING) {
+            return "";
+        }
+        return TransferTask.formatSize((long) progress.getThroughput(task)) + "/s · "
+             + ProgressAggregator.formatEta(progress.getEtaSeconds(task));
+    }
+
+    private static String kindIcon(TransferTask.Kind kind) {
+        switch (kind) {
+            case UPLOAD_FOLDER: return "📁";
+            case DOWNLOAD:      return "📥";
+            default:            return "📤";
+        }
+    }
+
+    private static String formatState(TransferTask task) {
+        switch (task.getState()) {
+            case QUEUED:    return "Đang chờ";
+            case RUNNING:   return task.getStopRequest() != null ? "Đang dừng..." : "Đang chạy";
+            case PAUSED:    return "Tạm dừng";
+            case COMPLETED: return task.getError() != null ? "Hoàn tất · " + task.getError() : "Hoàn tất";
+            case CANCELLED: return "Đã hủy";
+            case FAILED:    return "Lỗi: " + task.getError();
+            default:        return task.getState().name();
+        }
+    }
+
+    /**
+     * Nút thao tác theo trạng thái: tạm dừng / tiếp tục (hoặc thử lại) / hủy.
+     */
+    private final class ActionsCell extends TableCell<TransferTask, TransferTask> {
+
+        private final Button btnToggle = new Button();
+        private final Button btnCancel = new Button("✖");
+        private final HBox box = new HBox(5, btnToggle, btnCancel);
+
+        ActionsCell() {
+            box.setAlignment(Pos.CENTER);
+            btnCancel.getStyleClass().add("danger-button");
+            btnToggle.setOnAction(e -> {
+                TransferTask task = getItem();
+                if (task == null) return;
+                State state = task.getState();
+                if (state == State.PAUSED || state == State.FAILED) {
+                    transferManager.resume(task);
+                } else {
+                    transferManager.pause(task);
+                }
+            });
+            btnCancel.setOnAction(e -> {
+                TransferTask task = getItem();
+                if (task != null) {
+                    transferManager.cancel(task);
+                }
+            });
+        }
+
+        @Override
+        protected void updateItem(TransferTask task, boolean empty) {
+            super.updateItem(task, empty);
+            if (empty || task == null || task.getState().isFinished()) {
+                setGraphic(null);
+                return;
+            }
+            State state = task.getState();
+            btnToggle.setText(state == State.PAUSED ? "▶" : state == State.FAILED ? "↻" : "⏸");
+            btnToggle.setDisable(task.getStopRequest() != null);
+            setGraphic(box);
+        }
+    }
+}
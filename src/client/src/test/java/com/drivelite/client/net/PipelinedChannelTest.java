@@ -0,0 +1,215 @@
+package com.drivelite.client.net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.drivelite.common.codec.FrameEncoding;
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.protocol.MessageType;
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+
+/**
+ * Unit tests cho PipelinedChannel với một server giả qua socket thật:
+ * response về ngược thứ tự vẫn đến đúng future, requestId trùng được đổi, timeout không làm hỏng connection
+ * còn sống, server im lặng suốt timeout thì bị coi là mất kết nối.
+ */
+class PipelinedChannelTest {
+
+    private static final long TIMEOUT_MS = 5_000;
+
+    private final AtomicInteger nextId = new AtomicInteger();
+    // onConnectionLost chạy sau khi các future đang chờ đã fail
+    private final CountDownLatch connectionLost = new CountDownLatch(1);
+    private final AtomicReference<Throwable> serverFailure = new AtomicReference<>();
+    private ServerSocket listener;
+    private Thread server;
+    private PipelinedChannel channel;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (channel != null) {
+            channel.close();
+        }
+        if (server != null) {
+            server.join(TIMEOUT_MS);
+        }
+        listener.close();
+        assertNull(serverFailure.get());
+    }
+
+    @Test
+    @DisplayName("Response về ngược thứ tự: mỗi future nhận đúng response của nó, id trùng được đổi")
+    void testOutOfOrderResponsesMatchById() throws Exception {
+        int count = 5;
+        startServer(socket -> {
+            List<Request> received = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                received.add(JsonCodec.readRequest(socket.getInputStream()));
+            }
+            for (int i = count - 1; i >= 0; i--) {
+                reply(socket, received.get(i));
+            }
+        });
+        open(TIMEOUT_MS);
+
+        List<Request> requests = new ArrayList<>();
+        List<CompletableFuture<Response>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // Request cuối dùng lại id của request đầu khi request đầu còn đang chờ
+            Request request = ping(i == count - 1 ? "r0" : "r" + i);
+            requests.add(request);
+            futures.add(channel.submit(request));
+        }
+        assertNotEquals("r0", requests.get(count - 1).getRequestId());
+
+        for (int i = 0; i < count; i++) {
+            Response response = futures.get(i).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            assertEquals(requests.get(i).getRequestId(), response.getRequestId());
+            assertEquals(requests.get(i).getRequestId(), ((Map<?, ?>) response.getData()).get("echo"));
+        }
+        assertEquals(1, connectionLost.getCount());
+    }
+
+    @Test
+    @DisplayName("Request quá timeout fail riêng, response đến muộn bị bỏ, connection dùng tiếp")
+    void testTimeoutLeavesChannelUsable() throws Exception {
+        startServer(socket -> {
+            Request slow = JsonCodec.readRequest(socket.getInputStream());
+            // Server vẫn sống: trả lời request khác trong lúc request chậm chờ
+            for (int i = 0; i < 4; i++) {
+                Thread.sleep(100);
+                reply(socket, JsonCodec.readRequest(socket.getInputStream()));
+            }
+            Request fast = JsonCodec.readRequest(socket.getInputStream());
+            // Response của request đã timeout đến trước response đang chờ
+            reply(socket, slow);
+            reply(socket, fast);
+        });
+        open(300);
+
+        CompletableFuture<Response> slow = channel.submit(ping("slow"));
+        for (int i = 0; i < 4; i++) {
+            assertEquals("alive-" + i,
+                channel.submit(ping("alive-" + i)).get(TIMEOUT_MS, TimeUnit.MILLISECONDS).getRequestId());
+        }
+        ExecutionException e = assertThrows(ExecutionException.class,
+            () -> slow.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertInstanceOf(SocketTimeoutException.class, e.getCause());
+
+        Response fast = channel.submit(ping("fast")).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertEquals("fast", fast.getRequestId());
+        assertEquals(1, connectionLost.getCount());
+    }
+
+    @Test
+    @DisplayName("Half-open: không nhận được response nào suốt timeout thì coi như mất kết nối")
+    void testSilentServerDeclaredLost() throws Exception {
+        startServer(socket -> {
+            // Nhận request nhưng không trả lời, cũng không đóng connection
+            JsonCodec.readRequest(socket.getInputStream());
+        });
+        open(200);
+
+        CompletableFuture<Response> pending = channel.submit(ping("r0"));
+        ExecutionException e = assertThrows(ExecutionException.class,
+            () -> pending.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertInstanceOf(SocketTimeoutException.class, e.getCause());
+        assertTrue(connectionLost.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        // Channel đã đóng: request sau fail ngay, không chờ timeout
+        CompletableFuture<Response> after = channel.submit(ping("r1"));
+        assertThrows(ExecutionException.class, () -> after.get(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Server đóng connection: request đang chờ fail ngay, onConnectionLost được gọi")
+    void testConnectionLossFailsPending() throws Exception {
+        startServer(socket -> {
+            JsonCodec.readRequest(socket.getInputStream());
+            socket.close();
+        });
+        open(TIMEOUT_MS);
+
+        CompletableFuture<Response> pending = channel.submit(ping("r0"));
+        ExecutionException e = assertThrows(ExecutionException.class,
+            () -> pending.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+        assertFalse(e.getCause() instanceof SocketTimeoutException);
+        assertTrue(connectionLost.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    private void open(long timeoutMs) throws IOException {
+        ServerConnection connection = ServerConnection.open(InetAddress.getLoopbackAddress().getHostAddress(),
+            listener.getLocalPort(), null, FrameEncoding.JSON, true);
+        assertTrue(connection.isPipelining());
+        channel = new PipelinedChannel(connection, () -> "gen-" + nextId.incrementAndGet(),
+            lost -> connectionLost.countDown(), timeoutMs);
+        channel.start();
+    }
+
+    /**
+     * Server giả: trả lời HELLO (bật pipelining) rồi chạy script trên connection.
+     */
+    private void startServer(ServerScript script) throws IOException {
+        listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        server = new Thread(() -> {
+            try (Socket socket = listener.accept()) {
+                Request hello = JsonCodec.readRequest(socket.getInputStream());
+                assertEquals(MessageType.HELLO, hello.getType());
+                Response accepted = Response.success(Map.of("encoding", "JSON", "pipelining", true));
+                accepted.setRequestId(hello.getRequestId());
+                JsonCodec.writeFrame(socket.getOutputStream(), accepted);
+                script.run(socket);
+                // Giữ connection đến khi client đóng (tránh EOF làm channel tưởng mất kết nối)
+                if (!socket.isClosed()) {
+                    while (socket.getInputStream().read() >= 0) {
+                        // bỏ qua
+                    }
+                }
+            } catch (Throwable t) {
+                serverFailure.set(t);
+            }
+        }, "Fake-Server");
+        server.setDaemon(true);
+        server.start();
+    }
+
+    private static void reply(Socket socket, Request request) throws IOException {
+        Response response = Response.success(Map.of("echo", request.getRequestId()));
+        response.setRequestId(request.getRequestId());
+        JsonCodec.writeFrame(socket.getOutputStream(), response);
+    }
+
+    private static Request ping(String requestId) {
+        return new Request(MessageType.PING, null, requestId, null);
+    }
+
+    @FunctionalInterface
+    private interface ServerScript {
+        void run(Socket socket) throws IOException, InterruptedException;
+    }
+}
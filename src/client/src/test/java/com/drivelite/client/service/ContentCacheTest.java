@@ -0,0 +1,87 @@
+package com.drivelite.client.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests cho ContentCache: commit, giới hạn dung lượng và LRU.
+ */
+class ContentCacheTest {
+
+    private static final long MAX_BYTES = 64 * 1024;
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    @DisplayName("Commit file nhỏ: file tạm được rename vào cache, get() trả lại được")
+    void testCommitSmallFile() throws IOException {
+        ContentCache cache = new ContentCache(cacheDir, MAX_BYTES);
+        File temp = tempWith(cache, 4 * 1024);
+
+        File cached = cache.commit(sha(1), temp);
+
+        assertNotEquals(temp, cached);
+        assertFalse(temp.exists(), "file tạm phải được rename");
+        assertEquals(cached, cache.get(sha(1), 4 * 1024));
+        assertEquals(4 * 1024, cache.getTotalBytes());
+    }
+
+    @Test
+    @DisplayName("Commit file lớn hơn 1/4 cache: không cache, trả lại file tạm, entry cũ giữ nguyên")
+    void testCommitOversizedFileReturnsTemp() throws IOException {
+        ContentCache cache = new ContentCache(cacheDir, MAX_BYTES);
+        cache.commit(sha(1), tempWith(cache, 8 * 1024));
+
+        File temp = tempWith(cache, (int) MAX_BYTES * 2);
+        File result = cache.commit(sha(2), temp);
+
+        assertEquals(temp, result);
+        assertTrue(temp.isFile());
+        assertNull(cache.get(sha(2), MAX_BYTES * 2));
+        assertNotNull(cache.get(sha(1), 8 * 1024));
+        assertEquals(8 * 1024, cache.getTotalBytes());
+    }
+
+    @Test
+    @DisplayName("Vượt maxBytes: bỏ entry dùng lâu nhất, giữ entry vừa truy cập")
+    void testEvictsLeastRecentlyUsed() throws IOException {
+        ContentCache cache = new ContentCache(cacheDir, MAX_BYTES);
+        int size = 16 * 1024;
+        for (int i = 1; i <= 4; i++) {
+            cache.commit(sha(i), tempWith(cache, size));
+        }
+        // Entry 1 vừa được dùng → entry 2 là cũ nhất
+        assertNotNull(cache.get(sha(1), size));
+
+        cache.commit(sha(5), tempWith(cache, size));
+
+        assertTrue(cache.getTotalBytes() <= MAX_BYTES);
+        assertNull(cache.get(sha(2), size));
+        assertNotNull(cache.get(sha(1), size));
+        assertNotNull(cache.get(sha(5), size));
+    }
+
+    private static File tempWith(ContentCache cache, int size) throws IOException {
+        File temp = cache.createTempFile();
+        Files.write(temp.toPath(), new byte[size]);
+        return temp;
+    }
+
+    private static String sha(int n) {
+        return String.format(Locale.ROOT, "%064x", n);
+    }
+}
@@ -0,0 +1,343 @@
+package com.drivelite.client.service;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.drivelite.client.model.FileItem;
+import com.drivelite.client.net.TcpClient;
+import com.drivelite.common.codec.FrameEncoding;
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.protocol.MessageType;
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+
+/**
+ * Unit tests cho upload/download tiếp từ offset của FileService, với server giả
+ * cắt transfer connection giữa chừng, và kết quả theo từng file của batch upload.
+ */
+class FileServiceTest {
+
+    private static final int SIZE = 300 * 1024;
+    private static final int CUT_AT = 100 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicReference<Throwable> serverFailure = new AtomicReference<>();
+    private final List<Socket> serverSockets = Collections.synchronizedList(new ArrayList<>());
+    // Batch upload: bytes server giả nhận được theo tên file
+    private final Map<String, byte[]> batchReceived = Collections.synchronizedMap(new HashMap<>());
+    private ServerSocket listener;
+    private TcpClient client;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        listener.close();
+        synchronized (serverSockets) {
+            for (Socket socket : serverSockets) {
+                socket.close();
+            }
+        }
+        assertNull(serverFailure.get());
+    }
+
+    @Test
+    @DisplayName("Download bị ngắt: lần sau gửi offset và chỉ nhận phần còn lại")
+    void testDownloadResumesFromOffset() throws Exception {
+        byte[] content = randomBytes(SIZE, 1);
+        List<Object> offsets = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger attempts = new AtomicInteger();
+        FileService files = start(begin -> {
+            offsets.add(begin.get("offset"));
+            long offset = begin.get("offset") instanceof Number ? ((Number) begin.get("offset")).longValue() : -1;
+            return new DownloadPlan(content, offset, attempts.incrementAndGet() == 1 ? CUT_AT : -1);
+        }, null);
+
+        File destination = tempDir.resolve("download.bin").toFile();
+        files.downloadFile(7, destination, null);
+
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        assertEquals(List.of("none", (long) CUT_AT), normalize(offsets));
+    }
+
+    @Test
+    @DisplayName("Download tiếp nhưng sha256 đã đổi: bỏ phần đã tải, tải lại từ offset 0")
+    void testDownloadRestartsWhenContentChanged() throws Exception {
+        byte[] original = randomBytes(SIZE, 2);
+        byte[] changed = randomBytes(SIZE, 3);
+        List<Object> offsets = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger attempts = new AtomicInteger();
+        FileService files = start(begin -> {
+            offsets.add(begin.get("offset"));
+            int attempt = attempts.incrementAndGet();
+            if (attempt == 1) {
+                return new DownloadPlan(original, -1, CUT_AT);
+            }
+            // Server chấp nhận offset dù nội dung đã khác
+            long offset = begin.get("offset") instanceof Number ? ((Number) begin.get("offset")).longValue() : -1;
+            return new DownloadPlan(changed, offset, -1);
+        }, null);
+
+        File destination = tempDir.resolve("download.bin").toFile();
+        files.downloadFile(7, destination, null);
+
+        assertArrayEquals(changed, Files.readAllBytes(destination.toPath()));
+        assertEquals(List.of("none", (long) CUT_AT, "none"), normalize(offsets));
+    }
+
+    @Test
+    @DisplayName("Upload bị ngắt: BEGIN lại và chỉ gửi phần sau offset server báo trong READY")
+    void testUploadResumesFromReadyOffset() throws Exception {
+        byte[] content = randomBytes(SIZE, 4);
+        byte[] received = new byte[SIZE];
+        List<Integer> receivedPerAttempt = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger attempts = new AtomicInteger();
+        FileService files = start(null, begin -> {
+            int attempt = attempts.incrementAndGet();
+            return attempt == 1 ? new UploadPlan(received, 0, CUT_AT, receivedPerAttempt)
+                                : new UploadPlan(received, CUT_AT, -1, receivedPerAttempt);
+        });
+
+        Path source = tempDir.resolve("upload.bin");
+        Files.write(source, content);
+        FileItem item = files.uploadFile(source.toFile(), null);
+
+        assertEquals(1, item.getFileId());
+        assertEquals(SIZE, item.getFileSize());
+        assertArrayEquals(content, received);
+        assertEquals(List.of(CUT_AT, SIZE - CUT_AT), receivedPerAttempt);
+    }
+
+    @Test
+    @DisplayName("Batch upload: file bị từ chối không gửi bytes, lỗi từng file được trả về theo tên")
+    void testUploadBatchReportsPerFileFailures() throws Exception {
+        // Server giả: từ chối tên "reject*" ở BEGIN, báo sai SHA256 cho tên "corrupt*"
+        FileService files = start(null, null);
+        byte[] corrupt = randomBytes(20 * 1024, 5);
+        byte[] good = randomBytes(30 * 1024, 6);
+        List<File> batch = List.of(
+            write("corrupt.bin", corrupt),
+            write("reject.bin", randomBytes(10 * 1024, 7)),
+            write("good.bin", good));
+
+        List<String> failures = files.uploadBatch(batch, null);
+
+        assertEquals(List.of("reject.bin: Invalid fileName", "corrupt.bin: SHA256 mismatch"), failures);
+        // Stream không lệch: mỗi file được chấp nhận nhận đúng bytes của nó, file bị từ chối không có
+        assertArrayEquals(corrupt, batchReceived.get("corrupt.bin"));
+        assertArrayEquals(good, batchReceived.get("good.bin"));
+        assertNull(batchReceived.get("reject.bin"));
+    }
+
+    private File write(String fileName, byte[] content) throws IOException {
+        Path path = tempDir.resolve(fileName);
+        Files.write(path, content);
+        return path.toFile();
+    }
+
+    private FileService start(Function<Map<?, ?>, DownloadPlan> downloads,
+                              Function<Map<?, ?>, UploadPlan> uploads) throws IOException {
+        listener = new ServerSocket(0, 8, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(() -> {
+            while (!listener.isClosed()) {
+                try {
+                    Socket socket = listener.accept();
+                    serverSockets.add(socket);
+                    Thread connection = new Thread(() -> serve(socket, downloads, uploads), "Fake-Connection");
+                    connection.setDaemon(true);
+                    connection.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }, "Fake-Acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        client = new TcpClient();
+        client.setPreferredEncoding(FrameEncoding.JSON);
+        client.connect(InetAddress.getLoopbackAddress().getHostAddress(), listener.getLocalPort());
+        return new FileService(client);
+    }
+
+    /**
+     * Một connection của server giả: HELLO, DOWNLOAD_BEGIN/READY/CANCEL, UPLOAD_BEGIN + bytes,
+     * UPLOAD_BATCH_BEGIN + bytes của các file được chấp nhận.
+     */
+    private void serve(Socket socket, Function<Map<?, ?>, DownloadPlan> downloads,
+                       Function<Map<?, ?>, UploadPlan> uploads) {
+        try (socket) {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            DownloadPlan pending = null;
+            while (true) {
+                Request request = JsonCodec.readRequest(in);
+                Map<?, ?> data = request.getData() instanceof Map ? (Map<?, ?>) request.getData() : Map.of();
+                switch (request.getType()) {
+                    case DOWNLOAD_BEGIN: {
+                        pending = downloads.apply(data);
+                        Map<String, Object> meta = new HashMap<>();
+                        meta.put("fileSize", pending.content.length);
+                        meta.put("sha256", sha256(pending.content));
+                        meta.put("versionNumber", 1);
+                        meta.put("compression", "NONE");
+                        if (pending.offset >= 0) {
+                            meta.put("offset", pending.offset);
+                        }
+                        reply(out, request, meta);
+                        break;
+                    }
+                    case READY: {
+                        int from = (int) Math.max(0, pending.offset);
+                        int to = pending.cutAt >= 0 ? pending.cutAt : pending.content.length;
+                        out.write(pending.content, from, to - from);
+                        out.flush();
+                        if (pending.cutAt >= 0) {
+                            return;
+                        }
+                        pending = null;
+                        break;
+                    }
+                    case CANCEL:
+                        pending = null;
+                        break;
+                    case UPLOAD_BEGIN: {
+                        UploadPlan plan = uploads.apply(data);
+                        int fileSize = ((Number) data.get("fileSize")).intValue();
+                        reply(out, request, plan.offset > 0 ? Map.of("offset", plan.offset) : Map.of());
+                        int to = plan.cutAt >= 0 ? plan.cutAt : fileSize;
+                        new DataInputStream(in).readFully(plan.received, plan.offset, to - plan.offset);
+                        plan.receivedPerAttempt.add(to - plan.offset);
+                        if (plan.cutAt >= 0) {
+                            return;
+                        }
+                        reply(out, request, Map.of("fileId", 1, "fileName", data.get("fileName"), "sizeBytes", fileSize));
+                        break;
+                    }
+                    case UPLOAD_BATCH_BEGIN: {
+                        List<?> manifest = (List<?>) data.get("files");
+                        List<Map<String, Object>> rejected = new ArrayList<>();
+                        for (int index = 0; index < manifest.size(); index++) {
+                            if (((String) ((Map<?, ?>) manifest.get(index)).get("fileName")).startsWith("reject")) {
+                                rejected.add(Map.of("index", index, "message", "Invalid fileName"));
+                            }
+                        }
+                        reply(out, request, Map.of("rejected", rejected));
+                        List<Map<String, Object>> results = new ArrayList<>();
+                        for (int index = 0; index < manifest.size(); index++) {
+                            Map<?, ?> entry = (Map<?, ?>) manifest.get(index);
+                            String fileName = (String) entry.get("fileName");
+                            if (fileName.startsWith("reject")) {
+                                continue;
+                            }
+                            byte[] bytes = new byte[((Number) entry.get("fileSize")).intValue()];
+                            new DataInputStream(in).readFully(bytes);
+                            batchReceived.put(fileName, bytes);
+                            results.add(fileName.startsWith("corrupt")
+                                ? Map.of("index", index, "ok", false, "message", "SHA256 mismatch")
+                                : Map.of("index", index, "ok", true, "fileId", index + 1));
+                        }
+                        reply(out, request, Map.of("files", results));
+                        break;
+                    }
+                    case HELLO:
+                        reply(out, request, Map.of("encoding", "JSON"));
+                        break;
+                    default:
+                        reply(out, request, null);
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            // Client đóng connection
+        } catch (Throwable t) {
+            serverFailure.set(t);
+        }
+    }
+
+    private static void reply(OutputStream out, Request request, Object data) throws IOException {
+        Response response = Response.success(data);
+        response.setRequestId(request.getRequestId());
+        JsonCodec.writeFrame(out, response);
+    }
+
+    private static List<Object> normalize(List<Object> offsets) {
+        List<Object> result = new ArrayList<>();
+        for (Object offset : offsets) {
+            result.add(offset instanceof Number ? (Object) ((Number) offset).longValue() : "none");
+        }
+        return result;
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Server giả trả {@code content}; offset ≥ 0 = chấp nhận download tiếp, cutAt ≥ 0 = đóng connection sau cutAt bytes.
+     */
+    private static final class DownloadPlan {
+        private final byte[] content;
+        private final long offset;
+        private final int cutAt;
+
+        DownloadPlan(byte[] content, long offset, int cutAt) {
+            this.content = content;
+            this.offset = offset;
+            this.cutAt = cutAt;
+        }
+    }
+
+    /**
+     * Server giả báo {@code offset} trong READY và ghi bytes nhận được vào {@code received}.
+     */
+    private static final class UploadPlan {
+        private final byte[] received;
+        private final int offset;
+        private final int cutAt;
+        private final List<Integer> receivedPerAttempt;
+
+        UploadPlan(byte[] received, int offset, int cutAt, List<Integer> receivedPerAttempt) {
+            this.received = received;
+            this.offset = offset;
+            this.cutAt = cutAt;
+            this.receivedPerAttempt = receivedPerAttempt;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.drivelite.client.service;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.drivelite.client.model.TransferTask;
+import com.drivelite.client.model.TransferTask.State;
+import com.drivelite.client.net.TcpClient;
+import com.drivelite.common.codec.FrameEncoding;
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+
+/**
+ * Unit tests cho TransferManager với server giả: trạng thái lưu xuống queue file khi shutdown,
+ * download pause rồi resume tải tiếp từ phần đã có.
+ */
+class TransferManagerTest {
+
+    private static final int SIZE = 200 * 1024;
+    private static final long TIMEOUT_MS = 10_000;
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicReference<Throwable> serverFailure = new AtomicReference<>();
+    private final List<Socket> serverSockets = Collections.synchronizedList(new ArrayList<>());
+    private ServerSocket listener;
+    private TcpClient client;
+
+    // Hành vi của server giả, test nào dùng gì thì đặt trước khi start()
+    private final CountDownLatch uploadReceived = new CountDownLatch(1);
+    private final CountDownLatch uploadCommit = new CountDownLatch(1);
+    private Function<Map<?, ?>, DownloadPlan> downloads;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        listener.close();
+        synchronized (serverSockets) {
+            for (Socket socket : serverSockets) {
+                socket.close();
+            }
+        }
+        assertNull(serverFailure.get());
+    }
+
+    @Test
+    @DisplayName("Upload xong ngay sau shutdown: trạng thái cuối được lưu, không nằm lại ở RUNNING")
+    void testShutdownPersistsTransferFinishingAfterwards() throws Exception {
+        Path queueFile = tempDir.resolve("transfers.json");
+        TransferManager manager = start(queueFile);
+
+        Path source = tempDir.resolve("upload.bin");
+        Files.write(source, randomBytes(SIZE, 1));
+        TransferTask task = manager.enqueueUpload(source.toFile());
+
+        // Server đã nhận hết bytes và đang commit: worker không còn chunk nào để dừng
+        assertTrue(uploadReceived.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        awaitBytesDone(task, SIZE);
+        Thread committer = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            uploadCommit.countDown();
+        });
+        committer.start();
+
+        manager.shutdown();
+        committer.join(TIMEOUT_MS);
+
+        assertEquals(State.COMPLETED, task.getState());
+        TransferTask[] saved = JsonCodec.mapper().readValue(queueFile.toFile(), TransferTask[].class);
+        assertEquals(0, saved.length, "upload đã xong không được xếp hàng lại khi restore");
+    }
+
+    @Test
+    @DisplayName("Download pause giữa chừng: file dở được giữ, resume gửi offset và chỉ nhận phần còn lại")
+    void testPausedDownloadResumesFromOffset() throws Exception {
+        byte[] content = randomBytes(SIZE, 2);
+        int firstPart = SIZE / 4;
+        CountDownLatch sendRest = new CountDownLatch(1);
+        List<Object> offsets = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger attempts = new AtomicInteger();
+        downloads = begin -> {
+            offsets.add(begin.get("offset"));
+            long offset = begin.get("offset") instanceof Number ? ((Number) begin.get("offset")).longValue() : -1;
+            return attempts.incrementAndGet() == 1 ? new DownloadPlan(content, -1, firstPart, sendRest)
+                                                   : new DownloadPlan(content, offset, -1, null);
+        };
+        TransferManager manager = start(tempDir.resolve("transfers.json"));
+
+        File destination = tempDir.resolve("download.bin").toFile();
+        TransferTask task = manager.enqueueDownload(7, null, "download.bin", destination);
+        awaitBytesDone(task, firstPart);
+        manager.pause(task);
+        // Chunk kế tiếp đến thì worker thấy yêu cầu dừng
+        sendRest.countDown();
+        awaitState(task, State.PAUSED);
+
+        long partial = destination.length();
+        assertTrue(partial >= firstPart && partial < SIZE, "file dở phải được giữ: " + partial);
+        assertNotNull(task.getPartialSha256());
+        // Lưu cả nội dung của phần đã tải: tắt client rồi mở lại vẫn tải tiếp được
+        assertEquals(task.getPartialSha256(), readSaved(tempDir.resolve("transfers.json")).getPartialSha256());
+
+        manager.resume(task);
+        awaitState(task, State.COMPLETED);
+        manager.shutdown();
+
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        assertEquals(2, offsets.size());
+        assertNull(offsets.get(0));
+        assertEquals(partial, ((Number) offsets.get(1)).longValue());
+    }
+
+    @Test
+    @DisplayName("Cancel download đã pause: file dở bị xóa")
+    void testCancelPausedDownloadDiscardsPartial() throws Exception {
+        byte[] content = randomBytes(SIZE, 3);
+        CountDownLatch sendRest = new CountDownLatch(1);
+        downloads = begin -> new DownloadPlan(content, -1, SIZE / 4, sendRest);
+        TransferManager manager = start(tempDir.resolve("transfers.json"));
+
+        File destination = tempDir.resolve("download.bin").toFile();
+        TransferTask task = manager.enqueueDownload(7, null, "download.bin", destination);
+        awaitBytesDone(task, SIZE / 4);
+        manager.pause(task);
+        sendRest.countDown();
+        awaitState(task, State.PAUSED);
+        assertTrue(destination.isFile());
+
+        manager.cancel(task);
+        manager.shutdown();
+
+        assertEquals(State.CANCELLED, task.getState());
+        assertFalse(destination.exists(), "file download dở phải bị xóa");
+    }
+
+    private TransferManager start(Path queueFile) throws IOException {
+        listener = new ServerSocket(0, 8, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(() -> {
+            while (!listener.isClosed()) {
+                try {
+                    Socket socket = listener.accept();
+                    serverSockets.add(socket);
+                    Thread connection = new Thread(() -> serve(socket), "Fake-Connection");
+                    connection.setDaemon(true);
+                    connection.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }, "Fake-Acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        client = new TcpClient();
+        client.setPreferredEncoding(FrameEncoding.JSON);
+        client.connect(InetAddress.getLoopbackAddress().getHostAddress(), listener.getLocalPort());
+        return new TransferManager(new FileService(client), queueFile, 1);
+    }
+
+    /**
+     * Một connection của server giả: HELLO, UPLOAD_BEGIN + bytes (response cuối chờ {@code uploadCommit}),
+     * DOWNLOAD_BEGIN/READY theo {@code downloads}.
+     */
+    private void serve(Socket socket) {
+        try (socket) {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            DownloadPlan pending = null;
+            while (true) {
+                Request request = JsonCodec.readRequest(in);
+                Map<?, ?> data = request.getData() instanceof Map ? (Map<?, ?>) request.getData() : Map.of();
+                switch (request.getType()) {
+                    case DOWNLOAD_BEGIN: {
+                        pending = downloads.apply(data);
+                        Map<String, Object> meta = new HashMap<>();
+                        meta.put("fileSize", pending.content.length);
+                        meta.put("sha256", sha256(pending.content));
+                        meta.put("versionNumber", 1);
+                        meta.put("compression", "NONE");
+                        if (pending.offset >= 0) {
+                            meta.put("offset", pending.offset);
+                        }
+                        reply(out, request, meta);
+                        break;
+                    }
+                    case READY: {
+                        int from = (int) Math.max(0, pending.offset);
+                        if (pending.pauseAt >= 0) {
+                            out.write(pending.content, from, pending.pauseAt - from);
+                            out.flush();
+                            assertTrue(pending.resume.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+                            from = pending.pauseAt;
+                        }
+                        // Client dừng giữa chừng thì đóng connection: ghi lỗi, kết thúc ở catch IOException
+                        out.write(pending.content, from, pending.content.length - from);
+                        out.flush();
+                        pending = null;
+                        break;
+                    }
+                    case UPLOAD_BEGIN: {
+                        int fileSize = ((Number) data.get("fileSize")).intValue();
+                        reply(out, request, Map.of());
+                        new DataInputStream(in).readFully(new byte[fileSize]);
+                        uploadReceived.countDown();
+                        assertTrue(uploadCommit.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+                        reply(out, request, Map.of("fileId", 1, "fileName", data.get("fileName"), "sizeBytes", fileSize));
+                        break;
+                    }
+                    case HELLO:
+                        reply(out, request, Map.of("encoding", "JSON"));
+                        break;
+                    default:
+                        reply(out, request, null);
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            // Client đóng connection
+        } catch (Throwable t) {
+            serverFailure.set(t);
+        }
+    }
+
+    private static void awaitBytesDone(TransferTask task, long bytes) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (task.getBytesDone() < bytes && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(bytes, task.getBytesDone());
+    }
+
+    private static void awaitState(TransferTask task, State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (task.getState() != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(state, task.getState());
+    }
+
+    private static TransferTask readSaved(Path queueFile) throws IOException {
+        TransferTask[] saved = JsonCodec.mapper().readValue(queueFile.toFile(), TransferTask[].class);
+        assertEquals(1, saved.length);
+        return saved[0];
+    }
+
+    private static void reply(OutputStream out, Request request, Object data) throws IOException {
+        Response response = Response.success(data);
+        response.setRequestId(request.getRequestId());
+        JsonCodec.writeFrame(out, response);
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Server giả trả {@code content}; offset ≥ 0 = chấp nhận download tiếp,
+     * pauseAt ≥ 0 = gửi đến pauseAt rồi chờ {@code resume} mới gửi phần còn lại.
+     */
+    private static final class DownloadPlan {
+        private final byte[] content;
+        private final long offset;
+        private final int pauseAt;
+        private final CountDownLatch resume;
+
+        DownloadPlan(byte[] content, long offset, int pauseAt, CountDownLatch resume) {
+            this.content = content;
+            this.offset = offset;
+            this.pauseAt = pauseAt;
+            this.resume = resume;
+        }
+    }
+}
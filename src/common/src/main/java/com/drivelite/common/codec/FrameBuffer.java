@@ -0,0 +1,131 @@
+package com.drivelite.common.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.drivelite.common.framing.FrameException;
+import com.drivelite.common.framing.FrameIO;
+
+/**
+ * Buffer tái sử dụng cho một frame [4 bytes encoding + length][payload], mỗi thread một instance.
+ *
+ * Ghi: payload được serialize thẳng vào buffer sau 4 bytes header để dành sẵn, rồi điền length
+ * và gửi cả frame bằng một lần write (không qua String, không ghi header từng byte).
+ * Đọc: payload được đọc vào cùng mảng byte để parser đọc trực tiếp.
+ *
+ * Buffer lớn lên theo frame lớn nhất, nhưng được thu nhỏ lại khi vượt {@link #RETAIN_LIMIT}
+ * để một response 10MB không giữ 10MB RAM mãi trên mỗi thread.
+ */
+final class FrameBuffer extends OutputStream {
+
+    static final int HEADER_SIZE = 4;
+
+    private static final int INITIAL_SIZE = 8 * 1024;
+    private static final int RETAIN_LIMIT = 256 * 1024;
+
+    private byte[] buf = new byte[INITIAL_SIZE];
+    private int count;
+    private int encodingId;
+
+    /**
+     * Bắt đầu frame mới: bỏ dữ liệu cũ, dành chỗ cho header.
+     */
+    void beginFrame() {
+        shrinkIfOversized();
+        count = HEADER_SIZE;
+    }
+
+    int payloadLength() {
+        return count - HEADER_SIZE;
+    }
+
+    byte[] array() {
+        return buf;
+    }
+
+    /**
+     * Encoding flag của frame vừa đọc.
+     */
+    int encodingId() {
+        return encodingId;
+    }
+
+    /**
+     * Điền encoding + length vào header và ghi cả frame ra stream (một lần write + flush).
+     */
+    void writeFrameTo(OutputStream out, int encodingId) throws IOException {
+        int header = FrameIO.header(encodingId, payloadLength());
+        buf[0] = (byte) (header >>> 24);
+        buf[1] = (byte) (header >>> 16);
+        buf[2] = (byte) (header >>> 8);
+        buf[3] = (byte) header;
+        out.write(buf, 0, count);
+        out.flush();
+    }
+
+    /**
+     * Đọc một frame từ stream; payload nằm ở {@code array()[0 .. length)}, encoding ở {@link #encodingId()}.
+     *
+     * @return độ dài payload
+     * @throws FrameException nếu length vượt {@link FrameIO#MAX_FRAME_SIZE}
+     */
+    int readFrameFrom(InputStream in) throws IOException {
+        shrinkIfOversized();
+        // Peer đóng connection giữa hai frame: EOFException như DataInputStream.readInt
+        for (int read = 0; read < HEADER_SIZE; ) {
+            int n = in.read(buf, read, HEADER_SIZE - read);
+            if (n < 0) {
+                throw new EOFException("Connection closed while reading frame header");
+            }
+            read += n;
+        }
+        int header = ((buf[0] & 0xFF) << 24) |
+                     ((buf[1] & 0xFF) << 16) |
+                     ((buf[2] & 0xFF) << 8) |
+                     (buf[3] & 0xFF);
+        int length = FrameIO.lengthOf(header);
+        if (length > FrameIO.MAX_FRAME_SIZE) {
+            throw new FrameException("Invalid frame length: " + length);
+        }
+        ensureCapacity(length);
+        FrameIO.readExactly(in, buf, 0, length);
+        count = length;
+        encodingId = FrameIO.encodingOf(header);
+        return length;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    private void ensureCapacity(int required) throws FrameException {
+        if (required - HEADER_SIZE > FrameIO.MAX_FRAME_SIZE) {
+            throw new FrameException(
+                "Frame size " + (required - HEADER_SIZE) + " exceeds max " + FrameIO.MAX_FRAME_SIZE);
+        }
+        if (required > buf.length) {
+            int newSize = Math.max(required, Math.min(buf.length * 2, FrameIO.MAX_FRAME_SIZE + HEADER_SIZE));
+            byte[] grown = new byte[newSize];
+            System.arraycopy(buf, 0, grown, 0, count);
+            buf = grown;
+        }
+    }
+
+    private void shrinkIfOversized() {
+        if (buf.length > RETAIN_LIMIT) {
+            buf = new byte[INITIAL_SIZE];
+        }
+        count = 0;
+    }
+}
@@ -0,0 +1,84 @@
+package com.drivelite.common.codec;
+
+import java.util.List;
+
+/**
+ * Cách mã hóa payload của control frame (cùng schema Request/Response, khác định dạng bytes).
+ *
+ * Encoding được negotiate một lần cho mỗi connection bằng HELLO:
+ * - Client gửi HELLO (luôn bằng JSON) với danh sách encoding nó hỗ trợ (vd: ["SMILE", "JSON"])
+ * - Server chọn encoding đầu tiên trong danh sách ưu tiên của mình mà client cũng hỗ trợ
+ * - Client cũ không gửi HELLO → JSON → giữ nguyên protocol v1
+ *
+ * Mỗi frame mang ID encoding trong byte cao của header (xem FrameIO), nên bên nhận
+ * luôn decode đúng kể cả frame gửi ngay trước/sau khi đổi encoding.
+ */
+public enum FrameEncoding {
+    JSON(0),
+    SMILE(1);   // Binary JSON: tên field lặp lại được back-reference, số ở dạng binary
+
+    private final int id;
+
+    FrameEncoding(int id) {
+        this.id = id;
+    }
+
+    /**
+     * ID dùng trong frame header (byte cao nhất).
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Tìm encoding theo frame header ID.
+     *
+     * @return encoding tương ứng, hoặc null nếu ID không hợp lệ
+     */
+    public static FrameEncoding fromId(int id) {
+        for (FrameEncoding encoding : values()) {
+            if (encoding.id == id) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parse tên encoding (không phân biệt hoa thường).
+     *
+     * @return encoding tương ứng, JSON nếu null hoặc không hỗ trợ
+     */
+    public static FrameEncoding fromName(String name) {
+        if (name == null) {
+            return JSON;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return JSON;
+        }
+    }
+
+    /**
+     * Chọn encoding cho một connection.
+     *
+     * @param offered Danh sách encoding bên kia hỗ trợ (List tên từ JSON, có thể null)
+     * @param preferred Danh sách encoding bên mình cho phép, theo thứ tự ưu tiên
+     * @return encoding được chọn, JSON nếu không có encoding chung
+     */
+    public static FrameEncoding negotiate(Object offered, List<FrameEncoding> preferred) {
+        if (!(offered instanceof List) || preferred == null) {
+            return JSON;
+        }
+        List<?> offeredList = (List<?>) offered;
+        for (FrameEncoding encoding : preferred) {
+            for (Object name : offeredList) {
+                if (name instanceof String && encoding.name().equalsIgnoreCase(((String) name).trim())) {
+                    return encoding;
+                }
+            }
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,147 @@
+package com.drivelite.common.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.drivelite.common.framing.FrameException;
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+/**
+ * JsonCodec - Serialize/deserialize Request/Response dùng chung cho client và server.
+ *
+ * Một ObjectMapper duy nhất cho mỗi encoding trong cả process: tạo ObjectMapper tốn kém
+ * (introspection, serializer cache) nên không được tạo mỗi lần gọi. ObjectReader/ObjectWriter
+ * đã cấu hình sẵn là immutable và thread-safe, dùng chung giữa các thread.
+ *
+ * Frame được serialize thẳng vào {@link FrameBuffer} của thread hiện tại và parse thẳng từ
+ * bytes nhận được, nên đường đọc/ghi frame không tạo String trung gian.
+ *
+ * Hai encoding cùng data model ({@link FrameEncoding}): JSON text (mặc định, protocol v1)
+ * và Smile (binary) cho connection đã negotiate qua HELLO. Bên đọc chọn decoder theo
+ * encoding flag trong header của từng frame.
+ *
+ * Cấu hình:
+ * - Bỏ qua field lạ khi đọc (peer mới hơn thêm field không làm peer cũ lỗi)
+ * - Không đóng stream đích sau khi ghi (socket dùng tiếp cho frame sau)
+ * - Smile: back-reference cả tên field lẫn string value ngắn lặp lại (ownerEmail, permission...)
+ */
+public final class JsonCodec {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .build();
+
+    private static final ObjectMapper SMILE_MAPPER = SmileMapper.builder()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+        .build();
+
+    // Đánh index theo FrameEncoding.getId()
+    private static final ObjectWriter[] WRITERS = {
+        MAPPER.writer(), SMILE_MAPPER.writer()
+    };
+    private static final ObjectReader[] REQUEST_READERS = {
+        MAPPER.readerFor(Request.class), SMILE_MAPPER.readerFor(Request.class)
+    };
+    private static final ObjectReader[] RESPONSE_READERS = {
+        MAPPER.readerFor(Response.class), SMILE_MAPPER.readerFor(Response.class)
+    };
+
+    private static final ThreadLocal<FrameBuffer> BUFFERS = ThreadLocal.withInitial(FrameBuffer::new);
+
+    private JsonCodec() {
+    }
+
+    /**
+     * ObjectMapper JSON dùng chung (chỉ đọc cấu hình, không được configure lại).
+     */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    /**
+     * Ghi value thành một frame JSON [4 bytes header][JSON] và flush.
+     *
+     * @throws com.drivelite.common.framing.FrameException nếu payload vượt FrameIO.MAX_FRAME_SIZE
+     */
+    public static void writeFrame(OutputStream out, Object value) throws IOException {
+        writeFrame(out, value, FrameEncoding.JSON);
+    }
+
+    /**
+     * Ghi value thành một frame với encoding cho trước và flush.
+     *
+     * @throws com.drivelite.common.framing.FrameException nếu payload vượt FrameIO.MAX_FRAME_SIZE
+     */
+    public static void writeFrame(OutputStream out, Object value, FrameEncoding encoding) throws IOException {
+        FrameBuffer buffer = BUFFERS.get();
+        buffer.beginFrame();
+        WRITERS[encoding.getId()].writeValue(buffer, value);
+        buffer.writeFrameTo(out, encoding.getId());
+    }
+
+    /**
+     * Đọc một frame và parse thành type, theo encoding flag trong header.
+     *
+     * Payload được đọc hết trước khi parse, nên nếu payload hỏng (JsonProcessingException)
+     * stream vẫn đứng đúng ở đầu frame kế tiếp và connection dùng tiếp được.
+     *
+     * @throws com.drivelite.common.framing.FrameException nếu length hoặc encoding không hợp lệ
+     */
+    public static <T> T readFrame(InputStream in, Class<T> type) throws IOException {
+        FrameBuffer buffer = BUFFERS.get();
+        int length = buffer.readFrameFrom(in);
+        FrameEncoding encoding = FrameEncoding.fromId(buffer.encodingId());
+        if (encoding == null) {
+            throw new FrameException("Unknown frame encoding id: " + buffer.encodingId());
+        }
+        return readerFor(type, encoding).readValue(buffer.array(), 0, length);
+    }
+
+    public static Request readRequest(InputStream in) throws IOException {
+        return readFrame(in, Request.class);
+    }
+
+    public static Response readResponse(InputStream in) throws IOException {
+        return readFrame(in, Response.class);
+    }
+
+    public static byte[] toBytes(Object value, FrameEncoding encoding) throws IOException {
+        return WRITERS[encoding.getId()].writeValueAsBytes(value);
+    }
+
+    public static <T> T fromBytes(byte[] bytes, int offset, int length, Class<T> type,
+                                  FrameEncoding encoding) throws IOException {
+        return readerFor(type, encoding).readValue(bytes, offset, length);
+    }
+
+    public static String toJson(Object value) throws IOException {
+        return WRITERS[FrameEncoding.JSON.getId()].writeValueAsString(value);
+    }
+
+    public static <T> T fromJson(String json, Class<T> type) throws IOException {
+        return readerFor(type, FrameEncoding.JSON).readValue(json);
+    }
+
+    private static ObjectReader readerFor(Class<?> type, FrameEncoding encoding) {
+        if (type == Request.class) {
+            return REQUEST_READERS[encoding.getId()];
+        }
+        if (type == Response.class) {
+            return RESPONSE_READERS[encoding.getId()];
+        }
+        return (encoding == FrameEncoding.SMILE ? SMILE_MAPPER : MAPPER).readerFor(type);
+    }
+}
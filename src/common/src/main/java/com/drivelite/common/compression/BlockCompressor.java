@@ -0,0 +1,150 @@
+package com.drivelite.common.compression;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Nén / giải nén từng block (chunk) độc lập.
+ *
+ * Mỗi instance giữ Deflater/Inflater riêng để tái sử dụng giữa các chunk
+ * (không tạo mới mỗi lần) → KHÔNG thread-safe, mỗi stream dùng 1 instance.
+ */
+final class BlockCompressor {
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    private final CompressionCodec codec;
+    private Deflater deflater;
+    private Inflater inflater;
+    private LZ4Compressor lz4Compressor;
+    private LZ4SafeDecompressor lz4Decompressor;
+
+    BlockCompressor(CompressionCodec codec, int level) {
+        this.codec = codec;
+        switch (codec) {
+            case DEFLATE:
+                int deflateLevel = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, level));
+                this.deflater = new Deflater(deflateLevel, true);
+                break;
+            case LZ4:
+                this.lz4Compressor = level <= 1 ? LZ4.fastCompressor() : LZ4.highCompressor(level);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Decoder-only instance (không cần level).
+     */
+    BlockCompressor() {
+        this.codec = null;
+    }
+
+    /**
+     * Kích thước buffer output tối đa cần cho 1 block.
+     */
+    static int maxCompressedLength(int rawLength) {
+        // Deflate worst case ~ raw + 5 bytes mỗi 16KB block + header; LZ4 worst case tương tự
+        return Math.max(LZ4.fastCompressor().maxCompressedLength(rawLength),
+                        rawLength + (rawLength >> 12) + 64);
+    }
+
+    /**
+     * Nén block.
+     *
+     * @return số bytes output, hoặc -1 nếu kết quả không nhỏ hơn input (nên gửi dạng STORED)
+     */
+    int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff) {
+        int maxOut = srcLen - 1;
+        if (maxOut <= 0) {
+            return -1;
+        }
+        switch (codec) {
+            case DEFLATE: {
+                deflater.reset();
+                deflater.setInput(src, srcOff, srcLen);
+                deflater.finish();
+                int total = 0;
+                while (!deflater.finished() && total < maxOut) {
+                    total += deflater.deflate(dest, destOff + total, maxOut - total);
+                }
+                return deflater.finished() ? total : -1;
+            }
+            case LZ4: {
+                int written = lz4Compressor.compress(src, srcOff, srcLen, dest, destOff,
+                                                     lz4Compressor.maxCompressedLength(srcLen));
+                return written < srcLen ? written : -1;
+            }
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Giải nén block vào dest, phải ra đúng rawLen bytes.
+     */
+    void decompress(CompressionCodec blockCodec, byte[] src, int srcOff, int srcLen,
+                    byte[] dest, int destOff, int rawLen) throws IOException {
+        switch (blockCodec) {
+            case DEFLATE: {
+                if (inflater == null) {
+                    inflater = new Inflater(true);
+                }
+                inflater.reset();
+                inflater.setInput(src, srcOff, srcLen);
+                try {
+                    int total = 0;
+                    while (total < rawLen) {
+                        int n = inflater.inflate(dest, destOff + total, rawLen - total);
+                        if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                            break;
+                        }
+                        total += n;
+                    }
+                    if (total != rawLen) {
+                        throw new IOException("Corrupted deflate block: expected " + rawLen + " bytes, got " + total);
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupted deflate block", e);
+                }
+                break;
+            }
+            case LZ4: {
+                if (lz4Decompressor == null) {
+                    // Safe decompressor: dữ liệu từ client, chỉ đọc trong [srcOff, srcOff + srcLen)
+                    lz4Decompressor = LZ4.safeDecompressor();
+                }
+                try {
+                    int written = lz4Decompressor.decompress(src, srcOff, srcLen, dest, destOff, rawLen);
+                    if (written != rawLen) {
+                        throw new IOException("Corrupted LZ4 block: expected " + rawLen + " bytes, got " + written);
+                    }
+                } catch (net.jpountz.lz4.LZ4Exception e) {
+                    throw new IOException("Corrupted LZ4 block", e);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unsupported block codec: " + blockCodec);
+        }
+    }
+
+    /**
+     * Giải phóng native resources của Deflater/Inflater.
+     */
+    void end() {
+        if (deflater != null) {
+            deflater.end();
+        }
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+}
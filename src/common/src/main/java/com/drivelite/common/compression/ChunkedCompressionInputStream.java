@@ -0,0 +1,135 @@
+package com.drivelite.common.compression;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.drivelite.common.framing.FrameException;
+
+/**
+ * InputStream giải nén stream do {@link ChunkedCompressionOutputStream} tạo ra.
+ *
+ * Chỉ đọc đúng số bytes của từng chunk từ stream bên dưới (không đọc trước),
+ * nên sau chunk kết thúc, frame tiếp theo trên socket vẫn còn nguyên.
+ *
+ * Codec được đọc từ header của từng chunk nên decoder không cần biết codec trước.
+ */
+public class ChunkedCompressionInputStream extends InputStream {
+
+    /** Giới hạn payload để chống header giả mạo làm server cấp phát quá nhiều RAM. */
+    private static final int MAX_PAYLOAD = BlockCompressor.maxCompressedLength(ChunkedCompressionOutputStream.CHUNK_SIZE);
+
+    private final DataInputStream in;
+    private final BlockCompressor decompressor = new BlockCompressor();
+    private final byte[] rawBuffer = new byte[ChunkedCompressionOutputStream.CHUNK_SIZE];
+    private final byte[] payloadBuffer = new byte[MAX_PAYLOAD];
+    private int rawPos;
+    private int rawLimit;
+    private boolean endOfStream;
+
+    private long wireBytes;
+
+    public ChunkedCompressionInputStream(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (rawPos == rawLimit && !fill()) {
+            return -1;
+        }
+        return rawBuffer[rawPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (rawPos == rawLimit && !fill()) {
+            return -1;
+        }
+        int n = Math.min(len, rawLimit - rawPos);
+        System.arraycopy(rawBuffer, rawPos, b, off, n);
+        rawPos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return rawLimit - rawPos;
+    }
+
+    /**
+     * Đọc đến chunk kết thúc. Gọi sau khi đã đọc đủ số bytes gốc mong đợi
+     * để tiêu thụ phần còn lại trên dây.
+     *
+     * @throws FrameException nếu còn dữ liệu gốc chưa đọc (bên gửi gửi thừa bytes)
+     */
+    public void finish() throws IOException {
+        if (rawPos < rawLimit || (!endOfStream && fill())) {
+            throw new FrameException("Unexpected data after end of compressed transfer");
+        }
+    }
+
+    /**
+     * Tổng số bytes đã đọc từ dây (gồm header).
+     */
+    public long getWireBytes() {
+        return wireBytes;
+    }
+
+    /**
+     * Không đóng stream bên dưới (socket).
+     */
+    @Override
+    public void close() {
+        decompressor.end();
+    }
+
+    private boolean fill() throws IOException {
+        while (!endOfStream) {
+            int codecId;
+            int rawLength;
+            int payloadLength;
+            try {
+                codecId = in.readUnsignedByte();
+                rawLength = in.readInt();
+                payloadLength = in.readInt();
+            } catch (EOFException e) {
+                throw new IOException("Connection closed while reading compressed chunk header", e);
+            }
+            wireBytes += 9;
+
+            if (rawLength == 0) {
+                endOfStream = true;
+                return false;
+            }
+
+            CompressionCodec codec = CompressionCodec.fromId(codecId);
+            if (codec == null) {
+                throw new FrameException("Unknown chunk codec id: " + codecId);
+            }
+            if (rawLength < 0 || rawLength > rawBuffer.length) {
+                throw new FrameException("Invalid chunk raw length: " + rawLength);
+            }
+            if (payloadLength < 0 || payloadLength > MAX_PAYLOAD
+                    || (codec == CompressionCodec.NONE && payloadLength != rawLength)) {
+                throw new FrameException("Invalid chunk payload length: " + payloadLength);
+            }
+
+            if (codec == CompressionCodec.NONE) {
+                in.readFully(rawBuffer, 0, rawLength);
+            } else {
+                in.readFully(payloadBuffer, 0, payloadLength);
+                decompressor.decompress(codec, payloadBuffer, 0, payloadLength, rawBuffer, 0, rawLength);
+            }
+            wireBytes += payloadLength;
+            rawPos = 0;
+            rawLimit = rawLength;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,174 @@
+package com.drivelite.common.compression;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * OutputStream nén dữ liệu thành các chunk độc lập (dùng cho phase raw bytes khi đã negotiate codec).
+ *
+ * Format mỗi chunk:
+ *   [1 byte codecId][4 bytes rawLength][4 bytes payloadLength][payload]
+ * - codecId = 0 (NONE): payload là dữ liệu gốc (chunk không nén được)
+ * - Chunk kết thúc: [0][0][0] (rawLength = 0)
+ *
+ * Vì sau khi nén không biết trước tổng số bytes trên dây, bên nhận dựa vào
+ * chunk kết thúc để biết stream đã hết (thay cho "exactly fileSize bytes" của v1).
+ *
+ * Tự động bỏ qua nén khi dữ liệu không nén được (ảnh, zip, video...):
+ * sau {@link #SKIP_AFTER_STORED_CHUNKS} chunk liên tiếp phải lưu dạng STORED,
+ * stream ngừng thử nén và chỉ thử lại mỗi {@link #REPROBE_INTERVAL} chunk.
+ *
+ * close() KHÔNG đóng stream bên dưới (thường là socket) - chỉ ghi chunk kết thúc.
+ */
+public class ChunkedCompressionOutputStream extends OutputStream {
+
+    public static final int CHUNK_SIZE = 64 * 1024;
+    static final int SKIP_AFTER_STORED_CHUNKS = 4;
+    static final int REPROBE_INTERVAL = 32;
+
+    private final DataOutputStream out;
+    private final CompressionCodec codec;
+    private final BlockCompressor compressor;
+    private final byte[] rawBuffer = new byte[CHUNK_SIZE];
+    private final byte[] compressedBuffer;
+    private int rawCount;
+    private int consecutiveStored;
+    private int skippedChunks;
+    private boolean finished;
+
+    private long rawBytes;
+    private long wireBytes;
+
+    public ChunkedCompressionOutputStream(OutputStream out, CompressionCodec codec, int level) {
+        this.out = new DataOutputStream(out);
+        this.codec = codec;
+        this.compressor = new BlockCompressor(codec, level);
+        this.compressedBuffer = new byte[BlockCompressor.maxCompressedLength(CHUNK_SIZE)];
+    }
+
+    public ChunkedCompressionOutputStream(OutputStream out, CompressionCodec codec) {
+        this(out, codec, codec.getDefaultLevel());
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        rawBuffer[rawCount++] = (byte) b;
+        if (rawCount == CHUNK_SIZE) {
+            writeChunk();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, CHUNK_SIZE - rawCount);
+            System.arraycopy(b, off, rawBuffer, rawCount, n);
+            rawCount += n;
+            off += n;
+            len -= n;
+            if (rawCount == CHUNK_SIZE) {
+                writeChunk();
+            }
+        }
+    }
+
+    /**
+     * Ghi chunk đang dở (nếu có) và flush stream bên dưới.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!finished && rawCount > 0) {
+            writeChunk();
+        }
+        out.flush();
+    }
+
+    /**
+     * Ghi chunk cuối + chunk kết thúc. Sau khi gọi, không ghi thêm được.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (rawCount > 0) {
+            writeChunk();
+        }
+        out.writeByte(CompressionCodec.NONE.getId());
+        out.writeInt(0);
+        out.writeInt(0);
+        wireBytes += 9;
+        out.flush();
+        finished = true;
+        compressor.end();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    /**
+     * Tổng số bytes gốc đã ghi.
+     */
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    /**
+     * Tổng số bytes thực sự gửi trên dây (gồm header).
+     */
+    public long getWireBytes() {
+        return wireBytes;
+    }
+
+    private void writeChunk() throws IOException {
+        int compressedLength = -1;
+        if (codec != CompressionCodec.NONE && shouldTryCompress()) {
+            compressedLength = compressor.compress(rawBuffer, 0, rawCount, compressedBuffer, 0);
+            if (compressedLength < 0) {
+                consecutiveStored++;
+            } else {
+                consecutiveStored = 0;
+            }
+        }
+
+        if (compressedLength >= 0) {
+            out.writeByte(codec.getId());
+            out.writeInt(rawCount);
+            out.writeInt(compressedLength);
+            out.write(compressedBuffer, 0, compressedLength);
+            wireBytes += 9 + compressedLength;
+        } else {
+            out.writeByte(CompressionCodec.NONE.getId());
+            out.writeInt(rawCount);
+            out.writeInt(rawCount);
+            out.write(rawBuffer, 0, rawCount);
+            wireBytes += 9 + rawCount;
+        }
+        rawBytes += rawCount;
+        rawCount = 0;
+    }
+
+    /**
+     * Nội dung không nén được liên tục → tạm ngừng thử nén để tiết kiệm CPU.
+     */
+    private boolean shouldTryCompress() {
+        if (consecutiveStored < SKIP_AFTER_STORED_CHUNKS) {
+            return true;
+        }
+        if (++skippedChunks >= REPROBE_INTERVAL) {
+            skippedChunks = 0;
+            return true;
+        }
+        return false;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Stream already finished");
+        }
+    }
+}
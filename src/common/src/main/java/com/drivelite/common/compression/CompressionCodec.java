@@ -0,0 +1,93 @@
+package com.drivelite.common.compression;
+
+import java.util.List;
+
+/**
+ * Các codec nén dùng cho phase truyền raw bytes (upload/download).
+ *
+ * Codec được "thương lượng" (negotiate) cho từng transfer:
+ * - Bên nhận gửi danh sách codec nó hỗ trợ (vd: ["LZ4", "DEFLATE"])
+ * - Bên còn lại chọn codec đầu tiên trong danh sách ưu tiên của mình mà bên kia cũng hỗ trợ
+ * - Client cũ không gửi gì → NONE → giữ nguyên protocol v1 (raw bytes)
+ *
+ * Blob lưu trên server luôn là dữ liệu gốc (không nén), SHA-256 tính trên dữ liệu gốc.
+ */
+public enum CompressionCodec {
+    NONE(0, 0),
+    DEFLATE(1, 1),  // Deflate level 1 (BEST_SPEED) đủ nhanh cho gigabit
+    LZ4(2, 1);      // level <= 1: LZ4 fast, level > 1: LZ4 HC
+
+    private final int id;
+    private final int defaultLevel;
+
+    CompressionCodec(int id, int defaultLevel) {
+        this.id = id;
+        this.defaultLevel = defaultLevel;
+    }
+
+    /**
+     * ID dùng trong chunk header (1 byte).
+     */
+    public int getId() {
+        return id;
+    }
+
+    public int getDefaultLevel() {
+        return defaultLevel;
+    }
+
+    /**
+     * Tìm codec theo chunk header ID.
+     *
+     * @return codec tương ứng, hoặc null nếu ID không hợp lệ
+     */
+    public static CompressionCodec fromId(int id) {
+        for (CompressionCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parse tên codec (không phân biệt hoa thường).
+     *
+     * @return codec tương ứng, NONE nếu null hoặc không hỗ trợ
+     */
+    public static CompressionCodec fromName(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return NONE;
+        }
+    }
+
+    /**
+     * Chọn codec cho một transfer.
+     *
+     * @param offered Danh sách codec bên kia hỗ trợ (List tên codec từ JSON, có thể null)
+     * @param preferred Danh sách codec bên mình cho phép, theo thứ tự ưu tiên
+     * @return codec được chọn, NONE nếu không có codec chung
+     */
+    public static CompressionCodec negotiate(Object offered, List<CompressionCodec> preferred) {
+        if (!(offered instanceof List) || preferred == null) {
+            return NONE;
+        }
+        List<?> offeredList = (List<?>) offered;
+        for (CompressionCodec codec : preferred) {
+            if (codec == NONE) {
+                continue;
+            }
+            for (Object name : offeredList) {
+                if (name instanceof String && fromName((String) name) == codec) {
+                    return codec;
+                }
+            }
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,78 @@
+package com.drivelite.common.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Các hàm hỗ trợ quyết định có nên nén một transfer hay không.
+ *
+ * Dựa trên entropy (Shannon) của một mẫu dữ liệu đầu file:
+ * - Text, log, CSV, source code: ~4-5.5 bits/byte → nén tốt
+ * - zip, jpg, mp4, dữ liệu đã mã hóa: ~7.9+ bits/byte → nén vô ích, tốn CPU
+ */
+public final class CompressionUtils {
+
+    /** Kích thước mẫu dùng để ước lượng entropy. */
+    public static final int SAMPLE_SIZE = 64 * 1024;
+
+    /** File nhỏ hơn ngưỡng này không đáng nén (overhead header + CPU). */
+    public static final long MIN_COMPRESS_SIZE = 4 * 1024;
+
+    /** Entropy (bits/byte) từ ngưỡng này trở lên coi như không nén được. */
+    public static final double MAX_COMPRESSIBLE_ENTROPY = 7.5;
+
+    private CompressionUtils() {
+    }
+
+    /**
+     * Tính Shannon entropy (bits/byte) của đoạn dữ liệu.
+     */
+    public static double entropy(byte[] data, int offset, int length) {
+        if (length <= 0) {
+            return 0.0;
+        }
+        int[] counts = new int[256];
+        for (int i = offset; i < offset + length; i++) {
+            counts[data[i] & 0xFF]++;
+        }
+        double entropy = 0.0;
+        for (int count : counts) {
+            if (count > 0) {
+                double p = (double) count / length;
+                entropy -= p * (Math.log(p) / Math.log(2));
+            }
+        }
+        return entropy;
+    }
+
+    /**
+     * Kiểm tra mẫu dữ liệu có đáng nén không.
+     *
+     * @param sample Mẫu dữ liệu đầu file
+     * @param length Số bytes hợp lệ trong sample
+     * @param totalSize Tổng kích thước file
+     */
+    public static boolean isWorthCompressing(byte[] sample, int length, long totalSize) {
+        if (totalSize < MIN_COMPRESS_SIZE || length <= 0) {
+            return false;
+        }
+        return entropy(sample, 0, length) < MAX_COMPRESSIBLE_ENTROPY;
+    }
+
+    /**
+     * Đọc tối đa SAMPLE_SIZE bytes đầu từ stream (caller tự đóng stream).
+     *
+     * @return số bytes đã đọc vào buffer
+     */
+    public static int readSample(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int n = in.read(buffer, total, buffer.length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+}
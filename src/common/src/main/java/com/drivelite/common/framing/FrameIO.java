@@ -19,6 +19,10 @@ import java.nio.charset.StandardCharsets;
  * 
  * Ví dụ: Message "Hello" (5 bytes)
  * → Gửi: [00 00 00 05][H e l l o]
+ * 
+ * Byte cao nhất của 4 bytes length là encoding flag của payload (0 = JSON, 1 = Smile).
+ * MAX_FRAME_SIZE (10MB) < 2^24 nên frame JSON của v1 luôn có byte này = 0:
+ * peer cũ vẫn đọc/ghi đúng, chỉ peer đã negotiate encoding mới thấy flag khác 0.
  */
 public class FrameIO {
 
@@ -28,6 +32,27 @@ public class FrameIO {
      */
     public static final int MAX_FRAME_SIZE = 10 * 1024 * 1024; // 10MB
 
+    /**
+     * Encoding flag nằm ở byte cao nhất của header, length ở 24 bits thấp.
+     */
+    public static final int ENCODING_SHIFT = 24;
+    public static final int LENGTH_MASK = 0x00FF_FFFF;
+
+    /**
+     * Ghép encoding flag và length thành 4 bytes header.
+     */
+    public static int header(int encodingId, int length) {
+        return (encodingId << ENCODING_SHIFT) | (length & LENGTH_MASK);
+    }
+
+    public static int encodingOf(int header) {
+        return header >>> ENCODING_SHIFT;
+    }
+
+    public static int lengthOf(int header) {
+        return header & LENGTH_MASK;
+    }
+
     /**
      * Gửi một frame (message) qua OutputStream.
      * 
@@ -61,6 +86,7 @@ public class FrameIO {
      * 
      * QUAN TRỌNG: Method này xử lý "partial reads" (đọc từng phần).
      * TCP có thể trả về ít bytes hơn yêu cầu, nên phải loop đến khi đủ.
+     * Chỉ đọc frame JSON (encoding flag 0); frame Smile đọc qua JsonCodec.
      * 
      * @param in InputStream để đọc
      * @return Nội dung message (JSON string)
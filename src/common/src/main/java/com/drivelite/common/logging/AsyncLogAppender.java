@@ -0,0 +1,165 @@
+package com.drivelite.common.logging;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appender bất đồng bộ: nhiều thread ghi vào ring buffer (lock-free), một writer thread
+ * đọc ra và in ra console theo batch.
+ *
+ * Buffer đầy (console chậm hơn tốc độ log) thì record bị bỏ và đếm lại,
+ * thread gọi log không bao giờ bị block. Writer in số record bị bỏ khi buffer trống lại.
+ */
+public class AsyncLogAppender {
+
+    private static final DateTimeFormatter TIME_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    private static final long IDLE_PARK_NANOS = 1_000_000; // 1ms
+
+    private final AtomicReferenceArray<LogRecord> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();   // sequence tiếp theo được ghi (nhiều producer)
+    private volatile long head;                          // sequence tiếp theo được đọc (1 consumer)
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity Số record tối đa chờ ghi (làm tròn lên lũy thừa của 2)
+     */
+    public AsyncLogAppender(int capacity, PrintStream out, PrintStream err) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.out = out;
+        this.err = err;
+        this.writer = new Thread(this::writerLoop, "log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Đưa record vào buffer.
+     *
+     * @return false nếu buffer đầy (record bị bỏ)
+     */
+    boolean offer(LogRecord record) {
+        while (true) {
+            long sequence = tail.get();
+            if (sequence - head >= slots.length()) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                slots.set((int) (sequence & mask), record);
+                return true;
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Số record đang chờ ghi.
+     */
+    public int getPending() {
+        return (int) (tail.get() - head);
+    }
+
+    /**
+     * Chờ ghi hết các record hiện có (tối đa timeoutMillis) rồi dừng writer thread.
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writerLoop() {
+        long reportedDropped = 0;
+        while (true) {
+            int written = drain();
+            if (written > 0) {
+                out.flush();
+                err.flush();
+                continue;
+            }
+            long droppedNow = dropped.get();
+            if (droppedNow != reportedDropped) {
+                err.println(TIME_FORMAT.format(Instant.now()) + " WARN  [LOG] Dropped " +
+                            (droppedNow - reportedDropped) + " log records (buffer full)");
+                reportedDropped = droppedNow;
+            }
+            if (!running && tail.get() == head) {
+                return;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Ghi các record đã sẵn sàng.
+     *
+     * @return số record đã ghi
+     */
+    private int drain() {
+        int written = 0;
+        while (true) {
+            long sequence = head;
+            int index = (int) (sequence & mask);
+            LogRecord record = slots.get(index);
+            if (record == null) {
+                // Buffer trống, hoặc producer đã claim slot nhưng chưa kịp set
+                return written;
+            }
+            slots.set(index, null);
+            head = sequence + 1;
+            write(record);
+            written++;
+        }
+    }
+
+    static String format(LogRecord record) {
+        StringBuilder sb = new StringBuilder(64 + record.message.length());
+        sb.append(TIME_FORMAT.format(Instant.ofEpochMilli(record.timestampMillis))).append(' ');
+        sb.append(record.level.name());
+        for (int i = record.level.name().length(); i < 5; i++) {
+            sb.append(' ');
+        }
+        sb.append(" [").append(record.logger).append("] ").append(record.message);
+        return sb.toString();
+    }
+
+    /**
+     * Ghi trực tiếp (dùng khi appender đã shutdown).
+     */
+    synchronized void writeDirect(LogRecord record) {
+        write(record);
+    }
+
+    private void write(LogRecord record) {
+        PrintStream target = record.level.ordinal() >= LogLevel.WARN.ordinal() ? err : out;
+        target.println(format(record));
+        if (record.error != null) {
+            record.error.printStackTrace(target);
+        }
+    }
+}
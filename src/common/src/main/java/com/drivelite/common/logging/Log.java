@@ -0,0 +1,110 @@
+package com.drivelite.common.logging;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Điểm vào của logging layer: quản lý logger theo subsystem và appender dùng chung.
+ *
+ * Cấu hình (system property hoặc biến môi trường, server có thể gọi {@link #configure} từ .env):
+ * - LOG_LEVEL / drivelite.log.level: level mặc định (default INFO)
+ * - LOG_LEVELS / drivelite.log.levels: override theo subsystem, vd "DISPATCHER=WARN,TCP=DEBUG"
+ * - LOG_ASYNC / drivelite.log.async: false để ghi đồng bộ (debug)
+ * - LOG_BUFFER_SIZE / drivelite.log.buffer: số record tối đa trong ring buffer (default 8192)
+ */
+public final class Log {
+
+    private static final Map<String, Logger> LOGGERS = new ConcurrentHashMap<>();
+
+    private static volatile LogLevel rootLevel = LogLevel.parse(setting("drivelite.log.level", "LOG_LEVEL"), LogLevel.INFO);
+    private static volatile Map<String, LogLevel> overrides = parseOverrides(setting("drivelite.log.levels", "LOG_LEVELS"));
+    private static volatile AsyncLogAppender appender;
+
+    private Log() {
+    }
+
+    public static Logger getLogger(String name) {
+        return LOGGERS.computeIfAbsent(name, n -> new Logger(n, levelFor(n)));
+    }
+
+    /**
+     * Áp dụng cấu hình level (null = giữ nguyên).
+     */
+    public static synchronized void configure(String level, String levels) {
+        if (level != null) {
+            rootLevel = LogLevel.parse(level, rootLevel);
+        }
+        if (levels != null) {
+            overrides = parseOverrides(levels);
+        }
+        for (Logger logger : LOGGERS.values()) {
+            logger.setLevel(levelFor(logger.getName()));
+        }
+    }
+
+    /**
+     * Ghi hết log đang chờ rồi dừng writer thread (gọi khi shutdown).
+     */
+    public static synchronized void shutdown() {
+        if (appender != null) {
+            appender.shutdown(2000);
+        }
+    }
+
+    static void append(LogRecord record) {
+        AsyncLogAppender current = appender;
+        if (current == null) {
+            current = initAppender();
+        }
+        if (current.isRunning()) {
+            current.offer(record);
+        } else {
+            current.writeDirect(record);
+        }
+    }
+
+    private static synchronized AsyncLogAppender initAppender() {
+        if (appender == null) {
+            int capacity = Integer.parseInt(setting("drivelite.log.buffer", "LOG_BUFFER_SIZE", "8192"));
+            AsyncLogAppender created = new AsyncLogAppender(capacity, System.out, System.err);
+            if ("false".equalsIgnoreCase(setting("drivelite.log.async", "LOG_ASYNC"))) {
+                created.shutdown(100);
+            } else {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> created.shutdown(2000), "log-flush"));
+            }
+            appender = created;
+        }
+        return appender;
+    }
+
+    private static LogLevel levelFor(String name) {
+        return overrides.getOrDefault(name, rootLevel);
+    }
+
+    private static Map<String, LogLevel> parseOverrides(String value) {
+        Map<String, LogLevel> result = new HashMap<>();
+        if (value == null) {
+            return result;
+        }
+        for (String pair : value.split(",")) {
+            String[] parts = pair.split("=", 2);
+            if (parts.length == 2 && !parts[0].isBlank()) {
+                result.put(parts[0].trim(), LogLevel.parse(parts[1], LogLevel.INFO));
+            }
+        }
+        return result;
+    }
+
+    private static String setting(String property, String env) {
+        return setting(property, env, null);
+    }
+
+    private static String setting(String property, String env, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            value = System.getenv(env);
+        }
+        return value != null ? value : defaultValue;
+    }
+}
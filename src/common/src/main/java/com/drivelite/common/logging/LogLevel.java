@@ -0,0 +1,26 @@
+package com.drivelite.common.logging;
+
+/**
+ * Mức log, theo thứ tự tăng dần độ nghiêm trọng.
+ */
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF;
+
+    /**
+     * Parse tên level (không phân biệt hoa thường), sai tên → fallback.
+     */
+    public static LogLevel parse(String name, LogLevel fallback) {
+        if (name == null || name.isBlank()) {
+            return fallback;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
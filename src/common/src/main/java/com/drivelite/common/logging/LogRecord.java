@@ -0,0 +1,23 @@
+package com.drivelite.common.logging;
+
+/**
+ * Một dòng log chờ ghi ra console.
+ * Format chuỗi (timestamp, thread...) được làm ở writer thread, không phải ở thread gọi log.
+ */
+final class LogRecord {
+    final long timestampMillis;
+    final LogLevel level;
+    final String logger;
+    final String thread;
+    final String message;
+    final Throwable error;
+
+    LogRecord(long timestampMillis, LogLevel level, String logger, String thread, String message, Throwable error) {
+        this.timestampMillis = timestampMillis;
+        this.level = level;
+        this.logger = logger;
+        this.thread = thread;
+        this.message = message;
+        this.error = error;
+    }
+}
@@ -0,0 +1,67 @@
+package com.drivelite.common.logging;
+
+/**
+ * Logger theo subsystem (vd: "UPLOAD", "DISPATCHER"). Lấy qua {@link Log#getLogger(String)}.
+ *
+ * Dòng log được đưa vào ring buffer của {@link AsyncLogAppender} và ghi ra console bởi
+ * writer thread riêng, nên thread xử lý request không bao giờ chờ console.
+ *
+ * Với log tốn chi phí tạo chuỗi (payload JSON...), kiểm tra {@link #isDebugEnabled()} trước.
+ */
+public final class Logger {
+
+    private final String name;
+    private volatile LogLevel level;
+
+    Logger(String name, LogLevel level) {
+        this.name = name;
+        this.level = level;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LogLevel getLevel() {
+        return level;
+    }
+
+    void setLevel(LogLevel level) {
+        this.level = level;
+    }
+
+    public boolean isEnabled(LogLevel candidate) {
+        return candidate.ordinal() >= level.ordinal() && candidate != LogLevel.OFF;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(LogLevel.DEBUG);
+    }
+
+    public void debug(String message) {
+        log(LogLevel.DEBUG, message, null);
+    }
+
+    public void info(String message) {
+        log(LogLevel.INFO, message, null);
+    }
+
+    public void warn(String message) {
+        log(LogLevel.WARN, message, null);
+    }
+
+    public void error(String message) {
+        log(LogLevel.ERROR, message, null);
+    }
+
+    public void error(String message, Throwable error) {
+        log(LogLevel.ERROR, message, error);
+    }
+
+    private void log(LogLevel candidate, String message, Throwable error) {
+        if (isEnabled(candidate)) {
+            Log.append(new LogRecord(System.currentTimeMillis(), candidate, name,
+                                     Thread.currentThread().getName(), message, error));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.drivelite.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram độ trễ kiểu HdrHistogram (log-linear buckets), đơn vị microseconds.
+ *
+ * - Giá trị < 64µs: mỗi µs một bucket (chính xác tuyệt đối)
+ * - Lớn hơn: mỗi khoảng [2^k, 2^(k+1)) chia thành 32 bucket → sai số tương đối <= ~3%
+ * - Giá trị lớn hơn {@link #MAX_TRACKABLE_MICROS} (~19 giờ) được ghi vào bucket cuối
+ *
+ * {@link #recordNanos} không cấp phát object và không lock (chỉ atomic increment),
+ * an toàn gọi từ nhiều worker thread trên hot path.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;       // 32
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;            // 64
+    private static final int MAX_SHIFT = 31;
+
+    public static final long MAX_TRACKABLE_MICROS = (1L << (MAX_SHIFT + SUB_BUCKET_BITS + 1)) - 1;
+    static final int BUCKET_COUNT = LINEAR_LIMIT + MAX_SHIFT * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        counts.incrementAndGet(indexOf(micros));
+        totalCount.increment();
+        totalMicros.add(micros);
+        long currentMax = maxMicros.get();
+        while (micros > currentMax && !maxMicros.compareAndSet(currentMax, micros)) {
+            currentMax = maxMicros.get();
+        }
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * Chụp trạng thái hiện tại. Các thread khác vẫn ghi song song nên snapshot
+     * không tuyệt đối nhất quán giữa các bucket, nhưng đủ chính xác cho monitoring.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, totalMicros.sum(), maxMicros.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalMicros.reset();
+        maxMicros.set(0);
+    }
+
+    static int indexOf(long micros) {
+        if (micros < LINEAR_LIMIT) {
+            return (int) micros;
+        }
+        if (micros > MAX_TRACKABLE_MICROS) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(micros)) - SUB_BUCKET_BITS;
+        int sub = (int) (micros >>> shift) - SUB_BUCKET_COUNT;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + sub;
+    }
+
+    /**
+     * Giá trị lớn nhất thuộc bucket (giống highestEquivalentValue của HdrHistogram).
+     */
+    static long highestValueOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+        long sub = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Trạng thái bất biến của histogram tại một thời điểm.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalMicros;
+        private final long maxMicros;
+
+        private Snapshot(long[] counts, long count, long totalMicros, long maxMicros) {
+            this.counts = counts;
+            this.count = count;
+            this.totalMicros = totalMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+
+        public double getMeanMicros() {
+            return count == 0 ? 0 : (double) totalMicros / count;
+        }
+
+        public long getTotalMicros() {
+            return totalMicros;
+        }
+
+        /**
+         * @param percentile 0..100 (vd: 99.9)
+         * @return giá trị (µs) mà percentile% số mẫu nhỏ hơn hoặc bằng
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), maxMicros);
+                }
+            }
+            return maxMicros;
+        }
+
+        public long getP50() {
+            return getValueAtPercentile(50);
+        }
+
+        public long getP99() {
+            return getValueAtPercentile(99);
+        }
+
+        public long getP999() {
+            return getValueAtPercentile(99.9);
+        }
+
+        /**
+         * Số mẫu có giá trị <= upperMicros (dùng cho cumulative buckets kiểu Prometheus).
+         */
+        public long countAtOrBelow(long upperMicros) {
+            long seen = 0;
+            for (int i = 0; i < counts.length && highestValueOf(i) <= upperMicros; i++) {
+                seen += counts[i];
+            }
+            return seen;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, mean=%.0fus, p50=%dus, p99=%dus, p999=%dus, max=%dus",
+                                 count, getMeanMicros(), getP50(), getP99(), getP999(), maxMicros);
+        }
+    }
+}
@@ -16,8 +16,10 @@ public enum MessageType {
     LIST_SHARED_WITH_ME,
     UPLOAD_BEGIN,
     UPLOAD_NEW_VERSION_BEGIN,
+    UPLOAD_BATCH_BEGIN,     // Nhiều file nhỏ: một manifest, bytes nối tiếp, commit một lần
     DOWNLOAD_BEGIN,
     DOWNLOAD_VERSION,
+    GET_PREVIEW,            // Thumbnail ảnh / đoạn đầu file text, server tạo và cache theo sha256
     DELETE_FILE,
     RENAME_FILE,
 
@@ -31,7 +33,9 @@ public enum MessageType {
     GET_VERSIONS,
 
     // Control (internal)
+    HELLO,      // Negotiate encoding cho connection (gửi ngay sau connect, luôn bằng JSON)
     PING,
     READY,
+    CANCEL,     // Thay cho READY sau FILE_META: bỏ phần bytes (client đã có nội dung), không có response
     FILE_META
 }
@@ -1,7 +1,7 @@
 package com.drivelite.common.protocol;
 
+import com.drivelite.common.codec.JsonCodec;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Request envelope - cấu trúc chung cho mọi request từ Client → Server.
@@ -44,15 +44,13 @@ public class Request {
      * Serialize request to JSON string.
      */
     public String toJson() throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.writeValueAsString(this);
+        return JsonCodec.toJson(this);
     }
 
     /**
      * Deserialize request from JSON string.
      */
     public static Request fromJson(String json) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(json, Request.class);
+        return JsonCodec.fromJson(json, Request.class);
     }
 }
@@ -1,11 +1,17 @@
 package com.drivelite.common.protocol;
 
+import java.util.Map;
+
+import com.drivelite.common.codec.JsonCodec;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Response envelope - cấu trúc chung cho mọi response từ Server → Client.
- * Format: { ok: boolean, code: string, message: string, data?: object }
+ * Format: { ok: boolean, code: string, message: string, data?: object, requestId?: string }
+ *
+ * requestId chỉ có trên connection đã bật pipelining (HELLO): response có thể về không theo
+ * thứ tự gửi, client ghép response với request theo requestId.
  */
 public class Response {
     @JsonProperty("ok")
@@ -20,6 +26,10 @@ public class Response {
     @JsonProperty("data")
     private Object data;
 
+    @JsonProperty("requestId")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String requestId;
+
     public Response() {}
 
     public Response(boolean ok, ResponseCode code, String message, Object data) {
@@ -42,6 +52,13 @@ public class Response {
         return new Response(false, code, message, null);
     }
 
+    /**
+     * Listing không đổi: client dùng lại bản cache ứng với etag.
+     */
+    public static Response notModified(String etag) {
+        return new Response(true, ResponseCode.NOT_MODIFIED, "Not modified", Map.of("etag", etag));
+    }
+
     // Getters and setters
     public boolean isOk() { return ok; }
     public void setOk(boolean ok) { this.ok = ok; }
@@ -55,19 +72,20 @@ public class Response {
     public Object getData() { return data; }
     public void setData(Object data) { this.data = data; }
 
+    public String getRequestId() { return requestId; }
+    public void setRequestId(String requestId) { this.requestId = requestId; }
+
     /**
      * Serialize response to JSON string.
      */
     public String toJson() throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.writeValueAsString(this);
+        return JsonCodec.toJson(this);
     }
 
     /**
      * Deserialize response from JSON string.
      */
     public static Response fromJson(String json) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(json, Response.class);
+        return JsonCodec.fromJson(json, Response.class);
     }
 }
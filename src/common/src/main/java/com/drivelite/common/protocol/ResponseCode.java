@@ -5,6 +5,7 @@ package com.drivelite.common.protocol;
  */
 public enum ResponseCode {
     OK,                 // 200 - Success
+    NOT_MODIFIED,       // 304 - Listing không đổi so với ETag client gửi (ifNoneMatch)
     VALIDATION_ERROR,   // 400 - Invalid input
     UNAUTHORIZED,       // 401 - Missing/invalid/expired token
     FORBIDDEN,          // 403 - No permission
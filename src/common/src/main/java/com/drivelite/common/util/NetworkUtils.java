@@ -8,12 +8,17 @@ import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
 /**
  * Utility class để lấy thông tin network interfaces.
  * Hữu ích cho demo khi cần biết IP để client connect.
  */
 public class NetworkUtils {
 
+    private static final Logger LOG = Log.getLogger("NetworkUtils");
+
     /**
      * Lấy danh sách tất cả IPv4 addresses có thể dùng được.
      * Bỏ qua loopback (127.0.0.1) và interfaces không hoạt động.
@@ -48,7 +53,7 @@ public class NetworkUtils {
                 }
             }
         } catch (SocketException e) {
-            System.err.println("[NetworkUtils] Error getting network interfaces: " + e.getMessage());
+            LOG.error("Error getting network interfaces: " + e.getMessage());
         }
         
         return result;
@@ -0,0 +1,183 @@
+package com.drivelite.common.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.drivelite.common.framing.FrameException;
+import com.drivelite.common.framing.FrameIO;
+import com.drivelite.common.protocol.MessageType;
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+import com.drivelite.common.protocol.ResponseCode;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Unit tests cho JsonCodec - frame JSON/Smile qua buffer tái sử dụng.
+ */
+class JsonCodecTest {
+
+    @Test
+    @DisplayName("writeFrame tương thích FrameIO.readFrame và ngược lại")
+    void testFrameCompatibleWithFrameIO() throws IOException {
+        Request request = new Request(MessageType.LOGIN, null, "req-1",
+                                      Map.of("email", "người-dùng@example.com"));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        JsonCodec.writeFrame(baos, request);
+        String json = FrameIO.readFrame(new ByteArrayInputStream(baos.toByteArray()));
+        assertEquals(JsonCodec.toJson(request), json);
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        FrameIO.sendFrame(wire, json);
+        Request parsed = JsonCodec.readRequest(new ByteArrayInputStream(wire.toByteArray()));
+        assertEquals(MessageType.LOGIN, parsed.getType());
+        assertEquals("req-1", parsed.getRequestId());
+        assertEquals("người-dùng@example.com", ((Map<?, ?>) parsed.getData()).get("email"));
+    }
+
+    @Test
+    @DisplayName("Nhiều frame liên tiếp, frame lớn rồi frame nhỏ dùng chung buffer")
+    void testConsecutiveFramesReuseBuffer() throws IOException {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            names.add("file-" + i + ".bin");
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        JsonCodec.writeFrame(baos, Response.success(names));
+        JsonCodec.writeFrame(baos, Response.error(ResponseCode.NOT_FOUND, "File not found"));
+        JsonCodec.writeFrame(baos, Response.success("small"));
+
+        ByteArrayInputStream in = new ByteArrayInputStream(baos.toByteArray());
+        assertEquals(names, JsonCodec.readResponse(in).getData());
+        Response error = JsonCodec.readResponse(in);
+        assertEquals(ResponseCode.NOT_FOUND, error.getCode());
+        assertEquals("small", JsonCodec.readResponse(in).getData());
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    @DisplayName("JSON hỏng: lỗi parse nhưng stream vẫn ở đầu frame kế tiếp")
+    void testMalformedJsonKeepsStreamAligned() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        FrameIO.sendFrame(baos, "{\"type\":");
+        JsonCodec.writeFrame(baos, new Request(MessageType.LIST_MY_FILES, "token", "req-2", null));
+
+        ByteArrayInputStream in = new ByteArrayInputStream(baos.toByteArray());
+        assertThrows(JsonProcessingException.class, () -> JsonCodec.readRequest(in));
+        assertEquals(MessageType.LIST_MY_FILES, JsonCodec.readRequest(in).getType());
+    }
+
+    @Test
+    @DisplayName("Field lạ từ peer mới hơn được bỏ qua")
+    void testIgnoresUnknownFields() throws IOException {
+        Response response = JsonCodec.fromJson(
+            "{\"ok\":true,\"code\":\"OK\",\"message\":\"Success\",\"serverTime\":123}", Response.class);
+        assertTrue(response.isOk());
+    }
+
+    @Test
+    @DisplayName("readFrame: từ chối length vượt MAX_FRAME_SIZE")
+    void testRejectsOversizedLength() {
+        byte[] header = { 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF };
+        assertThrows(FrameException.class,
+            () -> JsonCodec.readResponse(new ByteArrayInputStream(header)));
+    }
+
+    @Test
+    @DisplayName("Smile: cùng schema, header mang encoding flag, frame JSON và Smile đọc xen kẽ")
+    void testSmileFramesInterleaveWithJson() throws IOException {
+        List<Map<String, Object>> files = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            files.add(Map.of("fileId", i, "fileName", "file-" + i + ".bin",
+                             "permission", "OWNER", "ownerEmail", "owner@example.com"));
+        }
+        Response listing = Response.success("Files retrieved", Map.of("files", files));
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        JsonCodec.writeFrame(json, listing, FrameEncoding.JSON);
+        ByteArrayOutputStream smile = new ByteArrayOutputStream();
+        JsonCodec.writeFrame(smile, listing, FrameEncoding.SMILE);
+
+        assertEquals(FrameEncoding.SMILE.getId(), smile.toByteArray()[0] & 0xFF);
+        assertTrue(smile.size() < json.size() / 2, "smile=" + smile.size() + " json=" + json.size());
+
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        wire.write(smile.toByteArray());
+        wire.write(json.toByteArray());
+        ByteArrayInputStream in = new ByteArrayInputStream(wire.toByteArray());
+        Response fromSmile = JsonCodec.readResponse(in);
+        Response fromJson = JsonCodec.readResponse(in);
+        assertEquals(fromJson.getData(), fromSmile.getData());
+        assertEquals(ResponseCode.OK, fromSmile.getCode());
+    }
+
+    @Test
+    @DisplayName("Response.requestId: chỉ có trên dây khi được set (pipelining), không đổi frame v1")
+    void testResponseRequestIdOnlyWhenSet() throws IOException {
+        Response plain = Response.success("small");
+        assertFalse(JsonCodec.toJson(plain).contains("requestId"));
+
+        Response pipelined = Response.success("small");
+        pipelined.setRequestId("req-42");
+        for (FrameEncoding encoding : FrameEncoding.values()) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            JsonCodec.writeFrame(baos, pipelined, encoding);
+            Response parsed = JsonCodec.readResponse(new ByteArrayInputStream(baos.toByteArray()));
+            assertEquals("req-42", parsed.getRequestId());
+        }
+    }
+
+    @Test
+    @DisplayName("Response.notModified: ok, code NOT_MODIFIED và etag đi qua cả JSON lẫn Smile")
+    void testNotModifiedRoundTrip() throws IOException {
+        for (FrameEncoding encoding : FrameEncoding.values()) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            JsonCodec.writeFrame(baos, Response.notModified("abc.0.u3"), encoding);
+            Response parsed = JsonCodec.readResponse(new ByteArrayInputStream(baos.toByteArray()));
+            assertTrue(parsed.isOk());
+            assertEquals(ResponseCode.NOT_MODIFIED, parsed.getCode());
+            assertEquals("abc.0.u3", ((Map<?, ?>) parsed.getData()).get("etag"));
+        }
+    }
+
+    @Test
+    @DisplayName("byte[] trong data: Smile giữ binary, JSON thành chuỗi base64 chuẩn")
+    void testBinaryDataPerEncoding() throws IOException {
+        byte[] thumbnail = { (byte) 0xFF, (byte) 0xD8, 0x00, 0x7F, (byte) 0x80, 0x10 };
+        Map<String, Object> data = Map.of("image", thumbnail);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        JsonCodec.writeFrame(baos, Response.success(data), FrameEncoding.SMILE);
+        Object smile = ((Map<?, ?>) JsonCodec.readResponse(new ByteArrayInputStream(baos.toByteArray())).getData()).get("image");
+        assertArrayEquals(thumbnail, (byte[]) smile);
+
+        baos = new ByteArrayOutputStream();
+        JsonCodec.writeFrame(baos, Response.success(data), FrameEncoding.JSON);
+        Object json = ((Map<?, ?>) JsonCodec.readResponse(new ByteArrayInputStream(baos.toByteArray())).getData()).get("image");
+        assertArrayEquals(thumbnail, Base64.getDecoder().decode((String) json));
+    }
+
+    @Test
+    @DisplayName("FrameEncoding.negotiate: chọn encoding chung đầu tiên theo ưu tiên bên mình")
+    void testNegotiate() {
+        List<FrameEncoding> serverPrefs = List.of(FrameEncoding.SMILE, FrameEncoding.JSON);
+        assertEquals(FrameEncoding.SMILE, FrameEncoding.negotiate(List.of("json", "smile"), serverPrefs));
+        assertEquals(FrameEncoding.JSON, FrameEncoding.negotiate(List.of("CBOR", "JSON"), serverPrefs));
+        assertEquals(FrameEncoding.JSON, FrameEncoding.negotiate(null, serverPrefs));
+        assertEquals(FrameEncoding.JSON,
+            FrameEncoding.negotiate(List.of("SMILE"), List.of(FrameEncoding.JSON)));
+    }
+}
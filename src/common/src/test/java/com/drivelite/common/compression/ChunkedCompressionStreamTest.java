@@ -0,0 +1,167 @@
+package com.drivelite.common.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.drivelite.common.framing.FrameException;
+import com.drivelite.common.framing.FrameIO;
+
+/**
+ * Unit tests cho chunked compression streams dùng trong phase raw bytes.
+ */
+class ChunkedCompressionStreamTest {
+
+    @Test
+    @DisplayName("LZ4 + DEFLATE: round-trip dữ liệu text nhiều chunk")
+    void testRoundTripCompressible() throws IOException {
+        byte[] original = repeatText(300 * 1024);
+
+        for (CompressionCodec codec : List.of(CompressionCodec.LZ4, CompressionCodec.DEFLATE)) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ChunkedCompressionOutputStream out = new ChunkedCompressionOutputStream(baos, codec);
+            out.write(original);
+            out.finish();
+
+            assertTrue(baos.size() < original.length / 2, codec + " should compress text");
+            assertEquals(original.length, out.getRawBytes());
+            assertEquals(baos.size(), out.getWireBytes());
+
+            assertArrayEquals(original, readAll(baos.toByteArray(), original.length), codec + " round-trip");
+        }
+    }
+
+    @Test
+    @DisplayName("Random data: gửi dạng STORED, không phình quá header")
+    void testIncompressibleStored() throws IOException {
+        byte[] original = new byte[200 * 1024];
+        new Random(7).nextBytes(original);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ChunkedCompressionOutputStream out = new ChunkedCompressionOutputStream(baos, CompressionCodec.LZ4)) {
+            out.write(original);
+        }
+
+        int chunks = (original.length + ChunkedCompressionOutputStream.CHUNK_SIZE - 1) / ChunkedCompressionOutputStream.CHUNK_SIZE;
+        assertEquals(original.length + (chunks + 1) * 9, baos.size());
+        assertArrayEquals(original, readAll(baos.toByteArray(), original.length));
+    }
+
+    @Test
+    @DisplayName("Decoder không đọc lố: frame sau chunk kết thúc vẫn còn nguyên")
+    void testFrameAfterCompressedStream() throws IOException {
+        byte[] original = repeatText(70 * 1024);
+        String nextFrame = "{\"ok\":true,\"code\":\"SUCCESS\"}";
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ChunkedCompressionOutputStream out = new ChunkedCompressionOutputStream(baos, CompressionCodec.DEFLATE);
+        out.write(original);
+        out.finish();
+        FrameIO.sendFrame(baos, nextFrame);
+
+        ByteArrayInputStream wire = new ByteArrayInputStream(baos.toByteArray());
+        ChunkedCompressionInputStream in = new ChunkedCompressionInputStream(wire);
+        byte[] received = in.readNBytes(original.length);
+        in.finish();
+
+        assertArrayEquals(original, received);
+        assertEquals(nextFrame, FrameIO.readFrame(wire));
+    }
+
+    @Test
+    @DisplayName("Empty stream: chỉ có chunk kết thúc")
+    void testEmptyStream() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new ChunkedCompressionOutputStream(baos, CompressionCodec.LZ4).finish();
+
+        assertEquals(9, baos.size());
+        ChunkedCompressionInputStream in = new ChunkedCompressionInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    @DisplayName("Header hỏng: throw FrameException")
+    void testCorruptedHeader() {
+        byte[] wire = {(byte) 9, 0, 0, 0, 10, 0, 0, 0, 10};
+        ChunkedCompressionInputStream in = new ChunkedCompressionInputStream(new ByteArrayInputStream(wire));
+        assertThrows(FrameException.class, in::read);
+    }
+
+    @Test
+    @DisplayName("LZ4 block giả mạo: throw IOException, không đọc ngoài payload")
+    void testCraftedLz4Block() {
+        // rawLen khai báo 1000 nhưng payload chỉ có 10 literal bytes
+        byte[] shortLiterals = new byte[11];
+        shortLiterals[0] = (byte) 0xA0;
+        assertThrows(IOException.class, () -> readAll(lz4Chunk(1000, shortLiterals), 1000));
+
+        // Match offset trỏ ra trước đầu output
+        byte[] badOffset = {(byte) 0x10, 'a', (byte) 0xFF, (byte) 0xFF, 0x00};
+        assertThrows(IOException.class, () -> readAll(lz4Chunk(64, badOffset), 64));
+    }
+
+    @Test
+    @DisplayName("negotiate: chọn codec ưu tiên của server mà client hỗ trợ")
+    void testNegotiate() {
+        List<CompressionCodec> serverPreferred = List.of(CompressionCodec.LZ4, CompressionCodec.DEFLATE);
+
+        assertEquals(CompressionCodec.LZ4, CompressionCodec.negotiate(List.of("DEFLATE", "LZ4"), serverPreferred));
+        assertEquals(CompressionCodec.DEFLATE, CompressionCodec.negotiate(List.of("deflate"), serverPreferred));
+        assertEquals(CompressionCodec.NONE, CompressionCodec.negotiate(List.of("ZSTD"), serverPreferred));
+        assertEquals(CompressionCodec.NONE, CompressionCodec.negotiate(null, serverPreferred));
+    }
+
+    @Test
+    @DisplayName("isWorthCompressing: text có, random không")
+    void testEntropyHeuristic() {
+        byte[] text = repeatText(CompressionUtils.SAMPLE_SIZE);
+        byte[] random = new byte[CompressionUtils.SAMPLE_SIZE];
+        new Random(1).nextBytes(random);
+
+        assertTrue(CompressionUtils.isWorthCompressing(text, text.length, 1_000_000));
+        assertFalse(CompressionUtils.isWorthCompressing(random, random.length, 1_000_000));
+        assertFalse(CompressionUtils.isWorthCompressing(text, 100, 100));
+    }
+
+    /**
+     * Một chunk LZ4 với payload cho sẵn, theo sau là chunk kết thúc.
+     */
+    private static byte[] lz4Chunk(int rawLength, byte[] payload) {
+        ByteBuffer wire = ByteBuffer.allocate(9 + payload.length + 9);
+        wire.put((byte) CompressionCodec.LZ4.getId()).putInt(rawLength).putInt(payload.length).put(payload);
+        wire.put((byte) CompressionCodec.NONE.getId()).putInt(0).putInt(0);
+        return wire.array();
+    }
+
+    private static byte[] readAll(byte[] wire, int expectedLength) throws IOException {
+        try (ChunkedCompressionInputStream in = new ChunkedCompressionInputStream(new ByteArrayInputStream(wire))) {
+            byte[] result = in.readNBytes(expectedLength);
+            in.finish();
+            return result;
+        }
+    }
+
+    private static byte[] repeatText(int size) {
+        StringBuilder sb = new StringBuilder(size + 128);
+        int i = 0;
+        while (sb.length() < size) {
+            sb.append("[DISPATCHER] Request: type=LIST_MY_FILES, requestId=req-").append(i++).append('\n');
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[size];
+        System.arraycopy(bytes, 0, result, 0, size);
+        return result;
+    }
+}
@@ -0,0 +1,82 @@
+package com.drivelite.common.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests cho AsyncLogAppender (ring buffer + writer thread).
+ */
+class AsyncLogAppenderTest {
+
+    @Test
+    @DisplayName("Nhiều thread ghi: đủ record, đúng thứ tự trong từng thread, WARN ra stderr")
+    void testConcurrentWritersFlushedOnShutdown() throws InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        AsyncLogAppender appender = new AsyncLogAppender(1 << 16, new PrintStream(out, true), new PrintStream(err, true));
+
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            String name = "W" + t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    appender.offer(record(LogLevel.INFO, name + "-" + i));
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        appender.offer(record(LogLevel.WARN, "disk almost full"));
+        appender.shutdown(5000);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(4000, lines.length);
+        int last = -1;
+        for (String line : lines) {
+            if (line.endsWith("] W0-" + (last + 1))) {
+                last++;
+            }
+        }
+        assertEquals(999, last, "records of one thread must keep their order");
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("WARN  [TEST] disk almost full"));
+        assertEquals(0, appender.getDroppedCount());
+    }
+
+    @Test
+    @DisplayName("Buffer đầy: bỏ record thay vì block")
+    void testDropWhenFull() {
+        AsyncLogAppender appender = new AsyncLogAppender(4, new PrintStream(new ByteArrayOutputStream()),
+                                                         new PrintStream(new ByteArrayOutputStream()));
+        appender.shutdown(1000);
+        // Writer đã dừng → không ai đọc buffer
+        for (int i = 0; i < 4; i++) {
+            assertTrue(appender.offer(record(LogLevel.INFO, "m" + i)));
+        }
+        assertFalse(appender.offer(record(LogLevel.INFO, "overflow")));
+        assertEquals(1, appender.getDroppedCount());
+        assertEquals(4, appender.getPending());
+    }
+
+    @Test
+    @DisplayName("Logger: lọc theo level")
+    void testLevelFiltering() {
+        Logger logger = new Logger("TEST", LogLevel.WARN);
+        assertFalse(logger.isDebugEnabled());
+        assertFalse(logger.isEnabled(LogLevel.INFO));
+        assertTrue(logger.isEnabled(LogLevel.ERROR));
+        assertFalse(new Logger("TEST", LogLevel.OFF).isEnabled(LogLevel.ERROR));
+    }
+
+    private static LogRecord record(LogLevel level, String message) {
+        return new LogRecord(System.currentTimeMillis(), level, "TEST", "main", message, null);
+    }
+}
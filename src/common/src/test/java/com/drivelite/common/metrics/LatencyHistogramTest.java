@@ -0,0 +1,61 @@
+package com.drivelite.common.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests cho LatencyHistogram.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Bucket index tăng đơn điệu và bao trọn giá trị")
+    void testBucketBoundaries() {
+        int previous = -1;
+        for (long v = 0; v < 1_000_000; v += (v < 1000 ? 1 : 97)) {
+            int index = LatencyHistogram.indexOf(v);
+            assertTrue(index >= previous, "index must not decrease at " + v);
+            assertTrue(LatencyHistogram.highestValueOf(index) >= v, "bucket must contain " + v);
+            previous = index;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Percentile: sai số tương đối <= ~3%")
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100_000; i++) {
+            histogram.recordMicros(i);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000, snapshot.getMaxMicros());
+        assertWithin(50_000, snapshot.getP50());
+        assertWithin(99_000, snapshot.getP99());
+        assertWithin(99_900, snapshot.getP999());
+        assertEquals(50_000.5, snapshot.getMeanMicros(), 0.001);
+    }
+
+    @Test
+    @DisplayName("recordNanos + reset")
+    void testNanosAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(1_500_000);
+        assertEquals(1500, histogram.snapshot().getMaxMicros());
+        assertEquals(1, histogram.snapshot().countAtOrBelow(2000));
+        assertEquals(0, histogram.snapshot().countAtOrBelow(1000));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.snapshot().getP99());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.04,
+                   "expected ~" + expected + " but was " + actual);
+    }
+}
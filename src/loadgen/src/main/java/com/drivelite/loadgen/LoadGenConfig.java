@@ -0,0 +1,94 @@
+package com.drivelite.loadgen;
+
+import com.drivelite.common.codec.FrameEncoding;
+
+/**
+ * Tham số dòng lệnh của load generator (dạng --key=value).
+ */
+public class LoadGenConfig {
+
+    String host = "localhost";
+    int port = 9000;
+    boolean ssl;
+    FrameEncoding encoding = FrameEncoding.SMILE;
+    int users = 10;
+    int durationSeconds = 60;
+    int warmupSeconds = 10;
+    double rate;                 // ops/s toàn hệ thống; 0 = closed loop
+    int thinkMillis;             // chỉ dùng cho closed loop
+    long fileSize = 256 * 1024;
+    String userPrefix = "loadgen";
+    String password = "LoadGen#2025";
+    boolean register;
+    OperationMix mix = OperationMix.parse(OperationMix.DEFAULT);
+    long seed = 42;
+
+    static final String USAGE = String.join(System.lineSeparator(),
+        "Usage: java -jar loadgen.jar [options]",
+        "  --host=localhost         Server host",
+        "  --port=9000              Server port",
+        "  --ssl                    Kết nối SSL (trust all, chỉ dùng cho test)",
+        "  --encoding=smile         Encoding control frames: smile (negotiate qua HELLO) hoặc json (v1)",
+        "  --users=10               Số virtual user (mỗi user một connection)",
+        "  --duration=60            Thời gian đo (giây)",
+        "  --warmup=10              Thời gian warmup không tính vào kết quả (giây)",
+        "  --rate=0                 Open loop: tổng số thao tác/giây (0 = closed loop)",
+        "  --think=0                Closed loop: nghỉ giữa hai thao tác (ms)",
+        "  --file-size=262144       Kích thước file upload (bytes)",
+        "  --mix=" + OperationMix.DEFAULT,
+        "                           Tỉ lệ thao tác: login,list,upload,download,share,versions,newversion",
+        "  --user-prefix=loadgen    Email user: {prefix}{i}@loadgen.local",
+        "  --password=...           Mật khẩu chung của các user",
+        "  --register               Đăng ký user trước khi chạy (bỏ qua nếu đã tồn tại)",
+        "  --seed=42                Seed cho random (chạy lặp lại được)");
+
+    static LoadGenConfig parse(String[] args) {
+        LoadGenConfig config = new LoadGenConfig();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String[] kv = arg.substring(2).split("=", 2);
+            String key = kv[0];
+            String value = kv.length > 1 ? kv[1] : "true";
+            switch (key) {
+                case "host": config.host = value; break;
+                case "port": config.port = Integer.parseInt(value); break;
+                case "ssl": config.ssl = Boolean.parseBoolean(value); break;
+                case "encoding": config.encoding = FrameEncoding.valueOf(value.trim().toUpperCase()); break;
+                case "users": config.users = Integer.parseInt(value); break;
+                case "duration": config.durationSeconds = Integer.parseInt(value); break;
+                case "warmup": config.warmupSeconds = Integer.parseInt(value); break;
+                case "rate": config.rate = Double.parseDouble(value); break;
+                case "think": config.thinkMillis = Integer.parseInt(value); break;
+                case "file-size": config.fileSize = Long.parseLong(value); break;
+                case "mix": config.mix = OperationMix.parse(value); break;
+                case "user-prefix": config.userPrefix = value; break;
+                case "password": config.password = value; break;
+                case "register": config.register = Boolean.parseBoolean(value); break;
+                case "seed": config.seed = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Unknown option: --" + key);
+            }
+        }
+        if (config.users < 1) {
+            throw new IllegalArgumentException("--users must be >= 1");
+        }
+        return config;
+    }
+
+    String emailOf(int index) {
+        return userPrefix + index + "@loadgen.local";
+    }
+
+    boolean isOpenLoop() {
+        return rate > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "target=" + host + ":" + port + (ssl ? " (ssl)" : "") + ", encoding=" + encoding +
+               ", users=" + users + ", duration=" + durationSeconds + "s, warmup=" + warmupSeconds + "s" +
+               ", mode=" + (isOpenLoop() ? "open loop @ " + rate + " ops/s" : "closed loop, think=" + thinkMillis + "ms") +
+               ", fileSize=" + fileSize + ", mix=" + mix;
+    }
+}
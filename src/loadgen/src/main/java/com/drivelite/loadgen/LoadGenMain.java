@@ -0,0 +1,112 @@
+package com.drivelite.loadgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+/**
+ * Load generator không giao diện: N virtual user chạy song song với tỉ lệ thao tác cấu hình được
+ * (login, list, upload, download, share, versions, new version) vào một server đang chạy.
+ *
+ * Dùng lại TcpClient/AuthService/FileService của client nên đo đúng đường code client thật.
+ * In ra throughput và latency percentiles theo thao tác.
+ *
+ * Ví dụ:
+ *   java -jar loadgen/target/loadgen.jar --users=50 --register --duration=120
+ *   java -jar loadgen/target/loadgen.jar --users=50 --rate=200 --mix=list=60,download=40
+ */
+public final class LoadGenMain {
+
+    private static final Logger LOG = Log.getLogger("LOADGEN");
+
+    private LoadGenMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if ("--help".equals(arg) || "-h".equals(arg)) {
+                System.out.println(LoadGenConfig.USAGE);
+                return;
+            }
+        }
+        LoadGenConfig config;
+        try {
+            config = LoadGenConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadGenConfig.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        // Log của TcpClient/FileService (connect, từng request) chỉ làm nhiễu kết quả
+        // (LOG_LEVEL / -Ddrivelite.log.level vẫn override được)
+        if (System.getProperty("drivelite.log.level") == null && System.getenv("LOG_LEVEL") == null) {
+            Log.configure("WARN", "LOADGEN=INFO");
+        }
+        LOG.info("Config: " + config);
+
+        File scratchDir = Files.createTempDirectory("drivelite-loadgen-").toFile();
+        List<VirtualUser> users = new ArrayList<>();
+        try {
+            File uploadSource = createUploadSource(scratchDir, config.fileSize, config.seed);
+            for (int i = 0; i < config.users; i++) {
+                VirtualUser user = new VirtualUser(i, config, uploadSource, scratchDir);
+                user.prepare();
+                users.add(user);
+            }
+            LOG.info(users.size() + " users ready, running " +
+                     (config.warmupSeconds > 0 ? config.warmupSeconds + "s warmup + " : "") +
+                     config.durationSeconds + "s");
+
+            LoadRunner runner = new LoadRunner(config, users);
+            long elapsedNanos = runner.run();
+            LOG.info("Results" + System.lineSeparator() + runner.getReport().format(elapsedNanos));
+        } catch (Exception e) {
+            LOG.error("Load generation failed: " + e.getMessage(), e);
+        } finally {
+            for (VirtualUser user : users) {
+                user.close();
+            }
+            deleteRecursively(scratchDir);
+            Log.shutdown();
+        }
+    }
+
+    /**
+     * File upload dùng chung cho mọi user (dữ liệu ngẫu nhiên, không nén được).
+     */
+    private static File createUploadSource(File dir, long size, long seed) throws IOException {
+        File file = new File(dir, "loadgen-" + size + ".bin");
+        Random random = new Random(seed);
+        byte[] buffer = new byte[64 * 1024];
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            long remaining = size;
+            while (remaining > 0) {
+                random.nextBytes(buffer);
+                int n = (int) Math.min(buffer.length, remaining);
+                out.write(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+        return file;
+    }
+
+    private static void deleteRecursively(File dir) {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            LOG.warn("Cannot clean up " + dir + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.drivelite.loadgen;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.drivelite.common.metrics.LatencyHistogram;
+
+/**
+ * Kết quả theo thao tác: throughput, số lỗi và latency percentiles.
+ *
+ * Ở open loop, latency tính từ thời điểm thao tác LẼ RA bắt đầu (theo arrival rate),
+ * nên thời gian chờ khi tất cả user đều bận cũng được tính (tránh coordinated omission).
+ */
+public class LoadReport {
+
+    private final Map<Operation, LatencyHistogram> latency = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> failures = new EnumMap<>(Operation.class);
+    private final LongAdder missedArrivals = new LongAdder();
+
+    public LoadReport() {
+        for (Operation op : Operation.values()) {
+            latency.put(op, new LatencyHistogram());
+            failures.put(op, new LongAdder());
+        }
+    }
+
+    public void record(Operation op, long nanos, boolean ok) {
+        if (ok) {
+            latency.get(op).recordNanos(nanos);
+        } else {
+            failures.get(op).increment();
+        }
+    }
+
+    /**
+     * Open loop: arrival chưa được phục vụ khi hết thời gian đo (hệ thống không theo kịp rate).
+     */
+    public void recordMissedArrivals(long count) {
+        missedArrivals.add(count);
+    }
+
+    public String format(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-11s %9s %9s %8s %9s %9s %9s %9s %9s%n",
+                                "operation", "ok", "ops/s", "errors", "p50_ms", "p90_ms", "p99_ms", "p999_ms", "max_ms"));
+        long totalOk = 0;
+        long totalErrors = 0;
+        for (Operation op : Operation.values()) {
+            LatencyHistogram.Snapshot s = latency.get(op).snapshot();
+            long errors = failures.get(op).sum();
+            if (s.getCount() == 0 && errors == 0) {
+                continue;
+            }
+            totalOk += s.getCount();
+            totalErrors += errors;
+            sb.append(String.format(Locale.ROOT, "%-11s %9d %9.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                                    op.getKey(), s.getCount(), s.getCount() / seconds, errors,
+                                    s.getP50() / 1000.0, s.getValueAtPercentile(90) / 1000.0,
+                                    s.getP99() / 1000.0, s.getP999() / 1000.0, s.getMaxMicros() / 1000.0));
+        }
+        sb.append(String.format(Locale.ROOT, "%-11s %9d %9.1f %8d%n", "total", totalOk, totalOk / seconds, totalErrors));
+        if (missedArrivals.sum() > 0) {
+            sb.append("missed arrivals (server could not keep up with --rate): ").append(missedArrivals.sum())
+              .append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,144 @@
+package com.drivelite.loadgen;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+/**
+ * Chạy virtual users theo một trong hai chế độ:
+ *
+ * - Closed loop: mỗi user làm thao tác kế tiếp ngay khi thao tác trước xong (+ think time).
+ *   Server chậm → tải giảm theo, giống N user thật ngồi trước máy.
+ * - Open loop (--rate): arrival sinh theo lịch cố định bất kể server nhanh hay chậm,
+ *   user rảnh nhận arrival từ hàng đợi. Latency = hoàn thành − thời điểm arrival theo lịch,
+ *   nên không bị coordinated omission khi server nghẽn.
+ */
+public class LoadRunner {
+
+    private static final Logger LOG = Log.getLogger("LOADGEN");
+
+    private final LoadGenConfig config;
+    private final List<VirtualUser> users;
+    private final LoadReport report = new LoadReport();
+
+    private long measureStart;
+    private long deadline;
+
+    public LoadRunner(LoadGenConfig config, List<VirtualUser> users) {
+        this.config = config;
+        this.users = users;
+    }
+
+    /**
+     * Chạy warmup + thời gian đo, chờ các thao tác đang dở xong.
+     *
+     * @return độ dài cửa sổ đo (nanos) để tính throughput
+     */
+    public long run() throws InterruptedException {
+        long start = System.nanoTime();
+        measureStart = start + TimeUnit.SECONDS.toNanos(config.warmupSeconds);
+        deadline = measureStart + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+
+        BlockingQueue<Long> arrivals = config.isOpenLoop() ? new LinkedBlockingQueue<>() : null;
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            VirtualUser user = users.get(i);
+            Random random = new Random(config.seed + i);
+            Runnable loop = arrivals != null
+                ? () -> openLoopWorker(user, random, arrivals)
+                : () -> closedLoopWorker(user, random);
+            Thread worker = new Thread(loop, "loadgen-user-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        if (arrivals != null) {
+            scheduleArrivals(start, arrivals);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (arrivals != null) {
+            report.recordMissedArrivals(arrivals.size());
+        }
+        return deadline - measureStart;
+    }
+
+    public LoadReport getReport() {
+        return report;
+    }
+
+    private void closedLoopWorker(VirtualUser user, Random random) {
+        while (System.nanoTime() < deadline) {
+            long startedAt = System.nanoTime();
+            runOperation(user, config.mix.next(random), random, startedAt);
+            if (config.thinkMillis > 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(config.thinkMillis));
+            }
+        }
+    }
+
+    private void openLoopWorker(VirtualUser user, Random random, BlockingQueue<Long> arrivals) {
+        while (true) {
+            Long intendedStart;
+            try {
+                intendedStart = arrivals.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (intendedStart == null) {
+                return;
+            }
+            if (System.nanoTime() >= deadline) {
+                report.recordMissedArrivals(1);
+                return;
+            }
+            runOperation(user, config.mix.next(random), random, intendedStart);
+        }
+    }
+
+    /**
+     * Sinh arrival đều đặn theo --rate; mỗi arrival mang thời điểm lẽ ra phải bắt đầu.
+     */
+    private void scheduleArrivals(long start, BlockingQueue<Long> arrivals) {
+        double intervalNanos = 1e9 / config.rate;
+        for (long i = 0; ; i++) {
+            long intendedStart = start + (long) (i * intervalNanos);
+            if (intendedStart >= deadline) {
+                return;
+            }
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            arrivals.add(intendedStart);
+        }
+    }
+
+    private void runOperation(VirtualUser user, Operation op, Random random, long intendedStart) {
+        boolean ok = true;
+        try {
+            user.execute(op, random);
+        } catch (IOException e) {
+            ok = false;
+            user.onConnectionError();
+            LOG.debug(user.getEmail() + " " + op.getKey() + " connection error: " + e.getMessage());
+        } catch (Exception e) {
+            ok = false;
+            LOG.debug(user.getEmail() + " " + op.getKey() + " failed: " + e.getMessage());
+        }
+        // Thao tác bắt đầu trong warmup không được tính; thao tác xong sau deadline vẫn tính
+        // (bỏ chúng sẽ giấu đúng những request chậm nhất)
+        if (intendedStart >= measureStart) {
+            report.record(op, System.nanoTime() - intendedStart, ok);
+        }
+    }
+}
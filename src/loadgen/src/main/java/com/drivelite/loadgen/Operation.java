@@ -0,0 +1,33 @@
+package com.drivelite.loadgen;
+
+/**
+ * Các thao tác một virtual user có thể thực hiện (tên dùng trong --mix).
+ */
+public enum Operation {
+    LOGIN("login"),
+    LIST("list"),
+    UPLOAD("upload"),
+    DOWNLOAD("download"),
+    SHARE("share"),
+    VERSIONS("versions"),
+    NEW_VERSION("newversion");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static Operation fromKey(String key) {
+        for (Operation op : values()) {
+            if (op.key.equalsIgnoreCase(key.trim())) {
+                return op;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + key);
+    }
+}
@@ -0,0 +1,149 @@
+package com.drivelite.loadgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.drivelite.client.model.FileItem;
+import com.drivelite.client.net.TcpClient;
+import com.drivelite.client.service.AuthService;
+import com.drivelite.client.service.FileService;
+import com.drivelite.client.service.ServiceException;
+
+/**
+ * Một user giả lập: một TcpClient (một connection) + AuthService/FileService như client desktop.
+ * Chỉ được dùng bởi một worker thread.
+ */
+public class VirtualUser {
+
+    private final int index;
+    private final LoadGenConfig config;
+    private final File uploadSource;
+    private final File downloadTarget;
+
+    private final List<Integer> ownFiles = new ArrayList<>();
+    private final Map<Integer, Integer> shareOffsets = new HashMap<>();
+
+    private TcpClient client;
+    private AuthService authService;
+    private FileService fileService;
+
+    public VirtualUser(int index, LoadGenConfig config, File uploadSource, File scratchDir) {
+        this.index = index;
+        this.config = config;
+        this.uploadSource = uploadSource;
+        this.downloadTarget = new File(scratchDir, "download-" + index + ".bin");
+    }
+
+    public String getEmail() {
+        return config.emailOf(index);
+    }
+
+    /**
+     * Kết nối, (tùy chọn) đăng ký, đăng nhập và upload một file đầu tiên
+     * để download/share/versions luôn có file để thao tác.
+     */
+    public void prepare() throws Exception {
+        connect();
+        if (config.register) {
+            try {
+                authService.register(getEmail(), config.password, "Load Gen " + index);
+            } catch (ServiceException e) {
+                // Đã đăng ký từ lần chạy trước
+            }
+        }
+        authService.login(getEmail(), config.password);
+        ownFiles.add(fileService.uploadFile(uploadSource, null).getFileId());
+    }
+
+    public void execute(Operation op, Random random) throws Exception {
+        ensureConnected();
+        switch (op) {
+            case LOGIN:
+                authService.login(getEmail(), config.password);
+                break;
+            case LIST:
+                fileService.listMyFiles();
+                break;
+            case UPLOAD: {
+                FileItem item = fileService.uploadFile(uploadSource, null);
+                ownFiles.add(item.getFileId());
+                break;
+            }
+            case DOWNLOAD:
+                fileService.downloadFile(randomOwnFile(random), downloadTarget, null);
+                break;
+            case SHARE:
+                share();
+                break;
+            case VERSIONS:
+                fileService.getVersions(randomOwnFile(random));
+                break;
+            case NEW_VERSION:
+                fileService.uploadNewVersion(randomOwnFile(random), uploadSource, "loadgen", null);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + op);
+        }
+    }
+
+    /**
+     * Connection lỗi (timeout, reset): đóng hẳn để lần sau connect lại và login lại.
+     */
+    public void onConnectionError() {
+        if (client != null) {
+            client.disconnect();
+        }
+    }
+
+    public void close() {
+        if (client != null) {
+            client.close();
+        }
+        downloadTarget.delete();
+    }
+
+    private void connect() throws Exception {
+        client = new TcpClient();
+        client.setPreferredEncoding(config.encoding);
+        if (config.ssl) {
+            client.enableSSLTrustAll();
+        }
+        client.connect(config.host, config.port);
+        authService = new AuthService(client);
+        fileService = new FileService(client);
+    }
+
+    private void ensureConnected() throws IOException, ServiceException {
+        if (!client.isConnected()) {
+            client.ensureConnected();
+            authService.login(getEmail(), config.password);
+        }
+    }
+
+    private int randomOwnFile(Random random) {
+        return ownFiles.get(random.nextInt(ownFiles.size()));
+    }
+
+    /**
+     * Share file của mình cho user kế tiếp chưa được share (tránh CONFLICT "already has permission").
+     */
+    private void share() throws IOException, ServiceException {
+        if (config.users < 2) {
+            throw new IllegalStateException("share needs at least 2 users");
+        }
+        for (int fileId : ownFiles) {
+            int offset = shareOffsets.getOrDefault(fileId, 1);
+            if (offset < config.users) {
+                shareOffsets.put(fileId, offset + 1);
+                fileService.shareFile(fileId, config.emailOf((index + offset) % config.users), "VIEW");
+                return;
+            }
+        }
+        throw new IllegalStateException("All files already shared with every user");
+    }
+}
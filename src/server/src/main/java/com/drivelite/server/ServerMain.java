@@ -4,12 +4,20 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.util.NetworkUtils;
 import com.drivelite.server.db.DatabaseConfig;
 import com.drivelite.server.db.DatabaseManager;
+import com.drivelite.server.db.SqlStatistics;
 import com.drivelite.server.handler.HandlerRegistry;
+import com.drivelite.server.metrics.MetricsHttpServer;
+import com.drivelite.server.metrics.MetricsRegistry;
 import com.drivelite.server.net.RequestDispatcher;
 import com.drivelite.server.net.TcpServer;
+import com.drivelite.server.service.ColdTierService;
+import com.drivelite.server.service.ReplicationService;
+import com.drivelite.server.service.StorageService;
 
 import io.github.cdimascio.dotenv.Dotenv;
 
@@ -18,6 +26,10 @@ import io.github.cdimascio.dotenv.Dotenv;
  */
 public class ServerMain {
 
+    private static final Logger LOG = Log.getLogger("INIT");
+    private static final Logger SSL_LOG = Log.getLogger("SSL");
+    private static final Logger SHUTDOWN_LOG = Log.getLogger("SHUTDOWN");
+
     private static final int DEFAULT_PORT = 9000;
     private static final int DEFAULT_MAX_CLIENTS = 50;
 
@@ -46,23 +58,28 @@ public class ServerMain {
                     .ignoreIfMissing()
                     .load();
 
+            // Level log: LOG_LEVEL (mặc định INFO), LOG_LEVELS=DISPATCHER=WARN,... cho từng subsystem
+            Log.configure(dotenv.get("LOG_LEVEL", null), dotenv.get("LOG_LEVELS", null));
+
             int port = Integer.parseInt(dotenv.get("SERVER_PORT", String.valueOf(DEFAULT_PORT)));
             int maxClients = DEFAULT_MAX_CLIENTS;
 
             // Khởi tạo Database
-            System.out.println("[INIT] Initializing database connection...");
+            LOG.info("Initializing database connection...");
             DatabaseConfig dbConfig = new DatabaseConfig();
             DatabaseManager.initialize(dbConfig);
             
             if (DatabaseManager.getInstance().testConnection()) {
-                System.out.println("[INIT] Database connection OK");
+                LOG.info("Database connection OK");
             } else {
-                System.err.println("[INIT] Database connection FAILED!");
+                LOG.error("Database connection FAILED!");
                 return;
             }
 
             // Tạo RequestDispatcher và đăng ký handlers
-            RequestDispatcher dispatcher = new RequestDispatcher();
+            int pipelineWorkers = Integer.parseInt(dotenv.get("PIPELINE_WORKERS",
+                String.valueOf(RequestDispatcher.DEFAULT_PIPELINE_WORKERS)));
+            RequestDispatcher dispatcher = new RequestDispatcher(pipelineWorkers);
             registerHandlers(dispatcher);
 
             // Tạo và start TCP Server
@@ -80,29 +97,66 @@ public class ServerMain {
                     }
                     server.enableSSL(ksPath.toString(), keystorePassword);
                 } catch (Exception e) {
-                    System.err.println("[SSL] Failed to enable SSL: " + e.getMessage());
-                    System.err.println("[SSL] Running without encryption!");
+                    SSL_LOG.error("Failed to enable SSL: " + e.getMessage());
+                    SSL_LOG.warn("Running without encryption!");
                 }
             } else {
-                System.out.println("[SSL] No keystore configured. Running without encryption.");
-                System.out.println("[SSL] To enable: set SSL_KEYSTORE_PATH and SSL_KEYSTORE_PASSWORD in .env");
+                SSL_LOG.info("No keystore configured. Running without encryption.");
+                SSL_LOG.info("To enable: set SSL_KEYSTORE_PATH and SSL_KEYSTORE_PASSWORD in .env");
             }
 
+            // Background jobs: pack compaction + nén version cũ (cold tier) + replication
+            StorageService.getInstance().startMaintenance();
+            ColdTierService.getInstance().start();
+            ReplicationService.getInstance().start();
+
+            // Metrics endpoint cho Prometheus (tắt nếu không cấu hình METRICS_PORT)
+            MetricsHttpServer metricsServer = startMetricsServer(dotenv);
+
             // Hiển thị danh sách IP để client connect
             NetworkUtils.printAvailableAddresses();
 
             // Xử lý shutdown gracefully (Ctrl+C)
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-                System.out.println("\n[SHUTDOWN] Received shutdown signal...");
+                SHUTDOWN_LOG.info("Received shutdown signal...");
+                ColdTierService.getInstance().stop();
                 server.stop();
+                dispatcher.shutdown();
+                ReplicationService.getInstance().stop();
+                if (metricsServer != null) {
+                    metricsServer.stop();
+                }
+                StorageService.getInstance().stopMaintenance();
+                SHUTDOWN_LOG.info(MetricsRegistry.getInstance().formatReport());
+                SHUTDOWN_LOG.info(SqlStatistics.getInstance().formatTopN(10));
+                Log.shutdown();
             }));
 
             // Start server (blocking)
             server.start();
 
         } catch (Exception e) {
-            System.err.println("[ERROR] Server failed to start: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Server failed to start: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Start HTTP endpoint /metrics nếu có METRICS_PORT.
+     * Lỗi bind chỉ được log, server vẫn chạy bình thường.
+     */
+    private static MetricsHttpServer startMetricsServer(Dotenv dotenv) {
+        String metricsPort = dotenv.get("METRICS_PORT", "");
+        if (metricsPort.isBlank()) {
+            return null;
+        }
+        try {
+            MetricsHttpServer metricsServer = new MetricsHttpServer(
+                dotenv.get("METRICS_BIND_ADDRESS", "127.0.0.1"), Integer.parseInt(metricsPort.trim()));
+            metricsServer.start();
+            return metricsServer;
+        } catch (Exception e) {
+            LOG.error("Failed to start metrics endpoint: " + e.getMessage());
+            return null;
         }
     }
 
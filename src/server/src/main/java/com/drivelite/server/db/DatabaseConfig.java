@@ -13,6 +13,9 @@ public class DatabaseConfig {
     private final String databaseName;
     private final String username;
     private final String password;
+    private final long slowQueryMillis;
+    private final SqlDialect dialect;
+    private final String h2Path;
 
     public DatabaseConfig() {
         // Load từ file .env ở thư mục gốc project (File_Transfer/)
@@ -26,6 +29,9 @@ public class DatabaseConfig {
         this.databaseName = dotenv.get("DB_NAME", "your_db_name");
         this.username = dotenv.get("DB_USER", "your_db_user");
         this.password = dotenv.get("DB_PASSWORD", "your_db_password");
+        this.slowQueryMillis = Long.parseLong(dotenv.get("DB_SLOW_QUERY_MS", "200"));
+        this.dialect = SqlDialect.parse(dotenv.get("DB_DIALECT", "sqlserver"));
+        this.h2Path = dotenv.get("DB_H2_PATH", "");
     }
 
     /**
@@ -54,22 +60,36 @@ public class DatabaseConfig {
     }
 
     public DatabaseConfig(String host, int port, String databaseName, String username, String password) {
+        this(SqlDialect.SQLSERVER, host, port, databaseName, username, password, null);
+    }
+
+    private DatabaseConfig(SqlDialect dialect, String host, int port, String databaseName,
+                           String username, String password, String h2Path) {
         this.host = host;
         this.port = port;
         this.databaseName = databaseName;
         this.username = username;
         this.password = password;
+        this.slowQueryMillis = 200;
+        this.dialect = dialect;
+        this.h2Path = h2Path;
+    }
+
+    /**
+     * Cấu hình H2 embedded (benchmark, load test, dev không có SQL Server).
+     *
+     * @param h2Path Đường dẫn file DB (không gồm .mv.db), null/rỗng = in-memory
+     */
+    public static DatabaseConfig embedded(String h2Path) {
+        return new DatabaseConfig(SqlDialect.H2, null, 0, "drivelite", "sa", "", h2Path);
     }
 
     /**
-     * Tạo JDBC URL cho SQL Server
-     * Format: jdbc:sqlserver://host:port;databaseName=xxx;encrypt=false;trustServerCertificate=true
+     * Tạo JDBC URL theo dialect.
+     * SQL Server: jdbc:sqlserver://host:port;databaseName=xxx;encrypt=false;trustServerCertificate=true
      */
     public String getJdbcUrl() {
-        return String.format(
-            "jdbc:sqlserver://%s:%d;databaseName=%s;encrypt=false;trustServerCertificate=true",
-            host, port, databaseName
-        );
+        return dialect.jdbcUrl(this);
     }
 
     public String getHost() { return host; }
@@ -77,6 +97,9 @@ public class DatabaseConfig {
     public String getDatabaseName() { return databaseName; }
     public String getUsername() { return username; }
     public String getPassword() { return password; }
+    public long getSlowQueryMillis() { return slowQueryMillis; }
+    public SqlDialect getDialect() { return dialect; }
+    public String getH2Path() { return h2Path; }
 
     @Override
     public String toString() {
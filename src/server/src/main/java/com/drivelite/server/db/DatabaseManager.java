@@ -4,24 +4,42 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
 /**
  * Quản lý kết nối database.
  * Sử dụng pattern Singleton để đảm bảo chỉ có 1 instance.
  */
 public class DatabaseManager {
+    private static final Logger LOG = Log.getLogger("DB");
     private static DatabaseManager instance;
     private final DatabaseConfig config;
 
     private DatabaseManager(DatabaseConfig config) {
         this.config = config;
+        SqlStatistics.getInstance().setSlowQueryThresholdMillis(config.getSlowQueryMillis());
     }
 
     /**
      * Khởi tạo DatabaseManager với config.
      * Gọi 1 lần khi server start.
+     * 
+     * Với DB embedded (H2), schema được tạo từ V1__init_schema.sql nếu DB còn trống.
+     * 
+     * @throws IllegalStateException nếu không tạo được schema cho DB embedded
      */
     public static synchronized void initialize(DatabaseConfig config) {
         if (instance == null) {
+            LOG.info("Dialect: " + config.getDialect() + " (" + config.getJdbcUrl() + ")");
+            if (config.getDialect().isEmbedded()) {
+                try (Connection connection = DriverManager.getConnection(
+                        config.getJdbcUrl(), config.getUsername(), config.getPassword())) {
+                    SchemaInitializer.applyIfMissing(connection);
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Cannot initialize embedded database: " + e.getMessage(), e);
+                }
+            }
             instance = new DatabaseManager(config);
         }
     }
@@ -41,15 +59,20 @@ public class DatabaseManager {
      * Tạo một Connection mới đến database.
      * Caller có trách nhiệm đóng connection sau khi dùng xong (dùng try-with-resources).
      * 
+     * Thời gian từ lúc mở đến lúc đóng connection (= thời gian của một repository call)
+     * được ghi vào MetricsRegistry; mỗi statement phát JFR event (xem {@link InstrumentedConnection}).
+     * 
      * @return Connection mới
      * @throws SQLException nếu không kết nối được
      */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(
+        long startedAt = System.nanoTime();
+        Connection connection = DriverManager.getConnection(
             config.getJdbcUrl(),
             config.getUsername(),
             config.getPassword()
         );
+        return InstrumentedConnection.wrap(connection, startedAt);
     }
 
     /**
@@ -61,7 +84,7 @@ public class DatabaseManager {
         try (Connection conn = getConnection()) {
             return conn.isValid(5); // timeout 5 giây
         } catch (SQLException e) {
-            System.err.println("Lỗi kết nối database: " + e.getMessage());
+            LOG.error("Lỗi kết nối database: " + e.getMessage());
             return false;
         }
     }
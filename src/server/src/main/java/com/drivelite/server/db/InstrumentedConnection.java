@@ -0,0 +1,213 @@
+package com.drivelite.server.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.drivelite.server.jfr.RepositoryQueryEvent;
+import com.drivelite.server.metrics.MetricsRegistry;
+
+/**
+ * Lớp instrumentation mỏng quanh JDBC Connection mà repositories dùng.
+ *
+ * - Connection: đo thời gian giữ connection (= một repository call) vào MetricsRegistry
+ * - PreparedStatement: mỗi lần execute phát {@link RepositoryQueryEvent} (JFR) và ghi vào
+ *   {@link SqlStatistics} với tên "Repository.method" của caller, số rows và thời gian
+ *
+ * Repositories không phải sửa gì: vẫn prepareStatement/executeQuery như cũ.
+ */
+final class InstrumentedConnection implements InvocationHandler {
+
+    private static final String REPOSITORY_PACKAGE = "com.drivelite.server.db.repository.";
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private final Connection target;
+    private final long startedAt;
+    private boolean closed;
+
+    private InstrumentedConnection(Connection target, long startedAt) {
+        this.target = target;
+        this.startedAt = startedAt;
+    }
+
+    static Connection wrap(Connection connection, long startedAt) {
+        MetricsRegistry.getInstance().dbConnectionOpened();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class }, new InstrumentedConnection(connection, startedAt));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if ("close".equals(name) && !closed) {
+            closed = true;
+            MetricsRegistry metrics = MetricsRegistry.getInstance();
+            metrics.recordRepository(System.nanoTime() - startedAt);
+            metrics.dbConnectionClosed();
+        }
+        Object result = invokeTarget(target, method, args);
+        if ("prepareStatement".equals(name) && result instanceof PreparedStatement) {
+            return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new InstrumentedStatement((PreparedStatement) result, (String) args[0], callerName()));
+        }
+        return result;
+    }
+
+    /**
+     * "Repository.method" gần nhất trên stack (vd: "FileRepository.findById").
+     */
+    private static String callerName() {
+        return WALKER.walk(frames -> frames
+            .filter(f -> f.getClassName().startsWith(REPOSITORY_PACKAGE))
+            .findFirst()
+            .map(f -> f.getClassName().substring(REPOSITORY_PACKAGE.length()) + "." + f.getMethodName())
+            .orElse("unknown"));
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Theo dõi từng lần execute của một PreparedStatement.
+     * executeQuery kết thúc khi ResultSet (hoặc statement) đóng để tính cả thời gian fetch.
+     */
+    private static final class InstrumentedStatement implements InvocationHandler {
+        private final PreparedStatement target;
+        private final String sql;
+        private final String statementName;
+        private final List<Object> params = new ArrayList<>();
+        private Execution current;
+
+        InstrumentedStatement(PreparedStatement target, String sql, String statementName) {
+            this.target = target;
+            this.sql = sql;
+            this.statementName = statementName;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute") && (args == null || args.length == 0)) {
+                finishCurrent();
+                Execution execution = new Execution(statementName, sql, new ArrayList<>(params));
+                Object result;
+                try {
+                    result = invokeTarget(target, method, args);
+                } catch (Throwable t) {
+                    execution.failed = true;
+                    execution.finish();
+                    throw t;
+                }
+                if (result instanceof ResultSet) {
+                    current = execution;
+                    return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                        new Class<?>[] { ResultSet.class }, new CountingResultSet((ResultSet) result, execution));
+                }
+                if (result instanceof Integer) {
+                    execution.rows = (Integer) result;
+                } else if (result instanceof Long) {
+                    execution.rows = (Long) result;
+                } else if (result instanceof int[]) {
+                    for (int count : (int[]) result) {
+                        execution.rows += Math.max(count, 0);
+                    }
+                }
+                execution.finish();
+                return result;
+            }
+            if ("close".equals(name)) {
+                finishCurrent();
+            } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                // setString(1, ...), setInt(2, ...): giữ giá trị để redact khi log slow query
+                int index = (Integer) args[0];
+                while (params.size() <= index) {
+                    params.add(null);
+                }
+                params.set(index, args[1]);
+            } else if ("clearParameters".equals(name)) {
+                params.clear();
+            }
+            return invokeTarget(target, method, args);
+        }
+
+        private void finishCurrent() {
+            if (current != null) {
+                current.finish();
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Đếm rows qua ResultSet.next(), kết thúc execution khi close.
+     */
+    private static final class CountingResultSet implements InvocationHandler {
+        private final ResultSet target;
+        private final Execution execution;
+
+        CountingResultSet(ResultSet target, Execution execution) {
+            this.target = target;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(target, method, args);
+            String name = method.getName();
+            if ("next".equals(name) && Boolean.TRUE.equals(result)) {
+                execution.rows++;
+            } else if ("close".equals(name)) {
+                execution.finish();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Một lần thực thi statement.
+     */
+    private static final class Execution {
+        private final RepositoryQueryEvent event = new RepositoryQueryEvent();
+        private final String statementName;
+        private final String sql;
+        private final List<Object> params;
+        private final long startedAt = System.nanoTime();
+        private long rows;
+        private boolean failed;
+        private boolean finished;
+
+        Execution(String statementName, String sql, List<Object> params) {
+            this.statementName = statementName;
+            this.sql = sql;
+            this.params = params;
+            event.begin();
+        }
+
+        void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            SqlStatistics.getInstance().record(statementName, sql, System.nanoTime() - startedAt, rows, failed, params);
+            event.end();
+            if (event.shouldCommit()) {
+                event.statement = statementName;
+                event.sql = sql;
+                event.rows = rows;
+                event.commit();
+            }
+        }
+    }
+}
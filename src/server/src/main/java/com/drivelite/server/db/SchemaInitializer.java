@@ -0,0 +1,71 @@
+package com.drivelite.server.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+/**
+ * Tạo schema cho DB embedded từ migration script trong classpath (db/V1__init_schema.sql).
+ * Chỉ chạy khi DB chưa có bảng Users, nên khởi động lại với H2 file không tạo lại schema.
+ */
+final class SchemaInitializer {
+
+    private static final Logger LOG = Log.getLogger("DB");
+    static final String INIT_SCRIPT = "db/V1__init_schema.sql";
+
+    private SchemaInitializer() {
+    }
+
+    static void applyIfMissing(Connection connection) throws SQLException {
+        if (tableExists(connection, "Users")) {
+            return;
+        }
+        String script;
+        try (InputStream in = SchemaInitializer.class.getClassLoader().getResourceAsStream(INIT_SCRIPT)) {
+            if (in == null) {
+                throw new SQLException("Schema script not found in classpath: " + INIT_SCRIPT);
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Cannot read " + INIT_SCRIPT + ": " + e.getMessage(), e);
+        }
+
+        int count = 0;
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : splitStatements(script)) {
+                stmt.execute(sql);
+                count++;
+            }
+        }
+        LOG.info("Created schema from " + INIT_SCRIPT + " (" + count + " statements)");
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getTables(null, null, table, new String[] { "TABLE" })) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Bỏ comment "--" và tách theo ';' (script không có ';' trong string literal).
+     */
+    static String[] splitStatements(String script) {
+        StringBuilder sb = new StringBuilder(script.length());
+        for (String line : script.split("\\R")) {
+            int comment = line.indexOf("--");
+            sb.append(comment >= 0 ? line.substring(0, comment) : line).append('\n');
+        }
+        return Arrays.stream(sb.toString().split(";"))
+            .map(String::trim)
+            .filter(sql -> !sql.isEmpty())
+            .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,68 @@
+package com.drivelite.server.db;
+
+/**
+ * Backend database được hỗ trợ (DB_DIALECT trong .env).
+ *
+ * Repositories viết bằng T-SQL (TOP, GETDATE(), IDENTITY, NVARCHAR...). H2 chạy ở
+ * MODE=MSSQLServer nên cùng câu SQL chạy được trên cả hai; mọi khác biệt giữa
+ * các backend (JDBC URL, có cần tạo schema khi start hay không) nằm ở đây.
+ */
+public enum SqlDialect {
+
+    /**
+     * SQL Server (production). Schema được tạo bằng migration script chạy tay.
+     */
+    SQLSERVER(false) {
+        @Override
+        public String jdbcUrl(DatabaseConfig config) {
+            return String.format(
+                "jdbc:sqlserver://%s:%d;databaseName=%s;encrypt=false;trustServerCertificate=true",
+                config.getHost(), config.getPort(), config.getDatabaseName()
+            );
+        }
+    },
+
+    /**
+     * H2 embedded (dev box, benchmark, load test không cần SQL Server).
+     * DB_H2_PATH trống = in-memory (mất khi tắt server), ngược lại là file {path}.mv.db.
+     * Schema được tạo từ V1__init_schema.sql khi DB còn trống.
+     */
+    H2(true) {
+        @Override
+        public String jdbcUrl(DatabaseConfig config) {
+            String path = config.getH2Path();
+            String location = (path == null || path.isBlank()) ? "mem:drivelite" : "file:" + path;
+            return "jdbc:h2:" + location +
+                   ";MODE=MSSQLServer;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+        }
+    };
+
+    private final boolean embedded;
+
+    SqlDialect(boolean embedded) {
+        this.embedded = embedded;
+    }
+
+    public abstract String jdbcUrl(DatabaseConfig config);
+
+    /**
+     * true nếu DB chạy trong process server và schema phải được tạo khi khởi động.
+     */
+    public boolean isEmbedded() {
+        return embedded;
+    }
+
+    /**
+     * Parse giá trị DB_DIALECT ("sqlserver", "h2"); mặc định SQLSERVER.
+     */
+    public static SqlDialect parse(String value) {
+        if (value == null || value.isBlank()) {
+            return SQLSERVER;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported DB_DIALECT: " + value + " (expected sqlserver or h2)");
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.drivelite.server.db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+/**
+ * Thống kê SQL theo statement (tên "Repository.method" của caller, xem {@link InstrumentedConnection}):
+ * số lần chạy, tổng/max thời gian, tổng rows, số lần lỗi.
+ *
+ * - Statement chạy lâu hơn ngưỡng (DB_SLOW_QUERY_MS) được log WARN kèm SQL và
+ *   parameters đã redact (chỉ giữ kiểu và độ dài, không log giá trị: email, token, hash...)
+ * - {@link #formatTopN} cho báo cáo top-N (GET /sql trên metrics endpoint, log khi shutdown):
+ *   statement có count cao bất thường so với số request thường là vòng lặp N+1
+ *
+ * Mỗi lần record chỉ đụng LongAdder/AtomicLong của statement đó, không lock.
+ */
+public class SqlStatistics {
+
+    private static final Logger LOG = Log.getLogger("SQL");
+    private static final SqlStatistics INSTANCE = new SqlStatistics();
+
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private volatile long slowThresholdNanos = 200_000_000L;
+
+    private SqlStatistics() {
+    }
+
+    public static SqlStatistics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param millis Ngưỡng slow query; <= 0 = tắt slow-query log
+     */
+    public void setSlowQueryThresholdMillis(long millis) {
+        this.slowThresholdNanos = millis > 0 ? millis * 1_000_000L : Long.MAX_VALUE;
+    }
+
+    /**
+     * Ghi nhận một lần thực thi statement.
+     *
+     * @param params Parameters theo index (1-based, phần tử 0 bỏ trống), có thể null
+     */
+    public void record(String statement, String sql, long nanos, long rows, boolean failed, List<Object> params) {
+        StatementStats stats = statements.computeIfAbsent(statement, name -> new StatementStats(name, sql));
+        stats.count.increment();
+        stats.totalNanos.add(nanos);
+        stats.rows.add(rows);
+        stats.maxNanos.accumulateAndGet(nanos, Math::max);
+        if (failed) {
+            stats.errors.increment();
+        }
+
+        if (nanos >= slowThresholdNanos) {
+            LOG.warn("Slow query " + (nanos / 1_000_000) + "ms " + statement + " rows=" + rows +
+                     (failed ? " (failed)" : "") + ": " + compact(sql) + " params=" + redact(params));
+        }
+    }
+
+    /**
+     * Snapshot của các statement, sắp theo tổng thời gian giảm dần.
+     */
+    public List<Snapshot> snapshot() {
+        List<Snapshot> result = new ArrayList<>(statements.size());
+        for (StatementStats stats : statements.values()) {
+            result.add(new Snapshot(stats));
+        }
+        result.sort(Comparator.comparingLong(Snapshot::getTotalNanos).reversed());
+        return result;
+    }
+
+    public void reset() {
+        statements.clear();
+    }
+
+    /**
+     * Báo cáo text top-N statement theo tổng thời gian.
+     */
+    public String formatTopN(int limit) {
+        List<Snapshot> all = snapshot();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Top %d SQL statements by total time (%d tracked)%n",
+                                Math.min(limit, all.size()), all.size()));
+        sb.append(String.format(Locale.ROOT, "%-48s %10s %12s %10s %10s %12s %8s%n",
+                                "statement", "count", "total_ms", "mean_ms", "max_ms", "rows", "errors"));
+        for (int i = 0; i < Math.min(limit, all.size()); i++) {
+            Snapshot s = all.get(i);
+            sb.append(String.format(Locale.ROOT, "%-48s %10d %12.1f %10.2f %10.1f %12d %8d%n",
+                                    s.getStatement(), s.getCount(), s.getTotalNanos() / 1e6,
+                                    s.getMeanNanos() / 1e6, s.getMaxNanos() / 1e6, s.getRows(), s.getErrors()));
+            sb.append("    ").append(compact(s.getSql())).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Thay mọi giá trị bằng kiểu (và độ dài với chuỗi/byte[]).
+     */
+    static String redact(List<Object> params) {
+        if (params == null || params.isEmpty()) {
+            return "[]";
+        }
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 1; i < params.size(); i++) {
+            if (i > 1) {
+                sb.append(", ");
+            }
+            Object value = params.get(i);
+            sb.append('?').append(i).append('=');
+            if (value == null) {
+                sb.append("null");
+            } else if (value instanceof CharSequence) {
+                sb.append("String(").append(((CharSequence) value).length()).append(')');
+            } else if (value instanceof byte[]) {
+                sb.append("byte[").append(((byte[]) value).length).append(']');
+            } else {
+                sb.append(value.getClass().getSimpleName());
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String compact(String sql) {
+        return sql == null ? "" : sql.replaceAll("\\s+", " ").trim();
+    }
+
+    private static final class StatementStats {
+        final String statement;
+        final String sql;
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        StatementStats(String statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * Giá trị của một statement tại thời điểm snapshot.
+     */
+    public static final class Snapshot {
+        private final String statement;
+        private final String sql;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long rows;
+        private final long errors;
+
+        Snapshot(StatementStats stats) {
+            this.statement = stats.statement;
+            this.sql = stats.sql;
+            this.count = stats.count.sum();
+            this.totalNanos = stats.totalNanos.sum();
+            this.maxNanos = stats.maxNanos.get();
+            this.rows = stats.rows.sum();
+            this.errors = stats.errors.sum();
+        }
+
+        public String getStatement() { return statement; }
+        public String getSql() { return sql; }
+        public long getCount() { return count; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getMaxNanos() { return maxNanos; }
+        public long getRows() { return rows; }
+        public long getErrors() { return errors; }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+    }
+}
@@ -36,6 +36,51 @@ public class FilePermissionRepository {
         }
     }
 
+    /**
+     * Thêm cùng một permission của user cho nhiều file bằng JDBC batch
+     * trên connection của caller (nằm trong transaction của caller).
+     */
+    public void addPermissions(Connection conn, List<Integer> fileIds, int userId, String permission,
+                               int grantedBy) throws SQLException {
+        if (fileIds.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO FilePermissions (FileId, UserId, Permission, GrantedBy) VALUES (?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int fileId : fileIds) {
+                stmt.setInt(1, fileId);
+                stmt.setInt(2, userId);
+                stmt.setString(3, permission);
+                stmt.setInt(4, grantedBy);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * UserId của mọi user có permission trên file (kể cả OWNER).
+     */
+    public List<Integer> findUserIdsByFileId(int fileId) throws SQLException {
+        String sql = "SELECT UserId FROM FilePermissions WHERE FileId = ?";
+
+        List<Integer> userIds = new ArrayList<>();
+
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, fileId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    userIds.add(rs.getInt("UserId"));
+                }
+            }
+        }
+        return userIds;
+    }
+
     /**
      * Lấy permission của user trên file.
      * Returns: OWNER, EDIT, VIEW, or empty if no permission.
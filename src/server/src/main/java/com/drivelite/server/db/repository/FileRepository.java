@@ -51,6 +51,47 @@ public class FileRepository {
         }
     }
 
+    /**
+     * Tạo nhiều file trong một transaction (upload batch).
+     * Insert từng dòng để lấy generated key (JDBC batch không trả key trên mọi driver)
+     * nhưng dùng chung một connection và commit một lần.
+     *
+     * @return FileMetadata theo đúng thứ tự originalNames
+     */
+    public List<FileMetadata> createAll(int ownerUserId, List<String> originalNames) throws SQLException {
+        String sql = "INSERT INTO Files (OwnerUserId, OriginalName, CurrentVersion) VALUES (?, ?, 1)";
+        List<FileMetadata> files = new ArrayList<>(originalNames.size());
+
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (String originalName : originalNames) {
+                    stmt.setInt(1, ownerUserId);
+                    stmt.setString(2, originalName);
+                    stmt.executeUpdate();
+
+                    try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                        if (!generatedKeys.next()) {
+                            throw new SQLException("Creating file failed, no ID obtained.");
+                        }
+                        FileMetadata file = new FileMetadata();
+                        file.setFileId(generatedKeys.getInt(1));
+                        file.setOwnerUserId(ownerUserId);
+                        file.setOriginalName(originalName);
+                        file.setCurrentVersion(1);
+                        file.setDeleted(false);
+                        files.add(file);
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        return files;
+    }
+
     /**
      * Tìm file theo ID.
      */
@@ -125,6 +166,24 @@ public class FileRepository {
         }
     }
 
+    /**
+     * Soft delete nhiều file trên connection của caller (nằm trong transaction của caller).
+     */
+    public void deleteAll(Connection conn, List<Integer> fileIds) throws SQLException {
+        if (fileIds.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE Files SET IsDeleted = 1 WHERE FileId = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int fileId : fileIds) {
+                stmt.setInt(1, fileId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     /**
      * Đổi tên file.
      */
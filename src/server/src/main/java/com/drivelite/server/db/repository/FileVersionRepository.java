@@ -61,6 +61,32 @@ public class FileVersionRepository {
         }
     }
 
+    /**
+     * Insert nhiều version bằng JDBC batch trên connection của caller (nằm trong transaction của caller).
+     * Không lấy generated key: versionId của các version này không cần ngay.
+     */
+    public void createAll(Connection conn, List<FileVersion> versions) throws SQLException {
+        if (versions.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO FileVersions (FileId, VersionNumber, StoredPath, SizeBytes, Sha256, UploadedBy, Note) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (FileVersion version : versions) {
+                stmt.setInt(1, version.getFileId());
+                stmt.setInt(2, version.getVersionNumber());
+                stmt.setString(3, version.getStoredPath());
+                stmt.setLong(4, version.getSizeBytes());
+                stmt.setString(5, version.getSha256());
+                stmt.setInt(6, version.getUploadedBy());
+                stmt.setString(7, version.getNote());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     /**
      * Tìm version theo fileId và versionNumber.
      */
@@ -127,6 +153,40 @@ public class FileVersionRepository {
         return Optional.empty();
     }
 
+    /**
+     * Lấy các version cũ (không phải current version) upload trước mốc thời gian,
+     * dùng cho cold tier job. Phân trang theo VersionId (keyset) để duyệt hết bảng.
+     *
+     * @param uploadedBefore Chỉ lấy version upload trước thời điểm này
+     * @param afterVersionId Chỉ lấy VersionId lớn hơn giá trị này (0 cho trang đầu)
+     * @param limit Số dòng tối đa
+     */
+    public List<FileVersion> findColdCandidates(Timestamp uploadedBefore, int afterVersionId, int limit) throws SQLException {
+        String sql = "SELECT TOP (?) v.VersionId, v.FileId, v.VersionNumber, v.StoredPath, v.SizeBytes, v.Sha256, " +
+                     "v.UploadedBy, v.UploadedAt, v.Note " +
+                     "FROM FileVersions v INNER JOIN Files f ON f.FileId = v.FileId " +
+                     "WHERE v.VersionNumber < f.CurrentVersion AND f.IsDeleted = 0 " +
+                     "AND v.UploadedAt < ? AND v.VersionId > ? " +
+                     "ORDER BY v.VersionId";
+        
+        List<FileVersion> versions = new ArrayList<>();
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, limit);
+            stmt.setTimestamp(2, uploadedBefore);
+            stmt.setInt(3, afterVersionId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    versions.add(mapResultSet(rs));
+                }
+            }
+        }
+        return versions;
+    }
+
     private FileVersion mapResultSet(ResultSet rs) throws SQLException {
         FileVersion version = new FileVersion();
         version.setVersionId(rs.getInt("VersionId"));
@@ -3,6 +3,8 @@ package com.drivelite.server.handler;
 import java.sql.SQLException;
 import java.util.Optional;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -20,6 +22,8 @@ import com.drivelite.server.net.ClientContext;
  */
 public class AuthMiddleware {
 
+    private static final Logger LOG = Log.getLogger("AUTH");
+
     private final SessionRepository sessionRepository;
     private final UserRepository userRepository;
 
@@ -80,14 +84,14 @@ public class AuthMiddleware {
             return null; // OK
 
         } catch (SQLException e) {
-            System.err.println("[AUTH] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Authentication error");
         }
     }
 
     /**
      * Kiểm tra request có cần authentication không.
-     * Các request auth (LOGIN, REGISTER, FORGOT_PASSWORD, RESET_PASSWORD, PING) không cần token.
+     * Các request auth (LOGIN, REGISTER, FORGOT_PASSWORD, RESET_PASSWORD) và control (HELLO, PING) không cần token.
      */
     public static boolean requiresAuth(Request request) {
         if (request.getType() == null) {
@@ -99,6 +103,7 @@ public class AuthMiddleware {
             case REGISTER:
             case FORGOT_PASSWORD:
             case RESET_PASSWORD:
+            case HELLO:
             case PING:
                 return false;
             default:
@@ -4,6 +4,8 @@ import java.sql.SQLException;
 import java.util.Map;
 import java.util.Optional;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -12,6 +14,7 @@ import com.drivelite.server.db.repository.FilePermissionRepository;
 import com.drivelite.server.db.repository.FileRepository;
 import com.drivelite.server.net.ClientContext;
 import com.drivelite.server.net.RequestHandler;
+import com.drivelite.server.service.ChangeTracker;
 
 /**
  * Handler cho DELETE_FILE request.
@@ -20,12 +23,16 @@ import com.drivelite.server.net.RequestHandler;
  */
 public class DeleteFileHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("DELETE_FILE");
+
     private final FileRepository fileRepository;
     private final FilePermissionRepository permissionRepository;
+    private final ChangeTracker changeTracker;
 
     public DeleteFileHandler() {
         this.fileRepository = new FileRepository();
         this.permissionRepository = new FilePermissionRepository();
+        this.changeTracker = ChangeTracker.getInstance();
     }
 
     @Override
@@ -59,8 +66,8 @@ public class DeleteFileHandler implements RequestHandler {
 
             // 4. Kiểm tra quyền OWNER
             if (!permissionRepository.isOwner(fileId, userId)) {
-                System.out.println("[DELETE_FILE] Forbidden: userId=" + userId + 
-                                 " is not OWNER of fileId=" + fileId);
+                LOG.info("Forbidden: userId=" + userId + 
+                       " is not OWNER of fileId=" + fileId);
                 return Response.error(ResponseCode.FORBIDDEN, "Only OWNER can delete file");
             }
 
@@ -69,10 +76,11 @@ public class DeleteFileHandler implements RequestHandler {
             if (!deleted) {
                 return Response.error(ResponseCode.SERVER_ERROR, "Failed to delete file");
             }
+            changeTracker.fileChanged(fileId);
 
-            System.out.println("[DELETE_FILE] Success: fileId=" + fileId + 
-                             ", fileName=" + file.getOriginalName() + 
-                             ", by userId=" + userId);
+            LOG.info("Success: fileId=" + fileId + 
+                   ", fileName=" + file.getOriginalName() + 
+                   ", by userId=" + userId);
 
             return Response.success("File deleted successfully", Map.of(
                 "fileId", fileId,
@@ -80,10 +88,10 @@ public class DeleteFileHandler implements RequestHandler {
             ));
 
         } catch (SQLException e) {
-            System.err.println("[DELETE_FILE] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[DELETE_FILE] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Delete failed");
         }
     }
@@ -1,11 +1,17 @@
 package com.drivelite.server.handler;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
+import com.drivelite.common.compression.ChunkedCompressionOutputStream;
+import com.drivelite.common.compression.CompressionCodec;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -14,8 +20,12 @@ import com.drivelite.server.db.entity.FileVersion;
 import com.drivelite.server.db.repository.FilePermissionRepository;
 import com.drivelite.server.db.repository.FileRepository;
 import com.drivelite.server.db.repository.FileVersionRepository;
+import com.drivelite.server.jfr.DownloadStreamEvent;
 import com.drivelite.server.net.ClientContext;
+import com.drivelite.server.service.CompressionPolicy;
+import com.drivelite.server.service.ReplicationService;
 import com.drivelite.server.service.StorageService;
+import com.drivelite.server.storage.FailoverInputStream;
 
 /**
  * Handler cho DOWNLOAD_BEGIN request.
@@ -26,21 +36,38 @@ import com.drivelite.server.service.StorageService;
  * 3. Server trả về FILE_META { fileName, fileSize, sha256, versionNumber }
  * 4. Client gửi READY
  * 5. Server stream raw bytes (exactly fileSize bytes)
+ *
+ * Client đã có nội dung đúng sha256 (cache local) thì gửi CANCEL thay cho READY:
+ * server bỏ bước 5, connection dùng tiếp được.
+ *
+ * Nếu client gửi kèm "compression": ["LZ4", ...] và file nén được,
+ * FILE_META có thêm "compression" và bước 5 dùng chunked compression framing.
+ *
+ * Nếu bật replication, đọc primary lỗi (khi mở hoặc giữa chừng) sẽ chuyển sang bản replica.
+ *
+ * Download tiếp sau khi mất kết nối: client gửi kèm "offset" (số bytes đã có), FILE_META trả lại
+ * "offset" và bước 5 chỉ stream fileSize - offset bytes cuối.
  */
 public class DownloadHandler {
 
+    private static final Logger LOG = Log.getLogger("DOWNLOAD");
+
     private static final int BUFFER_SIZE = 8192; // 8KB buffer
 
     private final FileRepository fileRepository;
     private final FileVersionRepository versionRepository;
     private final FilePermissionRepository permissionRepository;
     private final StorageService storageService;
+    private final CompressionPolicy compressionPolicy;
+    private final ReplicationService replicationService;
 
     public DownloadHandler() {
         this.fileRepository = new FileRepository();
         this.versionRepository = new FileVersionRepository();
         this.permissionRepository = new FilePermissionRepository();
         this.storageService = StorageService.getInstance();
+        this.compressionPolicy = CompressionPolicy.getInstance();
+        this.replicationService = ReplicationService.getInstance();
     }
 
     /**
@@ -90,8 +117,8 @@ public class DownloadHandler {
 
             // 4. Kiểm tra quyền (VIEW, EDIT, hoặc OWNER)
             if (!permissionRepository.hasMinimumPermission(fileId, userId, "VIEW")) {
-                System.out.println("[DOWNLOAD] Forbidden: userId=" + userId + 
-                                 " has no permission on fileId=" + fileId);
+                LOG.info("Forbidden: userId=" + userId + 
+                       " has no permission on fileId=" + fileId);
                 return Response.error(ResponseCode.FORBIDDEN, "No permission to download this file");
             }
 
@@ -107,26 +134,48 @@ public class DownloadHandler {
 
             FileVersion version = versionOpt.get();
 
+            // Optional: offset (download tiếp phần còn lại)
+            Object offsetObj = data.get("offset");
+            long offset = offsetObj != null ? ((Number) offsetObj).longValue() : 0;
+            if (offset < 0 || offset > version.getSizeBytes()) {
+                return Response.error(ResponseCode.VALIDATION_ERROR, "Invalid offset");
+            }
+
             // 6. Store download context
             context.setDownloadContext(fileId, versionNumber, version.getSizeBytes(), version.getSha256());
+            context.setDownloadOffset(offset);
 
-            System.out.println("[DOWNLOAD] BEGIN from userId=" + userId + 
-                             ", fileId=" + fileId + ", version=" + versionNumber +
-                             ", size=" + version.getSizeBytes());
+            // 7. Negotiate compression (bỏ qua nếu nội dung file không nén được)
+            Object offered = data.get("compression");
+            CompressionCodec codec = compressionPolicy.negotiateForDownload(
+                offered, storageService, fileId, versionNumber, version.getSizeBytes());
+            int compressionLevel = compressionPolicy.levelFor(codec);
+            context.setTransferCompression(codec, compressionLevel);
 
-            // 7. Return FILE_META response
-            return Response.success("FILE_META", Map.of(
-                "fileName", file.getOriginalName(),
-                "fileSize", version.getSizeBytes(),
-                "sha256", version.getSha256(),
-                "versionNumber", versionNumber
-            ));
+            LOG.info("BEGIN from userId=" + userId + 
+                   ", fileId=" + fileId + ", version=" + versionNumber +
+                   ", size=" + version.getSizeBytes() + ", compression=" + codec +
+                   (offset > 0 ? ", resume at " + offset : ""));
+
+            // 8. Return FILE_META response (client cũ không gửi "compression" → giữ nguyên format v1)
+            Map<String, Object> meta = new HashMap<>();
+            meta.put("fileName", file.getOriginalName());
+            meta.put("fileSize", version.getSizeBytes());
+            meta.put("sha256", version.getSha256());
+            meta.put("versionNumber", versionNumber);
+            if (offered != null) {
+                meta.put("compression", codec.name());
+            }
+            if (offsetObj != null) {
+                meta.put("offset", offset);
+            }
+            return Response.success("FILE_META", meta);
 
         } catch (SQLException e) {
-            System.err.println("[DOWNLOAD] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[DOWNLOAD] Error in handleBegin: " + e.getMessage());
+            LOG.error("Error in handleBegin: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Download initialization failed");
         }
     }
@@ -142,37 +191,102 @@ public class DownloadHandler {
     public boolean streamFileBytes(OutputStream outputStream, ClientContext context) {
         int fileId = context.getDownloadFileId();
         int versionNumber = context.getDownloadVersionNumber();
-        long fileSize = context.getDownloadFileSize();
+        long offset = context.getDownloadOffset();
+        long fileSize = context.getDownloadFileSize() - offset;
+        DownloadStreamEvent event = new DownloadStreamEvent();
+        event.begin();
+        long totalSent = 0;
+        long wireBytes = fileSize;
 
         try {
-            System.out.println("[DOWNLOAD] Streaming " + fileSize + " bytes for fileId=" + fileId);
+            LOG.info("Streaming " + fileSize + " bytes for fileId=" + fileId +
+                   (offset > 0 ? " from offset " + offset : ""));
 
             // Đọc file từ disk và stream ra client
-            try (InputStream fileStream = storageService.readFile(fileId, versionNumber)) {
+            try (InputStream fileStream = openFile(fileId, versionNumber)) {
+                if (offset > 0) {
+                    // Client đã có phần đầu (download trước bị ngắt)
+                    fileStream.skipNBytes(offset);
+                }
+                ChunkedCompressionOutputStream encoder = null;
+                OutputStream target = outputStream;
+                if (context.isTransferCompressed()) {
+                    encoder = new ChunkedCompressionOutputStream(outputStream,
+                        context.getTransferCompression(), context.getTransferCompressionLevel());
+                    target = encoder;
+                }
+
                 byte[] buffer = new byte[BUFFER_SIZE];
-                long totalSent = 0;
                 int bytesRead;
 
                 while ((bytesRead = fileStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
+                    target.write(buffer, 0, bytesRead);
                     totalSent += bytesRead;
                 }
 
+                if (encoder != null) {
+                    // Ghi chunk cuối + chunk kết thúc (không đóng socket)
+                    encoder.finish();
+                    wireBytes = encoder.getWireBytes();
+                    LOG.info("Compressed transfer: " + encoder.getWireBytes() +
+                           " wire bytes for " + totalSent + " bytes (" + context.getTransferCompression() + ")");
+                }
                 outputStream.flush();
 
-                System.out.println("[DOWNLOAD] SUCCESS fileId=" + fileId + 
-                                 ", sent=" + totalSent + " bytes");
+                LOG.info("SUCCESS fileId=" + fileId + 
+                       ", sent=" + totalSent + " bytes");
             }
 
             // Clear download context
             context.clearDownloadContext();
+            commitEvent(event, fileId, versionNumber, totalSent, wireBytes, context, true);
 
             return true;
 
         } catch (Exception e) {
-            System.err.println("[DOWNLOAD] Error streaming file: " + e.getMessage());
+            LOG.error("Error streaming file: " + e.getMessage());
+            commitEvent(event, fileId, versionNumber, totalSent, totalSent, context, false);
             context.clearDownloadContext();
             return false;
         }
     }
+
+    private static void commitEvent(DownloadStreamEvent event, int fileId, int versionNumber,
+                                    long bytes, long wireBytes, ClientContext context, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.fileId = fileId;
+            event.versionNumber = versionNumber;
+            event.bytes = bytes;
+            event.wireBytes = wireBytes;
+            event.compression = context.isTransferCompressed() ? String.valueOf(context.getTransferCompression()) : "none";
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    /**
+     * Mở version để stream: đọc từ primary, fallback sang replica nếu primary lỗi.
+     */
+    private InputStream openFile(int fileId, int versionNumber) throws IOException {
+        if (!replicationService.isEnabled()) {
+            return storageService.readFile(fileId, versionNumber);
+        }
+        InputStream primary;
+        try {
+            primary = storageService.readFile(fileId, versionNumber);
+        } catch (IOException e) {
+            LOG.warn("Primary unavailable for fileId=" + fileId + ", version=" + versionNumber +
+                   " (" + e.getMessage() + "), reading replica");
+            try {
+                return replicationService.openReplica(fileId, versionNumber);
+            } catch (IOException replicaError) {
+                e.addSuppressed(replicaError);
+                throw e;
+            }
+        }
+        return new FailoverInputStream(primary,
+            () -> replicationService.openReplica(fileId, versionNumber),
+            "fileId=" + fileId + ", version=" + versionNumber);
+    }
 }
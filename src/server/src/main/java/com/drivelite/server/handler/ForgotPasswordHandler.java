@@ -4,6 +4,8 @@ import java.sql.SQLException;
 import java.util.Map;
 import java.util.Optional;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -31,6 +33,8 @@ import com.drivelite.server.service.EmailService;
  */
 public class ForgotPasswordHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("FORGOT_PASSWORD");
+
     private final UserRepository userRepository;
     private final PasswordResetTokenRepository tokenRepository;
     private final EmailService emailService;
@@ -70,7 +74,7 @@ public class ForgotPasswordHandler implements RequestHandler {
             Optional<User> userOpt = userRepository.findByEmail(email);
             if (userOpt.isEmpty()) {
                 // Không nói rõ "email không tồn tại" để tránh enumeration attack
-                System.out.println("[FORGOT_PASSWORD] Email not found: " + email);
+                LOG.info("Email not found: " + email);
                 return Response.success("If the email exists, an OTP has been sent", Map.of(
                     "message", "Check your email for the OTP code",
                     "expiresInMinutes", 15
@@ -97,13 +101,13 @@ public class ForgotPasswordHandler implements RequestHandler {
             boolean emailSent = emailService.sendOTP(email, otp);
             
             if (!emailSent && emailService.isEnabled()) {
-                System.err.println("[FORGOT_PASSWORD] Failed to send email to: " + email);
+                LOG.error("Failed to send email to: " + email);
                 return Response.error(ResponseCode.SERVER_ERROR, "Failed to send email");
             }
 
             // 9. Trả về response
-            System.out.println("[FORGOT_PASSWORD] OTP created for: " + email + 
-                             " (expires in 15 minutes)");
+            LOG.info("OTP created for: " + email + 
+                   " (expires in 15 minutes)");
 
             return Response.success("OTP has been sent to your email", Map.of(
                 "message", "Check your email for the OTP code",
@@ -111,10 +115,10 @@ public class ForgotPasswordHandler implements RequestHandler {
             ));
 
         } catch (SQLException e) {
-            System.err.println("[FORGOT_PASSWORD] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[FORGOT_PASSWORD] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Internal error");
         }
     }
@@ -0,0 +1,150 @@
+package com.drivelite.server.handler;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+import com.drivelite.common.protocol.ResponseCode;
+import com.drivelite.server.db.entity.FileMetadata;
+import com.drivelite.server.db.entity.FileVersion;
+import com.drivelite.server.db.repository.FilePermissionRepository;
+import com.drivelite.server.db.repository.FileRepository;
+import com.drivelite.server.db.repository.FileVersionRepository;
+import com.drivelite.server.net.ClientContext;
+import com.drivelite.server.net.RequestHandler;
+import com.drivelite.server.service.PreviewService;
+
+/**
+ * Handler cho GET_PREVIEW request.
+ * Trả preview nhỏ thay cho cả file: thumbnail với ảnh, đoạn đầu với file text.
+ *
+ * Request: { fileId, versionNumber? }
+ * Response:
+ * - Ảnh: { kind: "IMAGE", image: bytes (base64 trong JSON, binary trong Smile), width/height tối đa }
+ * - Text: { kind: "TEXT", text, truncated }
+ * kèm { fileId, versionNumber, sha256 }.
+ *
+ * Yêu cầu: User phải có quyền VIEW, EDIT, hoặc OWNER trên file.
+ * Loại file không có preview (hoặc ảnh quá lớn) → VALIDATION_ERROR, client tự tải cả file nếu cần.
+ */
+public class GetPreviewHandler implements RequestHandler {
+
+    private static final Logger LOG = Log.getLogger("GET_PREVIEW");
+
+    private final FileRepository fileRepository;
+    private final FileVersionRepository versionRepository;
+    private final FilePermissionRepository permissionRepository;
+    private final PreviewService previewService;
+
+    public GetPreviewHandler() {
+        this.fileRepository = new FileRepository();
+        this.versionRepository = new FileVersionRepository();
+        this.permissionRepository = new FilePermissionRepository();
+        this.previewService = PreviewService.getInstance();
+    }
+
+    @Override
+    public Response handle(Request request, ClientContext context) {
+        try {
+            // 1. Kiểm tra authentication
+            if (!context.isAuthenticated()) {
+                return Response.error(ResponseCode.UNAUTHORIZED, "Authentication required");
+            }
+
+            int userId = context.getUserId();
+
+            // 2. Parse request data
+            @SuppressWarnings("unchecked")
+            Map<String, Object> data = (Map<String, Object>) request.getData();
+
+            if (data == null) {
+                return Response.error(ResponseCode.VALIDATION_ERROR, "Missing request data");
+            }
+
+            Object fileIdObj = data.get("fileId");
+            if (fileIdObj == null) {
+                return Response.error(ResponseCode.VALIDATION_ERROR, "fileId is required");
+            }
+            int fileId = ((Number) fileIdObj).intValue();
+
+            // 3. Kiểm tra file tồn tại
+            Optional<FileMetadata> fileOpt = fileRepository.findById(fileId);
+            if (fileOpt.isEmpty()) {
+                return Response.error(ResponseCode.NOT_FOUND, "File not found");
+            }
+
+            FileMetadata file = fileOpt.get();
+
+            // 4. Kiểm tra quyền VIEW
+            if (!permissionRepository.hasMinimumPermission(fileId, userId, "VIEW")) {
+                LOG.info("Forbidden: userId=" + userId +
+                       " has no permission on fileId=" + fileId);
+                return Response.error(ResponseCode.FORBIDDEN, "No permission to view this file");
+            }
+
+            // 5. Loại preview theo tên file
+            PreviewService.Kind kind = PreviewService.Kind.of(file.getOriginalName());
+            if (kind == null) {
+                return Response.error(ResponseCode.VALIDATION_ERROR, "Preview not supported for this file type");
+            }
+
+            // 6. Lấy version (default = current version)
+            Object versionObj = data.get("versionNumber");
+            int versionNumber = versionObj != null ? ((Number) versionObj).intValue() : file.getCurrentVersion();
+
+            Optional<FileVersion> versionOpt = versionRepository.findByFileIdAndVersion(fileId, versionNumber);
+            if (versionOpt.isEmpty()) {
+                return Response.error(ResponseCode.NOT_FOUND, "Version not found");
+            }
+
+            FileVersion version = versionOpt.get();
+            if (!previewService.isSupported(kind, version.getSizeBytes())) {
+                return Response.error(ResponseCode.VALIDATION_ERROR, "File too large for preview");
+            }
+
+            // 7. Lấy preview (cache theo sha256, dùng chung giữa các user)
+            byte[] preview = previewService.getPreview(fileId, versionNumber, version.getSha256(), kind);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("fileId", fileId);
+            result.put("versionNumber", versionNumber);
+            result.put("sha256", version.getSha256());
+            result.put("kind", kind.name());
+            if (kind == PreviewService.Kind.IMAGE) {
+                result.put("image", preview);
+            } else {
+                result.put("text", new String(preview, StandardCharsets.UTF_8));
+                result.put("truncated", previewService.isTruncated(kind, version.getSizeBytes()));
+            }
+
+            LOG.info("SUCCESS: userId=" + userId + ", fileId=" + fileId +
+                   ", version=" + versionNumber + ", kind=" + kind + ", bytes=" + preview.length);
+
+            return Response.success("OK", result);
+
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Preview queue full, rejecting request");
+            return Response.error(ResponseCode.SERVER_ERROR, "Preview service busy");
+        } catch (TimeoutException e) {
+            LOG.warn("Preview generation timed out");
+            return Response.error(ResponseCode.SERVER_ERROR, "Preview generation timed out");
+        } catch (SQLException e) {
+            LOG.error("Database error: " + e.getMessage());
+            return Response.error(ResponseCode.SERVER_ERROR, "Database error");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Response.error(ResponseCode.SERVER_ERROR, "Get preview failed");
+        } catch (Exception e) {
+            LOG.error("Error: " + e.getMessage());
+            return Response.error(ResponseCode.SERVER_ERROR, "Get preview failed");
+        }
+    }
+}
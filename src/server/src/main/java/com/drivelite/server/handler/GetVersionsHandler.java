@@ -7,6 +7,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -19,28 +21,33 @@ import com.drivelite.server.db.repository.FileVersionRepository;
 import com.drivelite.server.db.repository.UserRepository;
 import com.drivelite.server.net.ClientContext;
 import com.drivelite.server.net.RequestHandler;
+import com.drivelite.server.service.ChangeTracker;
 
 /**
  * Handler cho GET_VERSIONS request.
  * Trả về danh sách tất cả versions của một file.
  * 
- * Request: { fileId }
- * Response: { ok, data: { versions: [...] } }
+ * Request: { fileId, ifNoneMatch? }
+ * Response: { ok, data: { versions: [...], etag } } hoặc NOT_MODIFIED nếu ifNoneMatch vẫn đúng
  * 
  * Yêu cầu: User phải có quyền VIEW, EDIT, hoặc OWNER trên file.
  */
 public class GetVersionsHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("GET_VERSIONS");
+
     private final FileRepository fileRepository;
     private final FileVersionRepository versionRepository;
     private final FilePermissionRepository permissionRepository;
     private final UserRepository userRepository;
+    private final ChangeTracker changeTracker;
 
     public GetVersionsHandler() {
         this.fileRepository = new FileRepository();
         this.versionRepository = new FileVersionRepository();
         this.permissionRepository = new FilePermissionRepository();
         this.userRepository = new UserRepository();
+        this.changeTracker = ChangeTracker.getInstance();
     }
 
     @Override
@@ -68,6 +75,9 @@ public class GetVersionsHandler implements RequestHandler {
             }
             int fileId = ((Number) fileIdObj).intValue();
 
+            // Lấy etag trước mọi query: thay đổi xen giữa chỉ làm lần sau tải lại
+            String etag = changeTracker.fileToken(fileId);
+
             // 3. Kiểm tra file tồn tại
             Optional<FileMetadata> fileOpt = fileRepository.findById(fileId);
             if (fileOpt.isEmpty()) {
@@ -78,11 +88,16 @@ public class GetVersionsHandler implements RequestHandler {
 
             // 4. Kiểm tra quyền VIEW (minimum permission)
             if (!permissionRepository.hasMinimumPermission(fileId, userId, "VIEW")) {
-                System.out.println("[GET_VERSIONS] Forbidden: userId=" + userId + 
-                                 " has no permission on fileId=" + fileId);
+                LOG.info("Forbidden: userId=" + userId + 
+                       " has no permission on fileId=" + fileId);
                 return Response.error(ResponseCode.FORBIDDEN, "No permission to view this file");
             }
 
+            // Client đã có bản mới nhất (chỉ trả sau khi đã kiểm tra quyền)
+            if (ChangeTracker.matches(data, etag)) {
+                return Response.notModified(etag);
+            }
+
             // 5. Lấy tất cả versions
             List<FileVersion> versions = versionRepository.findByFileId(fileId);
 
@@ -107,8 +122,8 @@ public class GetVersionsHandler implements RequestHandler {
                 versionList.add(versionInfo);
             }
 
-            System.out.println("[GET_VERSIONS] SUCCESS: userId=" + userId + 
-                             ", fileId=" + fileId + ", count=" + versions.size());
+            LOG.info("SUCCESS: userId=" + userId + 
+                   ", fileId=" + fileId + ", count=" + versions.size());
 
             // 7. Return success
             return Response.success("OK", Map.of(
@@ -116,14 +131,15 @@ public class GetVersionsHandler implements RequestHandler {
                 "fileName", file.getOriginalName(),
                 "currentVersion", file.getCurrentVersion(),
                 "versions", versionList,
-                "count", versions.size()
+                "count", versions.size(),
+                "etag", etag
             ));
 
         } catch (SQLException e) {
-            System.err.println("[GET_VERSIONS] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[GET_VERSIONS] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Get versions failed");
         }
     }
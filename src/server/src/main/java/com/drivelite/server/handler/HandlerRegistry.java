@@ -1,5 +1,7 @@
 package com.drivelite.server.handler;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.MessageType;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.server.net.RequestDispatcher;
@@ -10,6 +12,8 @@ import com.drivelite.server.net.RequestDispatcher;
  */
 public class HandlerRegistry {
 
+    private static final Logger LOG = Log.getLogger("INIT");
+
     /**
      * Đăng ký tất cả handlers vào dispatcher.
      */
@@ -19,6 +23,9 @@ public class HandlerRegistry {
             return Response.success("PONG", null);
         });
 
+        // HELLO - negotiate encoding của control frames (JSON / Smile)
+        dispatcher.registerHandler(MessageType.HELLO, new HelloHandler());
+
         // Auth handlers (M4)
         dispatcher.registerHandler(MessageType.LOGIN, new LoginHandler());
         dispatcher.registerHandler(MessageType.REGISTER, new RegisterHandler());
@@ -30,11 +37,13 @@ public class HandlerRegistry {
 
         // File handlers (M6)
         dispatcher.registerHandler(MessageType.UPLOAD_BEGIN, new UploadBeginHandler());
+        dispatcher.registerHandler(MessageType.UPLOAD_BATCH_BEGIN, new UploadBatchHandler());
         dispatcher.registerHandler(MessageType.DELETE_FILE, new DeleteFileHandler());
         dispatcher.registerHandler(MessageType.RENAME_FILE, new RenameFileHandler());
 
         // Download handler (M7)
         dispatcher.registerHandler(MessageType.DOWNLOAD_BEGIN, new DownloadBeginHandler());
+        dispatcher.registerHandler(MessageType.GET_PREVIEW, new GetPreviewHandler());
 
         // Listing handlers (M8)
         dispatcher.registerHandler(MessageType.LIST_MY_FILES, new ListMyFilesHandler());
@@ -51,6 +60,6 @@ public class HandlerRegistry {
         dispatcher.registerHandler(MessageType.GET_VERSIONS, new GetVersionsHandler());
         // Note: DOWNLOAD_VERSION uses the same DOWNLOAD_BEGIN with versionNumber parameter
 
-        System.out.println("[INIT] Handlers registered: PING, LOGIN, REGISTER, LOGOUT, FORGOT_PASSWORD, RESET_PASSWORD, UPLOAD_BEGIN, DELETE_FILE, RENAME_FILE, DOWNLOAD_BEGIN, LIST_MY_FILES, LIST_SHARED_WITH_ME, SHARE_ADD, SHARE_UPDATE, SHARE_REMOVE, LIST_SHARES_OF_FILE, UPLOAD_NEW_VERSION_BEGIN, GET_VERSIONS");
+        LOG.info("Handlers registered: PING, HELLO, LOGIN, REGISTER, LOGOUT, FORGOT_PASSWORD, RESET_PASSWORD, UPLOAD_BEGIN, UPLOAD_BATCH_BEGIN, DELETE_FILE, RENAME_FILE, DOWNLOAD_BEGIN, GET_PREVIEW, LIST_MY_FILES, LIST_SHARED_WITH_ME, SHARE_ADD, SHARE_UPDATE, SHARE_REMOVE, LIST_SHARES_OF_FILE, UPLOAD_NEW_VERSION_BEGIN, GET_VERSIONS");
     }
 }
@@ -0,0 +1,92 @@
+package com.drivelite.server.handler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.drivelite.common.codec.FrameEncoding;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+import com.drivelite.server.net.ClientContext;
+import com.drivelite.server.net.RequestHandler;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Handler cho HELLO request - negotiate encoding của control frames và pipelining cho connection.
+ * 
+ * Input: { encodings: ["SMILE", "JSON"], pipelining: true }
+ * Output: { encoding: "SMILE", pipelining: true }
+ * 
+ * Cấu hình qua .env:
+ * - PROTOCOL_ENCODINGS: danh sách encoding server cho phép, theo thứ tự ưu tiên (mặc định SMILE,JSON).
+ *   Đặt JSON để tắt binary encoding.
+ * - PROTOCOL_PIPELINING: cho phép client gửi nhiều request không chờ response (mặc định true).
+ *   Khi bật, response mang requestId và có thể về không theo thứ tự.
+ * 
+ * Từ response HELLO trở đi, server gửi frame bằng encoding đã chọn. Client v1 không gửi HELLO
+ * nên luôn nhận JSON như cũ.
+ */
+public class HelloHandler implements RequestHandler {
+
+    private static final Logger LOG = Log.getLogger("HELLO");
+
+    private final List<FrameEncoding> preferred;
+    private final boolean pipeliningEnabled;
+
+    public HelloHandler() {
+        Dotenv dotenv = Dotenv.configure()
+                .directory(findEnvDirectory())
+                .ignoreIfMissing()
+                .load();
+
+        List<FrameEncoding> encodings = new ArrayList<>();
+        for (String name : dotenv.get("PROTOCOL_ENCODINGS", "SMILE,JSON").split(",")) {
+            FrameEncoding encoding = FrameEncoding.fromName(name);
+            if (!encodings.contains(encoding)) {
+                encodings.add(encoding);
+            }
+        }
+        this.preferred = Collections.unmodifiableList(encodings);
+        this.pipeliningEnabled = Boolean.parseBoolean(dotenv.get("PROTOCOL_PIPELINING", "true"));
+        LOG.info("Enabled frame encodings: " + preferred + ", pipelining: " + pipeliningEnabled);
+    }
+
+    @Override
+    public Response handle(Request request, ClientContext context) {
+        Object offered = null;
+        boolean pipelining = false;
+        if (request.getData() instanceof Map) {
+            Map<?, ?> data = (Map<?, ?>) request.getData();
+            offered = data.get("encodings");
+            pipelining = pipeliningEnabled && Boolean.TRUE.equals(data.get("pipelining"));
+        }
+
+        FrameEncoding encoding = FrameEncoding.negotiate(offered, preferred);
+        context.setFrameEncoding(encoding);
+        context.setPipelining(pipelining);
+        LOG.debug(context.getClientAddress() + " negotiated " + encoding + ", pipelining=" + pipelining);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("encoding", encoding.name());
+        if (pipelining) {
+            result.put("pipelining", true);
+        }
+        return Response.success(result);
+    }
+
+    private static String findEnvDirectory() {
+        String[] possiblePaths = { ".", "..", "../..", "../../..", System.getProperty("user.dir") };
+        for (String path : possiblePaths) {
+            java.io.File envFile = new java.io.File(path, ".env");
+            if (envFile.exists()) {
+                return path;
+            }
+        }
+        return ".";
+    }
+}
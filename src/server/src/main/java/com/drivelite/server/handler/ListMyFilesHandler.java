@@ -6,6 +6,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -15,19 +17,25 @@ import com.drivelite.server.db.repository.FileRepository;
 import com.drivelite.server.db.repository.FileVersionRepository;
 import com.drivelite.server.net.ClientContext;
 import com.drivelite.server.net.RequestHandler;
+import com.drivelite.server.service.ChangeTracker;
 
 /**
  * Handler cho LIST_MY_FILES request.
  * Trả về danh sách files mà user sở hữu (OWNER).
+ * Request data có thể mang "ifNoneMatch" (etag lần trước) → NOT_MODIFIED nếu không có gì đổi.
  */
 public class ListMyFilesHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("LIST_MY_FILES");
+
     private final FileRepository fileRepository;
     private final FileVersionRepository versionRepository;
+    private final ChangeTracker changeTracker;
 
     public ListMyFilesHandler() {
         this.fileRepository = new FileRepository();
         this.versionRepository = new FileVersionRepository();
+        this.changeTracker = ChangeTracker.getInstance();
     }
 
     @Override
@@ -36,6 +44,12 @@ public class ListMyFilesHandler implements RequestHandler {
             // 1. Lấy userId từ context (đã được authenticate bởi AuthMiddleware)
             int userId = context.getUserId();
 
+            // Client gửi lại etag của lần trước: listing không đổi thì khỏi query
+            String etag = changeTracker.userToken(userId);
+            if (ChangeTracker.matches(request.getData(), etag)) {
+                return Response.notModified(etag);
+            }
+
             // 2. Lấy danh sách files của user
             List<FileMetadata> files = fileRepository.findByOwner(userId);
 
@@ -65,18 +79,19 @@ public class ListMyFilesHandler implements RequestHandler {
                 fileList.add(fileData);
             }
 
-            System.out.println("[LIST_MY_FILES] userId=" + userId + ", count=" + fileList.size());
+            LOG.info("userId=" + userId + ", count=" + fileList.size());
 
             return Response.success("Files retrieved", Map.of(
                 "files", fileList,
-                "count", fileList.size()
+                "count", fileList.size(),
+                "etag", etag
             ));
 
         } catch (SQLException e) {
-            System.err.println("[LIST_MY_FILES] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[LIST_MY_FILES] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Failed to list files");
         }
     }
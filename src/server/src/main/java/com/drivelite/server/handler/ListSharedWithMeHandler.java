@@ -6,6 +6,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -18,23 +20,29 @@ import com.drivelite.server.db.repository.FileVersionRepository;
 import com.drivelite.server.db.repository.UserRepository;
 import com.drivelite.server.net.ClientContext;
 import com.drivelite.server.net.RequestHandler;
+import com.drivelite.server.service.ChangeTracker;
 
 /**
  * Handler cho LIST_SHARED_WITH_ME request.
  * Trả về danh sách files được share cho user (VIEW hoặc EDIT, không phải OWNER).
+ * Request data có thể mang "ifNoneMatch" (etag lần trước) → NOT_MODIFIED nếu không có gì đổi.
  */
 public class ListSharedWithMeHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("LIST_SHARED_WITH_ME");
+
     private final FileRepository fileRepository;
     private final FileVersionRepository versionRepository;
     private final FilePermissionRepository permissionRepository;
     private final UserRepository userRepository;
+    private final ChangeTracker changeTracker;
 
     public ListSharedWithMeHandler() {
         this.fileRepository = new FileRepository();
         this.versionRepository = new FileVersionRepository();
         this.permissionRepository = new FilePermissionRepository();
         this.userRepository = new UserRepository();
+        this.changeTracker = ChangeTracker.getInstance();
     }
 
     @Override
@@ -43,6 +51,12 @@ public class ListSharedWithMeHandler implements RequestHandler {
             // 1. Lấy userId từ context
             int userId = context.getUserId();
 
+            // Client gửi lại etag của lần trước: listing không đổi thì khỏi query
+            String etag = changeTracker.userToken(userId);
+            if (ChangeTracker.matches(request.getData(), etag)) {
+                return Response.notModified(etag);
+            }
+
             // 2. Lấy danh sách files được share cho user
             List<Map<String, Object>> sharedFiles = permissionRepository.findSharedFilesForUser(userId);
 
@@ -82,18 +96,19 @@ public class ListSharedWithMeHandler implements RequestHandler {
                 fileList.add(fileData);
             }
 
-            System.out.println("[LIST_SHARED_WITH_ME] userId=" + userId + ", count=" + fileList.size());
+            LOG.info("userId=" + userId + ", count=" + fileList.size());
 
             return Response.success("Shared files retrieved", Map.of(
                 "files", fileList,
-                "count", fileList.size()
+                "count", fileList.size(),
+                "etag", etag
             ));
 
         } catch (SQLException e) {
-            System.err.println("[LIST_SHARED_WITH_ME] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[LIST_SHARED_WITH_ME] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Failed to list shared files");
         }
     }
@@ -5,6 +5,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -13,24 +15,29 @@ import com.drivelite.server.db.repository.FilePermissionRepository;
 import com.drivelite.server.db.repository.FileRepository;
 import com.drivelite.server.net.ClientContext;
 import com.drivelite.server.net.RequestHandler;
+import com.drivelite.server.service.ChangeTracker;
 
 /**
  * Handler cho LIST_SHARES_OF_FILE request.
  * Cho phép OWNER xem danh sách tất cả người được share file.
  * 
- * Request: { fileId }
+ * Request: { fileId, ifNoneMatch? }
  * 
- * Response: { ok, code, message, data: { shares: [...] } }
+ * Response: { ok, code, message, data: { shares: [...], etag } } hoặc NOT_MODIFIED nếu ifNoneMatch vẫn đúng
  * Mỗi share item: { userId, email, displayName, permission, grantedAt }
  */
 public class ListSharesOfFileHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("LIST_SHARES");
+
     private final FileRepository fileRepository;
     private final FilePermissionRepository permissionRepository;
+    private final ChangeTracker changeTracker;
 
     public ListSharesOfFileHandler() {
         this.fileRepository = new FileRepository();
         this.permissionRepository = new FilePermissionRepository();
+        this.changeTracker = ChangeTracker.getInstance();
     }
 
     @Override
@@ -58,6 +65,9 @@ public class ListSharesOfFileHandler implements RequestHandler {
             }
             int fileId = ((Number) fileIdObj).intValue();
 
+            // Lấy etag trước mọi query: thay đổi xen giữa chỉ làm lần sau tải lại
+            String etag = changeTracker.fileToken(fileId);
+
             // 3. Kiểm tra file tồn tại
             Optional<FileMetadata> fileOpt = fileRepository.findById(fileId);
             if (fileOpt.isEmpty()) {
@@ -66,31 +76,37 @@ public class ListSharesOfFileHandler implements RequestHandler {
 
             // 4. Kiểm tra quyền OWNER
             if (!permissionRepository.isOwner(fileId, currentUserId)) {
-                System.out.println("[LIST_SHARES] Forbidden: userId=" + currentUserId + 
-                                 " is not OWNER of fileId=" + fileId);
+                LOG.info("Forbidden: userId=" + currentUserId + 
+                       " is not OWNER of fileId=" + fileId);
                 return Response.error(ResponseCode.FORBIDDEN, 
                     "Only file owner can view shares");
             }
 
+            // Client đã có bản mới nhất (chỉ trả sau khi đã kiểm tra quyền)
+            if (ChangeTracker.matches(data, etag)) {
+                return Response.notModified(etag);
+            }
+
             // 5. Lấy danh sách shares
             List<Map<String, Object>> shares = permissionRepository.findAllByFileId(fileId);
 
-            System.out.println("[LIST_SHARES] SUCCESS: userId=" + currentUserId + 
-                             " listed shares for fileId=" + fileId + 
-                             ", count=" + shares.size());
+            LOG.info("SUCCESS: userId=" + currentUserId + 
+                   " listed shares for fileId=" + fileId + 
+                   ", count=" + shares.size());
 
             // 6. Return success
             return Response.success("OK", Map.of(
                 "shares", shares,
                 "fileId", fileId,
-                "fileName", fileOpt.get().getOriginalName()
+                "fileName", fileOpt.get().getOriginalName(),
+                "etag", etag
             ));
 
         } catch (SQLException e) {
-            System.err.println("[LIST_SHARES] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[LIST_SHARES] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "List shares failed");
         }
     }
@@ -4,6 +4,8 @@ import java.sql.SQLException;
 import java.util.Map;
 import java.util.Optional;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -32,6 +34,8 @@ import at.favre.lib.crypto.bcrypt.BCrypt;
  */
 public class LoginHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("LOGIN");
+
     private static final int SESSION_EXPIRY_HOURS = 24;
 
     private final UserRepository userRepository;
@@ -102,7 +106,7 @@ public class LoginHandler implements RequestHandler {
             context.setSession(session.getToken(), user.getUserId(), user.getEmail());
 
             // 8. Trả về response
-            System.out.println("[LOGIN] Success: " + email + " from " + context.getClientAddress());
+            LOG.info("Success: " + email + " from " + context.getClientAddress());
 
             return Response.success("Login successful", Map.of(
                 "token", session.getToken(),
@@ -112,10 +116,10 @@ public class LoginHandler implements RequestHandler {
             ));
 
         } catch (SQLException e) {
-            System.err.println("[LOGIN] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[LOGIN] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Internal error");
         }
     }
@@ -2,6 +2,8 @@ package com.drivelite.server.handler;
 
 import java.sql.SQLException;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -23,6 +25,8 @@ import com.drivelite.server.net.RequestHandler;
  */
 public class LogoutHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("LOGOUT");
+
     private final SessionRepository sessionRepository;
 
     public LogoutHandler() {
@@ -54,19 +58,19 @@ public class LogoutHandler implements RequestHandler {
 
             // 4. Trả về response
             if (deleted) {
-                System.out.println("[LOGOUT] Success from " + context.getClientAddress());
+                LOG.info("Success from " + context.getClientAddress());
                 return Response.success("Logout successful", null);
             } else {
                 // Session không tồn tại hoặc đã hết hạn, vẫn coi như logout thành công
-                System.out.println("[LOGOUT] Session not found, treating as success from " + context.getClientAddress());
+                LOG.info("Session not found, treating as success from " + context.getClientAddress());
                 return Response.success("Logout successful", null);
             }
 
         } catch (SQLException e) {
-            System.err.println("[LOGOUT] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[LOGOUT] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Internal error");
         }
     }
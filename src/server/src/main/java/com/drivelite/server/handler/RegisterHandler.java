@@ -4,6 +4,8 @@ import java.sql.SQLException;
 import java.util.Map;
 import java.util.regex.Pattern;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -29,6 +31,8 @@ import at.favre.lib.crypto.bcrypt.BCrypt;
  */
 public class RegisterHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("REGISTER");
+
     // BCrypt cost factor (12 là balance giữa security và performance)
     private static final int BCRYPT_COST = 12;
     
@@ -120,7 +124,7 @@ public class RegisterHandler implements RequestHandler {
             User user = userRepository.create(email, passwordHash, displayName);
 
             // 8. Trả về response
-            System.out.println("[REGISTER] Success: " + email + " from " + context.getClientAddress());
+            LOG.info("Success: " + email + " from " + context.getClientAddress());
 
             return Response.success("Registration successful", Map.of(
                 "userId", user.getUserId(),
@@ -129,14 +133,14 @@ public class RegisterHandler implements RequestHandler {
             ));
 
         } catch (SQLException e) {
-            System.err.println("[REGISTER] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             // Có thể là duplicate key nếu race condition
             if (e.getMessage().contains("duplicate") || e.getMessage().contains("UNIQUE")) {
                 return Response.error(ResponseCode.CONFLICT, "Email already registered");
             }
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[REGISTER] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Internal error");
         }
     }
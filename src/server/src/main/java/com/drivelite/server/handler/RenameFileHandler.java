@@ -4,6 +4,8 @@ import java.sql.SQLException;
 import java.util.Map;
 import java.util.Optional;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -12,6 +14,7 @@ import com.drivelite.server.db.repository.FilePermissionRepository;
 import com.drivelite.server.db.repository.FileRepository;
 import com.drivelite.server.net.ClientContext;
 import com.drivelite.server.net.RequestHandler;
+import com.drivelite.server.service.ChangeTracker;
 
 /**
  * Handler cho RENAME_FILE request.
@@ -20,12 +23,16 @@ import com.drivelite.server.net.RequestHandler;
  */
 public class RenameFileHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("RENAME_FILE");
+
     private final FileRepository fileRepository;
     private final FilePermissionRepository permissionRepository;
+    private final ChangeTracker changeTracker;
 
     public RenameFileHandler() {
         this.fileRepository = new FileRepository();
         this.permissionRepository = new FilePermissionRepository();
+        this.changeTracker = ChangeTracker.getInstance();
     }
 
     @Override
@@ -71,8 +78,8 @@ public class RenameFileHandler implements RequestHandler {
 
             // 5. Kiểm tra quyền OWNER
             if (!permissionRepository.isOwner(fileId, userId)) {
-                System.out.println("[RENAME_FILE] Forbidden: userId=" + userId + 
-                                 " is not OWNER of fileId=" + fileId);
+                LOG.info("Forbidden: userId=" + userId + 
+                       " is not OWNER of fileId=" + fileId);
                 return Response.error(ResponseCode.FORBIDDEN, "Only OWNER can rename file");
             }
 
@@ -81,10 +88,11 @@ public class RenameFileHandler implements RequestHandler {
             if (!updated) {
                 return Response.error(ResponseCode.SERVER_ERROR, "Failed to rename file");
             }
+            changeTracker.fileChanged(fileId);
 
-            System.out.println("[RENAME_FILE] Success: fileId=" + fileId + 
-                             ", oldName=" + oldName + " → newName=" + newName +
-                             ", by userId=" + userId);
+            LOG.info("Success: fileId=" + fileId + 
+                   ", oldName=" + oldName + " → newName=" + newName +
+                   ", by userId=" + userId);
 
             return Response.success("File renamed successfully", Map.of(
                 "fileId", fileId,
@@ -93,10 +101,10 @@ public class RenameFileHandler implements RequestHandler {
             ));
 
         } catch (SQLException e) {
-            System.err.println("[RENAME_FILE] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[RENAME_FILE] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Rename failed");
         }
     }
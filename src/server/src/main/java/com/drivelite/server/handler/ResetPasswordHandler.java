@@ -4,6 +4,8 @@ import java.sql.SQLException;
 import java.util.Map;
 import java.util.Optional;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -33,6 +35,8 @@ import at.favre.lib.crypto.bcrypt.BCrypt;
  */
 public class ResetPasswordHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("RESET_PASSWORD");
+
     private static final int BCRYPT_COST = 12;
     private static final int MIN_PASSWORD_LENGTH = 6;
     private static final int MAX_PASSWORD_LENGTH = 100;
@@ -116,18 +120,18 @@ public class ResetPasswordHandler implements RequestHandler {
             int sessionsDeleted = sessionRepository.deleteAllByUserId(resetToken.getUserId());
 
             // 10. Trả về response
-            System.out.println("[RESET_PASSWORD] Success for userId: " + resetToken.getUserId() + 
-                             " (deleted " + sessionsDeleted + " sessions)");
+            LOG.info("Success for userId: " + resetToken.getUserId() + 
+                   " (deleted " + sessionsDeleted + " sessions)");
 
             return Response.success("Password reset successful", Map.of(
                 "message", "Your password has been reset. Please login with your new password."
             ));
 
         } catch (SQLException e) {
-            System.err.println("[RESET_PASSWORD] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[RESET_PASSWORD] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Internal error");
         }
     }
@@ -4,6 +4,8 @@ import java.sql.SQLException;
 import java.util.Map;
 import java.util.Optional;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -14,6 +16,7 @@ import com.drivelite.server.db.repository.FileRepository;
 import com.drivelite.server.db.repository.UserRepository;
 import com.drivelite.server.net.ClientContext;
 import com.drivelite.server.net.RequestHandler;
+import com.drivelite.server.service.ChangeTracker;
 
 /**
  * Handler cho SHARE_ADD request.
@@ -26,14 +29,18 @@ import com.drivelite.server.net.RequestHandler;
  */
 public class ShareAddHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("SHARE_ADD");
+
     private final FileRepository fileRepository;
     private final FilePermissionRepository permissionRepository;
     private final UserRepository userRepository;
+    private final ChangeTracker changeTracker;
 
     public ShareAddHandler() {
         this.fileRepository = new FileRepository();
         this.permissionRepository = new FilePermissionRepository();
         this.userRepository = new UserRepository();
+        this.changeTracker = ChangeTracker.getInstance();
     }
 
     @Override
@@ -89,8 +96,8 @@ public class ShareAddHandler implements RequestHandler {
 
             // 4. Kiểm tra quyền OWNER
             if (!permissionRepository.isOwner(fileId, currentUserId)) {
-                System.out.println("[SHARE_ADD] Forbidden: userId=" + currentUserId + 
-                                 " is not OWNER of fileId=" + fileId);
+                LOG.info("Forbidden: userId=" + currentUserId + 
+                       " is not OWNER of fileId=" + fileId);
                 return Response.error(ResponseCode.FORBIDDEN, 
                     "Only file owner can share");
             }
@@ -122,11 +129,12 @@ public class ShareAddHandler implements RequestHandler {
             if (!added) {
                 return Response.error(ResponseCode.SERVER_ERROR, "Failed to add permission");
             }
+            changeTracker.fileChanged(fileId);
 
-            System.out.println("[SHARE_ADD] SUCCESS: userId=" + currentUserId + 
-                             " shared fileId=" + fileId + 
-                             " with userId=" + targetUserId + 
-                             " permission=" + permission);
+            LOG.info("SUCCESS: userId=" + currentUserId + 
+                   " shared fileId=" + fileId + 
+                   " with userId=" + targetUserId + 
+                   " permission=" + permission);
 
             // 9. Return success
             return Response.success("Share added successfully", Map.of(
@@ -137,10 +145,10 @@ public class ShareAddHandler implements RequestHandler {
             ));
 
         } catch (SQLException e) {
-            System.err.println("[SHARE_ADD] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[SHARE_ADD] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Share failed");
         }
     }
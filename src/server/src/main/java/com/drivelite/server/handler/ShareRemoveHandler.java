@@ -4,6 +4,8 @@ import java.sql.SQLException;
 import java.util.Map;
 import java.util.Optional;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -12,6 +14,7 @@ import com.drivelite.server.db.repository.FilePermissionRepository;
 import com.drivelite.server.db.repository.FileRepository;
 import com.drivelite.server.net.ClientContext;
 import com.drivelite.server.net.RequestHandler;
+import com.drivelite.server.service.ChangeTracker;
 
 /**
  * Handler cho SHARE_REMOVE request.
@@ -23,12 +26,16 @@ import com.drivelite.server.net.RequestHandler;
  */
 public class ShareRemoveHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("SHARE_REMOVE");
+
     private final FileRepository fileRepository;
     private final FilePermissionRepository permissionRepository;
+    private final ChangeTracker changeTracker;
 
     public ShareRemoveHandler() {
         this.fileRepository = new FileRepository();
         this.permissionRepository = new FilePermissionRepository();
+        this.changeTracker = ChangeTracker.getInstance();
     }
 
     @Override
@@ -71,8 +78,8 @@ public class ShareRemoveHandler implements RequestHandler {
 
             // 4. Kiểm tra quyền OWNER
             if (!permissionRepository.isOwner(fileId, currentUserId)) {
-                System.out.println("[SHARE_REMOVE] Forbidden: userId=" + currentUserId + 
-                                 " is not OWNER of fileId=" + fileId);
+                LOG.info("Forbidden: userId=" + currentUserId + 
+                       " is not OWNER of fileId=" + fileId);
                 return Response.error(ResponseCode.FORBIDDEN, 
                     "Only file owner can remove shares");
             }
@@ -101,19 +108,22 @@ public class ShareRemoveHandler implements RequestHandler {
             if (!removed) {
                 return Response.error(ResponseCode.SERVER_ERROR, "Failed to remove permission");
             }
+            // Target không còn trong danh sách permission của file → báo riêng
+            changeTracker.fileChanged(fileId);
+            changeTracker.userChanged(targetUserId);
 
-            System.out.println("[SHARE_REMOVE] SUCCESS: userId=" + currentUserId + 
-                             " removed share for fileId=" + fileId + 
-                             " targetUserId=" + targetUserId);
+            LOG.info("SUCCESS: userId=" + currentUserId + 
+                   " removed share for fileId=" + fileId + 
+                   " targetUserId=" + targetUserId);
 
             // 9. Return success
             return Response.success("Share removed successfully", null);
 
         } catch (SQLException e) {
-            System.err.println("[SHARE_REMOVE] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[SHARE_REMOVE] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Remove share failed");
         }
     }
@@ -4,6 +4,8 @@ import java.sql.SQLException;
 import java.util.Map;
 import java.util.Optional;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -14,6 +16,7 @@ import com.drivelite.server.db.repository.FileRepository;
 import com.drivelite.server.db.repository.UserRepository;
 import com.drivelite.server.net.ClientContext;
 import com.drivelite.server.net.RequestHandler;
+import com.drivelite.server.service.ChangeTracker;
 
 /**
  * Handler cho SHARE_UPDATE request.
@@ -26,14 +29,18 @@ import com.drivelite.server.net.RequestHandler;
  */
 public class ShareUpdateHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("SHARE_UPDATE");
+
     private final FileRepository fileRepository;
     private final FilePermissionRepository permissionRepository;
     private final UserRepository userRepository;
+    private final ChangeTracker changeTracker;
 
     public ShareUpdateHandler() {
         this.fileRepository = new FileRepository();
         this.permissionRepository = new FilePermissionRepository();
         this.userRepository = new UserRepository();
+        this.changeTracker = ChangeTracker.getInstance();
     }
 
     @Override
@@ -89,8 +96,8 @@ public class ShareUpdateHandler implements RequestHandler {
 
             // 4. Kiểm tra quyền OWNER
             if (!permissionRepository.isOwner(fileId, currentUserId)) {
-                System.out.println("[SHARE_UPDATE] Forbidden: userId=" + currentUserId + 
-                                 " is not OWNER of fileId=" + fileId);
+                LOG.info("Forbidden: userId=" + currentUserId + 
+                       " is not OWNER of fileId=" + fileId);
                 return Response.error(ResponseCode.FORBIDDEN, 
                     "Only file owner can update shares");
             }
@@ -125,11 +132,12 @@ public class ShareUpdateHandler implements RequestHandler {
             if (!updated) {
                 return Response.error(ResponseCode.SERVER_ERROR, "Failed to update permission");
             }
+            changeTracker.fileChanged(fileId);
 
-            System.out.println("[SHARE_UPDATE] SUCCESS: userId=" + currentUserId + 
-                             " updated fileId=" + fileId + 
-                             " targetUserId=" + targetUserId + 
-                             " newPermission=" + newPermission);
+            LOG.info("SUCCESS: userId=" + currentUserId + 
+                   " updated fileId=" + fileId + 
+                   " targetUserId=" + targetUserId + 
+                   " newPermission=" + newPermission);
 
             // 10. Return success
             return Response.success("Permission updated successfully", Map.of(
@@ -138,10 +146,10 @@ public class ShareUpdateHandler implements RequestHandler {
             ));
 
         } catch (SQLException e) {
-            System.err.println("[SHARE_UPDATE] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
         } catch (Exception e) {
-            System.err.println("[SHARE_UPDATE] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Update share failed");
         }
     }
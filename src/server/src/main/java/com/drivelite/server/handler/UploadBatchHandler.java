@@ -0,0 +1,354 @@
+package com.drivelite.server.handler;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+import com.drivelite.common.protocol.ResponseCode;
+import com.drivelite.server.db.DatabaseManager;
+import com.drivelite.server.db.entity.FileMetadata;
+import com.drivelite.server.db.entity.FileVersion;
+import com.drivelite.server.db.repository.FilePermissionRepository;
+import com.drivelite.server.db.repository.FileRepository;
+import com.drivelite.server.db.repository.FileVersionRepository;
+import com.drivelite.server.net.ClientContext;
+import com.drivelite.server.net.RequestHandler;
+import com.drivelite.server.security.ValidationUtils;
+import com.drivelite.server.service.ChangeTracker;
+import com.drivelite.server.service.ReplicationService;
+import com.drivelite.server.service.StorageService;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Handler cho UPLOAD_BATCH_BEGIN request - upload nhiều file (thường là file nhỏ của một thư mục)
+ * với một round-trip thay vì BEGIN → READY → bytes → response cho từng file.
+ *
+ * Flow:
+ * 1. Client gửi UPLOAD_BATCH_BEGIN { files: [{ fileName, fileSize, sha256 }, ...] }
+ * 2. Server validate từng entry, trả về READY { rejected: [{ index, message }] }
+ * 3. Client stream raw bytes của các file được chấp nhận, nối tiếp theo thứ tự manifest
+ * 4. Server lưu từng file, verify SHA256
+ * 5. Server commit versions + OWNER permissions của cả batch trong một transaction
+ * 6. Server trả về { uploaded, failed, files: [{ index, ok, fileId... | message }] }
+ *
+ * Batch không negotiate nén: file nhỏ không đáng nén, file lớn nên đi UPLOAD_BEGIN riêng.
+ */
+public class UploadBatchHandler implements RequestHandler {
+
+    private static final Logger LOG = Log.getLogger("UPLOAD_BATCH");
+
+    private static final long MAX_FILE_SIZE;
+    private static final int MAX_BATCH_FILES;
+
+    static {
+        Dotenv dotenv = Dotenv.configure()
+                .directory(findEnvDirectory())
+                .ignoreIfMissing()
+                .load();
+        MAX_FILE_SIZE = Long.parseLong(dotenv.get("MAX_FILE_SIZE", "524288000")); // 500MB default
+        MAX_BATCH_FILES = Integer.parseInt(dotenv.get("UPLOAD_BATCH_MAX_FILES", "500"));
+    }
+
+    private final FileRepository fileRepository;
+    private final FileVersionRepository versionRepository;
+    private final FilePermissionRepository permissionRepository;
+    private final StorageService storageService;
+    private final ReplicationService replicationService;
+    private final ChangeTracker changeTracker;
+
+    public UploadBatchHandler() {
+        this(StorageService.getInstance(), ReplicationService.getInstance());
+    }
+
+    /**
+     * Handler với storage/replication cho sẵn (test); server dùng constructor mặc định.
+     */
+    UploadBatchHandler(StorageService storageService, ReplicationService replicationService) {
+        this.fileRepository = new FileRepository();
+        this.versionRepository = new FileVersionRepository();
+        this.permissionRepository = new FilePermissionRepository();
+        this.storageService = storageService;
+        this.replicationService = replicationService;
+        this.changeTracker = ChangeTracker.getInstance();
+    }
+
+    @Override
+    public Response handle(Request request, ClientContext context) {
+        return handleBegin(request, context);
+    }
+
+    /**
+     * Xử lý UPLOAD_BATCH_BEGIN request.
+     * Entry không hợp lệ bị loại riêng (client không gửi bytes cho entry đó), phần còn lại vẫn upload.
+     *
+     * @return Response READY nếu có ít nhất một file được chấp nhận, hoặc error response
+     */
+    public Response handleBegin(Request request, ClientContext context) {
+        try {
+            if (!context.isAuthenticated()) {
+                return Response.error(ResponseCode.UNAUTHORIZED, "Authentication required");
+            }
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> data = (Map<String, Object>) request.getData();
+            if (data == null || !(data.get("files") instanceof List)) {
+                return Response.error(ResponseCode.VALIDATION_ERROR, "files is required");
+            }
+
+            List<?> files = (List<?>) data.get("files");
+            if (files.isEmpty()) {
+                return Response.error(ResponseCode.VALIDATION_ERROR, "files must not be empty");
+            }
+            if (files.size() > MAX_BATCH_FILES) {
+                return Response.error(ResponseCode.VALIDATION_ERROR,
+                    "Too many files in batch. Maximum is " + MAX_BATCH_FILES);
+            }
+
+            List<BatchEntry> accepted = new ArrayList<>();
+            List<Map<String, Object>> rejected = new ArrayList<>();
+            for (int index = 0; index < files.size(); index++) {
+                Object item = files.get(index);
+                String error = item instanceof Map ? null : "Invalid entry";
+                BatchEntry entry = null;
+                if (error == null) {
+                    Map<?, ?> file = (Map<?, ?>) item;
+                    String fileName = ValidationUtils.sanitizeFileName((String) file.get("fileName"));
+                    Object fileSizeObj = file.get("fileSize");
+                    String sha256 = (String) file.get("sha256");
+                    error = validate(fileName, fileSizeObj, sha256);
+                    if (error == null) {
+                        entry = new BatchEntry(index, fileName, ((Number) fileSizeObj).longValue(),
+                                               sha256.toLowerCase());
+                    }
+                }
+                if (entry != null) {
+                    accepted.add(entry);
+                } else {
+                    rejected.add(Map.of("index", index, "message", error));
+                }
+            }
+
+            if (accepted.isEmpty()) {
+                return Response.error(ResponseCode.VALIDATION_ERROR,
+                    "No valid file in batch: " + rejected.get(0).get("message"));
+            }
+
+            context.setUploadBatchContext(accepted);
+
+            LOG.info("BEGIN from userId=" + context.getUserId() + ", files=" + accepted.size() +
+                   ", rejected=" + rejected.size());
+
+            return Response.success("READY", Map.of(
+                "status", "READY",
+                "message", "Ready to receive file bytes",
+                "rejected", rejected
+            ));
+
+        } catch (Exception e) {
+            LOG.error("Error in handleBegin: " + e.getMessage());
+            return Response.error(ResponseCode.SERVER_ERROR, "Batch upload initialization failed");
+        }
+    }
+
+    /**
+     * Cùng rule với UPLOAD_BEGIN.
+     *
+     * @return message lỗi, null nếu hợp lệ
+     */
+    private static String validate(String fileName, Object fileSizeObj, String sha256) {
+        if (fileName == null || fileName.isEmpty()) {
+            return "Invalid fileName";
+        }
+        if (!(fileSizeObj instanceof Number)) {
+            return "fileSize is required";
+        }
+        long fileSize = ((Number) fileSizeObj).longValue();
+        if (fileSize <= 0) {
+            return "fileSize must be positive";
+        }
+        if (fileSize > MAX_FILE_SIZE) {
+            return "File too large. Maximum size is " + (MAX_FILE_SIZE / 1024 / 1024) + "MB";
+        }
+        if (sha256 == null || !sha256.matches("^[a-fA-F0-9]{64}$")) {
+            return "Invalid sha256 format";
+        }
+        return null;
+    }
+
+    /**
+     * Nhận bytes của cả batch sau READY rồi commit một lần.
+     * Được gọi từ RequestDispatcher sau khi gửi READY response.
+     *
+     * File sai SHA256 bị loại riêng (stream vẫn đúng vị trí vì đã đọc đủ fileSize bytes).
+     * Lỗi I/O giữa chừng: stream lệch → dọn những gì đã lưu và đóng connection.
+     *
+     * @return true nếu connection dùng tiếp được
+     */
+    public boolean handleFileBytes(InputStream inputStream, OutputStream outputStream, ClientContext context) {
+        List<BatchEntry> entries = context.getUploadBatch();
+        int userId = context.getUserId();
+        List<FileMetadata> created = null;
+        List<BatchEntry> stored = new ArrayList<>();
+
+        try {
+            // 1. Tạo file records của cả batch trong một transaction (để lấy fileId)
+            List<String> names = new ArrayList<>(entries.size());
+            for (BatchEntry entry : entries) {
+                names.add(entry.fileName);
+            }
+            created = fileRepository.createAll(userId, names);
+
+            // 2. Nhận lần lượt từng file; SHA256 sai thì bỏ file đó, tiếp tục file sau
+            Map<Integer, String> failures = new LinkedHashMap<>();
+            List<FileVersion> versions = new ArrayList<>();
+            List<Integer> committedIds = new ArrayList<>();
+            List<Integer> failedIds = new ArrayList<>();
+            for (int i = 0; i < entries.size(); i++) {
+                BatchEntry entry = entries.get(i);
+                entry.fileId = created.get(i).getFileId();
+                String actualSha256 = storageService.saveFile(entry.fileId, 1, inputStream, entry.fileSize);
+                stored.add(entry);
+
+                if (!actualSha256.equalsIgnoreCase(entry.sha256)) {
+                    storageService.deleteFile(entry.fileId, 1);
+                    LOG.error("SHA256 mismatch for fileId=" + entry.fileId);
+                    failures.put(entry.index, "SHA256 mismatch");
+                    failedIds.add(entry.fileId);
+                    continue;
+                }
+                FileVersion version = new FileVersion();
+                version.setFileId(entry.fileId);
+                version.setVersionNumber(1);
+                version.setStoredPath(storageService.getStoredPath(entry.fileId, 1));
+                version.setSizeBytes(entry.fileSize);
+                version.setSha256(actualSha256);
+                version.setUploadedBy(userId);
+                versions.add(version);
+                committedIds.add(entry.fileId);
+            }
+
+            // 3. Commit versions + OWNER permissions (và bỏ file lỗi) trong một transaction
+            try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    versionRepository.createAll(conn, versions);
+                    permissionRepository.addPermissions(conn, committedIds, userId, "OWNER", userId);
+                    fileRepository.deleteAll(conn, failedIds);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+
+            changeTracker.userChanged(userId);
+            for (int fileId : committedIds) {
+                replicationService.enqueue(fileId, 1);
+            }
+
+            // 4. Kết quả theo index trong manifest (entry bị loại ở BEGIN không có ở đây, client đã biết)
+            List<Map<String, Object>> results = new ArrayList<>(entries.size());
+            for (BatchEntry entry : entries) {
+                String failure = failures.get(entry.index);
+                results.add(failure != null
+                    ? Map.of("index", entry.index, "ok", false, "message", failure)
+                    : Map.of("index", entry.index, "ok", true, "fileId", entry.fileId, "versionNumber", 1,
+                             "fileName", entry.fileName, "sizeBytes", entry.fileSize));
+            }
+            sendResponse(outputStream, Response.success("Batch upload finished", Map.of(
+                "uploaded", committedIds.size(),
+                "failed", failures.size(),
+                "files", results
+            )), context);
+
+            LOG.info("SUCCESS userId=" + userId + ", uploaded=" + committedIds.size() +
+                   ", failed=" + failures.size());
+
+            context.clearUploadBatchContext();
+            return true;
+
+        } catch (Exception e) {
+            LOG.error("Error: " + e.getMessage());
+            discard(created, stored);
+            context.clearUploadBatchContext();
+            if (e instanceof SQLException) {
+                // Đã đọc hết bytes: vẫn báo lỗi được cho client
+                try {
+                    sendResponse(outputStream, Response.error(ResponseCode.SERVER_ERROR, "Database error"), context);
+                } catch (Exception ex) {
+                    LOG.error("Failed to send error response: " + ex.getMessage());
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Batch hỏng: xóa bytes đã lưu và soft delete các file record đã tạo.
+     */
+    private void discard(List<FileMetadata> created, List<BatchEntry> stored) {
+        for (BatchEntry entry : stored) {
+            try {
+                storageService.deleteFile(entry.fileId, 1);
+            } catch (Exception e) {
+                LOG.warn("Failed to delete stored fileId=" + entry.fileId + ": " + e.getMessage());
+            }
+        }
+        if (created == null || created.isEmpty()) {
+            return;
+        }
+        List<Integer> fileIds = new ArrayList<>(created.size());
+        for (FileMetadata file : created) {
+            fileIds.add(file.getFileId());
+        }
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            fileRepository.deleteAll(conn, fileIds);
+        } catch (SQLException e) {
+            LOG.warn("Failed to discard batch file records: " + e.getMessage());
+        }
+    }
+
+    private void sendResponse(OutputStream out, Response response, ClientContext context) throws Exception {
+        JsonCodec.writeFrame(out, response, context.getFrameEncoding());
+    }
+
+    /**
+     * Một file được chấp nhận trong batch.
+     */
+    public static final class BatchEntry {
+        private final int index;          // vị trí trong manifest của client
+        private final String fileName;
+        private final long fileSize;
+        private final String sha256;
+        private int fileId;               // gán khi tạo file record
+
+        BatchEntry(int index, String fileName, long fileSize, String sha256) {
+            this.index = index;
+            this.fileName = fileName;
+            this.fileSize = fileSize;
+            this.sha256 = sha256;
+        }
+    }
+
+    private static String findEnvDirectory() {
+        String[] possiblePaths = { ".", "..", "../..", "../../..", System.getProperty("user.dir") };
+        for (String path : possiblePaths) {
+            java.io.File envFile = new java.io.File(path, ".env");
+            if (envFile.exists()) {
+                return path;
+            }
+        }
+        return ".";
+    }
+}
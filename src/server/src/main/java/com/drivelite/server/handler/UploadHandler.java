@@ -3,8 +3,14 @@ package com.drivelite.server.handler;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.Map;
 
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.compression.ChunkedCompressionInputStream;
+import com.drivelite.common.compression.CompressionCodec;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -15,6 +21,10 @@ import com.drivelite.server.db.repository.FileRepository;
 import com.drivelite.server.db.repository.FileVersionRepository;
 import com.drivelite.server.net.ClientContext;
 import com.drivelite.server.security.ValidationUtils;
+import com.drivelite.server.service.ChangeTracker;
+import com.drivelite.server.service.CompressionPolicy;
+import com.drivelite.server.service.ReplicationService;
+import com.drivelite.server.service.ResumableUploadService;
 import com.drivelite.server.service.StorageService;
 
 import io.github.cdimascio.dotenv.Dotenv;
@@ -29,9 +39,15 @@ import io.github.cdimascio.dotenv.Dotenv;
  * 4. Client stream raw bytes (exactly fileSize bytes)
  * 5. Server lưu file, verify SHA256
  * 6. Server trả về UPLOAD_OK { fileId, versionNumber }
+ *
+ * Client gửi kèm "resume": true thì READY có thêm "offset": file đủ lớn được nhận qua part file
+ * ({@link ResumableUploadService}), lần BEGIN lại sau khi mất kết nối trả offset đã nhận và
+ * client chỉ stream phần còn lại (fileSize - offset bytes).
  */
 public class UploadHandler {
 
+    private static final Logger LOG = Log.getLogger("UPLOAD");
+
     private static final long MAX_FILE_SIZE;
     
     static {
@@ -46,12 +62,20 @@ public class UploadHandler {
     private final FileVersionRepository versionRepository;
     private final FilePermissionRepository permissionRepository;
     private final StorageService storageService;
+    private final CompressionPolicy compressionPolicy;
+    private final ReplicationService replicationService;
+    private final ChangeTracker changeTracker;
+    private final ResumableUploadService resumableUploads;
 
     public UploadHandler() {
         this.fileRepository = new FileRepository();
         this.versionRepository = new FileVersionRepository();
         this.permissionRepository = new FilePermissionRepository();
         this.storageService = StorageService.getInstance();
+        this.compressionPolicy = CompressionPolicy.getInstance();
+        this.replicationService = ReplicationService.getInstance();
+        this.changeTracker = ChangeTracker.getInstance();
+        this.resumableUploads = ResumableUploadService.getInstance();
     }
 
     /**
@@ -61,6 +85,8 @@ public class UploadHandler {
      * @return Response READY nếu ok, hoặc error response
      */
     public Response handleBegin(Request request, ClientContext context) {
+        // Lease part file đã giữ (để nhả lại nếu BEGIN lỗi sau khi acquire)
+        String acquiredKey = null;
         try {
             // 1. Kiểm tra authentication
             if (!context.isAuthenticated()) {
@@ -114,24 +140,68 @@ public class UploadHandler {
                 return Response.error(ResponseCode.VALIDATION_ERROR, "Invalid sha256 format");
             }
 
+            // Resume: giữ part file trước khi set upload context (acquire lỗi thì chưa có gì phải dọn),
+            // offset = số bytes đã nhận ở lần trước
+            boolean resume = Boolean.TRUE.equals(data.get("resume"));
+            long offset = 0;
+            if (resume && resumableUploads.isResumable(fileSize)) {
+                String key = ResumableUploadService.keyFor(userId, 0, sha256, fileSize);
+                offset = resumableUploads.acquire(key, context);
+                if (offset < 0) {
+                    return Response.error(ResponseCode.CONFLICT, "Upload already in progress");
+                }
+                acquiredKey = key;
+            }
+
             // 6. Store upload context for later use
             context.setUploadContext(fileName, fileSize, sha256.toLowerCase());
+            if (acquiredKey != null) {
+                context.setUploadResume(acquiredKey, offset);
+            }
 
-            System.out.println("[UPLOAD] BEGIN from userId=" + userId + 
-                             ", fileName=" + fileName + ", size=" + fileSize);
-
-            // 7. Return READY response
-            return Response.success("READY", Map.of(
-                "status", "READY",
-                "message", "Ready to receive file bytes"
-            ));
+            // 7. Negotiate compression (client cũ không gửi "compression" → NONE)
+            CompressionCodec codec = compressionPolicy.negotiate(data.get("compression"));
+            int compressionLevel = compressionPolicy.levelFor(codec);
+            context.setTransferCompression(codec, compressionLevel);
+
+            LOG.info("BEGIN from userId=" + userId + 
+                   ", fileName=" + fileName + ", size=" + fileSize +
+                   ", compression=" + codec + (offset > 0 ? ", resume at " + offset : ""));
+
+            // 8. Return READY response (client cũ không gửi "resume" → giữ nguyên format)
+            Map<String, Object> ready = new HashMap<>();
+            ready.put("status", "READY");
+            ready.put("message", "Ready to receive file bytes");
+            ready.put("compression", codec.name());
+            ready.put("compressionLevel", compressionLevel);
+            if (resume) {
+                ready.put("offset", offset);
+            }
+            return Response.success("READY", ready);
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortBegin(context, acquiredKey);
+            return Response.error(ResponseCode.SERVER_ERROR, "Upload initialization interrupted");
         } catch (Exception e) {
-            System.err.println("[UPLOAD] Error in handleBegin: " + e.getMessage());
+            LOG.error("Error in handleBegin: " + e.getMessage());
+            abortBegin(context, acquiredKey);
             return Response.error(ResponseCode.SERVER_ERROR, "Upload initialization failed");
         }
     }
 
+    /**
+     * BEGIN lỗi: bỏ upload context (nếu không, dispatcher coi response OK tiếp theo là bắt đầu
+     * nhận bytes) và nhả part file đã giữ.
+     */
+    private void abortBegin(ClientContext context, String acquiredKey) {
+        context.clearUploadContext();
+        if (acquiredKey != null) {
+            resumableUploads.release(acquiredKey, context);
+            context.clearUploadResume();
+        }
+    }
+
     /**
      * Xử lý file bytes sau khi client nhận READY.
      * Được gọi từ RequestDispatcher sau khi gửi READY response.
@@ -146,27 +216,36 @@ public class UploadHandler {
         long fileSize = context.getUploadFileSize();
         String expectedSha256 = context.getUploadSha256();
         int userId = context.getUserId();
+        String resumeKey = context.getUploadResumeKey();
 
         try {
+            // Resumable: nhận đủ bytes vào part file trước khi tạo record
+            // (mất kết nối giữa chừng không để lại file rỗng trong DB)
+            if (resumeKey != null) {
+                receivePart(resumeKey, inputStream, fileSize, context);
+            }
+
             // 1. Tạo file record trong DB (để lấy fileId)
             FileMetadata file = fileRepository.create(userId, fileName);
             int fileId = file.getFileId();
             int versionNumber = 1;
 
-            System.out.println("[UPLOAD] Receiving " + fileSize + " bytes for fileId=" + fileId);
+            LOG.info("Receiving " + fileSize + " bytes for fileId=" + fileId);
 
-            // 2. Lưu file vào disk và tính SHA256
-            String actualSha256 = storageService.saveFile(fileId, versionNumber, inputStream, fileSize);
+            // 2. Lưu file vào disk và tính SHA256 (giải nén nếu transfer có nén)
+            String actualSha256 = resumeKey != null
+                ? resumableUploads.commit(resumeKey, fileId, versionNumber, fileSize)
+                : receiveFile(fileId, versionNumber, inputStream, fileSize, context);
 
             // 3. Verify SHA256
             if (!actualSha256.equalsIgnoreCase(expectedSha256)) {
                 // Hash mismatch - xóa file và rollback
                 storageService.deleteFile(fileId, versionNumber);
-                System.err.println("[UPLOAD] SHA256 mismatch for fileId=" + fileId);
+                LOG.error("SHA256 mismatch for fileId=" + fileId);
                 
                 Response errorResponse = Response.error(ResponseCode.VALIDATION_ERROR, 
                     "SHA256 mismatch. Expected: " + expectedSha256 + ", Got: " + actualSha256);
-                sendResponse(outputStream, errorResponse);
+                sendResponse(outputStream, errorResponse, context);
                 return false;
             }
 
@@ -177,6 +256,10 @@ public class UploadHandler {
 
             // 5. Thêm OWNER permission
             permissionRepository.addPermission(fileId, userId, "OWNER", userId);
+            changeTracker.userChanged(userId);
+
+            // Version đã commit → đưa vào hàng đợi replication (copy nền)
+            replicationService.enqueue(fileId, versionNumber);
 
             // 6. Gửi success response
             Response successResponse = Response.success("Upload successful", Map.of(
@@ -186,10 +269,10 @@ public class UploadHandler {
                 "sizeBytes", fileSize,
                 "sha256", actualSha256
             ));
-            sendResponse(outputStream, successResponse);
+            sendResponse(outputStream, successResponse, context);
 
-            System.out.println("[UPLOAD] SUCCESS fileId=" + fileId + ", version=" + versionNumber + 
-                             ", sha256=" + actualSha256);
+            LOG.info("SUCCESS fileId=" + fileId + ", version=" + versionNumber + 
+                   ", sha256=" + actualSha256);
 
             // 7. Clear upload context
             context.clearUploadContext();
@@ -197,39 +280,68 @@ public class UploadHandler {
             return true;
 
         } catch (SQLException e) {
-            System.err.println("[UPLOAD] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             try {
                 Response errorResponse = Response.error(ResponseCode.SERVER_ERROR, "Database error");
-                sendResponse(outputStream, errorResponse);
+                sendResponse(outputStream, errorResponse, context);
             } catch (Exception ex) {
-                System.err.println("[UPLOAD] Failed to send error response: " + ex.getMessage());
+                LOG.error("Failed to send error response: " + ex.getMessage());
             }
             return false;
         } catch (Exception e) {
-            System.err.println("[UPLOAD] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             try {
                 Response errorResponse = Response.error(ResponseCode.SERVER_ERROR, "Upload failed: " + e.getMessage());
-                sendResponse(outputStream, errorResponse);
+                sendResponse(outputStream, errorResponse, context);
             } catch (Exception ex) {
-                System.err.println("[UPLOAD] Failed to send error response: " + ex.getMessage());
+                LOG.error("Failed to send error response: " + ex.getMessage());
             }
             return false;
+        } finally {
+            if (resumeKey != null) {
+                resumableUploads.release(resumeKey, context);
+                context.clearUploadResume();
+            }
+        }
+    }
+
+    /**
+     * Nhận phần còn lại của upload resumable vào part file (giải nén nếu transfer có nén).
+     */
+    private void receivePart(String key, InputStream inputStream, long fileSize, ClientContext context)
+            throws Exception {
+        long offset = context.getUploadResumeOffset();
+        if (!context.isTransferCompressed()) {
+            resumableUploads.receive(key, inputStream, offset, fileSize);
+            return;
+        }
+        try (ChunkedCompressionInputStream decoder = new ChunkedCompressionInputStream(inputStream)) {
+            resumableUploads.receive(key, decoder, offset, fileSize);
+            decoder.finish();
+        }
+    }
+
+    /**
+     * Đọc file bytes từ socket và lưu vào storage.
+     * Nếu đã negotiate codec, bytes trên dây là chunked compression stream
+     * và phải đọc đến chunk kết thúc để frame tiếp theo không bị lệch.
+     */
+    private String receiveFile(int fileId, int versionNumber, InputStream inputStream,
+                               long fileSize, ClientContext context) throws Exception {
+        if (!context.isTransferCompressed()) {
+            return storageService.saveFile(fileId, versionNumber, inputStream, fileSize);
+        }
+        try (ChunkedCompressionInputStream decoder = new ChunkedCompressionInputStream(inputStream)) {
+            String sha256 = storageService.saveFile(fileId, versionNumber, decoder, fileSize);
+            decoder.finish();
+            LOG.info("Compressed transfer: " + decoder.getWireBytes() +
+                   " wire bytes for " + fileSize + " bytes (" + context.getTransferCompression() + ")");
+            return sha256;
         }
     }
 
-    private void sendResponse(OutputStream out, Response response) throws Exception {
-        String json = response.toJson();
-        byte[] bytes = json.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-        
-        // Write length prefix (4 bytes, big-endian)
-        out.write((bytes.length >> 24) & 0xFF);
-        out.write((bytes.length >> 16) & 0xFF);
-        out.write((bytes.length >> 8) & 0xFF);
-        out.write(bytes.length & 0xFF);
-        
-        // Write payload
-        out.write(bytes);
-        out.flush();
+    private void sendResponse(OutputStream out, Response response, ClientContext context) throws Exception {
+        JsonCodec.writeFrame(out, response, context.getFrameEncoding());
     }
 
     private static String findEnvDirectory() {
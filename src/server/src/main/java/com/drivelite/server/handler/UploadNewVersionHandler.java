@@ -3,9 +3,15 @@ package com.drivelite.server.handler;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.compression.ChunkedCompressionInputStream;
+import com.drivelite.common.compression.CompressionCodec;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
@@ -15,6 +21,10 @@ import com.drivelite.server.db.repository.FileRepository;
 import com.drivelite.server.db.repository.FileVersionRepository;
 import com.drivelite.server.net.ClientContext;
 import com.drivelite.server.net.RequestHandler;
+import com.drivelite.server.service.ChangeTracker;
+import com.drivelite.server.service.CompressionPolicy;
+import com.drivelite.server.service.ReplicationService;
+import com.drivelite.server.service.ResumableUploadService;
 import com.drivelite.server.service.StorageService;
 
 import io.github.cdimascio.dotenv.Dotenv;
@@ -30,9 +40,13 @@ import io.github.cdimascio.dotenv.Dotenv;
  * 4. Client stream raw bytes (exactly fileSize bytes)
  * 5. Server lưu file, verify SHA256
  * 6. Server trả về UPLOAD_OK { fileId, versionNumber }
+ *
+ * "resume": true → READY có thêm "offset", như UPLOAD_BEGIN ({@link ResumableUploadService}).
  */
 public class UploadNewVersionHandler implements RequestHandler {
 
+    private static final Logger LOG = Log.getLogger("UPLOAD_NEW_VERSION");
+
     private static final long MAX_FILE_SIZE;
     
     static {
@@ -47,12 +61,20 @@ public class UploadNewVersionHandler implements RequestHandler {
     private final FileVersionRepository versionRepository;
     private final FilePermissionRepository permissionRepository;
     private final StorageService storageService;
+    private final CompressionPolicy compressionPolicy;
+    private final ReplicationService replicationService;
+    private final ChangeTracker changeTracker;
+    private final ResumableUploadService resumableUploads;
 
     public UploadNewVersionHandler() {
         this.fileRepository = new FileRepository();
         this.versionRepository = new FileVersionRepository();
         this.permissionRepository = new FilePermissionRepository();
         this.storageService = StorageService.getInstance();
+        this.compressionPolicy = CompressionPolicy.getInstance();
+        this.replicationService = ReplicationService.getInstance();
+        this.changeTracker = ChangeTracker.getInstance();
+        this.resumableUploads = ResumableUploadService.getInstance();
     }
 
     @Override
@@ -65,6 +87,8 @@ public class UploadNewVersionHandler implements RequestHandler {
      * Trả về READY response với versionNumber mới.
      */
     public Response handleBegin(Request request, ClientContext context) {
+        // Lease part file đã giữ (để nhả lại nếu BEGIN lỗi sau khi acquire)
+        String acquiredKey = null;
         try {
             // 1. Kiểm tra authentication
             if (!context.isAuthenticated()) {
@@ -128,8 +152,8 @@ public class UploadNewVersionHandler implements RequestHandler {
 
             // 6. Kiểm tra quyền EDIT hoặc OWNER
             if (!permissionRepository.hasMinimumPermission(fileId, userId, "EDIT")) {
-                System.out.println("[UPLOAD_NEW_VERSION] Forbidden: userId=" + userId + 
-                                 " has no EDIT permission on fileId=" + fileId);
+                LOG.info("Forbidden: userId=" + userId + 
+                       " has no EDIT permission on fileId=" + fileId);
                 return Response.error(ResponseCode.FORBIDDEN, 
                     "EDIT or OWNER permission required to upload new version");
             }
@@ -137,29 +161,73 @@ public class UploadNewVersionHandler implements RequestHandler {
             // 7. Tính version number mới
             int newVersionNumber = file.getCurrentVersion() + 1;
 
+            // Resume: giữ part file trước khi set upload context (acquire lỗi thì chưa có gì phải dọn),
+            // offset = số bytes đã nhận ở lần trước
+            boolean resume = Boolean.TRUE.equals(data.get("resume"));
+            long offset = 0;
+            if (resume && resumableUploads.isResumable(fileSize)) {
+                String key = ResumableUploadService.keyFor(userId, fileId, sha256, fileSize);
+                offset = resumableUploads.acquire(key, context);
+                if (offset < 0) {
+                    return Response.error(ResponseCode.CONFLICT, "Upload already in progress");
+                }
+                acquiredKey = key;
+            }
+
             // 8. Store upload context
             context.setUploadNewVersionContext(fileId, newVersionNumber, fileSize, sha256.toLowerCase(), note);
+            if (acquiredKey != null) {
+                context.setUploadResume(acquiredKey, offset);
+            }
 
-            System.out.println("[UPLOAD_NEW_VERSION] BEGIN from userId=" + userId + 
-                             ", fileId=" + fileId + ", newVersion=" + newVersionNumber + 
-                             ", size=" + fileSize);
-
-            // 9. Return READY response
-            return Response.success("READY", Map.of(
-                "status", "READY",
-                "message", "Ready to receive file bytes",
-                "versionNumber", newVersionNumber
-            ));
+            // 9. Negotiate compression (client cũ không gửi "compression" → NONE)
+            CompressionCodec codec = compressionPolicy.negotiate(data.get("compression"));
+            int compressionLevel = compressionPolicy.levelFor(codec);
+            context.setTransferCompression(codec, compressionLevel);
+
+            LOG.info("BEGIN from userId=" + userId + 
+                   ", fileId=" + fileId + ", newVersion=" + newVersionNumber + 
+                   ", size=" + fileSize + ", compression=" + codec +
+                   (offset > 0 ? ", resume at " + offset : ""));
+
+            // 10. Return READY response (client cũ không gửi "resume" → giữ nguyên format)
+            Map<String, Object> ready = new HashMap<>();
+            ready.put("status", "READY");
+            ready.put("message", "Ready to receive file bytes");
+            ready.put("versionNumber", newVersionNumber);
+            ready.put("compression", codec.name());
+            ready.put("compressionLevel", compressionLevel);
+            if (resume) {
+                ready.put("offset", offset);
+            }
+            return Response.success("READY", ready);
 
         } catch (SQLException e) {
-            System.err.println("[UPLOAD_NEW_VERSION] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             return Response.error(ResponseCode.SERVER_ERROR, "Database error");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortBegin(context, acquiredKey);
+            return Response.error(ResponseCode.SERVER_ERROR, "Upload initialization interrupted");
         } catch (Exception e) {
-            System.err.println("[UPLOAD_NEW_VERSION] Error in handleBegin: " + e.getMessage());
+            LOG.error("Error in handleBegin: " + e.getMessage());
+            abortBegin(context, acquiredKey);
             return Response.error(ResponseCode.SERVER_ERROR, "Upload initialization failed");
         }
     }
 
+    /**
+     * BEGIN lỗi: bỏ upload context (nếu không, dispatcher coi response OK tiếp theo là bắt đầu
+     * nhận bytes) và nhả part file đã giữ.
+     */
+    private void abortBegin(ClientContext context, String acquiredKey) {
+        context.clearUploadNewVersionContext();
+        if (acquiredKey != null) {
+            resumableUploads.release(acquiredKey, context);
+            context.clearUploadResume();
+        }
+    }
+
     /**
      * Xử lý file bytes sau khi client nhận READY.
      */
@@ -170,22 +238,29 @@ public class UploadNewVersionHandler implements RequestHandler {
         String expectedSha256 = context.getUploadNewVersionSha256();
         String note = context.getUploadNewVersionNote();
         int userId = context.getUserId();
+        String resumeKey = context.getUploadResumeKey();
 
         try {
-            System.out.println("[UPLOAD_NEW_VERSION] Receiving " + fileSize + " bytes for fileId=" + fileId + 
-                             ", version=" + versionNumber);
-
-            // 1. Lưu file vào disk và tính SHA256
-            String actualSha256 = storageService.saveFile(fileId, versionNumber, inputStream, fileSize);
+            LOG.info("Receiving " + fileSize + " bytes for fileId=" + fileId + 
+                   ", version=" + versionNumber);
+
+            // 1. Lưu file vào disk và tính SHA256 (giải nén nếu transfer có nén)
+            String actualSha256;
+            if (resumeKey != null) {
+                receivePart(resumeKey, inputStream, fileSize, context);
+                actualSha256 = resumableUploads.commit(resumeKey, fileId, versionNumber, fileSize);
+            } else {
+                actualSha256 = receiveFile(fileId, versionNumber, inputStream, fileSize, context);
+            }
 
             // 2. Verify SHA256
             if (!actualSha256.equalsIgnoreCase(expectedSha256)) {
                 storageService.deleteFile(fileId, versionNumber);
-                System.err.println("[UPLOAD_NEW_VERSION] SHA256 mismatch for fileId=" + fileId);
+                LOG.error("SHA256 mismatch for fileId=" + fileId);
                 
                 Response errorResponse = Response.error(ResponseCode.VALIDATION_ERROR, 
                     "SHA256 mismatch. Expected: " + expectedSha256 + ", Got: " + actualSha256);
-                sendResponse(outputStream, errorResponse);
+                sendResponse(outputStream, errorResponse, context);
                 return false;
             }
 
@@ -195,6 +270,10 @@ public class UploadNewVersionHandler implements RequestHandler {
 
             // 4. Cập nhật current version trong Files table
             fileRepository.updateCurrentVersion(fileId, versionNumber);
+            changeTracker.fileChanged(fileId);
+
+            // Version đã commit → đưa vào hàng đợi replication (copy nền)
+            replicationService.enqueue(fileId, versionNumber);
 
             // 5. Lấy tên file gốc
             Optional<FileMetadata> fileOpt = fileRepository.findById(fileId);
@@ -208,10 +287,10 @@ public class UploadNewVersionHandler implements RequestHandler {
                 "sizeBytes", fileSize,
                 "sha256", actualSha256
             ));
-            sendResponse(outputStream, successResponse);
+            sendResponse(outputStream, successResponse, context);
 
-            System.out.println("[UPLOAD_NEW_VERSION] SUCCESS fileId=" + fileId + 
-                             ", version=" + versionNumber + ", sha256=" + actualSha256);
+            LOG.info("SUCCESS fileId=" + fileId + 
+                   ", version=" + versionNumber + ", sha256=" + actualSha256);
 
             // 7. Clear upload context
             context.clearUploadNewVersionContext();
@@ -219,37 +298,66 @@ public class UploadNewVersionHandler implements RequestHandler {
             return true;
 
         } catch (SQLException e) {
-            System.err.println("[UPLOAD_NEW_VERSION] Database error: " + e.getMessage());
+            LOG.error("Database error: " + e.getMessage());
             try {
                 Response errorResponse = Response.error(ResponseCode.SERVER_ERROR, "Database error");
-                sendResponse(outputStream, errorResponse);
+                sendResponse(outputStream, errorResponse, context);
             } catch (Exception ex) {
-                System.err.println("[UPLOAD_NEW_VERSION] Failed to send error response: " + ex.getMessage());
+                LOG.error("Failed to send error response: " + ex.getMessage());
             }
             return false;
         } catch (Exception e) {
-            System.err.println("[UPLOAD_NEW_VERSION] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             try {
                 Response errorResponse = Response.error(ResponseCode.SERVER_ERROR, "Upload failed: " + e.getMessage());
-                sendResponse(outputStream, errorResponse);
+                sendResponse(outputStream, errorResponse, context);
             } catch (Exception ex) {
-                System.err.println("[UPLOAD_NEW_VERSION] Failed to send error response: " + ex.getMessage());
+                LOG.error("Failed to send error response: " + ex.getMessage());
             }
             return false;
+        } finally {
+            if (resumeKey != null) {
+                resumableUploads.release(resumeKey, context);
+                context.clearUploadResume();
+            }
+        }
+    }
+
+    /**
+     * Nhận phần còn lại của upload resumable vào part file (giải nén nếu transfer có nén).
+     */
+    private void receivePart(String key, InputStream inputStream, long fileSize, ClientContext context)
+            throws Exception {
+        long offset = context.getUploadResumeOffset();
+        if (!context.isTransferCompressed()) {
+            resumableUploads.receive(key, inputStream, offset, fileSize);
+            return;
+        }
+        try (ChunkedCompressionInputStream decoder = new ChunkedCompressionInputStream(inputStream)) {
+            resumableUploads.receive(key, decoder, offset, fileSize);
+            decoder.finish();
+        }
+    }
+
+    /**
+     * Đọc file bytes từ socket (giải nén nếu cần) và lưu vào storage.
+     */
+    private String receiveFile(int fileId, int versionNumber, InputStream inputStream,
+                               long fileSize, ClientContext context) throws Exception {
+        if (!context.isTransferCompressed()) {
+            return storageService.saveFile(fileId, versionNumber, inputStream, fileSize);
+        }
+        try (ChunkedCompressionInputStream decoder = new ChunkedCompressionInputStream(inputStream)) {
+            String sha256 = storageService.saveFile(fileId, versionNumber, decoder, fileSize);
+            decoder.finish();
+            LOG.info("Compressed transfer: " + decoder.getWireBytes() +
+                   " wire bytes for " + fileSize + " bytes (" + context.getTransferCompression() + ")");
+            return sha256;
         }
     }
 
-    private void sendResponse(OutputStream out, Response response) throws Exception {
-        String json = response.toJson();
-        byte[] bytes = json.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-        
-        out.write((bytes.length >> 24) & 0xFF);
-        out.write((bytes.length >> 16) & 0xFF);
-        out.write((bytes.length >> 8) & 0xFF);
-        out.write(bytes.length & 0xFF);
-        
-        out.write(bytes);
-        out.flush();
+    private void sendResponse(OutputStream out, Response response, ClientContext context) throws Exception {
+        JsonCodec.writeFrame(out, response, context.getFrameEncoding());
     }
 
     private static String findEnvDirectory() {
@@ -0,0 +1,30 @@
+package com.drivelite.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event cho mỗi request được RequestDispatcher xử lý (không gồm phase raw bytes).
+ */
+@Name("drivelite.Dispatch")
+@Label("Request Dispatch")
+@Category({ "Drive-lite", "Dispatch" })
+@Description("Một request JSON từ lúc parse đến khi handler trả response")
+@StackTrace(false)
+@Threshold("5 ms")
+public class DispatchEvent extends Event {
+
+    @Label("Message Type")
+    public String messageType;
+
+    @Label("Request Id")
+    public String requestId;
+
+    @Label("Response Code")
+    public String responseCode;
+}
@@ -0,0 +1,43 @@
+package com.drivelite.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event cho DownloadHandler.streamFileBytes (phase raw bytes của download).
+ */
+@Name("drivelite.DownloadStream")
+@Label("Download Stream")
+@Category({ "Drive-lite", "Transfer" })
+@Description("Stream bytes của một version về client")
+@StackTrace(false)
+@Threshold("0 ms")
+public class DownloadStreamEvent extends Event {
+
+    @Label("File Id")
+    public int fileId;
+
+    @Label("Version")
+    public int versionNumber;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Wire Bytes")
+    @Description("Bytes thực gửi trên socket (khác Bytes khi có nén)")
+    @DataAmount
+    public long wireBytes;
+
+    @Label("Compression")
+    public String compression;
+
+    @Label("Success")
+    public boolean success;
+}
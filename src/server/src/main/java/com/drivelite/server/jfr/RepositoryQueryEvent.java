@@ -0,0 +1,33 @@
+package com.drivelite.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event cho mỗi lần thực thi SQL trong repository
+ * (executeQuery: đến khi ResultSet đóng, gồm thời gian fetch rows).
+ */
+@Name("drivelite.RepositoryQuery")
+@Label("Repository Query")
+@Category({ "Drive-lite", "Database" })
+@Description("Một lần thực thi PreparedStatement của repository")
+@StackTrace(false)
+@Threshold("10 ms")
+public class RepositoryQueryEvent extends Event {
+
+    @Label("Statement")
+    @Description("Repository.method gọi statement")
+    public String statement;
+
+    @Label("SQL")
+    public String sql;
+
+    @Label("Rows")
+    @Description("Số row đọc được (query) hoặc bị ảnh hưởng (update)")
+    public long rows;
+}
@@ -0,0 +1,40 @@
+package com.drivelite.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event cho StorageService.saveFile (ghi blob) và readFile (từ lúc mở đến khi stream đóng).
+ */
+@Name("drivelite.StorageIo")
+@Label("Storage I/O")
+@Category({ "Drive-lite", "Storage" })
+@Description("Ghi hoặc đọc toàn bộ một version blob")
+@StackTrace(false)
+@Threshold("10 ms")
+public class StorageIoEvent extends Event {
+
+    @Label("Operation")
+    @Description("save | read")
+    public String operation;
+
+    @Label("Tier")
+    @Description("hot | cold | pack")
+    public String tier;
+
+    @Label("File Id")
+    public int fileId;
+
+    @Label("Version")
+    public int versionNumber;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
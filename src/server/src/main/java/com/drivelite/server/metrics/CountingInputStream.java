@@ -0,0 +1,45 @@
+package com.drivelite.server.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Đếm bytes đọc từ socket vào {@link MetricsRegistry} (LongAdder, không lock).
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private final MetricsRegistry metrics;
+
+    public CountingInputStream(InputStream in, MetricsRegistry metrics) {
+        super(in);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            metrics.recordBytesIn(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            metrics.recordBytesIn(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        if (skipped > 0) {
+            metrics.recordBytesIn(skipped);
+        }
+        return skipped;
+    }
+}
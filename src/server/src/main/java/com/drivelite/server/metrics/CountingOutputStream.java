@@ -0,0 +1,31 @@
+package com.drivelite.server.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Đếm bytes ghi ra socket vào {@link MetricsRegistry} (LongAdder, không lock).
+ * Ghi nguyên mảng xuống stream gốc (FilterOutputStream mặc định ghi từng byte).
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+    private final MetricsRegistry metrics;
+
+    public CountingOutputStream(OutputStream out, MetricsRegistry metrics) {
+        super(out);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        metrics.recordBytesOut(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        metrics.recordBytesOut(len);
+    }
+}
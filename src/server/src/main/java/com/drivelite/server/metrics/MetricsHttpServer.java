@@ -0,0 +1,224 @@
+package com.drivelite.server.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.drivelite.common.metrics.LatencyHistogram;
+import com.drivelite.common.protocol.MessageType;
+import com.drivelite.common.protocol.ResponseCode;
+import com.drivelite.server.db.SqlStatistics;
+import com.drivelite.server.storage.StorageMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP endpoint GET /metrics (Prometheus text format 0.0.4) cho server,
+ * và GET /sql?top=N (báo cáo text top-N SQL statements, xem {@link SqlStatistics}).
+ *
+ * Chạy trên thread riêng của JDK HttpServer; mọi giá trị được đọc từ atomic/LongAdder
+ * nên scrape không lấy lock nào trên đường upload/download.
+ *
+ * Bật bằng METRICS_PORT trong .env; mặc định chỉ bind 127.0.0.1 (METRICS_BIND_ADDRESS).
+ */
+public class MetricsHttpServer {
+
+    private static final Logger LOG = Log.getLogger("METRICS");
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+    private static final int DEFAULT_SQL_TOP = 20;
+
+    private final MetricsRegistry metrics;
+    private final HttpServer server;
+
+    // Bytes/s được tính giữa 2 lần scrape (chỉ thread HTTP đụng tới)
+    private long lastScrapeNanos;
+    private long lastBytesIn;
+    private long lastBytesOut;
+
+    public MetricsHttpServer(String bindAddress, int port) throws IOException {
+        this.metrics = MetricsRegistry.getInstance();
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        this.server.createContext("/metrics", this::handle);
+        this.server.createContext("/sql", this::handleSql);
+        this.server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metrics-http");
+            t.setDaemon(true);
+            return t;
+        }));
+        this.lastScrapeNanos = System.nanoTime();
+    }
+
+    public void start() {
+        server.start();
+        LOG.info("Serving http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/metrics");
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            send(exchange, render(), "text/plain; version=0.0.4; charset=utf-8");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleSql(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            int top = DEFAULT_SQL_TOP;
+            String query = exchange.getRequestURI().getQuery();
+            if (query != null && query.startsWith("top=")) {
+                try {
+                    top = Math.max(1, Integer.parseInt(query.substring(4)));
+                } catch (NumberFormatException e) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+            }
+            send(exchange, SqlStatistics.getInstance().formatTopN(top), "text/plain; charset=utf-8");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, String text, String contentType) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Render toàn bộ metrics theo text format của Prometheus.
+     */
+    String render() {
+        StringBuilder sb = new StringBuilder(8192);
+
+        gauge(sb, "drivelite_uptime_seconds", "Server uptime", metrics.getUptimeMillis() / 1000.0);
+        gauge(sb, "drivelite_connections_active", "Open client connections", metrics.getActiveConnections());
+        gauge(sb, "drivelite_uploads_in_flight", "Uploads currently receiving bytes", metrics.getInFlightUploads());
+        gauge(sb, "drivelite_downloads_in_flight", "Downloads currently streaming bytes", metrics.getInFlightDownloads());
+        gauge(sb, "drivelite_db_connections_open", "JDBC connections currently held by repositories", metrics.getOpenDbConnections());
+
+        long bytesIn = metrics.getBytesIn();
+        long bytesOut = metrics.getBytesOut();
+        counter(sb, "drivelite_bytes_in_total", "Bytes read from client sockets", bytesIn);
+        counter(sb, "drivelite_bytes_out_total", "Bytes written to client sockets", bytesOut);
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-3, (now - lastScrapeNanos) / 1e9);
+        gauge(sb, "drivelite_bytes_in_per_second", "Inbound bytes/s since previous scrape", (bytesIn - lastBytesIn) / seconds);
+        gauge(sb, "drivelite_bytes_out_per_second", "Outbound bytes/s since previous scrape", (bytesOut - lastBytesOut) / seconds);
+        lastScrapeNanos = now;
+        lastBytesIn = bytesIn;
+        lastBytesOut = bytesOut;
+
+        // Latency theo MessageType (summary, giây)
+        header(sb, "drivelite_request_duration_seconds", "Request handling latency by message type", "summary");
+        for (Map.Entry<MessageType, LatencyHistogram.Snapshot> entry : metrics.getRequestLatencies().entrySet()) {
+            summary(sb, "drivelite_request_duration_seconds", "type=\"" + entry.getKey().name() + "\"", entry.getValue());
+        }
+        header(sb, "drivelite_auth_duration_seconds", "AuthMiddleware session check latency", "summary");
+        summary(sb, "drivelite_auth_duration_seconds", null, metrics.getAuthLatency());
+        header(sb, "drivelite_repository_duration_seconds", "Time a JDBC connection is held per repository call", "summary");
+        summary(sb, "drivelite_repository_duration_seconds", null, metrics.getRepositoryLatency());
+
+        // SQL theo statement (label = "Repository.method", số lượng cố định theo code)
+        List<SqlStatistics.Snapshot> statements = SqlStatistics.getInstance().snapshot();
+        header(sb, "drivelite_sql_statements_total", "SQL statement executions by repository method", "counter");
+        for (SqlStatistics.Snapshot st : statements) {
+            sample(sb, "drivelite_sql_statements_total", "statement=\"" + st.getStatement() + "\"", st.getCount());
+        }
+        header(sb, "drivelite_sql_statement_seconds_total", "Time spent executing SQL by repository method", "counter");
+        for (SqlStatistics.Snapshot st : statements) {
+            sample(sb, "drivelite_sql_statement_seconds_total", "statement=\"" + st.getStatement() + "\"", st.getTotalNanos() / 1e9);
+        }
+        header(sb, "drivelite_sql_rows_total", "Rows returned or updated by repository method", "counter");
+        for (SqlStatistics.Snapshot st : statements) {
+            sample(sb, "drivelite_sql_rows_total", "statement=\"" + st.getStatement() + "\"", st.getRows());
+        }
+
+        header(sb, "drivelite_responses_total", "Responses by response code", "counter");
+        for (Map.Entry<ResponseCode, Long> entry : metrics.getResponseCodeCounts().entrySet()) {
+            sample(sb, "drivelite_responses_total", "code=\"" + entry.getKey().name() + "\"", entry.getValue());
+        }
+
+        // Storage reads (hot vs cold tier)
+        StorageMetrics storage = StorageMetrics.getInstance();
+        header(sb, "drivelite_storage_reads_total", "Blob reads by tier", "counter");
+        sample(sb, "drivelite_storage_reads_total", "tier=\"hot\"", storage.getHotReads().getCount());
+        sample(sb, "drivelite_storage_reads_total", "tier=\"cold\"", storage.getColdReads().getCount());
+        header(sb, "drivelite_storage_read_bytes_total", "Blob bytes read by tier", "counter");
+        sample(sb, "drivelite_storage_read_bytes_total", "tier=\"hot\"", storage.getHotReads().getBytes());
+        sample(sb, "drivelite_storage_read_bytes_total", "tier=\"cold\"", storage.getColdReads().getBytes());
+        counter(sb, "drivelite_cold_tier_reclaimed_bytes_total", "Bytes saved by cold tier compression", storage.getBytesReclaimed());
+
+        // Gauge do component khác đăng ký (pool, cache, replication...)
+        for (MetricsRegistry.Gauge gauge : metrics.getGauges()) {
+            double value;
+            try {
+                value = gauge.read();
+            } catch (RuntimeException e) {
+                continue;
+            }
+            gauge(sb, gauge.getName(), gauge.getHelp(), value);
+        }
+        return sb.toString();
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, double value) {
+        header(sb, name, help, "gauge");
+        sample(sb, name, null, value);
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, double value) {
+        header(sb, name, help, "counter");
+        sample(sb, name, null, value);
+    }
+
+    private static void summary(StringBuilder sb, String name, String labels, LatencyHistogram.Snapshot snapshot) {
+        String prefix = labels == null ? "" : labels + ",";
+        for (double q : QUANTILES) {
+            sample(sb, name, prefix + "quantile=\"" + q + "\"", snapshot.getValueAtPercentile(q * 100) / 1e6);
+        }
+        sample(sb, name + "_sum", labels, snapshot.getTotalMicros() / 1e6);
+        sample(sb, name + "_count", labels, snapshot.getCount());
+    }
+
+    private static void header(StringBuilder sb, String name, String help, String type) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name);
+        if (labels != null && !labels.isEmpty()) {
+            sb.append('{').append(labels).append('}');
+        }
+        sb.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            sb.append((long) value);
+        } else {
+            sb.append(String.format(Locale.ROOT, "%.6g", value));
+        }
+        sb.append('\n');
+    }
+}
@@ -0,0 +1,244 @@
+package com.drivelite.server.metrics;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import com.drivelite.common.metrics.LatencyHistogram;
+import com.drivelite.common.protocol.MessageType;
+import com.drivelite.common.protocol.ResponseCode;
+
+/**
+ * Metrics của server: latency theo MessageType, số response theo ResponseCode,
+ * thời gian AuthMiddleware và thời gian giữ DB connection (repository calls),
+ * connection/transfer đang mở và tổng bytes vào/ra socket.
+ *
+ * Component khác (pool, cache...) đăng ký gauge riêng qua {@link #registerGauge};
+ * giá trị chỉ được đọc khi scrape.
+ *
+ * Tất cả histogram/counter được tạo sẵn khi khởi tạo, nên các hàm record* trên hot path
+ * không cấp phát object và không lock. Snapshot có thể lấy bất kỳ lúc nào khi server đang chạy.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final Map<MessageType, LatencyHistogram> requestLatency = new EnumMap<>(MessageType.class);
+    private final Map<ResponseCode, LongAdder> responseCodes = new EnumMap<>(ResponseCode.class);
+    private final LatencyHistogram authLatency = new LatencyHistogram();
+    private final LatencyHistogram repositoryLatency = new LatencyHistogram();
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicInteger inFlightUploads = new AtomicInteger();
+    private final AtomicInteger inFlightDownloads = new AtomicInteger();
+    private final AtomicInteger openDbConnections = new AtomicInteger();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+
+    private MetricsRegistry() {
+        for (MessageType type : MessageType.values()) {
+            requestLatency.put(type, new LatencyHistogram());
+        }
+        for (ResponseCode code : ResponseCode.values()) {
+            responseCodes.put(code, new LongAdder());
+        }
+    }
+
+    /**
+     * Singleton khởi tạo sẵn (getInstance không cần synchronized trên hot path).
+     */
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Ghi nhận một request đã xử lý xong.
+     *
+     * @param type MessageType (null nếu request không parse được type)
+     * @param nanos Thời gian từ lúc nhận frame đến khi có response
+     * @param code ResponseCode của response
+     */
+    public void recordRequest(MessageType type, long nanos, ResponseCode code) {
+        if (type != null) {
+            requestLatency.get(type).recordNanos(nanos);
+        }
+        if (code != null) {
+            responseCodes.get(code).increment();
+        }
+    }
+
+    public void recordAuth(long nanos) {
+        authLatency.recordNanos(nanos);
+    }
+
+    public void recordRepository(long nanos) {
+        repositoryLatency.recordNanos(nanos);
+    }
+
+    // ========== Connections & transfers ==========
+
+    public void connectionOpened() {
+        activeConnections.incrementAndGet();
+    }
+
+    public void connectionClosed() {
+        activeConnections.decrementAndGet();
+    }
+
+    /**
+     * @param upload true cho upload (kể cả upload new version), false cho download
+     */
+    public void transferStarted(boolean upload) {
+        (upload ? inFlightUploads : inFlightDownloads).incrementAndGet();
+    }
+
+    public void transferFinished(boolean upload) {
+        (upload ? inFlightUploads : inFlightDownloads).decrementAndGet();
+    }
+
+    public void dbConnectionOpened() {
+        openDbConnections.incrementAndGet();
+    }
+
+    public void dbConnectionClosed() {
+        openDbConnections.decrementAndGet();
+    }
+
+    public void recordBytesIn(long bytes) {
+        bytesIn.add(bytes);
+    }
+
+    public void recordBytesOut(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    public int getInFlightUploads() {
+        return inFlightUploads.get();
+    }
+
+    public int getInFlightDownloads() {
+        return inFlightDownloads.get();
+    }
+
+    public int getOpenDbConnections() {
+        return openDbConnections.get();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    // ========== Gauges ==========
+
+    /**
+     * Gauge đọc giá trị lúc scrape (vd: pool usage, cache hit rate).
+     */
+    public static final class Gauge {
+        private final String name;
+        private final String help;
+        private final DoubleSupplier value;
+
+        Gauge(String name, String help, DoubleSupplier value) {
+            this.name = name;
+            this.help = help;
+            this.value = value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHelp() {
+            return help;
+        }
+
+        public double read() {
+            return value.getAsDouble();
+        }
+    }
+
+    /**
+     * Đăng ký gauge (tên theo quy ước Prometheus, vd: "drivelite_cache_hit_ratio").
+     * Đăng ký lại cùng tên thì thay thế gauge cũ.
+     */
+    public void registerGauge(String name, String help, DoubleSupplier value) {
+        gauges.removeIf(g -> g.name.equals(name));
+        gauges.add(new Gauge(name, help, value));
+    }
+
+    public List<Gauge> getGauges() {
+        return gauges;
+    }
+
+    public LatencyHistogram.Snapshot getRequestLatency(MessageType type) {
+        return requestLatency.get(type).snapshot();
+    }
+
+    /**
+     * Snapshot latency của các MessageType đã có request.
+     */
+    public Map<MessageType, LatencyHistogram.Snapshot> getRequestLatencies() {
+        Map<MessageType, LatencyHistogram.Snapshot> result = new EnumMap<>(MessageType.class);
+        for (Map.Entry<MessageType, LatencyHistogram> entry : requestLatency.entrySet()) {
+            if (entry.getValue().getCount() > 0) {
+                result.put(entry.getKey(), entry.getValue().snapshot());
+            }
+        }
+        return result;
+    }
+
+    public Map<ResponseCode, Long> getResponseCodeCounts() {
+        Map<ResponseCode, Long> result = new EnumMap<>(ResponseCode.class);
+        for (Map.Entry<ResponseCode, LongAdder> entry : responseCodes.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    public LatencyHistogram.Snapshot getAuthLatency() {
+        return authLatency.snapshot();
+    }
+
+    public LatencyHistogram.Snapshot getRepositoryLatency() {
+        return repositoryLatency.snapshot();
+    }
+
+    public long getUptimeMillis() {
+        return System.currentTimeMillis() - startedAtMillis;
+    }
+
+    /**
+     * Báo cáo dạng text (log khi shutdown hoặc debug).
+     */
+    public String formatReport() {
+        Map<String, Object> lines = new LinkedHashMap<>();
+        for (Map.Entry<MessageType, LatencyHistogram.Snapshot> entry : getRequestLatencies().entrySet()) {
+            lines.put(entry.getKey().name(), entry.getValue());
+        }
+        lines.put("auth", getAuthLatency());
+        lines.put("repository", getRepositoryLatency());
+        lines.put("responses", getResponseCodeCounts());
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Metrics after uptime ").append(getUptimeMillis() / 1000).append("s");
+        for (Map.Entry<String, Object> line : lines.entrySet()) {
+            sb.append(System.lineSeparator()).append("  ").append(line.getKey()).append(": ").append(line.getValue());
+        }
+        return sb.toString();
+    }
+}
@@ -1,6 +1,13 @@
 package com.drivelite.server.net;
 
 import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import com.drivelite.common.codec.FrameEncoding;
+import com.drivelite.common.compression.CompressionCodec;
+import com.drivelite.server.handler.UploadBatchHandler;
+import com.drivelite.server.metrics.MetricsRegistry;
 
 /**
  * ClientContext - Chứa thông tin về client đang kết nối.
@@ -32,6 +39,7 @@ public class ClientContext {
     private int downloadVersionNumber;
     private long downloadFileSize;
     private String downloadSha256;
+    private long downloadOffset;
     private boolean downloading;
     
     // Upload new version context (set khi upload version mới)
@@ -42,6 +50,30 @@ public class ClientContext {
     private String uploadNewVersionNote;
     private boolean uploadingNewVersion;
 
+    // Upload batch context (UPLOAD_BATCH_BEGIN): các file được chấp nhận, theo thứ tự bytes trên dây
+    private List<UploadBatchHandler.BatchEntry> uploadBatch;
+
+    // Upload resumable (UPLOAD_BEGIN / UPLOAD_NEW_VERSION_BEGIN kèm "resume"): part file đang giữ
+    // và offset đã báo cho client
+    private String uploadResumeKey;
+    private long uploadResumeOffset;
+
+    // Codec nén đã negotiate cho transfer hiện tại (mỗi connection chỉ có 1 transfer tại một thời điểm)
+    private CompressionCodec transferCompression = CompressionCodec.NONE;
+    private int transferCompressionLevel;
+
+    // Encoding của control frames server gửi, negotiate bằng HELLO (client v1 không gửi → JSON)
+    private volatile FrameEncoding frameEncoding = FrameEncoding.JSON;
+
+    /** Số request pipelined tối đa đang xử lý cùng lúc cho một connection. */
+    public static final int MAX_PIPELINED_REQUESTS = 32;
+
+    // Pipelining (negotiate bằng HELLO): request control chạy song song trên worker pool,
+    // response mang requestId và có thể về không theo thứ tự
+    private volatile boolean pipelining;
+    private final Semaphore pipelinedPermits = new Semaphore(MAX_PIPELINED_REQUESTS);
+    private final Object writeLock = new Object();
+
     public ClientContext(Socket socket) {
         this.socket = socket;
         this.clientIp = socket.getInetAddress().getHostAddress();
@@ -66,27 +98,28 @@ public class ClientContext {
         return clientIp + ":" + clientPort;
     }
 
-    public String getSessionToken() {
+    public synchronized String getSessionToken() {
         return sessionToken;
     }
 
-    public Integer getUserId() {
+    public synchronized Integer getUserId() {
         return userId;
     }
 
-    public String getUserEmail() {
+    public synchronized String getUserEmail() {
         return userEmail;
     }
 
     // === Setters (dùng sau login) ===
+    // Session được đọc từ nhiều worker khi connection pipelining nên các method session là synchronized
 
-    public void setSession(String token, int userId, String email) {
+    public synchronized void setSession(String token, int userId, String email) {
         this.sessionToken = token;
         this.userId = userId;
         this.userEmail = email;
     }
 
-    public void clearSession() {
+    public synchronized void clearSession() {
         this.sessionToken = null;
         this.userId = null;
         this.userEmail = null;
@@ -95,13 +128,16 @@ public class ClientContext {
     /**
      * Kiểm tra client đã đăng nhập chưa.
      */
-    public boolean isAuthenticated() {
+    public synchronized boolean isAuthenticated() {
         return sessionToken != null && userId != null;
     }
 
     // === Upload context methods ===
     
     public void setUploadContext(String fileName, long fileSize, String sha256) {
+        if (!uploading) {
+            MetricsRegistry.getInstance().transferStarted(true);
+        }
         this.uploadFileName = fileName;
         this.uploadFileSize = fileSize;
         this.uploadSha256 = sha256;
@@ -109,10 +145,14 @@ public class ClientContext {
     }
 
     public void clearUploadContext() {
+        if (uploading) {
+            MetricsRegistry.getInstance().transferFinished(true);
+        }
         this.uploadFileName = null;
         this.uploadFileSize = 0;
         this.uploadSha256 = null;
         this.uploading = false;
+        clearTransferCompression();
     }
 
     public boolean isUploading() {
@@ -134,6 +174,9 @@ public class ClientContext {
     // === Download context methods ===
     
     public void setDownloadContext(int fileId, int versionNumber, long fileSize, String sha256) {
+        if (!downloading) {
+            MetricsRegistry.getInstance().transferStarted(false);
+        }
         this.downloadFileId = fileId;
         this.downloadVersionNumber = versionNumber;
         this.downloadFileSize = fileSize;
@@ -142,11 +185,16 @@ public class ClientContext {
     }
 
     public void clearDownloadContext() {
+        if (downloading) {
+            MetricsRegistry.getInstance().transferFinished(false);
+        }
         this.downloadFileId = 0;
         this.downloadVersionNumber = 0;
         this.downloadFileSize = 0;
         this.downloadSha256 = null;
+        this.downloadOffset = 0;
         this.downloading = false;
+        clearTransferCompression();
     }
 
     public boolean isDownloading() {
@@ -169,9 +217,23 @@ public class ClientContext {
         return downloadSha256;
     }
 
+    /**
+     * Client đã có {@code offset} bytes đầu (download bị ngắt trước đó): chỉ stream phần còn lại.
+     */
+    public void setDownloadOffset(long offset) {
+        this.downloadOffset = offset;
+    }
+
+    public long getDownloadOffset() {
+        return downloadOffset;
+    }
+
     // === Upload new version context methods ===
     
     public void setUploadNewVersionContext(int fileId, int versionNumber, long fileSize, String sha256, String note) {
+        if (!uploadingNewVersion) {
+            MetricsRegistry.getInstance().transferStarted(true);
+        }
         this.uploadNewVersionFileId = fileId;
         this.uploadNewVersionNumber = versionNumber;
         this.uploadNewVersionFileSize = fileSize;
@@ -181,12 +243,16 @@ public class ClientContext {
     }
 
     public void clearUploadNewVersionContext() {
+        if (uploadingNewVersion) {
+            MetricsRegistry.getInstance().transferFinished(true);
+        }
         this.uploadNewVersionFileId = 0;
         this.uploadNewVersionNumber = 0;
         this.uploadNewVersionFileSize = 0;
         this.uploadNewVersionSha256 = null;
         this.uploadNewVersionNote = null;
         this.uploadingNewVersion = false;
+        clearTransferCompression();
     }
 
     public boolean isUploadingNewVersion() {
@@ -213,6 +279,80 @@ public class ClientContext {
         return uploadNewVersionNote;
     }
 
+    // === Upload batch context methods ===
+
+    public void setUploadBatchContext(List<UploadBatchHandler.BatchEntry> entries) {
+        if (uploadBatch == null) {
+            MetricsRegistry.getInstance().transferStarted(true);
+        }
+        this.uploadBatch = entries;
+    }
+
+    public void clearUploadBatchContext() {
+        if (uploadBatch != null) {
+            MetricsRegistry.getInstance().transferFinished(true);
+        }
+        this.uploadBatch = null;
+    }
+
+    public boolean isUploadingBatch() {
+        return uploadBatch != null;
+    }
+
+    public List<UploadBatchHandler.BatchEntry> getUploadBatch() {
+        return uploadBatch;
+    }
+
+    // === Resumable upload methods ===
+
+    public void setUploadResume(String key, long offset) {
+        this.uploadResumeKey = key;
+        this.uploadResumeOffset = offset;
+    }
+
+    public void clearUploadResume() {
+        this.uploadResumeKey = null;
+        this.uploadResumeOffset = 0;
+    }
+
+    /**
+     * Key part file của upload hiện tại, null nếu upload không resumable.
+     */
+    public String getUploadResumeKey() {
+        return uploadResumeKey;
+    }
+
+    public long getUploadResumeOffset() {
+        return uploadResumeOffset;
+    }
+
+    // === Transfer compression methods ===
+
+    public void setTransferCompression(CompressionCodec codec, int level) {
+        this.transferCompression = codec != null ? codec : CompressionCodec.NONE;
+        this.transferCompressionLevel = level;
+    }
+
+    public void clearTransferCompression() {
+        this.transferCompression = CompressionCodec.NONE;
+        this.transferCompressionLevel = 0;
+    }
+
+    public CompressionCodec getTransferCompression() {
+        return transferCompression;
+    }
+
+    public int getTransferCompressionLevel() {
+        return transferCompressionLevel;
+    }
+
+    /**
+     * Transfer hiện tại có dùng chunked compression framing không.
+     */
+    public boolean isTransferCompressed() {
+        return transferCompression != CompressionCodec.NONE;
+    }
+
     @Override
     public String toString() {
         return "ClientContext{" +
@@ -221,4 +361,51 @@ public class ClientContext {
                ", userId=" + userId +
                '}';
     }
+
+    // === Frame encoding methods ===
+
+    public FrameEncoding getFrameEncoding() {
+        return frameEncoding;
+    }
+
+    public void setFrameEncoding(FrameEncoding frameEncoding) {
+        this.frameEncoding = frameEncoding != null ? frameEncoding : FrameEncoding.JSON;
+    }
+
+    // === Pipelining methods ===
+
+    public boolean isPipelining() {
+        return pipelining;
+    }
+
+    public void setPipelining(boolean pipelining) {
+        this.pipelining = pipelining;
+    }
+
+    /**
+     * Lock cho mọi lần ghi frame ra socket: worker pipelined ghi response xen kẽ nhau.
+     */
+    public Object getWriteLock() {
+        return writeLock;
+    }
+
+    /**
+     * Giữ chỗ cho một request pipelined; block khi đã đủ MAX_PIPELINED_REQUESTS
+     * (reader dừng đọc → TCP backpressure về client).
+     */
+    public void beginPipelined() throws InterruptedException {
+        pipelinedPermits.acquire();
+    }
+
+    public void endPipelined() {
+        pipelinedPermits.release();
+    }
+
+    /**
+     * Chờ mọi request pipelined đang chạy xong (trước request tuần tự như LOGIN, transfer).
+     */
+    public void awaitPipelined() throws InterruptedException {
+        pipelinedPermits.acquire(MAX_PIPELINED_REQUESTS);
+        pipelinedPermits.release(MAX_PIPELINED_REQUESTS);
+    }
 }
@@ -7,6 +7,13 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.drivelite.server.metrics.CountingInputStream;
+import com.drivelite.server.metrics.CountingOutputStream;
+import com.drivelite.server.metrics.MetricsRegistry;
+import com.drivelite.server.service.ResumableUploadService;
+
 /**
  * ClientHandler - Xử lý 1 client connection trong thread riêng.
  * 
@@ -20,6 +27,8 @@ import java.net.SocketTimeoutException;
  */
 public class ClientHandler implements Runnable {
 
+    private static final Logger LOG = Log.getLogger("HANDLER");
+
     private static final int SOCKET_TIMEOUT_MS = 5 * 60 * 1000; // 5 phút idle timeout
 
     private final Socket socket;
@@ -36,14 +45,17 @@ public class ClientHandler implements Runnable {
     @Override
     public void run() {
         String clientAddr = context.getClientAddress();
-        System.out.println("[HANDLER] Started for client: " + clientAddr);
+        LOG.info("Started for client: " + clientAddr);
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.connectionOpened();
 
         try {
             // Configure socket cho security và stability
             configureSocket();
 
-            InputStream in = socket.getInputStream();
-            OutputStream out = socket.getOutputStream();
+            // Đếm bytes vào/ra cho metrics (bytes/s)
+            InputStream in = new CountingInputStream(socket.getInputStream(), metrics);
+            OutputStream out = new CountingOutputStream(socket.getOutputStream(), metrics);
 
             // Request loop - đọc và xử lý request liên tục
             while (running && !socket.isClosed()) {
@@ -60,17 +72,18 @@ public class ClientHandler implements Runnable {
             }
 
         } catch (SocketTimeoutException e) {
-            System.out.println("[HANDLER] Timeout for " + clientAddr + " (idle too long)");
+            LOG.info("Timeout for " + clientAddr + " (idle too long)");
         } catch (SocketException e) {
             // Connection reset, broken pipe, etc.
-            System.out.println("[HANDLER] Socket error for " + clientAddr + ": " + e.getMessage());
+            LOG.info("Socket error for " + clientAddr + ": " + e.getMessage());
         } catch (IOException e) {
-            System.err.println("[HANDLER] IO error for " + clientAddr + ": " + e.getMessage());
+            LOG.error("IO error for " + clientAddr + ": " + e.getMessage());
         } catch (Exception e) {
-            System.err.println("[HANDLER] Unexpected error for " + clientAddr + ": " + e.getMessage());
+            LOG.error("Unexpected error for " + clientAddr + ": " + e.getMessage());
         } finally {
             // Cleanup
             cleanup(clientAddr);
+            metrics.connectionClosed();
         }
     }
 
@@ -94,25 +107,25 @@ public class ClientHandler implements Runnable {
      */
     private boolean handleRequestException(Exception e, String clientAddr) {
         if (e instanceof SocketTimeoutException) {
-            System.out.println("[HANDLER] Read timeout for " + clientAddr);
+            LOG.info("Read timeout for " + clientAddr);
             return false; // Dừng loop
         }
         
         if (e instanceof SocketException) {
             String msg = e.getMessage();
             if (msg != null && (msg.contains("reset") || msg.contains("closed") || msg.contains("broken"))) {
-                System.out.println("[HANDLER] Connection lost for " + clientAddr);
+                LOG.info("Connection lost for " + clientAddr);
                 return false;
             }
         }
         
         if (e instanceof java.io.EOFException) {
-            System.out.println("[HANDLER] Client disconnected: " + clientAddr);
+            LOG.info("Client disconnected: " + clientAddr);
             return false;
         }
         
         // Log unexpected errors nhưng vẫn tiếp tục nếu có thể
-        System.err.println("[HANDLER] Error processing request for " + clientAddr + ": " + e.getMessage());
+        LOG.error("Error processing request for " + clientAddr + ": " + e.getMessage());
         return false; // Để an toàn, dừng loop khi có error
     }
 
@@ -128,12 +141,20 @@ public class ClientHandler implements Runnable {
             context.clearUploadContext();
             context.clearDownloadContext();
             context.clearUploadNewVersionContext();
+            // READY của batch ghi lỗi trước khi nhận bytes: cân lại in-flight uploads gauge
+            context.clearUploadBatchContext();
+            // Connection đứt trước khi handler nhận bytes: nhả part file cho lần resume sau
+            String resumeKey = context.getUploadResumeKey();
+            if (resumeKey != null) {
+                ResumableUploadService.getInstance().release(resumeKey, context);
+                context.clearUploadResume();
+            }
         }
         
         // Close socket
         closeSocket();
         
-        System.out.println("[HANDLER] Ended for client: " + clientAddr);
+        LOG.info("Ended for client: " + clientAddr);
     }
 
     /**
@@ -149,7 +170,7 @@ public class ClientHandler implements Runnable {
             try {
                 socket.close();
             } catch (IOException e) {
-                System.err.println("[HANDLER] Error closing socket: " + e.getMessage());
+                LOG.error("Error closing socket: " + e.getMessage());
             }
         }
     }
@@ -1,43 +1,98 @@
 package com.drivelite.server.net;
 
-import com.drivelite.common.framing.FrameIO;
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.protocol.MessageType;
 import com.drivelite.common.protocol.Request;
 import com.drivelite.common.protocol.Response;
 import com.drivelite.common.protocol.ResponseCode;
 import com.drivelite.server.handler.AuthMiddleware;
 import com.drivelite.server.handler.DownloadHandler;
+import com.drivelite.server.handler.UploadBatchHandler;
 import com.drivelite.server.handler.UploadHandler;
 import com.drivelite.server.handler.UploadNewVersionHandler;
+import com.drivelite.server.jfr.DispatchEvent;
+import com.drivelite.server.metrics.MetricsRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * RequestDispatcher - Điều phối request đến handler tương ứng.
  * 
  * Nhận JSON request, parse, tìm handler theo MessageType,
  * gọi handler, và gửi response về client.
+ * 
+ * Connection đã bật pipelining (HELLO): request control được đẩy sang worker pool dùng chung,
+ * reader đọc tiếp request sau mà không chờ; response mang requestId và ghi ra socket theo thứ tự
+ * xử lý xong. Request đổi trạng thái connection (LOGIN, LOGOUT, HELLO) và transfer
+ * (UPLOAD_BEGIN, DOWNLOAD_BEGIN...) vẫn chạy tuần tự trên reader, sau khi các request
+ * pipelined trước đó đã xong.
  */
 public class RequestDispatcher {
 
-    private final ObjectMapper objectMapper;
+    private static final Logger LOG = Log.getLogger("DISPATCHER");
+
+    public static final int DEFAULT_PIPELINE_WORKERS = 16;
+
+    // Request luôn chạy tuần tự trên reader thread, kể cả khi connection pipelining
+    private static final Set<MessageType> SEQUENTIAL_TYPES = EnumSet.of(
+        MessageType.HELLO, MessageType.LOGIN, MessageType.LOGOUT,
+        MessageType.UPLOAD_BEGIN, MessageType.UPLOAD_NEW_VERSION_BEGIN, MessageType.UPLOAD_BATCH_BEGIN,
+        MessageType.DOWNLOAD_BEGIN, MessageType.READY, MessageType.CANCEL);
+
     private final Map<MessageType, RequestHandler> handlers;
     private final UploadHandler uploadHandler;
     private final DownloadHandler downloadHandler;
     private final UploadNewVersionHandler uploadNewVersionHandler;
+    private final UploadBatchHandler uploadBatchHandler;
     private final AuthMiddleware authMiddleware;
+    private final MetricsRegistry metrics;
+    private final ExecutorService pipelineExecutor;
 
     public RequestDispatcher() {
-        this.objectMapper = new ObjectMapper();
+        this(DEFAULT_PIPELINE_WORKERS);
+    }
+
+    /**
+     * @param pipelineWorkers Số worker thread dùng chung cho request pipelined của mọi connection
+     */
+    public RequestDispatcher(int pipelineWorkers) {
+        this(pipelineWorkers, new UploadHandler(), new DownloadHandler(), new UploadNewVersionHandler(),
+             new UploadBatchHandler(), new AuthMiddleware());
+    }
+
+    /**
+     * Dispatcher với handler transfer/auth cho sẵn (test dispatch/pipelining không cần storage).
+     */
+    RequestDispatcher(int pipelineWorkers, UploadHandler uploadHandler, DownloadHandler downloadHandler,
+                      UploadNewVersionHandler uploadNewVersionHandler, UploadBatchHandler uploadBatchHandler,
+                      AuthMiddleware authMiddleware) {
         this.handlers = new HashMap<>();
-        this.uploadHandler = new UploadHandler();
-        this.downloadHandler = new DownloadHandler();
-        this.uploadNewVersionHandler = new UploadNewVersionHandler();
-        this.authMiddleware = new AuthMiddleware();
+        this.uploadHandler = uploadHandler;
+        this.downloadHandler = downloadHandler;
+        this.uploadNewVersionHandler = uploadNewVersionHandler;
+        this.uploadBatchHandler = uploadBatchHandler;
+        this.authMiddleware = authMiddleware;
+        this.metrics = MetricsRegistry.getInstance();
+        AtomicInteger workerCount = new AtomicInteger();
+        this.pipelineExecutor = Executors.newFixedThreadPool(Math.max(1, pipelineWorkers), r -> {
+            Thread t = new Thread(r, "Pipeline-Worker-" + workerCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     /**
@@ -48,53 +103,85 @@ public class RequestDispatcher {
      */
     public void registerHandler(MessageType type, RequestHandler handler) {
         handlers.put(type, handler);
-        System.out.println("[DISPATCHER] Registered handler for: " + type);
+        LOG.info("Registered handler for: " + type);
     }
 
     /**
      * Xử lý một request từ client.
      * 
-     * @param requestJson JSON string của request
+     * @param request Request đã parse
      * @param context Context chứa thông tin client (socket, session...)
      * @return Response object
      */
-    public Response dispatch(String requestJson, ClientContext context) {
+    public Response dispatch(Request request, ClientContext context) {
+        long startedAt = System.nanoTime();
+        DispatchEvent event = new DispatchEvent();
+        event.begin();
+        MessageType type = request.getType();
+        Response response = null;
         try {
-            // Parse JSON thành Request object
-            Request request = objectMapper.readValue(requestJson, Request.class);
-            
-            // Log request (không log password)
-            System.out.println("[DISPATCHER] Request: type=" + request.getType() + 
-                             ", requestId=" + request.getRequestId());
-
-            // Tìm handler
-            MessageType type = request.getType();
-            if (type == null) {
-                return Response.error(ResponseCode.VALIDATION_ERROR, "Missing message type");
+            response = route(request, context);
+            return response;
+        } catch (Exception e) {
+            LOG.error("Error processing request: " + e.getMessage());
+            response = Response.error(ResponseCode.SERVER_ERROR, 
+                "Error processing request: " + e.getMessage());
+            return response;
+        } finally {
+            ResponseCode code = response != null ? response.getCode() : ResponseCode.SERVER_ERROR;
+            metrics.recordRequest(type, System.nanoTime() - startedAt, code);
+            event.end();
+            if (event.shouldCommit()) {
+                event.messageType = type != null ? type.name() : null;
+                event.requestId = request.getRequestId();
+                event.responseCode = code.name();
+                event.commit();
             }
+        }
+    }
 
-            RequestHandler handler = handlers.get(type);
-            if (handler == null) {
-                return Response.error(ResponseCode.VALIDATION_ERROR, 
-                    "Unknown message type: " + type);
-            }
+    /**
+     * Frame đọc đủ nhưng JSON không parse được: trả lỗi, connection vẫn dùng tiếp.
+     */
+    private Response rejectMalformed(JsonProcessingException e) {
+        LOG.error("Error processing request: " + e.getOriginalMessage());
+        metrics.recordRequest(null, 0, ResponseCode.SERVER_ERROR);
+        return Response.error(ResponseCode.SERVER_ERROR,
+            "Error processing request: " + e.getOriginalMessage());
+    }
 
-            // Kiểm tra authentication nếu cần
-            if (AuthMiddleware.requiresAuth(request)) {
-                Response authError = authMiddleware.authenticate(request, context);
-                if (authError != null) {
-                    return authError;
-                }
-            }
+    /**
+     * Tìm handler, kiểm tra auth và gọi handler.
+     */
+    private Response route(Request request, ClientContext context) {
+        // Log request (không log password)
+        LOG.info("Request: type=" + request.getType() + 
+               ", requestId=" + request.getRequestId());
 
-            // Gọi handler
-            return handler.handle(request, context);
+        // Tìm handler
+        MessageType type = request.getType();
+        if (type == null) {
+            return Response.error(ResponseCode.VALIDATION_ERROR, "Missing message type");
+        }
 
-        } catch (Exception e) {
-            System.err.println("[DISPATCHER] Error processing request: " + e.getMessage());
-            return Response.error(ResponseCode.SERVER_ERROR, 
-                "Error processing request: " + e.getMessage());
+        RequestHandler handler = handlers.get(type);
+        if (handler == null) {
+            return Response.error(ResponseCode.VALIDATION_ERROR, 
+                "Unknown message type: " + type);
+        }
+
+        // Kiểm tra authentication nếu cần
+        if (AuthMiddleware.requiresAuth(request)) {
+            long authStartedAt = System.nanoTime();
+            Response authError = authMiddleware.authenticate(request, context);
+            metrics.recordAuth(System.nanoTime() - authStartedAt);
+            if (authError != null) {
+                return authError;
+            }
         }
+
+        // Gọi handler
+        return handler.handle(request, context);
     }
 
     /**
@@ -108,21 +195,29 @@ public class RequestDispatcher {
      */
     public boolean processRequest(InputStream in, OutputStream out, ClientContext context) {
         try {
-            // Đọc frame từ client
-            String requestJson = FrameIO.readFrame(in);
-            
-            // Dispatch và lấy response
-            Response response = dispatch(requestJson, context);
-            
-            // Serialize response thành JSON
-            String responseJson = objectMapper.writeValueAsString(response);
+            // Đọc frame từ client, parse thẳng từ bytes
+            Response response;
+            try {
+                Request request = JsonCodec.readRequest(in);
+                if (context.isPipelining()) {
+                    if (!SEQUENTIAL_TYPES.contains(request.getType())) {
+                        return submitPipelined(request, out, context);
+                    }
+                    // Request tuần tự: chờ request pipelined trước đó xong (không ghi chen vào raw bytes)
+                    context.awaitPipelined();
+                }
+                response = dispatch(request, context);
+                echoRequestId(request, response, context);
+            } catch (JsonProcessingException e) {
+                response = rejectMalformed(e);
+            }
             
-            // Gửi response về client
-            FrameIO.sendFrame(out, responseJson);
+            // Serialize response (theo encoding đã negotiate) và gửi về client
+            writeResponse(out, response, context);
             
             // Log response
-            System.out.println("[DISPATCHER] Response: ok=" + response.isOk() + 
-                             ", code=" + response.getCode());
+            LOG.info("Response: ok=" + response.isOk() + 
+                   ", code=" + response.getCode());
 
             // Nếu là UPLOAD_BEGIN và response OK, đọc file bytes
             if (context.isUploading() && response.isOk()) {
@@ -134,6 +229,11 @@ public class RequestDispatcher {
                 return handleUploadNewVersionBytes(in, out, context);
             }
 
+            // Nếu là UPLOAD_BATCH_BEGIN và response OK, đọc bytes của cả batch
+            if (context.isUploadingBatch() && response.isOk()) {
+                return handleUploadBatchBytes(in, out, context);
+            }
+
             // Nếu là DOWNLOAD_BEGIN và response OK, chờ READY rồi stream file
             if (context.isDownloading() && response.isOk()) {
                 return handleDownloadFlow(in, out, context);
@@ -143,20 +243,19 @@ public class RequestDispatcher {
 
         } catch (java.io.EOFException e) {
             // Client đóng connection gracefully
-            System.out.println("[DISPATCHER] Client disconnected (EOF)");
+            LOG.info("Client disconnected (EOF)");
             return false;
             
         } catch (java.net.SocketException e) {
             // Connection reset
-            System.out.println("[DISPATCHER] Client disconnected: " + e.getMessage());
+            LOG.info("Client disconnected: " + e.getMessage());
             return false;
             
         } catch (Exception e) {
-            System.err.println("[DISPATCHER] Error: " + e.getMessage());
+            LOG.error("Error: " + e.getMessage());
             try {
                 Response errorResponse = Response.error(ResponseCode.SERVER_ERROR, e.getMessage());
-                String errorJson = objectMapper.writeValueAsString(errorResponse);
-                FrameIO.sendFrame(out, errorJson);
+                writeResponse(out, errorResponse, context);
             } catch (Exception ignored) {
                 // Không thể gửi error response, bỏ qua
             }
@@ -164,6 +263,54 @@ public class RequestDispatcher {
         }
     }
 
+    /**
+     * Đẩy request sang worker pool; worker dispatch và tự ghi response (kèm requestId).
+     *
+     * @return false nếu dispatcher đã shutdown
+     */
+    private boolean submitPipelined(Request request, OutputStream out, ClientContext context)
+            throws InterruptedException {
+        context.beginPipelined();
+        try {
+            pipelineExecutor.execute(() -> {
+                try {
+                    Response response = dispatch(request, context);
+                    echoRequestId(request, response, context);
+                    writeResponse(out, response, context);
+                } catch (IOException e) {
+                    // Socket lỗi: reader thread sẽ gặp lỗi tương tự và đóng connection
+                    LOG.debug("Failed to write pipelined response: " + e.getMessage());
+                } finally {
+                    context.endPipelined();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            context.endPipelined();
+            return false;
+        }
+    }
+
+    private static void echoRequestId(Request request, Response response, ClientContext context) {
+        if (context.isPipelining()) {
+            response.setRequestId(request.getRequestId());
+        }
+    }
+
+    private static void writeResponse(OutputStream out, Response response, ClientContext context)
+            throws IOException {
+        synchronized (context.getWriteLock()) {
+            JsonCodec.writeFrame(out, response, context.getFrameEncoding());
+        }
+    }
+
+    /**
+     * Dừng worker pool pipelining (gọi khi server shutdown).
+     */
+    public void shutdown() {
+        pipelineExecutor.shutdownNow();
+    }
+
     /**
      * Xử lý file bytes sau khi UPLOAD_BEGIN được chấp nhận.
      */
@@ -171,7 +318,7 @@ public class RequestDispatcher {
         try {
             return uploadHandler.handleFileBytes(in, out, context);
         } catch (Exception e) {
-            System.err.println("[DISPATCHER] Error handling upload bytes: " + e.getMessage());
+            LOG.error("Error handling upload bytes: " + e.getMessage());
             context.clearUploadContext();
             return false;
         }
@@ -184,45 +331,64 @@ public class RequestDispatcher {
         try {
             return uploadNewVersionHandler.handleFileBytes(in, out, context);
         } catch (Exception e) {
-            System.err.println("[DISPATCHER] Error handling upload new version bytes: " + e.getMessage());
+            LOG.error("Error handling upload new version bytes: " + e.getMessage());
             context.clearUploadNewVersionContext();
             return false;
         }
     }
 
+    /**
+     * Xử lý bytes của cả batch sau khi UPLOAD_BATCH_BEGIN được chấp nhận.
+     */
+    private boolean handleUploadBatchBytes(InputStream in, OutputStream out, ClientContext context) {
+        try {
+            return uploadBatchHandler.handleFileBytes(in, out, context);
+        } catch (Exception e) {
+            LOG.error("Error handling upload batch bytes: " + e.getMessage());
+            context.clearUploadBatchContext();
+            return false;
+        }
+    }
+
     /**
      * Xử lý download flow sau khi DOWNLOAD_BEGIN được chấp nhận.
-     * 1. Chờ client gửi READY
+     * 1. Chờ client gửi READY (hoặc CANCEL nếu client đã có nội dung theo sha256 trong FILE_META)
      * 2. Stream file bytes về client
      */
     private boolean handleDownloadFlow(InputStream in, OutputStream out, ClientContext context) {
         try {
             // 1. Đọc READY message từ client
-            String readyJson = FrameIO.readFrame(in);
-            Request readyRequest = objectMapper.readValue(readyJson, Request.class);
+            Request readyRequest = JsonCodec.readRequest(in);
+
+            if (readyRequest.getType() == MessageType.CANCEL) {
+                // Không gửi bytes, connection tiếp tục nhận request bình thường
+                LOG.info("Download cancelled after FILE_META for fileId=" + context.getDownloadFileId());
+                context.clearDownloadContext();
+                return true;
+            }
             
             if (readyRequest.getType() != MessageType.READY) {
-                System.err.println("[DISPATCHER] Expected READY, got: " + readyRequest.getType());
+                LOG.error("Expected READY, got: " + readyRequest.getType());
                 context.clearDownloadContext();
                 return false;
             }
 
-            System.out.println("[DISPATCHER] Received READY, streaming file...");
+            LOG.info("Received READY, streaming file...");
 
             // 2. Stream file bytes về client
             return downloadHandler.streamFileBytes(out, context);
 
         } catch (Exception e) {
-            System.err.println("[DISPATCHER] Error handling download flow: " + e.getMessage());
+            LOG.error("Error handling download flow: " + e.getMessage());
             context.clearDownloadContext();
             return false;
         }
     }
 
     /**
-     * Lấy ObjectMapper để các handler có thể dùng.
+     * Lấy ObjectMapper dùng chung để các handler có thể dùng.
      */
     public ObjectMapper getObjectMapper() {
-        return objectMapper;
+        return JsonCodec.mapper();
     }
 }
@@ -12,6 +12,8 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLServerSocket;
 import javax.net.ssl.SSLServerSocketFactory;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
 import com.drivelite.common.ssl.SSLContextFactory;
 
 /**
@@ -26,6 +28,8 @@ import com.drivelite.common.ssl.SSLContextFactory;
  */
 public class TcpServer {
 
+    private static final Logger LOG = Log.getLogger("SERVER");
+
     private final int port;
     private final int maxClients;
     private final RequestDispatcher dispatcher;
@@ -59,7 +63,7 @@ public class TcpServer {
     public void enableSSL(String keystorePath, String keystorePassword) throws Exception {
         this.sslContext = SSLContextFactory.createServerContext(keystorePath, keystorePassword);
         this.sslEnabled = true;
-        System.out.println("[SERVER] SSL/TLS enabled");
+        LOG.info("SSL/TLS enabled");
     }
 
     /**
@@ -73,10 +77,10 @@ public class TcpServer {
             // Cấu hình SSL socket
             SSLServerSocket sslServerSocket = (SSLServerSocket) serverSocket;
             sslServerSocket.setEnabledProtocols(new String[]{"TLSv1.3", "TLSv1.2"});
-            System.out.println("[SERVER] Using SSL/TLS encryption");
+            LOG.info("Using SSL/TLS encryption");
         } else {
             serverSocket = new ServerSocket(port);
-            System.out.println("[SERVER] WARNING: Running without SSL/TLS encryption!");
+            LOG.warn("WARNING: Running without SSL/TLS encryption!");
         }
         threadPool = Executors.newFixedThreadPool(maxClients);
         running.set(true);
@@ -97,7 +101,7 @@ public class TcpServer {
                 // Log connection
                 String clientInfo = clientSocket.getInetAddress().getHostAddress() + 
                                    ":" + clientSocket.getPort();
-                System.out.println("[SERVER] New connection: " + clientInfo);
+                LOG.info("New connection: " + clientInfo);
 
                 // Tạo handler và submit vào thread pool
                 ClientHandler handler = new ClientHandler(clientSocket, dispatcher);
@@ -105,7 +109,7 @@ public class TcpServer {
                 
             } catch (IOException e) {
                 if (running.get()) {
-                    System.err.println("[SERVER] Accept error: " + e.getMessage());
+                    LOG.error("Accept error: " + e.getMessage());
                 }
                 // Nếu running = false, đây là do stop() đóng serverSocket
             }
@@ -119,7 +123,7 @@ public class TcpServer {
      * - Shutdown thread pool
      */
     public void stop() {
-        System.out.println("[SERVER] Stopping...");
+        LOG.info("Stopping...");
         running.set(false);
 
         // Đóng ServerSocket để thoát khỏi accept() blocking
@@ -127,7 +131,7 @@ public class TcpServer {
             try {
                 serverSocket.close();
             } catch (IOException e) {
-                System.err.println("[SERVER] Error closing server socket: " + e.getMessage());
+                LOG.error("Error closing server socket: " + e.getMessage());
             }
         }
 
@@ -145,7 +149,7 @@ public class TcpServer {
             }
         }
 
-        System.out.println("[SERVER] Stopped.");
+        LOG.info("Stopped.");
     }
 
     /**
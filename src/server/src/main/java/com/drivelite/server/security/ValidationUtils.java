@@ -2,6 +2,9 @@ package com.drivelite.server.security;
 
 import java.util.regex.Pattern;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
 /**
  * Utility class tập trung các hàm validation để đảm bảo security consistency.
  * 
@@ -13,6 +16,8 @@ import java.util.regex.Pattern;
  */
 public final class ValidationUtils {
 
+    private static final Logger LOG = Log.getLogger("SECURITY");
+
     // ========== EMAIL VALIDATION ==========
     private static final Pattern EMAIL_PATTERN = Pattern.compile(
         "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$"
@@ -127,7 +132,7 @@ public final class ValidationUtils {
 
         // 1. Kiểm tra path traversal pattern trước
         if (PATH_TRAVERSAL_PATTERN.matcher(fileName).find()) {
-            System.err.println("[SECURITY] Path traversal attempt detected: " + fileName);
+            LOG.error("Path traversal attempt detected: " + fileName);
             return null;
         }
 
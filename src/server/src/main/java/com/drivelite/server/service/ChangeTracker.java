@@ -0,0 +1,96 @@
+package com.drivelite.server.service;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.drivelite.server.db.repository.FilePermissionRepository;
+
+/**
+ * ChangeTracker - Change token (ETag) cho các listing metadata.
+ *
+ * - Token theo user: LIST_MY_FILES, LIST_SHARED_WITH_ME
+ * - Token theo file: GET_VERSIONS, LIST_SHARES_OF_FILE
+ *
+ * Handler ghi (upload, version mới, rename, delete, share...) gọi userChanged/fileChanged sau khi
+ * DB đã cập nhật. Handler listing lấy token TRƯỚC khi query: thay đổi xảy ra giữa hai bước chỉ
+ * làm lần refresh sau phải tải lại, không bao giờ làm client giữ bản cũ.
+ *
+ * Counter nằm trong memory: token mang epoch của lần start này nên token từ trước khi restart
+ * luôn lệch (client tải lại toàn bộ một lần).
+ */
+public class ChangeTracker {
+
+    private static final Logger LOG = Log.getLogger("CHANGES");
+
+    private static ChangeTracker instance;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    // Tăng khi không xác định được user bị ảnh hưởng → mọi token đều đổi
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Integer, AtomicLong> userVersions = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> fileVersions = new ConcurrentHashMap<>();
+    private final FilePermissionRepository permissionRepository;
+
+    private ChangeTracker() {
+        this.permissionRepository = new FilePermissionRepository();
+    }
+
+    public static synchronized ChangeTracker getInstance() {
+        if (instance == null) {
+            instance = new ChangeTracker();
+        }
+        return instance;
+    }
+
+    /**
+     * Token cho listing file của user (file sở hữu và file được share).
+     */
+    public String userToken(int userId) {
+        return token("u", userVersions.get(userId));
+    }
+
+    /**
+     * Token cho versions và shares của một file.
+     */
+    public String fileToken(int fileId) {
+        return token("f", fileVersions.get(fileId));
+    }
+
+    /**
+     * Listing của user đổi (vd: upload file mới, được share/bỏ share).
+     */
+    public void userChanged(int userId) {
+        userVersions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * File đổi (version mới, rename, delete, share): đổi token của file và của mọi user thấy file.
+     */
+    public void fileChanged(int fileId) {
+        fileVersions.computeIfAbsent(fileId, id -> new AtomicLong()).incrementAndGet();
+        try {
+            for (int userId : permissionRepository.findUserIdsByFileId(fileId)) {
+                userChanged(userId);
+            }
+        } catch (SQLException e) {
+            // Không biết ai bị ảnh hưởng: vô hiệu mọi token thay vì để client giữ listing cũ
+            LOG.warn("Cannot resolve users of fileId=" + fileId + ", invalidating all tokens: " + e.getMessage());
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * Client gửi lại đúng token hiện tại trong field "ifNoneMatch" của request data.
+     */
+    public static boolean matches(Object requestData, String token) {
+        return requestData instanceof Map && token.equals(((Map<?, ?>) requestData).get("ifNoneMatch"));
+    }
+
+    private String token(String scope, AtomicLong version) {
+        return epoch + "." + generation.get() + "." + scope + (version != null ? version.get() : 0);
+    }
+}
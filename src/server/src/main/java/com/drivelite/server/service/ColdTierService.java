@@ -0,0 +1,223 @@
+package com.drivelite.server.service;
+
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.drivelite.common.compression.CompressionCodec;
+import com.drivelite.common.compression.CompressionUtils;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.drivelite.server.db.entity.FileVersion;
+import com.drivelite.server.db.repository.FileVersionRepository;
+import com.drivelite.server.storage.IoThrottle;
+import com.drivelite.server.storage.StorageMetrics;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Background job chuyển version cũ sang cold tier (nén at-rest).
+ *
+ * Điều kiện: không phải current version và upload trước COLD_TIER_AGE_DAYS ngày.
+ * Download của version cold được giải nén trong lúc stream (StorageService.readFile),
+ * client không thấy khác biệt.
+ *
+ * Cấu hình qua .env:
+ * - COLD_TIER_ENABLED (default true)
+ * - COLD_TIER_AGE_DAYS (default 30)
+ * - COLD_TIER_INTERVAL_MINUTES (default 60)
+ * - COLD_TIER_CODEC / COLD_TIER_LEVEL (default DEFLATE 6)
+ * - COLD_TIER_IO_MBPS: băng thông disk tối đa của job (default 10MB/s, 0 = không giới hạn)
+ */
+public class ColdTierService {
+
+    private static final Logger LOG = Log.getLogger("COLD_TIER");
+
+    private static final int BATCH_SIZE = 200;
+
+    private static ColdTierService instance;
+
+    private final boolean enabled;
+    private final int ageDays;
+    private final int intervalMinutes;
+    private final CompressionCodec codec;
+    private final int level;
+    private final IoThrottle throttle;
+
+    private final FileVersionRepository versionRepository;
+    private final StorageService storageService;
+    private final StorageMetrics metrics;
+
+    // Version không nén được (ảnh, zip...) - khỏi thử lại cho đến khi restart
+    private final Set<Integer> incompressible = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService scheduler;
+
+    private ColdTierService() {
+        Dotenv dotenv = Dotenv.configure()
+                .directory(findEnvDirectory())
+                .ignoreIfMissing()
+                .load();
+
+        this.enabled = Boolean.parseBoolean(dotenv.get("COLD_TIER_ENABLED", "true"));
+        this.ageDays = Integer.parseInt(dotenv.get("COLD_TIER_AGE_DAYS", "30"));
+        this.intervalMinutes = Integer.parseInt(dotenv.get("COLD_TIER_INTERVAL_MINUTES", "60"));
+        CompressionCodec configured = CompressionCodec.fromName(dotenv.get("COLD_TIER_CODEC", "DEFLATE"));
+        this.codec = configured != CompressionCodec.NONE ? configured : CompressionCodec.DEFLATE;
+        this.level = Integer.parseInt(dotenv.get("COLD_TIER_LEVEL", "6"));
+        long mbps = Long.parseLong(dotenv.get("COLD_TIER_IO_MBPS", "10"));
+        this.throttle = new IoThrottle(mbps * 1024 * 1024);
+
+        this.versionRepository = new FileVersionRepository();
+        this.storageService = StorageService.getInstance();
+        this.metrics = StorageMetrics.getInstance();
+    }
+
+    public static synchronized ColdTierService getInstance() {
+        if (instance == null) {
+            instance = new ColdTierService();
+        }
+        return instance;
+    }
+
+    /**
+     * Lên lịch chạy định kỳ (thread daemon, priority thấp).
+     */
+    public synchronized void start() {
+        if (!enabled) {
+            LOG.info("Disabled (COLD_TIER_ENABLED=false)");
+            return;
+        }
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cold-tier");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::runSafely, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        LOG.info("Scheduled every " + intervalMinutes + " min, age>" + ageDays +
+               " days, codec=" + codec + " level=" + level +
+               ", io=" + (throttle.getBytesPerSecond() > 0 ? throttle.getBytesPerSecond() / 1024 / 1024 + "MB/s" : "unlimited"));
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Chạy một lượt: duyệt toàn bộ version đủ điều kiện theo từng batch.
+     *
+     * @return số version đã chuyển sang cold tier trong lượt này
+     */
+    public int runOnce() throws Exception {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(ageDays));
+        int lastVersionId = 0;
+        int compressed = 0;
+        long reclaimed = 0;
+        long startedAt = System.currentTimeMillis();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            List<FileVersion> batch = versionRepository.findColdCandidates(cutoff, lastVersionId, BATCH_SIZE);
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (FileVersion version : batch) {
+                lastVersionId = version.getVersionId();
+                long saved = compressVersion(version);
+                if (saved >= 0) {
+                    compressed++;
+                    reclaimed += saved;
+                }
+            }
+        }
+
+        LOG.info("Run finished in " + (System.currentTimeMillis() - startedAt) + "ms: " +
+               compressed + " versions, reclaimed " + (reclaimed / 1024) + "KB | " + metrics.summary());
+        return compressed;
+    }
+
+    private long compressVersion(FileVersion version) throws InterruptedException {
+        int fileId = version.getFileId();
+        int versionNumber = version.getVersionNumber();
+        if (incompressible.contains(version.getVersionId()) || storageService.isPacked(fileId, versionNumber)) {
+            // Version nằm trong pack file đã đủ nhỏ, không chuyển cold tier
+            return -1;
+        }
+        try {
+            if (storageService.isColdTier(fileId, versionNumber)) {
+                // Đã cold; dọn bản plain còn sót nếu lần trước xóa không được
+                storageService.deleteLeftoverPlain(fileId, versionNumber);
+                return -1;
+            }
+            if (!looksCompressible(fileId, versionNumber, version.getSizeBytes())) {
+                incompressible.add(version.getVersionId());
+                return -1;
+            }
+            long saved = storageService.compressToColdTier(fileId, versionNumber, version.getSha256(),
+                                                           codec, level, throttle);
+            if (saved < 0) {
+                incompressible.add(version.getVersionId());
+                return -1;
+            }
+            long storedSize = version.getSizeBytes() - saved;
+            metrics.recordCompressed(version.getSizeBytes(), storedSize);
+            LOG.info("fileId=" + fileId + ", version=" + versionNumber + ": " +
+                   version.getSizeBytes() + " -> " + storedSize + " bytes");
+            return saved;
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            metrics.recordCompressFailure();
+            LOG.error("Failed fileId=" + fileId + ", version=" + versionNumber + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Kiểm tra nhanh bằng entropy của phần đầu file trước khi nén cả file.
+     */
+    private boolean looksCompressible(int fileId, int versionNumber, long sizeBytes) throws Exception {
+        if (sizeBytes < CompressionUtils.MIN_COMPRESS_SIZE) {
+            return false;
+        }
+        byte[] sample = new byte[(int) Math.min(CompressionUtils.SAMPLE_SIZE, sizeBytes)];
+        int length;
+        try (InputStream in = storageService.readFile(fileId, versionNumber)) {
+            length = CompressionUtils.readSample(in, sample);
+        }
+        return CompressionUtils.isWorthCompressing(sample, length, sizeBytes);
+    }
+
+    private void runSafely() {
+        try {
+            runOnce();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOG.error("Run failed: " + e.getMessage());
+        }
+    }
+
+    private static String findEnvDirectory() {
+        String[] possiblePaths = { ".", "..", "../..", "../../..", System.getProperty("user.dir") };
+        for (String path : possiblePaths) {
+            java.io.File envFile = new java.io.File(path, ".env");
+            if (envFile.exists()) {
+                return path;
+            }
+        }
+        return ".";
+    }
+}
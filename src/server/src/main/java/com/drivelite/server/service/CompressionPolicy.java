@@ -0,0 +1,107 @@
+package com.drivelite.server.service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.drivelite.common.compression.CompressionCodec;
+import com.drivelite.common.compression.CompressionUtils;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Chính sách nén cho phase raw bytes của upload/download.
+ *
+ * Cấu hình qua .env:
+ * - TRANSFER_COMPRESSION: danh sách codec server cho phép, theo thứ tự ưu tiên (vd: LZ4,DEFLATE).
+ *   Để trống hoặc NONE để tắt nén hoàn toàn.
+ * - TRANSFER_COMPRESSION_LEVEL: level nén (0 = dùng level mặc định của codec)
+ *
+ * Client chỉ đề xuất codec khi nó muốn nén; server chọn codec chung đầu tiên.
+ */
+public class CompressionPolicy {
+
+    private static final Logger LOG = Log.getLogger("COMPRESSION");
+
+    private static CompressionPolicy instance;
+
+    private final List<CompressionCodec> preferred;
+    private final int level;
+
+    private CompressionPolicy() {
+        Dotenv dotenv = Dotenv.configure()
+                .directory(findEnvDirectory())
+                .ignoreIfMissing()
+                .load();
+
+        List<CompressionCodec> codecs = new ArrayList<>();
+        for (String name : dotenv.get("TRANSFER_COMPRESSION", "LZ4,DEFLATE").split(",")) {
+            CompressionCodec codec = CompressionCodec.fromName(name);
+            if (codec != CompressionCodec.NONE && !codecs.contains(codec)) {
+                codecs.add(codec);
+            }
+        }
+        this.preferred = Collections.unmodifiableList(codecs);
+        this.level = Integer.parseInt(dotenv.get("TRANSFER_COMPRESSION_LEVEL", "0"));
+
+        LOG.info("Enabled codecs: " + (preferred.isEmpty() ? "NONE" : preferred) +
+               ", level=" + (level > 0 ? level : "default"));
+    }
+
+    public static synchronized CompressionPolicy getInstance() {
+        if (instance == null) {
+            instance = new CompressionPolicy();
+        }
+        return instance;
+    }
+
+    /**
+     * Chọn codec cho transfer dựa trên danh sách client gửi trong request data.
+     *
+     * @param offered Giá trị field "compression" trong request (List tên codec, có thể null)
+     */
+    public CompressionCodec negotiate(Object offered) {
+        return CompressionCodec.negotiate(offered, preferred);
+    }
+
+    /**
+     * Chọn codec cho download: ngoài negotiate còn kiểm tra entropy phần đầu blob,
+     * file đã nén sẵn (zip, jpg, mp4...) sẽ được gửi raw để tiết kiệm CPU.
+     */
+    public CompressionCodec negotiateForDownload(Object offered, StorageService storageService,
+                                                 int fileId, int versionNumber, long fileSize) {
+        CompressionCodec codec = negotiate(offered);
+        if (codec == CompressionCodec.NONE || fileSize < CompressionUtils.MIN_COMPRESS_SIZE) {
+            return CompressionCodec.NONE;
+        }
+        try (InputStream in = storageService.readFile(fileId, versionNumber)) {
+            byte[] sample = new byte[(int) Math.min(CompressionUtils.SAMPLE_SIZE, fileSize)];
+            int length = CompressionUtils.readSample(in, sample);
+            return CompressionUtils.isWorthCompressing(sample, length, fileSize) ? codec : CompressionCodec.NONE;
+        } catch (Exception e) {
+            LOG.error("Cannot sample fileId=" + fileId + ": " + e.getMessage());
+            return CompressionCodec.NONE;
+        }
+    }
+
+    /**
+     * Level nén cho codec (level cấu hình hoặc default của codec).
+     */
+    public int levelFor(CompressionCodec codec) {
+        return level > 0 ? level : codec.getDefaultLevel();
+    }
+
+    private static String findEnvDirectory() {
+        String[] possiblePaths = { ".", "..", "../..", "../../..", System.getProperty("user.dir") };
+        for (String path : possiblePaths) {
+            java.io.File envFile = new java.io.File(path, ".env");
+            if (envFile.exists()) {
+                return path;
+            }
+        }
+        return ".";
+    }
+}
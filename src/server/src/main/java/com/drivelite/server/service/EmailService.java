@@ -10,12 +10,17 @@ import java.util.Properties;
 
 import io.github.cdimascio.dotenv.Dotenv;
 
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
 /**
  * Service để gửi email OTP.
  * Sử dụng SMTP (Gmail, Outlook, hoặc SMTP server khác).
  */
 public class EmailService {
 
+    private static final Logger LOG = Log.getLogger("EMAIL");
+
     private static EmailService instance;
 
     private final String smtpHost;
@@ -43,9 +48,9 @@ public class EmailService {
         this.enabled = Boolean.parseBoolean(dotenv.get("SMTP_ENABLED", "false"));
 
         if (enabled) {
-            System.out.println("[EMAIL] Service enabled: " + smtpHost + ":" + smtpPort);
+            LOG.info("Service enabled: " + smtpHost + ":" + smtpPort);
         } else {
-            System.out.println("[EMAIL] Service DISABLED - OTP will be logged to console");
+            LOG.info("Service DISABLED - OTP will be logged to console");
         }
     }
 
@@ -117,11 +122,11 @@ public class EmailService {
 
             Transport.send(message);
 
-            System.out.println("[EMAIL] Sent to: " + toEmail);
+            LOG.info("Sent to: " + toEmail);
             return true;
 
         } catch (Exception e) {
-            System.err.println("[EMAIL] Failed to send email to " + toEmail + ": " + e.getMessage());
+            LOG.error("Failed to send email to " + toEmail + ": " + e.getMessage());
             return false;
         }
     }
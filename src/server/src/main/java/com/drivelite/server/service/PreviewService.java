@@ -0,0 +1,391 @@
+package com.drivelite.server.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * PreviewService - Tạo và cache preview cho GET_PREVIEW.
+ *
+ * - Ảnh: thumbnail thu nhỏ vừa khung THUMBNAIL_WIDTH x THUMBNAIL_HEIGHT (JPEG, PNG nếu ảnh có alpha)
+ * - Text: PREVIEW_TEXT_BYTES bytes đầu file (cắt ở ranh giới ký tự UTF-8)
+ *
+ * Preview cache trên disk theo sha256 của version (PREVIEW_CACHE_PATH, mặc định {storage}/previews)
+ * nên dùng chung cho mọi user và mọi file có cùng nội dung. Việc tạo chạy trên pool PREVIEW_WORKERS
+ * thread với hàng đợi giới hạn; nhiều request cùng sha256 chờ chung một lần tạo.
+ * Cache vượt PREVIEW_CACHE_MAX_MB thì bỏ các preview lâu nhất không được đọc.
+ *
+ * Ảnh được đọc kích thước từ header trước khi decode: quá PREVIEW_MAX_IMAGE_PIXELS thì từ chối
+ * (file nhỏ vẫn có thể khai báo kích thước cần hàng GB RAM để decode).
+ */
+public class PreviewService {
+
+    private static final Logger LOG = Log.getLogger("PREVIEW");
+
+    private static PreviewService instance;
+
+    public static final int THUMBNAIL_WIDTH = 600;
+    public static final int THUMBNAIL_HEIGHT = 400;
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp");
+    private static final Set<String> TEXT_EXTENSIONS = Set.of(
+        "txt", "md", "json", "xml", "java", "css", "html", "js", "py", "sql");
+
+    /**
+     * Loại preview theo phần mở rộng tên file.
+     */
+    public enum Kind {
+        IMAGE, TEXT;
+
+        /** @return null nếu loại file không có preview */
+        public static Kind of(String fileName) {
+            int dot = fileName.lastIndexOf('.');
+            String ext = dot >= 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+            if (IMAGE_EXTENSIONS.contains(ext)) {
+                return IMAGE;
+            }
+            return TEXT_EXTENSIONS.contains(ext) ? TEXT : null;
+        }
+    }
+
+    private final Path cacheDir;
+    private final int textBytes;
+    private final long maxImageBytes;
+    private final long maxImagePixels;
+    private final long maxCacheBytes;
+    private final AtomicLong cacheBytes = new AtomicLong();
+    private final long timeoutSeconds;
+    private final ThreadPoolExecutor workers;
+    private final StorageService storageService;
+    // Cache key → lần tạo đang chạy (request cùng key chờ chung)
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    private PreviewService() {
+        Dotenv dotenv = Dotenv.configure()
+                .directory(findEnvDirectory())
+                .ignoreIfMissing()
+                .load();
+
+        this.storageService = StorageService.getInstance();
+        String path = dotenv.get("PREVIEW_CACHE_PATH", "").trim();
+        this.cacheDir = path.isEmpty()
+            ? storageService.getRoots().get(0).getPath().resolve("previews")
+            : Paths.get(path);
+        this.textBytes = Integer.parseInt(dotenv.get("PREVIEW_TEXT_BYTES", "51200"));
+        this.maxImageBytes = Long.parseLong(dotenv.get("PREVIEW_MAX_IMAGE_MB", "50")) * 1024 * 1024;
+        this.maxImagePixels = Long.parseLong(dotenv.get("PREVIEW_MAX_IMAGE_PIXELS", "100000000"));
+        this.maxCacheBytes = Long.parseLong(dotenv.get("PREVIEW_CACHE_MAX_MB", "512")) * 1024 * 1024;
+        this.timeoutSeconds = Long.parseLong(dotenv.get("PREVIEW_TIMEOUT_SECONDS", "30"));
+        int workerCount = Math.max(1, Integer.parseInt(dotenv.get("PREVIEW_WORKERS", "2")));
+        int queueSize = Math.max(1, Integer.parseInt(dotenv.get("PREVIEW_QUEUE_SIZE", "64")));
+
+        // Server không có màn hình; ImageIO đọc stream vào memory thay vì file tạm
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        ImageIO.setUseCache(false);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize), r -> {
+                Thread t = new Thread(r, "preview-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
+        cacheBytes.set(scanCacheBytes());
+        LOG.info("Cache at " + cacheDir + " (" + cacheBytes.get() / 1024 + "KB), workers=" + workerCount +
+               ", queue=" + queueSize + ", text=" + textBytes + " bytes");
+    }
+
+    public static synchronized PreviewService getInstance() {
+        if (instance == null) {
+            instance = new PreviewService();
+        }
+        return instance;
+    }
+
+    /**
+     * Version có tạo preview được không (ảnh quá lớn thì không decode).
+     */
+    public boolean isSupported(Kind kind, long sizeBytes) {
+        return kind == Kind.TEXT || sizeBytes <= maxImageBytes;
+    }
+
+    /**
+     * Text preview có bị cắt không (file dài hơn phần preview).
+     */
+    public boolean isTruncated(Kind kind, long sizeBytes) {
+        return kind == Kind.TEXT && sizeBytes > textBytes;
+    }
+
+    /**
+     * Preview của version: đọc từ cache, không có thì tạo trên worker pool rồi cache.
+     *
+     * @return thumbnail (JPEG/PNG) hoặc đoạn đầu file text (UTF-8)
+     * @throws java.util.concurrent.RejectedExecutionException nếu hàng đợi tạo preview đã đầy
+     */
+    public byte[] getPreview(int fileId, int versionNumber, String sha256, Kind kind)
+            throws IOException, TimeoutException, InterruptedException {
+        String key = cacheKey(sha256, kind);
+        Path cached = cacheDir.resolve(key);
+        if (Files.isRegularFile(cached)) {
+            try {
+                byte[] preview = Files.readAllBytes(cached);
+                // mtime = lần đọc gần nhất, dùng cho eviction
+                Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+                return preview;
+            } catch (NoSuchFileException e) {
+                // Vừa bị evict → tạo lại
+            }
+        }
+
+        CompletableFuture<byte[]> future = inFlight.computeIfAbsent(key,
+            k -> CompletableFuture.supplyAsync(() -> generate(fileId, versionNumber, kind, cached), workers));
+        future.whenComplete((result, error) -> inFlight.remove(key, future));
+        try {
+            return future.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Chạy trên worker: tạo preview, ghi cache (file tạm + rename) rồi trả bytes.
+     */
+    private byte[] generate(int fileId, int versionNumber, Kind kind, Path target) {
+        try {
+            if (Files.isRegularFile(target)) {
+                return Files.readAllBytes(target);
+            }
+            long start = System.nanoTime();
+            byte[] preview;
+            try (InputStream in = storageService.readFile(fileId, versionNumber)) {
+                preview = kind == Kind.IMAGE ? thumbnail(in, maxImagePixels) : textSnippet(in, textBytes);
+            }
+            Files.createDirectories(cacheDir);
+            Path temp = Files.createTempFile(cacheDir, "tmp-", null);
+            try {
+                Files.write(temp, preview);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            if (cacheBytes.addAndGet(preview.length) > maxCacheBytes) {
+                evictCache();
+            }
+            LOG.info("Generated " + kind + " preview for fileId=" + fileId + ", version=" + versionNumber +
+                   ": " + preview.length + " bytes in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+            return preview;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Bỏ preview lâu nhất không được đọc cho đến khi cache còn dưới 90% PREVIEW_CACHE_MAX_MB.
+     */
+    private synchronized void evictCache() {
+        if (cacheBytes.get() <= maxCacheBytes) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(cacheDir)) {
+            for (Path entry : entries) {
+                if (Files.isRegularFile(entry) && !entry.getFileName().toString().startsWith("tmp-")) {
+                    files.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot list preview cache: " + e.getMessage());
+            return;
+        }
+        Map<Path, Long> modified = new HashMap<>();
+        for (Path file : files) {
+            try {
+                modified.put(file, Files.getLastModifiedTime(file).toMillis());
+            } catch (IOException e) {
+                modified.put(file, 0L);
+            }
+        }
+        files.sort(Comparator.comparing(modified::get));
+
+        long target = maxCacheBytes / 10 * 9;
+        int evicted = 0;
+        for (Path file : files) {
+            if (cacheBytes.get() <= target) {
+                break;
+            }
+            try {
+                long size = Files.size(file);
+                if (Files.deleteIfExists(file)) {
+                    cacheBytes.addAndGet(-size);
+                    evicted++;
+                }
+            } catch (IOException e) {
+                LOG.debug("Cannot evict " + file + ": " + e.getMessage());
+            }
+        }
+        LOG.info("Evicted " + evicted + " preview(s), cache now " + cacheBytes.get() / 1024 + "KB");
+    }
+
+    private long scanCacheBytes() {
+        long total = 0;
+        if (!Files.isDirectory(cacheDir)) {
+            return 0;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(cacheDir)) {
+            for (Path entry : entries) {
+                if (Files.isRegularFile(entry)) {
+                    total += Files.size(entry);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot scan preview cache: " + e.getMessage());
+        }
+        return total;
+    }
+
+    /**
+     * Decode ảnh rồi thu nhỏ. Kích thước đọc từ header trước: ảnh quá {@code maxPixels} bị từ chối,
+     * ảnh lớn hơn khung được subsampling ngay lúc decode để không giữ cả ảnh gốc trong memory.
+     */
+    static byte[] thumbnail(InputStream in, long maxPixels) throws IOException {
+        BufferedImage source;
+        try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = iis != null ? ImageIO.getImageReaders(iis) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                if ((long) sourceWidth * sourceHeight > maxPixels) {
+                    throw new IOException("Image too large to preview: " + sourceWidth + "x" + sourceHeight);
+                }
+                // Theo chiều vượt khung nhiều hơn: ảnh dài/hẹp cũng được thu nhỏ khi decode
+                int subsampling = Math.max(1, Math.max(ceilDiv(sourceWidth, THUMBNAIL_WIDTH),
+                                                       ceilDiv(sourceHeight, THUMBNAIL_HEIGHT)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                source = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        double scale = Math.min(1.0, Math.min((double) THUMBNAIL_WIDTH / source.getWidth(),
+                                              (double) THUMBNAIL_HEIGHT / source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        boolean alpha = source.getColorModel().hasAlpha();
+
+        BufferedImage scaled = new BufferedImage(width, height,
+            alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(scaled, alpha ? "png" : "jpg", out)) {
+            throw new IOException("No image writer for thumbnail");
+        }
+        return out.toByteArray();
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    /**
+     * {@code limit} bytes đầu, bỏ ký tự UTF-8 bị cắt dở ở cuối.
+     */
+    static byte[] textSnippet(InputStream in, int limit) throws IOException {
+        byte[] head = in.readNBytes(limit);
+        int end = head.length;
+        if (end == limit) {
+            // Lùi về đầu ký tự cuối (byte 10xxxxxx là byte tiếp nối), bỏ nếu ký tự đó chưa đủ bytes
+            int start = end - 1;
+            while (start > 0 && start > end - 4 && (head[start] & 0xC0) == 0x80) {
+                start--;
+            }
+            int lead = head[start] & 0xFF;
+            int length = lead < 0x80 ? 1 : lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+            if (start + length > end) {
+                end = start;
+            }
+        }
+        return end == head.length ? head : Arrays.copyOf(head, end);
+    }
+
+    /**
+     * Tên file cache: kèm tham số tạo preview để đổi cấu hình không dùng nhầm bản cũ.
+     */
+    private String cacheKey(String sha256, Kind kind) {
+        String hash = sha256.toLowerCase(Locale.ROOT);
+        return kind == Kind.IMAGE
+            ? hash + "-" + THUMBNAIL_WIDTH + "x" + THUMBNAIL_HEIGHT + ".thumb"
+            : hash + "-" + textBytes + ".txt";
+    }
+
+    private static String findEnvDirectory() {
+        String[] possiblePaths = { ".", "..", "../..", "../../..", System.getProperty("user.dir") };
+        for (String path : possiblePaths) {
+            java.io.File envFile = new java.io.File(path, ".env");
+            if (envFile.exists()) {
+                return path;
+            }
+        }
+        return ".";
+    }
+}
@@ -0,0 +1,300 @@
+package com.drivelite.server.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.drivelite.server.db.entity.FileVersion;
+import com.drivelite.server.db.repository.FileVersionRepository;
+import com.drivelite.server.metrics.MetricsRegistry;
+import com.drivelite.server.storage.IoThrottle;
+import com.drivelite.server.storage.ReplicationQueue;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Replicate bất đồng bộ các version đã commit sang storage root phụ (REPLICATION_PATH).
+ *
+ * - Upload handler gọi {@link #enqueue} sau khi commit DB; version được ghi vào
+ *   {@link ReplicationQueue} (fsync) rồi worker copy nền, không làm chậm upload.
+ * - Worker đọc qua StorageService (nên version packed/cold cũng copy được, replica luôn là bản plain),
+ *   ghi tuần tự buffer lớn, giới hạn băng thông, verify SHA-256 rồi mới rename.
+ * - Khi restart, các version còn pending trong queue được copy tiếp (catch-up).
+ * - Download fallback sang replica khi primary lỗi (xem {@link #openReplica}).
+ *
+ * Cấu hình qua .env:
+ * - REPLICATION_PATH: thư mục replica (để trống = tắt replication)
+ * - REPLICATION_WORKERS (default 2)
+ * - REPLICATION_IO_MBPS: băng thông tối đa của tất cả worker (default 50MB/s, 0 = không giới hạn)
+ * - REPLICATION_RETRY_SECONDS: chờ trước khi thử lại version lỗi (default 30)
+ */
+public class ReplicationService {
+
+    private static final Logger LOG = Log.getLogger("REPLICATION");
+
+    private static final String QUEUE_LOG = "replication.log";
+    private static final int COPY_BUFFER_SIZE = 1024 * 1024; // Sequential I/O khối lớn
+
+    private static ReplicationService instance;
+
+    private final Path replicaRoot;
+    private final int workerCount;
+    private final int retrySeconds;
+    private final IoThrottle throttle;
+
+    private final StorageService storageService;
+    private final FileVersionRepository versionRepository;
+
+    private final BlockingQueue<Long> work = new LinkedBlockingQueue<>();
+    private final AtomicLong versionsReplicated = new AtomicLong();
+    private final AtomicLong bytesReplicated = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private ReplicationQueue queue;
+    private List<Thread> workers;
+    private ScheduledExecutorService retryScheduler;
+
+    private ReplicationService() {
+        this(Dotenv.configure()
+                .directory(findEnvDirectory())
+                .ignoreIfMissing()
+                .load(), StorageService.getInstance());
+    }
+
+    /**
+     * Service với cấu hình và storage cho sẵn (test, không phải singleton); server luôn dùng {@link #getInstance()}.
+     */
+    public ReplicationService(Dotenv dotenv, StorageService storageService) {
+        String path = dotenv.get("REPLICATION_PATH", "").trim();
+        this.replicaRoot = path.isEmpty() ? null : Paths.get(path);
+        this.workerCount = Math.max(1, Integer.parseInt(dotenv.get("REPLICATION_WORKERS", "2")));
+        this.retrySeconds = Integer.parseInt(dotenv.get("REPLICATION_RETRY_SECONDS", "30"));
+        long mbps = Long.parseLong(dotenv.get("REPLICATION_IO_MBPS", "50"));
+        this.throttle = new IoThrottle(mbps * 1024 * 1024);
+
+        this.storageService = storageService;
+        this.versionRepository = new FileVersionRepository();
+    }
+
+    public static synchronized ReplicationService getInstance() {
+        if (instance == null) {
+            instance = new ReplicationService();
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return replicaRoot != null;
+    }
+
+    /**
+     * Mở queue, nạp lại version pending từ lần chạy trước và start worker threads.
+     */
+    public synchronized void start() {
+        if (!isEnabled()) {
+            LOG.info("Disabled (REPLICATION_PATH not set)");
+            return;
+        }
+        if (workers != null) {
+            return;
+        }
+        try {
+            Files.createDirectories(replicaRoot);
+            queue = new ReplicationQueue(storageService.getRoots().get(0).getPath().resolve(QUEUE_LOG));
+        } catch (IOException e) {
+            LOG.error("Cannot open queue: " + e.getMessage());
+            return;
+        }
+
+        MetricsRegistry.getInstance().registerGauge("drivelite_replication_pending",
+            "Versions waiting to be copied to the replica", this::getPendingCount);
+
+        // Catch-up: version commit trước khi server dừng nhưng chưa copy xong
+        List<Long> pending = queue.pending();
+        work.addAll(pending);
+
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replication-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        workers = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::workerLoop, "replication-" + i);
+            worker.setDaemon(true);
+            worker.setPriority(Thread.MIN_PRIORITY);
+            worker.start();
+            workers.add(worker);
+        }
+        LOG.info("Replicating to " + replicaRoot.toAbsolutePath() + " with " + workerCount +
+               " workers, io=" + (throttle.getBytesPerSecond() > 0 ? throttle.getBytesPerSecond() / 1024 / 1024 + "MB/s" : "unlimited") +
+               ", " + pending.size() + " versions pending");
+    }
+
+    public synchronized void stop() {
+        if (workers == null) {
+            return;
+        }
+        retryScheduler.shutdownNow();
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers = null;
+        queue.close();
+        LOG.info("Stopped: " + summary());
+    }
+
+    /**
+     * Đưa version vừa commit vào hàng đợi replication.
+     * Không bao giờ ném exception: lỗi ghi queue chỉ được log, upload vẫn thành công.
+     */
+    public void enqueue(int fileId, int versionNumber) {
+        ReplicationQueue current = queue;
+        if (current == null) {
+            return;
+        }
+        try {
+            if (current.add(fileId, versionNumber)) {
+                work.offer(ReplicationQueue.key(fileId, versionNumber));
+            }
+        } catch (IOException e) {
+            LOG.error("Failed to enqueue fileId=" + fileId + ", version=" + versionNumber +
+                    ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Mở bản replica của version (dùng khi primary đọc lỗi).
+     */
+    public InputStream openReplica(int fileId, int versionNumber) throws IOException {
+        if (!isEnabled()) {
+            throw new IOException("Replication disabled");
+        }
+        return Files.newInputStream(getReplicaPath(fileId, versionNumber));
+    }
+
+    public int getPendingCount() {
+        ReplicationQueue current = queue;
+        return current != null ? current.size() : 0;
+    }
+
+    public String summary() {
+        return "replicated=" + versionsReplicated.get() + " (" + (bytesReplicated.get() / 1024 / 1024) + "MB)" +
+               ", failures=" + failures.get() + ", pending=" + getPendingCount();
+    }
+
+    private void workerLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long key;
+            try {
+                key = work.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            int fileId = ReplicationQueue.fileIdOf(key);
+            int versionNumber = ReplicationQueue.versionOf(key);
+            try {
+                replicate(fileId, versionNumber);
+            } catch (InterruptedException e) {
+                return; // Còn pending trong queue, lần start sau copy tiếp
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                LOG.warn("Failed fileId=" + fileId + ", version=" + versionNumber +
+                       ": " + e.getMessage() + " (retry in " + retrySeconds + "s)");
+                try {
+                    retryScheduler.schedule(() -> work.offer(key), retrySeconds, TimeUnit.SECONDS);
+                } catch (Exception rejected) {
+                    // Đang shutdown
+                }
+            }
+        }
+    }
+
+    private void replicate(int fileId, int versionNumber) throws Exception {
+        Optional<FileVersion> versionOpt = versionRepository.findByFileIdAndVersion(fileId, versionNumber);
+        if (versionOpt.isEmpty()) {
+            // Version đã bị rollback → không còn gì để copy
+            queue.complete(fileId, versionNumber);
+            return;
+        }
+        String expectedSha256 = versionOpt.get().getSha256();
+
+        Path target = getReplicaPath(fileId, versionNumber);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.createDirectories(target.getParent());
+
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        long copied = 0;
+        try (InputStream in = storageService.readFile(fileId, versionNumber);
+             FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+                throttle.acquire(bytesRead);
+                out.write(buffer, 0, bytesRead);
+                sha256.update(buffer, 0, bytesRead);
+                copied += bytesRead;
+            }
+            // Replica phải bền trên disk trước khi xóa khỏi queue
+            channel.force(true);
+        } catch (Exception e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        String actualSha256 = StorageService.bytesToHex(sha256.digest());
+        if (!actualSha256.equalsIgnoreCase(expectedSha256)) {
+            Files.deleteIfExists(tmp);
+            throw new IOException("SHA256 mismatch while replicating (primary corrupted?)");
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        queue.complete(fileId, versionNumber);
+
+        versionsReplicated.incrementAndGet();
+        bytesReplicated.addAndGet(copied);
+    }
+
+    private Path getReplicaPath(int fileId, int versionNumber) {
+        // Cùng layout với primary: {replica}/{fileId}/{versionNumber}
+        return replicaRoot.resolve(String.valueOf(fileId)).resolve(String.valueOf(versionNumber));
+    }
+
+    private static String findEnvDirectory() {
+        String[] possiblePaths = { ".", "..", "../..", "../../..", System.getProperty("user.dir") };
+        for (String path : possiblePaths) {
+            java.io.File envFile = new java.io.File(path, ".env");
+            if (envFile.exists()) {
+                return path;
+            }
+        }
+        return ".";
+    }
+}
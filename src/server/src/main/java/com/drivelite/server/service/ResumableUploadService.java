@@ -0,0 +1,245 @@
+package com.drivelite.server.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.drivelite.server.net.ClientContext;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * ResumableUploadService - Upload tiếp từ offset đã nhận sau khi mất kết nối.
+ *
+ * Upload đủ lớn (≥ RESUMABLE_UPLOAD_MIN_BYTES) mà client gửi kèm "resume": true được nhận vào
+ * part file trong RESUMABLE_UPLOAD_PATH (mặc định {storage}/partial) thay vì ghi thẳng vào storage.
+ * Connection đứt giữa chừng thì phần đã ghi được giữ lại; lần BEGIN sau với cùng
+ * (user, file đích, sha256, size) nhận lại offset = kích thước part file và client chỉ gửi phần còn lại.
+ * Nhận đủ thì part file được chuyển vào storage bằng {@link StorageService#importFile}.
+ *
+ * Mỗi part file chỉ có một connection ghi tại một thời điểm. Client reconnect trong khi connection
+ * cũ chưa bị server phát hiện là chết: connection cũ bị đóng để nhường part file cho connection mới.
+ * Part file bỏ dở quá RESUMABLE_UPLOAD_TTL_HOURS bị xóa.
+ */
+public class ResumableUploadService {
+
+    private static final Logger LOG = Log.getLogger("RESUMABLE");
+
+    private static ResumableUploadService instance;
+
+    private static final String PART_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long TAKEOVER_WAIT_MS = 5_000;
+    private static final long PURGE_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final Path partDir;
+    private final long minBytes;
+    private final long ttlMillis;
+    private final StorageService storageService;
+    // Part file đang được connection nào ghi, guard bởi chính map
+    private final Map<String, ClientContext> leases = new HashMap<>();
+    private volatile long lastPurgeMillis;
+
+    private ResumableUploadService() {
+        this(Dotenv.configure()
+                .directory(findEnvDirectory())
+                .ignoreIfMissing()
+                .load(), StorageService.getInstance());
+    }
+
+    /**
+     * Service với cấu hình và storage cho sẵn (test); server luôn dùng {@link #getInstance()}.
+     */
+    ResumableUploadService(Dotenv dotenv, StorageService storageService) {
+        this.storageService = storageService;
+        String path = dotenv.get("RESUMABLE_UPLOAD_PATH", "").trim();
+        // Cùng disk với root chính để importFile chỉ cần rename
+        this.partDir = path.isEmpty()
+            ? storageService.getRoots().get(0).getPath().resolve("partial")
+            : Paths.get(path);
+        this.minBytes = Long.parseLong(dotenv.get("RESUMABLE_UPLOAD_MIN_BYTES", "8388608"));
+        this.ttlMillis = TimeUnit.HOURS.toMillis(Long.parseLong(dotenv.get("RESUMABLE_UPLOAD_TTL_HOURS", "24")));
+
+        purgeExpired();
+        LOG.info("Part files at " + partDir + ", min size=" + minBytes + " bytes");
+    }
+
+    public static synchronized ResumableUploadService getInstance() {
+        if (instance == null) {
+            instance = new ResumableUploadService();
+        }
+        return instance;
+    }
+
+    /**
+     * Upload có được nhận qua part file không (file nhỏ gửi lại từ đầu rẻ hơn).
+     */
+    public boolean isResumable(long fileSize) {
+        return fileSize >= minBytes;
+    }
+
+    /**
+     * Key của part file: cùng user, cùng file đích (0 = file mới), cùng nội dung.
+     */
+    public static String keyFor(int userId, int targetFileId, String sha256, long fileSize) {
+        return userId + "-" + (targetFileId > 0 ? "f" + targetFileId : "new") + "-" +
+               sha256.toLowerCase(Locale.ROOT) + "-" + fileSize;
+    }
+
+    /**
+     * Giữ part file cho connection {@code owner} (đóng connection cũ còn giữ nó nếu có).
+     *
+     * @return số bytes đã nhận từ trước (offset client gửi tiếp), -1 nếu connection cũ không nhả kịp
+     */
+    public long acquire(String key, ClientContext owner) throws IOException, InterruptedException {
+        maybePurge();
+        synchronized (leases) {
+            ClientContext previous = leases.get(key);
+            if (previous != null && previous != owner) {
+                // Client đã bỏ connection cũ (đang reconnect): đóng để thread cũ dừng ghi
+                LOG.info("Taking over " + key + " from " + previous.getClientAddress());
+                try {
+                    previous.getSocket().close();
+                } catch (IOException e) {
+                    LOG.debug("Failed to close previous connection: " + e.getMessage());
+                }
+                long deadline = System.currentTimeMillis() + TAKEOVER_WAIT_MS;
+                while (leases.containsKey(key)) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    leases.wait(remaining);
+                }
+            }
+            leases.put(key, owner);
+        }
+        Path part = partFile(key);
+        try {
+            return Files.exists(part) ? Files.size(part) : 0;
+        } catch (IOException e) {
+            // Caller chưa biết key đã được giữ: nhả lại trước khi báo lỗi
+            release(key, owner);
+            throw e;
+        }
+    }
+
+    /**
+     * Nhả part file (gọi khi transfer kết thúc, thành công hay không).
+     */
+    public void release(String key, ClientContext owner) {
+        synchronized (leases) {
+            if (leases.remove(key, owner)) {
+                leases.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Ghi phần còn lại (từ {@code offset} tới {@code fileSize}) vào part file.
+     * Lỗi giữa chừng: bytes đã ghi được giữ lại cho lần resume sau.
+     *
+     * @param in bytes file (đã giải nén nếu transfer có nén)
+     */
+    public void receive(String key, InputStream in, long offset, long fileSize) throws IOException {
+        Files.createDirectories(partDir);
+        Path part = partFile(key);
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Bỏ phần thừa nếu part file dài hơn offset đã báo cho client
+            channel.truncate(offset);
+            channel.position(offset);
+            OutputStream out = Channels.newOutputStream(channel);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long received = offset;
+            while (received < fileSize) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, fileSize - received));
+                if (read < 0) {
+                    throw new IOException("Unexpected end of stream. Expected " + fileSize +
+                                        " bytes, got " + received);
+                }
+                out.write(buffer, 0, read);
+                received += read;
+            }
+        }
+    }
+
+    /**
+     * Chuyển part file đã đủ bytes vào storage rồi xóa nó (nội dung sai sha256 cũng không dùng lại được).
+     *
+     * @return SHA256 của nội dung
+     */
+    public String commit(String key, int fileId, int versionNumber, long fileSize)
+            throws IOException, NoSuchAlgorithmException {
+        Path part = partFile(key);
+        try {
+            return storageService.importFile(fileId, versionNumber, part, fileSize);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private Path partFile(String key) {
+        return partDir.resolve(key + PART_SUFFIX);
+    }
+
+    private void maybePurge() {
+        if (System.currentTimeMillis() - lastPurgeMillis > PURGE_INTERVAL_MS) {
+            purgeExpired();
+        }
+    }
+
+    /**
+     * Xóa part file bỏ dở quá TTL (không còn connection nào giữ).
+     */
+    private void purgeExpired() {
+        lastPurgeMillis = System.currentTimeMillis();
+        if (!Files.isDirectory(partDir)) {
+            return;
+        }
+        long cutoff = lastPurgeMillis - ttlMillis;
+        int purged = 0;
+        try (DirectoryStream<Path> parts = Files.newDirectoryStream(partDir, "*" + PART_SUFFIX)) {
+            for (Path part : parts) {
+                String name = part.getFileName().toString();
+                String key = name.substring(0, name.length() - PART_SUFFIX.length());
+                synchronized (leases) {
+                    if (leases.containsKey(key) || Files.getLastModifiedTime(part).toMillis() >= cutoff) {
+                        continue;
+                    }
+                    Files.deleteIfExists(part);
+                }
+                purged++;
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to purge part files: " + e.getMessage());
+        }
+        if (purged > 0) {
+            LOG.info("Purged " + purged + " abandoned part file(s)");
+        }
+    }
+
+    private static String findEnvDirectory() {
+        String[] possiblePaths = { ".", "..", "../..", "../../..", System.getProperty("user.dir") };
+        for (String path : possiblePaths) {
+            java.io.File envFile = new java.io.File(path, ".env");
+            if (envFile.exists()) {
+                return path;
+            }
+        }
+        return ".";
+    }
+}
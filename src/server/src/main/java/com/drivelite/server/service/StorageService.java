@@ -1,22 +1,51 @@
 package com.drivelite.server.service;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.drivelite.common.compression.ChunkedCompressionOutputStream;
+import com.drivelite.common.compression.CompressionCodec;
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+import com.drivelite.server.jfr.StorageIoEvent;
+import com.drivelite.server.storage.ColdBlobFormat;
+import com.drivelite.server.storage.IoThrottle;
+import com.drivelite.server.storage.MeteredInputStream;
+import com.drivelite.server.storage.PackIndex;
+import com.drivelite.server.storage.PackStore;
+import com.drivelite.server.storage.PlacementJournal;
+import com.drivelite.server.storage.StorageRoot;
 
 import io.github.cdimascio.dotenv.Dotenv;
 
 /**
  * Service để lưu và đọc file từ disk.
  * Files được lưu theo cấu trúc: storage/{fileId}/{versionNumber}
+ * Version cũ đã nén at-rest (cold tier): storage/{fileId}/{versionNumber}.dlz
+ * Version nhỏ (≤ PACK_THRESHOLD_BYTES) được append vào storage/packs/pack-{id}.dat
  * 
  * Security:
  * - Path được tạo từ fileId/versionNumber (integers), không từ user input
@@ -24,25 +53,82 @@ import io.github.cdimascio.dotenv.Dotenv;
  */
 public class StorageService {
 
+    private static final Logger LOG = Log.getLogger("STORAGE");
+
     private static StorageService instance;
     private final String storagePath;
+
+    // Multi-disk: STORAGE_PATH có thể chứa nhiều root, phân cách bằng ';' hoặc ','
+    private final List<StorageRoot> roots;
+    private final PlacementJournal placement;
+    private final double rebalanceThreshold;
+    // Chỉ giữ cho rename + đổi placement (publish, rebalance, cold tier), không giữ khi copy/nén
+    private final Object maintenanceLock = new Object();
     private static final int BUFFER_SIZE = 8192; // 8KB buffer
+    private static final String PACK_DIR = "packs";
+    private static final String PLACEMENT_LOG = "placement.log";
+    // Bản copy dở của rebalance ở root đích (rebalancer bỏ qua vì tên không phải số)
+    private static final String MOVING_SUFFIX = ".moving";
+    private static final long MIN_FREE_BYTES = 512L * 1024 * 1024;
+    private static final long COMPACTION_IO_BYTES_PER_SEC = 20L * 1024 * 1024;
+
+    // Small-file pack storage (null nếu PACK_SMALL_FILES=false)
+    private final PackStore packStore;
+    private final int packThreshold;
+    private final int packCompactIntervalMinutes;
+    private final double packCompactDeadRatio;
+    private ScheduledExecutorService maintenanceScheduler;
 
     private StorageService() {
-        Dotenv dotenv = Dotenv.configure()
+        this(Dotenv.configure()
                 .directory(findEnvDirectory())
                 .ignoreIfMissing()
-                .load();
+                .load());
+    }
+
+    /**
+     * Tạo instance riêng từ cấu hình cho sẵn (không phải singleton).
+     * Dùng cho benchmark/công cụ cần STORAGE_PATH tạm; server luôn dùng {@link #getInstance()}.
+     */
+    public StorageService(Dotenv dotenv) {
+        // Root đầu tiên là root chính: chứa packs/ và placement journal
+        String[] rootPaths = dotenv.get("STORAGE_PATH", "./storage").split("[;,]");
+        this.storagePath = rootPaths[0].trim();
         
-        this.storagePath = dotenv.get("STORAGE_PATH", "./storage");
+        List<StorageRoot> configuredRoots = new ArrayList<>();
+        PlacementJournal journal;
+        try {
+            for (String rootPath : rootPaths) {
+                if (!rootPath.trim().isEmpty()) {
+                    // Tạo thư mục storage nếu chưa có
+                    configuredRoots.add(new StorageRoot(configuredRoots.size(), Paths.get(rootPath.trim())));
+                }
+            }
+            journal = new PlacementJournal(Paths.get(storagePath, PLACEMENT_LOG));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot initialize storage roots: " + e.getMessage(), e);
+        }
+        this.roots = Collections.unmodifiableList(configuredRoots);
+        this.placement = journal;
+        this.rebalanceThreshold = Double.parseDouble(dotenv.get("STORAGE_REBALANCE_THRESHOLD", "0.10"));
         
-        // Tạo thư mục storage nếu chưa có
-        File storageDir = new File(storagePath);
-        if (!storageDir.exists()) {
-            storageDir.mkdirs();
+        // Version nhỏ (≤ PACK_THRESHOLD_BYTES) được gom vào pack file để tránh tạo hàng triệu file/thư mục
+        this.packThreshold = Integer.parseInt(dotenv.get("PACK_THRESHOLD_BYTES", "65536"));
+        this.packCompactIntervalMinutes = Integer.parseInt(dotenv.get("PACK_COMPACT_INTERVAL_MINUTES", "30"));
+        this.packCompactDeadRatio = Double.parseDouble(dotenv.get("PACK_COMPACT_DEAD_RATIO", "0.5"));
+        PackStore packs = null;
+        if (Boolean.parseBoolean(dotenv.get("PACK_SMALL_FILES", "true"))) {
+            long maxPackSize = Long.parseLong(dotenv.get("PACK_MAX_SIZE_MB", "256")) * 1024 * 1024;
+            try {
+                packs = new PackStore(Paths.get(storagePath, PACK_DIR), maxPackSize);
+            } catch (IOException e) {
+                LOG.error("Cannot open pack store, small files will be stored individually: " + e.getMessage());
+            }
         }
+        this.packStore = packs;
         
-        System.out.println("[STORAGE] Initialized at: " + storageDir.getAbsolutePath());
+        LOG.info("Initialized at: " + roots +
+               (packStore != null ? " (pack files for versions <= " + packThreshold + " bytes)" : ""));
     }
 
     public static synchronized StorageService getInstance() {
@@ -64,8 +150,36 @@ public class StorageService {
     public String saveFile(int fileId, int versionNumber, InputStream inputStream, long expectedSize) 
             throws IOException, NoSuchAlgorithmException {
         
+        boolean packed = packStore != null && expectedSize <= packThreshold;
+        StorageIoEvent event = new StorageIoEvent();
+        event.begin();
+        try {
+            // File nhỏ → append vào pack (không tạo thư mục/file riêng)
+            return packed
+                ? savePacked(fileId, versionNumber, inputStream, (int) expectedSize)
+                : saveOnRoot(fileId, versionNumber, inputStream, expectedSize);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = "save";
+                event.tier = packed ? "pack" : "hot";
+                event.fileId = fileId;
+                event.versionNumber = versionNumber;
+                event.bytes = expectedSize;
+                event.commit();
+            }
+        }
+    }
+
+    private String saveOnRoot(int fileId, int versionNumber, InputStream inputStream, long expectedSize)
+            throws IOException, NoSuchAlgorithmException {
+        // Chọn disk ít bận nhất còn đủ chỗ
+        StorageRoot root = chooseRoot(expectedSize);
+        
         // Tạo đường dẫn an toàn (không dùng user input)
-        Path filePath = getFilePath(fileId, versionNumber);
+        Path filePath = getFilePath(root, fileId, versionNumber);
+        // Ghi vào .tmp (rebalancer bỏ qua), chỉ publish khi đã nhận đủ
+        Path tmpPath = getTmpFilePath(root, fileId, versionNumber);
         
         // Tạo thư mục cha nếu chưa có
         Files.createDirectories(filePath.getParent());
@@ -73,7 +187,8 @@ public class StorageService {
         MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
         long totalBytesRead = 0;
         
-        try (OutputStream out = new FileOutputStream(filePath.toFile())) {
+        root.beginIo();
+        try (OutputStream out = new FileOutputStream(tmpPath.toFile())) {
             byte[] buffer = new byte[BUFFER_SIZE];
             int bytesRead;
             
@@ -91,61 +206,202 @@ public class StorageService {
                 sha256.update(buffer, 0, bytesRead);
                 totalBytesRead += bytesRead;
             }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmpPath);
+            throw e;
+        } finally {
+            root.endIo();
+            root.recordWrite(totalBytesRead);
         }
         
         // Verify size
         if (totalBytesRead != expectedSize) {
             // Xóa file nếu size không khớp
-            Files.deleteIfExists(filePath);
+            Files.deleteIfExists(tmpPath);
             throw new IOException("Size mismatch. Expected " + expectedSize + 
                                 " bytes, got " + totalBytesRead);
         }
         
+        // Ghi nhận placement để readFile đi thẳng tới đúng root
+        publish(root, fileId, versionNumber, tmpPath, filePath);
+        
         return bytesToHex(sha256.digest());
     }
 
+    /**
+     * Rename blob đã ghi xong vào chỗ và ghi placement trong cùng maintenanceLock,
+     * để rebalancer không bao giờ thấy blob nằm trên root mà placement chưa trỏ tới.
+     */
+    private void publish(StorageRoot root, int fileId, int versionNumber, Path tmpPath, Path filePath)
+            throws IOException {
+        synchronized (maintenanceLock) {
+            Files.move(tmpPath, filePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            placement.place(fileId, versionNumber, root.getIndex());
+        }
+    }
+
+    /**
+     * Đưa file đã nhận đủ trên disk (part file của upload resumable) vào storage.
+     * Cùng filesystem với root được chọn thì rename, không thì copy; file nhỏ vẫn vào pack.
+     * Caller tự xóa {@code source} nếu còn (sau copy hoặc khi lỗi).
+     *
+     * @return SHA256 của nội dung đã lưu
+     */
+    public String importFile(int fileId, int versionNumber, Path source, long expectedSize)
+            throws IOException, NoSuchAlgorithmException {
+        if (Files.size(source) != expectedSize) {
+            throw new IOException("Size mismatch. Expected " + expectedSize +
+                                " bytes, got " + Files.size(source));
+        }
+        if (packStore != null && expectedSize <= packThreshold) {
+            try (InputStream in = Files.newInputStream(source)) {
+                return saveFile(fileId, versionNumber, in, expectedSize);
+            }
+        }
+
+        StorageIoEvent event = new StorageIoEvent();
+        event.begin();
+        StorageRoot root = chooseRoot(expectedSize);
+        Path filePath = getFilePath(root, fileId, versionNumber);
+        Files.createDirectories(filePath.getParent());
+        root.beginIo();
+        try {
+            // Hash trước khi move (part file có thể đã nhận qua nhiều connection)
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = Files.newInputStream(source)) {
+                byte[] buffer = new byte[BUFFER_SIZE * 8];
+                int bytesRead;
+                while ((bytesRead = in.read(buffer)) != -1) {
+                    sha256.update(buffer, 0, bytesRead);
+                }
+            }
+            try {
+                publish(root, fileId, versionNumber, source, filePath);
+            } catch (AtomicMoveNotSupportedException e) {
+                // Khác filesystem: copy sang .tmp trên root rồi mới publish
+                Path tmpPath = getTmpFilePath(root, fileId, versionNumber);
+                try {
+                    Files.copy(source, tmpPath, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException copyError) {
+                    Files.deleteIfExists(tmpPath);
+                    throw copyError;
+                }
+                root.recordWrite(expectedSize);
+                publish(root, fileId, versionNumber, tmpPath, filePath);
+            }
+            return bytesToHex(sha256.digest());
+        } finally {
+            root.endIo();
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = "import";
+                event.tier = "hot";
+                event.fileId = fileId;
+                event.versionNumber = versionNumber;
+                event.bytes = expectedSize;
+                event.commit();
+            }
+        }
+    }
+
     /**
      * Đọc file từ disk.
+     * Version đã chuyển sang cold tier ({versionNumber}.dlz) được giải nén trong lúc stream,
+     * caller nhận dữ liệu gốc như bình thường.
      * 
      * @param fileId ID của file
      * @param versionNumber Version number
      * @return InputStream của file
      */
     public InputStream readFile(int fileId, int versionNumber) throws IOException {
-        Path filePath = getFilePath(fileId, versionNumber);
+        long openedAt = System.nanoTime();
         
-        if (!Files.exists(filePath)) {
-            throw new IOException("File not found: " + filePath);
+        if (packStore != null) {
+            byte[] packed = packStore.read(fileId, versionNumber);
+            if (packed != null) {
+                return new MeteredInputStream(new ByteArrayInputStream(packed), "pack", fileId, versionNumber, openedAt);
+            }
         }
         
-        return new FileInputStream(filePath.toFile());
+        // Rebalancer có thể vừa chuyển version sang root khác → tra placement lại một lần
+        for (int attempt = 0; attempt < 2; attempt++) {
+            StorageRoot root = rootFor(fileId, versionNumber);
+            InputStream in = openOnRoot(root, fileId, versionNumber, openedAt);
+            if (in != null) {
+                return in;
+            }
+            if (rootFor(fileId, versionNumber) == root) {
+                break;
+            }
+        }
+        throw new IOException("File not found: " + getFilePath(fileId, versionNumber));
+    }
+
+    /**
+     * Mở bản plain (hoặc cold blob) trên root, đếm in-flight đến khi stream đóng.
+     * 
+     * @return null nếu version không có trên root này
+     */
+    private InputStream openOnRoot(StorageRoot root, int fileId, int versionNumber, long openedAt) throws IOException {
+        root.beginIo();
+        try {
+            try {
+                return root.track(new MeteredInputStream(
+                    Files.newInputStream(getFilePath(root, fileId, versionNumber)), "hot", fileId, versionNumber, openedAt));
+            } catch (NoSuchFileException e) {
+                // Có thể vừa bị cold tier job chuyển sang .dlz → thử cold blob
+            }
+            try {
+                return root.track(new MeteredInputStream(
+                    ColdBlobFormat.open(getColdFilePath(root, fileId, versionNumber)), "cold",
+                    fileId, versionNumber, openedAt));
+            } catch (NoSuchFileException e) {
+                root.endIo();
+                return null;
+            }
+        } catch (IOException e) {
+            root.endIo();
+            throw e;
+        }
     }
 
     /**
-     * Lấy kích thước file.
+     * Lấy kích thước file (kích thước gốc, kể cả khi đang ở cold tier).
      */
     public long getFileSize(int fileId, int versionNumber) throws IOException {
+        if (packStore != null) {
+            PackIndex.Entry entry = packStore.lookup(fileId, versionNumber);
+            if (entry != null) {
+                return entry.length;
+            }
+        }
         Path filePath = getFilePath(fileId, versionNumber);
-        return Files.size(filePath);
+        if (Files.exists(filePath)) {
+            return Files.size(filePath);
+        }
+        return ColdBlobFormat.readRawSize(getColdFilePath(fileId, versionNumber));
     }
 
     /**
-     * Xóa file.
+     * Xóa file (cả bản plain và bản cold nếu có).
      */
     public boolean deleteFile(int fileId, int versionNumber) throws IOException {
-        Path filePath = getFilePath(fileId, versionNumber);
-        return Files.deleteIfExists(filePath);
+        if (packStore != null && packStore.delete(fileId, versionNumber)) {
+            return true;
+        }
+        boolean deleted = Files.deleteIfExists(getFilePath(fileId, versionNumber));
+        deleted = Files.deleteIfExists(getColdFilePath(fileId, versionNumber)) || deleted;
+        placement.remove(fileId, versionNumber);
+        return deleted;
     }
 
     /**
      * Tính SHA256 của file trên disk.
      */
     public String computeSha256(int fileId, int versionNumber) throws IOException, NoSuchAlgorithmException {
-        Path filePath = getFilePath(fileId, versionNumber);
-        
         MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
         
-        try (InputStream in = new FileInputStream(filePath.toFile())) {
+        try (InputStream in = readFile(fileId, versionNumber)) {
             byte[] buffer = new byte[BUFFER_SIZE];
             int bytesRead;
             
@@ -157,13 +413,488 @@ public class StorageService {
         return bytesToHex(sha256.digest());
     }
 
+    /**
+     * Đọc toàn bộ file nhỏ vào RAM, hash, rồi append vào pack.
+     */
+    private String savePacked(int fileId, int versionNumber, InputStream inputStream, int expectedSize)
+            throws IOException, NoSuchAlgorithmException {
+        byte[] data = new byte[expectedSize];
+        int totalBytesRead = 0;
+        while (totalBytesRead < expectedSize) {
+            int bytesRead = inputStream.read(data, totalBytesRead, expectedSize - totalBytesRead);
+            if (bytesRead == -1) {
+                throw new IOException("Unexpected end of stream. Expected " + expectedSize + 
+                                    " bytes, got " + totalBytesRead);
+            }
+            totalBytesRead += bytesRead;
+        }
+        
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        sha256.update(data, 0, expectedSize);
+        packStore.put(fileId, versionNumber, data, expectedSize);
+        return bytesToHex(sha256.digest());
+    }
+
+    /**
+     * Version đang nằm trong pack file.
+     */
+    public boolean isPacked(int fileId, int versionNumber) {
+        return packStore != null && packStore.lookup(fileId, versionNumber) != null;
+    }
+
+    // ========== Maintenance ==========
+
+    /**
+     * Lên lịch pack compaction định kỳ (thread daemon, priority thấp).
+     */
+    public synchronized void startMaintenance() {
+        if ((packStore == null && roots.size() < 2) || maintenanceScheduler != null) {
+            return;
+        }
+        maintenanceScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "storage-maintenance");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        maintenanceScheduler.scheduleWithFixedDelay(this::compactPacksSafely,
+            packCompactIntervalMinutes, packCompactIntervalMinutes, TimeUnit.MINUTES);
+        if (roots.size() > 1) {
+            // Chạy ngay khi start để phân bố lại dữ liệu khi vừa thêm disk
+            maintenanceScheduler.scheduleWithFixedDelay(this::rebalanceSafely,
+                0, packCompactIntervalMinutes, TimeUnit.MINUTES);
+        }
+        LOG.info("Maintenance every " + packCompactIntervalMinutes +
+               " min (pack dead ratio >= " + packCompactDeadRatio + ", " + roots.size() + " roots)");
+    }
+
+    public synchronized void stopMaintenance() {
+        if (maintenanceScheduler != null) {
+            maintenanceScheduler.shutdownNow();
+            maintenanceScheduler = null;
+        }
+        if (packStore != null) {
+            packStore.close();
+        }
+        placement.close();
+    }
+
+    /**
+     * Compact các pack có nhiều entry đã xóa.
+     *
+     * @return số bytes thu hồi được
+     */
+    public long compactPacks(IoThrottle throttle) throws IOException, InterruptedException {
+        if (packStore == null) {
+            return 0;
+        }
+        return packStore.compact(packCompactDeadRatio, throttle);
+    }
+
+    private void rebalanceSafely() {
+        try {
+            rebalance(new IoThrottle(COMPACTION_IO_BYTES_PER_SEC));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOG.error("Rebalance failed: " + e.getMessage());
+        }
+    }
+
+    private void compactPacksSafely() {
+        try {
+            long reclaimed = compactPacks(new IoThrottle(COMPACTION_IO_BYTES_PER_SEC));
+            if (reclaimed > 0) {
+                LOG.info("Pack compaction reclaimed " + (reclaimed / 1024) + "KB, " +
+                       packStore.size() + " packed versions");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOG.error("Pack compaction failed: " + e.getMessage());
+        }
+    }
+
+    // ========== Cold tier ==========
+
+    /**
+     * Kiểm tra version đang ở cold tier (đã nén at-rest).
+     */
+    public boolean isColdTier(int fileId, int versionNumber) {
+        return Files.exists(getColdFilePath(fileId, versionNumber));
+    }
+
+    /**
+     * Xóa bản plain còn sót khi version đã có cold blob
+     * (lần nén trước không xóa được vì file đang bị giữ lock).
+     */
+    public void deleteLeftoverPlain(int fileId, int versionNumber) throws IOException {
+        if (isColdTier(fileId, versionNumber)) {
+            Files.deleteIfExists(getFilePath(fileId, versionNumber));
+        }
+    }
+
+    /**
+     * Nén version sang cold tier.
+     * 
+     * Các bước (an toàn khi crash giữa chừng):
+     * 1. Nén plain → {version}.dlz.tmp, đồng thời verify SHA256 dữ liệu gốc với DB
+     * 2. Giải nén lại bản tmp và verify SHA256 lần nữa
+     * 3. Atomic move tmp → {version}.dlz
+     * 4. Xóa plain (nếu xóa lỗi, readFile vẫn ưu tiên plain nên không sai dữ liệu)
+     * 
+     * Bước 1-2 (I/O có throttle) chạy ngoài maintenanceLock để upload vẫn publish được;
+     * bước 3-4 giữ lock và chỉ làm nếu blob vẫn ở root cũ, chưa bị sửa/xóa/chuyển trong lúc nén.
+     * 
+     * @param expectedSha256 SHA256 trong DB
+     * @param throttle Giới hạn I/O để không tranh disk với foreground transfers
+     * @return số bytes tiết kiệm được, hoặc -1 nếu không nén (không còn plain, không nén được, sai hash,
+     *         blob đổi trong lúc nén)
+     */
+    public long compressToColdTier(int fileId, int versionNumber, String expectedSha256,
+                                   CompressionCodec codec, int level, IoThrottle throttle)
+            throws IOException, NoSuchAlgorithmException, InterruptedException {
+        StorageRoot root = rootFor(fileId, versionNumber);
+        Path plainPath = getFilePath(root, fileId, versionNumber);
+        Path coldPath = getColdFilePath(root, fileId, versionNumber);
+        Path tmpPath = coldPath.resolveSibling(coldPath.getFileName() + ".tmp");
+        
+        if (Files.exists(coldPath)) {
+            deleteLeftoverPlain(fileId, versionNumber);
+            return -1;
+        }
+        BlobStamp plain = BlobStamp.of(plainPath);
+        if (plain == null) {
+            return -1;
+        }
+        
+        long rawSize = plain.size;
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        
+        try {
+            // 1. Nén + hash dữ liệu gốc
+            try (InputStream in = Files.newInputStream(plainPath);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath), 64 * 1024))) {
+                ColdBlobFormat.writeHeader(out, codec, rawSize);
+                ChunkedCompressionOutputStream encoder = new ChunkedCompressionOutputStream(out, codec, level);
+                byte[] buffer = new byte[64 * 1024];
+                int bytesRead;
+                while ((bytesRead = in.read(buffer)) != -1) {
+                    throttle.acquire(bytesRead);
+                    encoder.write(buffer, 0, bytesRead);
+                    sha256.update(buffer, 0, bytesRead);
+                }
+                encoder.finish();
+            }
+            
+            if (!bytesToHex(sha256.digest()).equalsIgnoreCase(expectedSha256)) {
+                LOG.error("Cold tier skipped, SHA256 mismatch on disk: fileId=" + fileId +
+                        ", version=" + versionNumber);
+                Files.deleteIfExists(tmpPath);
+                return -1;
+            }
+            
+            long storedSize = Files.size(tmpPath);
+            if (storedSize >= rawSize) {
+                Files.deleteIfExists(tmpPath);
+                return -1;
+            }
+            
+            // 2. Verify bản nén
+            sha256.reset();
+            try (InputStream in = ColdBlobFormat.open(tmpPath)) {
+                byte[] buffer = new byte[64 * 1024];
+                int bytesRead;
+                while ((bytesRead = in.read(buffer)) != -1) {
+                    throttle.acquire(bytesRead);
+                    sha256.update(buffer, 0, bytesRead);
+                }
+            }
+            if (!bytesToHex(sha256.digest()).equalsIgnoreCase(expectedSha256)) {
+                Files.deleteIfExists(tmpPath);
+                throw new IOException("Cold blob verification failed for fileId=" + fileId + ", version=" + versionNumber);
+            }
+            
+            // 3. Publish + 4. Xóa plain
+            synchronized (maintenanceLock) {
+                // Rebalancer/delete có thể đã chuyển hoặc xóa blob trong lúc nén
+                if (rootFor(fileId, versionNumber) != root || Files.exists(coldPath) || !plain.unchanged()) {
+                    LOG.info("Cold tier skipped, blob changed during compression: fileId=" + fileId +
+                           ", version=" + versionNumber);
+                    Files.deleteIfExists(tmpPath);
+                    return -1;
+                }
+                Files.move(tmpPath, coldPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                try {
+                    Files.deleteIfExists(plainPath);
+                } catch (IOException e) {
+                    // Windows: file đang được download giữ lock → lần chạy sau xóa tiếp
+                    LOG.error("Cannot delete plain blob yet: " + plainPath + " (" + e.getMessage() + ")");
+                }
+            }
+            return rawSize - storedSize;
+            
+        } catch (IOException | InterruptedException e) {
+            Files.deleteIfExists(tmpPath);
+            throw e;
+        }
+    }
+
     /**
      * Lấy đường dẫn file (safe path, không dùng user input).
      */
     private Path getFilePath(int fileId, int versionNumber) {
-        // Path: storage/{fileId}/{versionNumber}
+        return getFilePath(rootFor(fileId, versionNumber), fileId, versionNumber);
+    }
+
+    private Path getFilePath(StorageRoot root, int fileId, int versionNumber) {
+        // Path: {root}/{fileId}/{versionNumber}
         // fileId và versionNumber là integers, không thể path traversal
-        return Paths.get(storagePath, String.valueOf(fileId), String.valueOf(versionNumber));
+        return root.getPath().resolve(String.valueOf(fileId)).resolve(String.valueOf(versionNumber));
+    }
+
+    /**
+     * Blob đang ghi dở: {root}/{fileId}/{versionNumber}.tmp
+     */
+    private Path getTmpFilePath(StorageRoot root, int fileId, int versionNumber) {
+        return root.getPath().resolve(String.valueOf(fileId)).resolve(versionNumber + ".tmp");
+    }
+
+    /**
+     * Đường dẫn bản cold tier: storage/{fileId}/{versionNumber}.dlz
+     */
+    private Path getColdFilePath(int fileId, int versionNumber) {
+        return getColdFilePath(rootFor(fileId, versionNumber), fileId, versionNumber);
+    }
+
+    private Path getColdFilePath(StorageRoot root, int fileId, int versionNumber) {
+        return root.getPath().resolve(String.valueOf(fileId)).resolve(versionNumber + ColdBlobFormat.EXTENSION);
+    }
+
+    // ========== Multi-disk placement ==========
+
+    /**
+     * Root đang chứa version (theo placement journal, mặc định root 0).
+     */
+    private StorageRoot rootFor(int fileId, int versionNumber) {
+        int index = placement.rootOf(fileId, versionNumber);
+        return index < roots.size() ? roots.get(index) : roots.get(0);
+    }
+
+    /**
+     * Chọn root cho blob mới: ít I/O đang chạy nhất, hòa thì chọn root còn trống nhiều hơn
+     * (cùng filesystem thì xoay vòng theo bytes đã ghi).
+     * Root không đủ chỗ (kèm MIN_FREE_BYTES dự phòng) bị bỏ qua.
+     */
+    private StorageRoot chooseRoot(long size) {
+        if (roots.size() == 1) {
+            return roots.get(0);
+        }
+        StorageRoot best = null;
+        long bestFree = 0;
+        for (StorageRoot root : roots) {
+            long free = root.getUsableSpace();
+            if (free < size + MIN_FREE_BYTES) {
+                continue;
+            }
+            if (best == null || root.getInFlight() < best.getInFlight()
+                    || (root.getInFlight() == best.getInFlight() && free > bestFree)
+                    || (root.getInFlight() == best.getInFlight() && free == bestFree
+                        && root.getBytesWritten() < best.getBytesWritten())) {
+                best = root;
+                bestFree = free;
+            }
+        }
+        return best != null ? best : roots.get(0);
+    }
+
+    public List<StorageRoot> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Chuyển blob từ disk đầy nhất sang disk trống nhất cho đến khi chênh lệch tỉ lệ sử dụng
+     * nhỏ hơn STORAGE_REBALANCE_THRESHOLD (vd: sau khi thêm disk mới vào STORAGE_PATH).
+     * 
+     * Mỗi blob được copy sang tmp trên root đích, rename, cập nhật placement rồi mới xóa bản cũ,
+     * nên download đang chạy trên bản cũ không bị ảnh hưởng.
+     * 
+     * @return số bytes đã chuyển
+     */
+    public long rebalance(IoThrottle throttle) throws IOException, InterruptedException {
+        if (roots.size() < 2) {
+            return 0;
+        }
+        StorageRoot source = null;
+        StorageRoot target = null;
+        for (StorageRoot root : roots) {
+            if (source == null || root.getUsedRatio() > source.getUsedRatio()) {
+                source = root;
+            }
+            if (target == null || root.getUsedRatio() < target.getUsedRatio()) {
+                target = root;
+            }
+        }
+        if (source == target || source.getUsedRatio() - target.getUsedRatio() < rebalanceThreshold) {
+            return 0;
+        }
+        
+        LOG.info("Rebalancing " + source + " (" + percent(source.getUsedRatio()) + ") -> " +
+               target + " (" + percent(target.getUsedRatio()) + ")");
+        return rebalance(source, target, throttle);
+    }
+
+    /**
+     * Chuyển blob từ {@code source} sang {@code target} cho đến khi chênh lệch tỉ lệ sử dụng
+     * nhỏ hơn ngưỡng.
+     */
+    long rebalance(StorageRoot source, StorageRoot target, IoThrottle throttle)
+            throws IOException, InterruptedException {
+        long moved = 0;
+        try (DirectoryStream<Path> fileDirs = Files.newDirectoryStream(source.getPath())) {
+            for (Path fileDir : fileDirs) {
+                if (!Files.isDirectory(fileDir) || !fileDir.getFileName().toString().matches("\\d+")) {
+                    continue; // Bỏ qua packs/ và các file hệ thống
+                }
+                int fileId = Integer.parseInt(fileDir.getFileName().toString());
+                try (DirectoryStream<Path> versions = Files.newDirectoryStream(fileDir)) {
+                    for (Path blob : versions) {
+                        String name = blob.getFileName().toString();
+                        String versionPart = name.endsWith(ColdBlobFormat.EXTENSION)
+                            ? name.substring(0, name.length() - ColdBlobFormat.EXTENSION.length()) : name;
+                        if (!versionPart.matches("\\d+")) {
+                            continue; // .tmp đang ghi dở
+                        }
+                        int versionNumber = Integer.parseInt(versionPart);
+                        moved += moveBlob(source, target, fileId, versionNumber, throttle);
+                        if (source.getUsedRatio() - target.getUsedRatio() < rebalanceThreshold) {
+                            LOG.info("Rebalance done, moved " + (moved / 1024 / 1024) + "MB");
+                            return moved;
+                        }
+                    }
+                }
+            }
+        }
+        LOG.info("Rebalance pass finished, moved " + (moved / 1024 / 1024) + "MB");
+        return moved;
+    }
+
+    /**
+     * Chuyển một version sang root khác. Bản plain và bản .dlz (plain còn sót khi cold tier
+     * chưa xóa được) đi cùng nhau, placement chỉ đổi khi mọi bản đã nằm ở root đích.
+     *
+     * Copy (có throttle) chạy ngoài maintenanceLock để upload vẫn publish được trong lúc copy;
+     * lock chỉ giữ cho bước rename + đổi placement, sau khi kiểm tra blob ở root nguồn không đổi.
+     */
+    private long moveBlob(StorageRoot source, StorageRoot target, int fileId, int versionNumber,
+                          IoThrottle throttle) throws IOException, InterruptedException {
+        if (rootFor(fileId, versionNumber) != source) {
+            return 0; // Blob mồ côi hoặc đã bị xóa/chuyển
+        }
+        List<BlobStamp> blobs = new ArrayList<>();
+        for (Path blob : List.of(getFilePath(source, fileId, versionNumber),
+                                 getColdFilePath(source, fileId, versionNumber))) {
+            BlobStamp stamp = BlobStamp.of(blob);
+            if (stamp != null) {
+                blobs.add(stamp);
+            }
+        }
+        if (blobs.isEmpty()) {
+            return 0;
+        }
+        Path targetDir = target.getPath().resolve(String.valueOf(fileId));
+        Files.createDirectories(targetDir);
+        
+        long size = 0;
+        List<Path> staged = new ArrayList<>();
+        List<Path> published = new ArrayList<>();
+        try {
+            for (BlobStamp blob : blobs) {
+                Path staging = targetDir.resolve(blob.path.getFileName() + MOVING_SUFFIX);
+                staged.add(staging);
+                copyThrottled(blob.path, staging, throttle);
+                size += blob.size;
+            }
+            synchronized (maintenanceLock) {
+                // Trong lúc copy, blob có thể đã bị xóa, nén sang cold tier hoặc chuyển đi
+                if (rootFor(fileId, versionNumber) != source || !unchanged(source, fileId, versionNumber, blobs)) {
+                    LOG.info("Skipping move, blob changed during copy: fileId=" + fileId +
+                           ", version=" + versionNumber);
+                    for (Path staging : staged) {
+                        Files.deleteIfExists(staging);
+                    }
+                    return 0;
+                }
+                for (int i = 0; i < blobs.size(); i++) {
+                    Path destination = targetDir.resolve(blobs.get(i).path.getFileName());
+                    Files.move(staged.get(i), destination,
+                               StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    published.add(destination);
+                }
+                placement.place(fileId, versionNumber, target.getIndex());
+                for (BlobStamp blob : blobs) {
+                    Files.deleteIfExists(blob.path);
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            for (Path path : staged) {
+                Files.deleteIfExists(path);
+            }
+            if (rootFor(fileId, versionNumber) != target) {
+                for (Path path : published) {
+                    Files.deleteIfExists(path);
+                }
+            }
+            throw e;
+        }
+        target.recordWrite(size);
+        return size;
+    }
+
+    /**
+     * Các bản của version ở root nguồn vẫn đúng như lúc bắt đầu copy (không thêm, không bớt, không sửa).
+     */
+    private boolean unchanged(StorageRoot source, int fileId, int versionNumber, List<BlobStamp> blobs)
+            throws IOException {
+        int present = 0;
+        for (Path blob : List.of(getFilePath(source, fileId, versionNumber),
+                                 getColdFilePath(source, fileId, versionNumber))) {
+            if (Files.exists(blob)) {
+                present++;
+            }
+        }
+        if (present != blobs.size()) {
+            return false;
+        }
+        for (BlobStamp blob : blobs) {
+            if (!blob.unchanged()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copy có throttle; lỗi giữa chừng thì xóa bản copy dở.
+     */
+    private static void copyThrottled(Path source, Path destination, IoThrottle throttle)
+            throws IOException, InterruptedException {
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = Files.newOutputStream(destination)) {
+            byte[] buffer = new byte[1024 * 1024]; // Sequential I/O khối lớn
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                throttle.acquire(bytesRead);
+                out.write(buffer, 0, bytesRead);
+            }
+        } catch (IOException | InterruptedException e) {
+            Files.deleteIfExists(destination);
+            throw e;
+        }
+    }
+
+    private static String percent(double ratio) {
+        return String.format("%.1f%%", ratio * 100);
     }
 
     /**
@@ -173,7 +904,7 @@ public class StorageService {
         return fileId + "/" + versionNumber;
     }
 
-    private String bytesToHex(byte[] bytes) {
+    static String bytesToHex(byte[] bytes) {
         StringBuilder sb = new StringBuilder();
         for (byte b : bytes) {
             sb.append(String.format("%02x", b));
@@ -191,4 +922,37 @@ public class StorageService {
         }
         return ".";
     }
+
+    /**
+     * Kích thước + lastModified của blob lúc bắt đầu một thao tác background,
+     * để kiểm tra lại dưới maintenanceLock trước khi thay thế.
+     */
+    private static final class BlobStamp {
+        private final Path path;
+        private final long size;
+        private final FileTime modified;
+
+        private BlobStamp(Path path, long size, FileTime modified) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        /**
+         * @return null nếu blob không tồn tại
+         */
+        static BlobStamp of(Path path) throws IOException {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new BlobStamp(path, attributes.size(), attributes.lastModifiedTime());
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+
+        boolean unchanged() throws IOException {
+            BlobStamp current = of(path);
+            return current != null && current.size == size && current.modified.equals(modified);
+        }
+    }
 }
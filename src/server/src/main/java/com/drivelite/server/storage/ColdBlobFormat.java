@@ -0,0 +1,80 @@
+package com.drivelite.server.storage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.drivelite.common.compression.ChunkedCompressionInputStream;
+import com.drivelite.common.compression.CompressionCodec;
+
+/**
+ * Container format cho version đã chuyển sang cold tier: storage/{fileId}/{versionNumber}.dlz
+ *
+ * Layout:
+ *   [4 bytes magic "DLZ1"][1 byte codecId][8 bytes rawSize][chunked compression stream]
+ *
+ * Phần body dùng lại format chunk của transfer compression nên decode
+ * theo dạng streaming, không cần giải nén cả file ra disk/RAM.
+ */
+public final class ColdBlobFormat {
+
+    public static final String EXTENSION = ".dlz";
+    public static final int MAGIC = 0x444C5A31; // "DLZ1"
+    public static final int HEADER_SIZE = 4 + 1 + 8;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private ColdBlobFormat() {
+    }
+
+    public static void writeHeader(DataOutputStream out, CompressionCodec codec, long rawSize) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(codec.getId());
+        out.writeLong(rawSize);
+    }
+
+    /**
+     * Đọc kích thước gốc (chưa nén) từ header.
+     */
+    public static long readRawSize(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            return readHeader(in, path);
+        }
+    }
+
+    /**
+     * Mở cold blob dưới dạng stream dữ liệu gốc. close() đóng cả file.
+     */
+    public static InputStream open(Path path) throws IOException {
+        InputStream file = new BufferedInputStream(Files.newInputStream(path), READ_BUFFER_SIZE);
+        try {
+            readHeader(new DataInputStream(file), path);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        ChunkedCompressionInputStream decoder = new ChunkedCompressionInputStream(file);
+        return new FilterInputStream(decoder) {
+            @Override
+            public void close() throws IOException {
+                decoder.close();
+                file.close();
+            }
+        };
+    }
+
+    private static long readHeader(DataInputStream in, Path path) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a cold blob: " + path);
+        }
+        if (CompressionCodec.fromId(in.readUnsignedByte()) == null) {
+            throw new IOException("Unknown codec in cold blob: " + path);
+        }
+        return in.readLong();
+    }
+}
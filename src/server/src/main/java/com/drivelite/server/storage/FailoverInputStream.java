@@ -0,0 +1,91 @@
+package com.drivelite.server.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+/**
+ * InputStream đọc từ bản primary; nếu primary lỗi giữa chừng (disk hỏng, bad sector...)
+ * thì mở bản replica, bỏ qua phần đã đọc và đọc tiếp - client không bị đứt download.
+ *
+ * Chỉ failover một lần: replica lỗi thì exception được ném ra như bình thường.
+ */
+public class FailoverInputStream extends InputStream {
+
+    private static final Logger LOG = Log.getLogger("REPLICATION");
+
+    /**
+     * Mở stream replica khi cần.
+     */
+    public interface ReplicaOpener {
+        InputStream open() throws IOException;
+    }
+
+    private final String description;
+    private final ReplicaOpener replicaOpener;
+    private InputStream current;
+    private boolean failedOver;
+    private long position;
+
+    public FailoverInputStream(InputStream primary, ReplicaOpener replicaOpener, String description) {
+        this.current = primary;
+        this.replicaOpener = replicaOpener;
+        this.description = description;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        while (true) {
+            try {
+                int n = current.read(b, off, len);
+                if (n > 0) {
+                    position += n;
+                }
+                return n;
+            } catch (IOException e) {
+                failOver(e);
+            }
+        }
+    }
+
+    public boolean isFailedOver() {
+        return failedOver;
+    }
+
+    @Override
+    public void close() throws IOException {
+        current.close();
+    }
+
+    private void failOver(IOException cause) throws IOException {
+        if (failedOver) {
+            throw cause;
+        }
+        failedOver = true;
+        LOG.warn("Primary read failed for " + description + " at offset " + position +
+               " (" + cause.getMessage() + "), switching to replica");
+        try {
+            current.close();
+        } catch (IOException ignored) {
+            // Primary đã hỏng
+        }
+        InputStream replica;
+        try {
+            replica = replicaOpener.open();
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            throw cause;
+        }
+        current = replica;
+        replica.skipNBytes(position);
+    }
+}
@@ -0,0 +1,54 @@
+package com.drivelite.server.storage;
+
+/**
+ * Token bucket giới hạn băng thông I/O của background jobs (cold tier, compaction...)
+ * để không tranh disk với upload/download của client.
+ *
+ * Thread-safe. Rate <= 0 nghĩa là không giới hạn.
+ */
+public class IoThrottle {
+
+    private final long bytesPerSecond;
+    private final long maxBurst;
+    private double available;
+    private long lastRefillNanos;
+
+    /**
+     * @param bytesPerSecond Băng thông tối đa (bytes/giây), <= 0 để tắt throttle
+     */
+    public IoThrottle(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        // Burst tối đa ~ 1/4 giây để tránh dồn I/O
+        this.maxBurst = Math.max(64 * 1024, bytesPerSecond / 4);
+        this.available = maxBurst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Chờ đến khi được phép đọc/ghi thêm {@code bytes} bytes.
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        if (bytesPerSecond <= 0 || bytes <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            available -= bytes;
+            waitNanos = available >= 0 ? 0 : (long) (-available * 1_000_000_000L / bytesPerSecond);
+        }
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(maxBurst, available + (now - lastRefillNanos) * (double) bytesPerSecond / 1_000_000_000L);
+        lastRefillNanos = now;
+    }
+}
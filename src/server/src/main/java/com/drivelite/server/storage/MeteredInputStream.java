@@ -0,0 +1,80 @@
+package com.drivelite.server.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.drivelite.server.jfr.StorageIoEvent;
+
+/**
+ * Bọc stream đọc blob để đo thời gian đọc (ghi vào {@link StorageMetrics} và phát
+ * {@link StorageIoEvent} khi close).
+ */
+public class MeteredInputStream extends FilterInputStream {
+
+    private final String tier;
+    private final int fileId;
+    private final int versionNumber;
+    private final long openedAt;
+    private final StorageIoEvent event = new StorageIoEvent();
+    private long firstByteNanos = -1;
+    private long readNanos;
+    private long bytes;
+    private boolean closed;
+
+    /**
+     * @param tier "hot", "cold" hoặc "pack"
+     * @param openedAt System.nanoTime() lúc bắt đầu mở file (tính cả thời gian mở/đọc header)
+     */
+    public MeteredInputStream(InputStream in, String tier, int fileId, int versionNumber, long openedAt) {
+        super(in);
+        this.tier = tier;
+        this.fileId = fileId;
+        this.versionNumber = versionNumber;
+        this.openedAt = openedAt;
+        event.begin();
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        int b = super.read();
+        account(start, b < 0 ? 0 : 1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long start = System.nanoTime();
+        int n = super.read(b, off, len);
+        account(start, Math.max(n, 0));
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            StorageMetrics.getInstance().recordRead("cold".equals(tier), Math.max(firstByteNanos, 0), readNanos, bytes);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = "read";
+                event.tier = tier;
+                event.fileId = fileId;
+                event.versionNumber = versionNumber;
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+        super.close();
+    }
+
+    private void account(long start, int n) {
+        long end = System.nanoTime();
+        readNanos += end - start;
+        if (firstByteNanos < 0 && n > 0) {
+            firstByteNanos = end - openedAt;
+        }
+        bytes += n;
+    }
+}
@@ -0,0 +1,216 @@
+package com.drivelite.server.storage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Index off-heap (fileId, versionNumber) → (packId, offset, length) cho small-file pack storage.
+ *
+ * Open-addressing hash table (linear probing) nằm trong direct ByteBuffer:
+ * hàng triệu entry không tạo hàng triệu object trên heap → GC không phải quét.
+ *
+ * Layout mỗi slot (24 bytes):
+ *   [8 bytes key = fileId << 32 | versionNumber][4 bytes packId][8 bytes offset][4 bytes length]
+ * - key = 0: slot trống (fileId luôn > 0 nên không trùng key thật)
+ * - key = -1: tombstone (đã xóa, vẫn phải probe qua)
+ *
+ * KHÔNG thread-safe: {@link PackStore} bảo vệ bằng read/write lock.
+ */
+public class PackIndex {
+
+    private static final int SLOT_SIZE = 24;
+    private static final long EMPTY = 0L;
+    private static final long TOMBSTONE = -1L;
+    private static final double MAX_LOAD = 0.7;
+
+    private ByteBuffer table;
+    private int capacity;
+    private int size;
+    private int tombstones;
+
+    public PackIndex(int initialCapacity) {
+        int cap = Integer.highestOneBit(Math.max(16, initialCapacity - 1)) << 1;
+        allocate(cap);
+    }
+
+    /**
+     * Vị trí của một version trong pack.
+     */
+    public static final class Entry {
+        public final int packId;
+        public final long offset;
+        public final int length;
+
+        public Entry(int packId, long offset, int length) {
+            this.packId = packId;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Callback khi duyệt index.
+     */
+    public interface Visitor {
+        void visit(int fileId, int versionNumber, int packId, long offset, int length);
+    }
+
+    public static long key(int fileId, int versionNumber) {
+        return ((long) fileId << 32) | (versionNumber & 0xFFFFFFFFL);
+    }
+
+    public Entry get(int fileId, int versionNumber) {
+        int slot = find(key(fileId, versionNumber));
+        return slot < 0 ? null : entryAt(slot);
+    }
+
+    /**
+     * Thêm hoặc ghi đè entry.
+     *
+     * @return entry cũ (nếu có) để caller cập nhật dead bytes của pack cũ
+     */
+    public Entry put(int fileId, int versionNumber, int packId, long offset, int length) {
+        if ((size + tombstones + 1) > capacity * MAX_LOAD) {
+            // Nhiều tombstone → rehash cùng kích thước là đủ, ngược lại tăng gấp đôi
+            allocateAndRehash(size + 1 > capacity * MAX_LOAD / 2 ? capacity << 1 : capacity);
+        }
+        long key = key(fileId, versionNumber);
+        int mask = capacity - 1;
+        int firstTombstone = -1;
+        int slot = hash(key) & mask;
+        while (true) {
+            long current = keyAt(slot);
+            if (current == EMPTY) {
+                int target = firstTombstone >= 0 ? firstTombstone : slot;
+                if (firstTombstone >= 0) {
+                    tombstones--;
+                }
+                write(target, key, packId, offset, length);
+                size++;
+                return null;
+            }
+            if (current == TOMBSTONE) {
+                if (firstTombstone < 0) {
+                    firstTombstone = slot;
+                }
+            } else if (current == key) {
+                Entry previous = entryAt(slot);
+                write(slot, key, packId, offset, length);
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Xóa entry.
+     *
+     * @return entry đã xóa, null nếu không có
+     */
+    public Entry remove(int fileId, int versionNumber) {
+        int slot = find(key(fileId, versionNumber));
+        if (slot < 0) {
+            return null;
+        }
+        Entry previous = entryAt(slot);
+        table.putLong(slot * SLOT_SIZE, TOMBSTONE);
+        size--;
+        tombstones++;
+        return previous;
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int slot = 0; slot < capacity; slot++) {
+            long key = keyAt(slot);
+            if (key != EMPTY && key != TOMBSTONE) {
+                int base = slot * SLOT_SIZE;
+                visitor.visit((int) (key >>> 32), (int) key,
+                              table.getInt(base + 8), table.getLong(base + 12), table.getInt(base + 20));
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Dung lượng off-heap đang dùng (bytes).
+     */
+    public long offHeapBytes() {
+        return (long) capacity * SLOT_SIZE;
+    }
+
+    private int find(long key) {
+        int mask = capacity - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            long current = keyAt(slot);
+            if (current == EMPTY) {
+                return -1;
+            }
+            if (current == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private long keyAt(int slot) {
+        return table.getLong(slot * SLOT_SIZE);
+    }
+
+    private Entry entryAt(int slot) {
+        int base = slot * SLOT_SIZE;
+        return new Entry(table.getInt(base + 8), table.getLong(base + 12), table.getInt(base + 20));
+    }
+
+    private void write(int slot, long key, int packId, long offset, int length) {
+        int base = slot * SLOT_SIZE;
+        table.putLong(base, key);
+        table.putInt(base + 8, packId);
+        table.putLong(base + 12, offset);
+        table.putInt(base + 20, length);
+    }
+
+    private void allocate(int cap) {
+        if ((long) cap * SLOT_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Pack index too large: " + cap + " slots");
+        }
+        this.capacity = cap;
+        this.table = ByteBuffer.allocateDirect(cap * SLOT_SIZE);
+        this.size = 0;
+        this.tombstones = 0;
+    }
+
+    private void allocateAndRehash(int newCapacity) {
+        ByteBuffer old = table;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+        int mask = capacity - 1;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int base = slot * SLOT_SIZE;
+            long key = old.getLong(base);
+            if (key == EMPTY || key == TOMBSTONE) {
+                continue;
+            }
+            int target = hash(key) & mask;
+            while (keyAt(target) != EMPTY) {
+                target = (target + 1) & mask;
+            }
+            write(target, key, old.getInt(base + 8), old.getLong(base + 12), old.getInt(base + 20));
+            size++;
+        }
+    }
+
+    /**
+     * Murmur3 fmix64 - rải đều key tuần tự (fileId, version liên tiếp).
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
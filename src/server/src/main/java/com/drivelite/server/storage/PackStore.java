@@ -0,0 +1,475 @@
+package com.drivelite.server.storage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+/**
+ * Lưu các version nhỏ (≤ threshold) bằng cách append vào pack file lớn thay vì mỗi version một file.
+ *
+ * Cấu trúc thư mục:
+ *   storage/packs/pack-{id}.dat  - dữ liệu các version nối tiếp nhau
+ *   storage/packs/index.log      - append-only log các thao tác PUT/DELETE
+ *
+ * Khi khởi động, index.log được replay vào {@link PackIndex} (off-heap).
+ * Đọc dùng positional read (FileChannel.read(buffer, position)) trên channel được cache,
+ * nên không tốn open()/close() cho mỗi download.
+ *
+ * Compaction: pack có tỉ lệ dead bytes cao được copy các entry còn sống sang pack đang ghi,
+ * sau đó xóa pack cũ và ghi lại index.log dạng snapshot.
+ *
+ * Durability: {@link #put} force bytes của pack trước khi ghi record PUT, rồi force index.log
+ * trước khi trả về (upload chỉ được xác nhận khi version đã nằm trên disk). Tombstone của
+ * {@link #delete} không force: mất tombstone khi crash chỉ làm entry sống lại thành bytes thừa.
+ * Crash giữa chừng để lại record ghi dở ở cuối index.log, bị cắt bỏ khi mở lại.
+ */
+public class PackStore {
+
+    private static final Logger LOG = Log.getLogger("PACK");
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final int LOG_RECORD_SIZE = 1 + 4 + 4 + 4 + 8 + 4;
+    private static final String PACK_PREFIX = "pack-";
+    private static final String PACK_SUFFIX = ".dat";
+    private static final String INDEX_LOG = "index.log";
+
+    private final Path packDir;
+    private final long maxPackSize;
+    private final PackIndex index = new PackIndex(1 << 16);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, FileChannel> channels = new ConcurrentHashMap<>();
+    private final Map<Integer, long[]> packStats = new ConcurrentHashMap<>(); // packId → [liveBytes, totalBytes]
+
+    private final Object appendLock = new Object();
+    private FileChannel indexLog;
+    private int activePackId;
+
+    public PackStore(Path packDir, long maxPackSize) throws IOException {
+        this.packDir = packDir;
+        this.maxPackSize = maxPackSize;
+        Files.createDirectories(packDir);
+        load();
+    }
+
+    /**
+     * Append dữ liệu một version vào pack đang ghi.
+     */
+    public void put(int fileId, int versionNumber, byte[] data, int length) throws IOException {
+        append(fileId, versionNumber, data, length, null, true);
+    }
+
+    /**
+     * @return vị trí version trong pack, null nếu version không nằm trong pack
+     */
+    public PackIndex.Entry lookup(int fileId, int versionNumber) {
+        lock.readLock().lock();
+        try {
+            return index.get(fileId, versionNumber);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Đọc toàn bộ dữ liệu version bằng positional read.
+     *
+     * @return dữ liệu, hoặc null nếu version không nằm trong pack
+     */
+    public byte[] read(int fileId, int versionNumber) throws IOException {
+        // Compaction có thể đóng pack cũ giữa lúc lookup và read → tra lại index rồi đọc lại
+        for (int attempt = 0; ; attempt++) {
+            PackIndex.Entry entry = lookup(fileId, versionNumber);
+            if (entry == null) {
+                return null;
+            }
+            try {
+                byte[] data = new byte[entry.length];
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                FileChannel channel = channel(entry.packId, false);
+                long position = entry.offset;
+                while (buffer.hasRemaining()) {
+                    int n = channel.read(buffer, position);
+                    if (n < 0) {
+                        throw new EOFException("Pack " + entry.packId + " truncated at " + position);
+                    }
+                    position += n;
+                }
+                return data;
+            } catch (ClosedChannelException | java.nio.file.NoSuchFileException e) {
+                if (attempt >= 2) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Xóa version khỏi pack (ghi tombstone, bytes được thu hồi khi compaction).
+     *
+     * @return true nếu version có trong pack
+     */
+    public boolean delete(int fileId, int versionNumber) throws IOException {
+        lock.writeLock().lock();
+        try {
+            PackIndex.Entry previous = index.remove(fileId, versionNumber);
+            if (previous == null) {
+                return false;
+            }
+            appendLog(OP_DELETE, fileId, versionNumber, 0, 0, 0);
+            stats(previous.packId)[0] -= previous.length;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Compact các pack (trừ pack đang ghi) có tỉ lệ dead bytes ≥ deadRatio.
+     *
+     * @return số bytes thu hồi được
+     */
+    public long compact(double deadRatio, IoThrottle throttle) throws IOException, InterruptedException {
+        List<Integer> victims = new ArrayList<>();
+        synchronized (appendLock) {
+            for (Map.Entry<Integer, long[]> e : packStats.entrySet()) {
+                long live = e.getValue()[0];
+                long total = e.getValue()[1];
+                if (e.getKey() != activePackId && total > 0 && (total - live) >= total * deadRatio) {
+                    victims.add(e.getKey());
+                }
+            }
+        }
+
+        long reclaimed = 0;
+        for (int packId : victims) {
+            reclaimed += compactPack(packId, throttle);
+        }
+        if (!victims.isEmpty()) {
+            rewriteLog();
+        }
+        return reclaimed;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long offHeapBytes() {
+        return index.offHeapBytes();
+    }
+
+    public void close() {
+        synchronized (appendLock) {
+            for (FileChannel channel : channels.values()) {
+                closeQuietly(channel);
+            }
+            channels.clear();
+            closeQuietly(indexLog);
+        }
+    }
+
+    // ========== Internal ==========
+
+    /**
+     * Ghi dữ liệu vào cuối pack đang ghi rồi cập nhật log + index.
+     *
+     * @param expected Nếu khác null: chỉ cập nhật index khi entry hiện tại vẫn là expected (dùng cho compaction)
+     * @param durable Force pack + index.log trước khi trả về (compaction force một lần ở cuối)
+     * @return true nếu index được cập nhật
+     */
+    private boolean append(int fileId, int versionNumber, byte[] data, int length,
+                        PackIndex.Entry expected, boolean durable) throws IOException {
+        synchronized (appendLock) {
+            FileChannel channel = activeChannel(length);
+            long offset = channel.size();
+            writeFully(channel, ByteBuffer.wrap(data, 0, length), offset);
+            stats(activePackId)[1] += length;
+            if (durable) {
+                // Bytes phải nằm trên disk trước record trỏ tới chúng
+                channel.force(false);
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (expected != null) {
+                    PackIndex.Entry current = index.get(fileId, versionNumber);
+                    if (current == null || current.packId != expected.packId || current.offset != expected.offset) {
+                        return false; // Bytes vừa ghi thành dead bytes
+                    }
+                }
+                appendLog(OP_PUT, fileId, versionNumber, activePackId, offset, length);
+                if (durable) {
+                    indexLog.force(false);
+                }
+                PackIndex.Entry previous = index.put(fileId, versionNumber, activePackId, offset, length);
+                stats(activePackId)[0] += length;
+                if (previous != null) {
+                    stats(previous.packId)[0] -= previous.length;
+                }
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private long compactPack(int packId, IoThrottle throttle) throws IOException, InterruptedException {
+        List<long[]> live = new ArrayList<>(); // [fileId, version, offset, length]
+        lock.readLock().lock();
+        try {
+            index.forEach((fileId, versionNumber, pId, offset, length) -> {
+                if (pId == packId) {
+                    live.add(new long[] { fileId, versionNumber, offset, length });
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        FileChannel source = channel(packId, false);
+        long movedBytes = 0;
+        for (long[] e : live) {
+            int fileId = (int) e[0];
+            int versionNumber = (int) e[1];
+            int length = (int) e[3];
+            throttle.acquire(length);
+
+            byte[] data = new byte[length];
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            long position = e[2];
+            while (buffer.hasRemaining()) {
+                int n = source.read(buffer, position);
+                if (n < 0) {
+                    throw new EOFException("Pack " + packId + " truncated at " + position);
+                }
+                position += n;
+            }
+
+            // Entry có thể vừa bị xóa / ghi đè trong lúc copy → append() chỉ cập nhật index nếu còn trỏ về vị trí cũ
+            if (append(fileId, versionNumber, data, length, new PackIndex.Entry(packId, e[2], length), false)) {
+                movedBytes += length;
+            }
+        }
+
+        long reclaimed = 0;
+        synchronized (appendLock) {
+            // Bản copy (pack đang ghi + record PUT) phải nằm trên disk trước khi xóa pack cũ
+            for (Map.Entry<Integer, FileChannel> e : channels.entrySet()) {
+                if (e.getKey() != packId && e.getValue().isOpen()) {
+                    e.getValue().force(false);
+                }
+            }
+            indexLog.force(false);
+            long[] stats = packStats.remove(packId);
+            if (stats != null) {
+                // Bytes đã copy sang pack mới không tính là thu hồi
+                reclaimed = stats[1] - movedBytes;
+            }
+            FileChannel channel = channels.remove(packId);
+            closeQuietly(channel);
+            Files.deleteIfExists(packPath(packId));
+        }
+        LOG.info("Compacted pack " + packId + ": moved " + live.size() +
+               " entries, reclaimed " + (reclaimed / 1024) + "KB");
+        return reclaimed;
+    }
+
+    private void load() throws IOException {
+        int maxPackId = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(packDir, PACK_PREFIX + "*" + PACK_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                int packId = Integer.parseInt(name.substring(PACK_PREFIX.length(), name.length() - PACK_SUFFIX.length()));
+                maxPackId = Math.max(maxPackId, packId);
+                stats(packId)[1] = Files.size(path);
+            }
+        }
+
+        Path logPath = packDir.resolve(INDEX_LOG);
+        indexLog = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long validEnd = replayLog();
+        if (validEnd < indexLog.size()) {
+            // Record cuối bị ghi dở (crash) → cắt bỏ
+            LOG.warn("Truncating partial index record at " + validEnd);
+            indexLog.truncate(validEnd);
+        }
+        indexLog.position(indexLog.size());
+
+        index.forEach((fileId, versionNumber, packId, offset, length) -> stats(packId)[0] += length);
+        activePackId = maxPackId > 0 ? maxPackId : 1;
+        LOG.info("Loaded " + index.size() + " packed versions from " + packStats.size() +
+               " packs (index off-heap " + (index.offHeapBytes() / 1024) + "KB)");
+    }
+
+    private long replayLog() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(LOG_RECORD_SIZE * 4096);
+        long position = 0;
+        long size = indexLog.size();
+        while (position + LOG_RECORD_SIZE <= size) {
+            buffer.clear();
+            int n = indexLog.read(buffer, position);
+            if (n <= 0) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.remaining() >= LOG_RECORD_SIZE) {
+                byte op = buffer.get();
+                int fileId = buffer.getInt();
+                int versionNumber = buffer.getInt();
+                int packId = buffer.getInt();
+                long offset = buffer.getLong();
+                int length = buffer.getInt();
+                if (op == OP_PUT) {
+                    index.put(fileId, versionNumber, packId, offset, length);
+                } else if (op == OP_DELETE) {
+                    index.remove(fileId, versionNumber);
+                } else {
+                    return position;
+                }
+                position += LOG_RECORD_SIZE;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Ghi lại index.log chỉ gồm các entry còn sống (sau compaction).
+     */
+    private void rewriteLog() throws IOException {
+        synchronized (appendLock) {
+            lock.writeLock().lock();
+            try {
+                Path logPath = packDir.resolve(INDEX_LOG);
+                Path tmpPath = packDir.resolve(INDEX_LOG + ".tmp");
+                try (FileChannel tmp = FileChannel.open(tmpPath, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    ByteBuffer buffer = ByteBuffer.allocate(LOG_RECORD_SIZE * 4096);
+                    IOException[] error = new IOException[1];
+                    index.forEach((fileId, versionNumber, packId, offset, length) -> {
+                        if (error[0] != null) {
+                            return;
+                        }
+                        try {
+                            if (buffer.remaining() < LOG_RECORD_SIZE) {
+                                buffer.flip();
+                                while (buffer.hasRemaining()) {
+                                    tmp.write(buffer);
+                                }
+                                buffer.clear();
+                            }
+                            putRecord(buffer, OP_PUT, fileId, versionNumber, packId, offset, length);
+                        } catch (IOException e) {
+                            error[0] = e;
+                        }
+                    });
+                    if (error[0] != null) {
+                        throw error[0];
+                    }
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        tmp.write(buffer);
+                    }
+                    tmp.force(true);
+                }
+                closeQuietly(indexLog);
+                Files.move(tmpPath, logPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                indexLog = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                indexLog.position(indexLog.size());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void appendLog(byte op, int fileId, int versionNumber, int packId, long offset, int length) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(LOG_RECORD_SIZE);
+        putRecord(record, op, fileId, versionNumber, packId, offset, length);
+        record.flip();
+        while (record.hasRemaining()) {
+            indexLog.write(record);
+        }
+    }
+
+    private static void putRecord(ByteBuffer buffer, byte op, int fileId, int versionNumber,
+                                  int packId, long offset, int length) {
+        buffer.put(op).putInt(fileId).putInt(versionNumber).putInt(packId).putLong(offset).putInt(length);
+    }
+
+    /**
+     * Pack đang ghi; chuyển sang pack mới nếu không đủ chỗ cho length bytes.
+     */
+    private FileChannel activeChannel(int length) throws IOException {
+        FileChannel channel = channel(activePackId, true);
+        if (channel.size() > 0 && channel.size() + length > maxPackSize) {
+            activePackId++;
+            channel = channel(activePackId, true);
+        }
+        return channel;
+    }
+
+    /**
+     * Channel đã cache của pack. Chỉ pack đang ghi mới được tạo mới (create = true);
+     * đọc pack đã bị compaction xóa sẽ nhận NoSuchFileException thay vì tạo file rỗng.
+     */
+    private FileChannel channel(int packId, boolean create) throws IOException {
+        FileChannel channel = channels.get(packId);
+        if (channel != null && channel.isOpen()) {
+            return channel;
+        }
+        synchronized (channels) {
+            channel = channels.get(packId);
+            if (channel == null || !channel.isOpen()) {
+                channel = create
+                    ? FileChannel.open(packPath(packId), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(packPath(packId), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channels.put(packId, channel);
+            }
+            return channel;
+        }
+    }
+
+    private long[] stats(int packId) {
+        return packStats.computeIfAbsent(packId, id -> new long[2]);
+    }
+
+    private Path packPath(int packId) {
+        return packDir.resolve(PACK_PREFIX + packId + PACK_SUFFIX);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Bỏ qua
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.drivelite.server.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+/**
+ * Ghi nhận version nào nằm trên storage root nào, để readFile đi thẳng tới đúng disk
+ * (không phải thử lần lượt từng root).
+ *
+ * Dữ liệu nằm trong {@link PackIndex} off-heap (packId = root index) và được persist
+ * bằng append-only log: [1 byte op][4 bytes fileId][4 bytes versionNumber][1 byte root].
+ *
+ * Version không có trong journal (dữ liệu cũ trước khi có multi-root) mặc định nằm ở root 0.
+ */
+public class PlacementJournal {
+
+    private static final Logger LOG = Log.getLogger("STORAGE");
+
+    private static final byte OP_PLACE = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final int RECORD_SIZE = 1 + 4 + 4 + 1;
+
+    private final PackIndex index = new PackIndex(1 << 16);
+    private final FileChannel log;
+
+    public PlacementJournal(Path logPath) throws IOException {
+        Files.createDirectories(logPath.getParent());
+        this.log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long validEnd = replay();
+        if (validEnd < log.size()) {
+            LOG.warn("Truncating partial placement record at " + validEnd);
+            log.truncate(validEnd);
+        }
+        log.position(log.size());
+    }
+
+    /**
+     * @return root index chứa version (0 nếu chưa được ghi nhận)
+     */
+    public synchronized int rootOf(int fileId, int versionNumber) {
+        PackIndex.Entry entry = index.get(fileId, versionNumber);
+        return entry != null ? entry.packId : 0;
+    }
+
+    public synchronized void place(int fileId, int versionNumber, int root) throws IOException {
+        if (root == 0 && index.get(fileId, versionNumber) == null) {
+            return; // Root 0 là mặc định, không cần ghi
+        }
+        append(OP_PLACE, fileId, versionNumber, root);
+        index.put(fileId, versionNumber, root, 0, 0);
+    }
+
+    public synchronized void remove(int fileId, int versionNumber) throws IOException {
+        if (index.remove(fileId, versionNumber) != null) {
+            append(OP_REMOVE, fileId, versionNumber, 0);
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized void close() {
+        try {
+            log.close();
+        } catch (IOException ignored) {
+            // Bỏ qua
+        }
+    }
+
+    private void append(byte op, int fileId, int versionNumber, int root) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put(op).putInt(fileId).putInt(versionNumber).put((byte) root).flip();
+        while (record.hasRemaining()) {
+            log.write(record);
+        }
+        // Mất record khi crash thì readFile tìm nhầm root: force trước khi upload được xác nhận
+        log.force(false);
+    }
+
+    private long replay() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 8192);
+        long position = 0;
+        long size = log.size();
+        while (position + RECORD_SIZE <= size) {
+            buffer.clear();
+            if (log.read(buffer, position) <= 0) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                byte op = buffer.get();
+                int fileId = buffer.getInt();
+                int versionNumber = buffer.getInt();
+                int root = buffer.get() & 0xFF;
+                if (op == OP_PLACE) {
+                    index.put(fileId, versionNumber, root, 0, 0);
+                } else if (op == OP_REMOVE) {
+                    index.remove(fileId, versionNumber);
+                } else {
+                    return position;
+                }
+                position += RECORD_SIZE;
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,171 @@
+package com.drivelite.server.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.drivelite.common.logging.Log;
+import com.drivelite.common.logging.Logger;
+
+/**
+ * Hàng đợi replication bền vững (sống sót qua restart).
+ *
+ * Append-only log: [1 byte op][4 bytes fileId][4 bytes versionNumber].
+ * - ENQUEUE: version vừa commit, cần copy sang replica
+ * - DONE: đã copy xong
+ *
+ * Khi start, replay log để lấy danh sách version còn pending (catch-up).
+ * Log được viết lại gọn khi số record DONE vượt xa số pending.
+ */
+public class ReplicationQueue {
+
+    private static final Logger LOG = Log.getLogger("REPLICATION");
+
+    private static final byte OP_ENQUEUE = 1;
+    private static final byte OP_DONE = 2;
+    private static final int RECORD_SIZE = 1 + 4 + 4;
+    private static final int REWRITE_MIN_RECORDS = 100_000;
+
+    private final Path logPath;
+    private final Set<Long> pending = new LinkedHashSet<>();
+    private FileChannel log;
+    private long records;
+
+    public ReplicationQueue(Path logPath) throws IOException {
+        this.logPath = logPath;
+        Files.createDirectories(logPath.getParent());
+        this.log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long validEnd = replay();
+        if (validEnd < log.size()) {
+            LOG.warn("Truncating partial queue record at " + validEnd);
+            log.truncate(validEnd);
+        }
+        log.position(log.size());
+    }
+
+    public static long key(int fileId, int versionNumber) {
+        return PackIndex.key(fileId, versionNumber);
+    }
+
+    public static int fileIdOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int versionOf(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Thêm version vào hàng đợi (fsync trước khi return).
+     *
+     * @return false nếu version đã pending
+     */
+    public synchronized boolean add(int fileId, int versionNumber) throws IOException {
+        if (!pending.add(key(fileId, versionNumber))) {
+            return false;
+        }
+        append(OP_ENQUEUE, fileId, versionNumber);
+        log.force(false);
+        return true;
+    }
+
+    /**
+     * Đánh dấu version đã replicate xong.
+     */
+    public synchronized void complete(int fileId, int versionNumber) throws IOException {
+        if (pending.remove(key(fileId, versionNumber))) {
+            append(OP_DONE, fileId, versionNumber);
+            if (records > REWRITE_MIN_RECORDS && records > pending.size() * 4L) {
+                rewrite();
+            }
+        }
+    }
+
+    /**
+     * Danh sách key (fileId << 32 | versionNumber) đang pending, theo thứ tự enqueue.
+     */
+    public synchronized List<Long> pending() {
+        return new ArrayList<>(pending);
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    public synchronized void close() {
+        try {
+            log.force(false);
+            log.close();
+        } catch (IOException ignored) {
+            // Bỏ qua
+        }
+    }
+
+    private void append(byte op, int fileId, int versionNumber) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put(op).putInt(fileId).putInt(versionNumber).flip();
+        while (record.hasRemaining()) {
+            log.write(record);
+        }
+        records++;
+    }
+
+    /**
+     * Ghi snapshot các entry pending ra file mới rồi rename đè log cũ.
+     */
+    private void rewrite() throws IOException {
+        Path tmp = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * Math.max(1, pending.size()));
+            for (long key : pending) {
+                buffer.put(OP_ENQUEUE).putInt(fileIdOf(key)).putInt(versionOf(key));
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        log.close();
+        Files.move(tmp, logPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        log.position(log.size());
+        records = pending.size();
+    }
+
+    private long replay() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 8192);
+        long position = 0;
+        long size = log.size();
+        while (position + RECORD_SIZE <= size) {
+            buffer.clear();
+            if (log.read(buffer, position) <= 0) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                byte op = buffer.get();
+                long key = key(buffer.getInt(), buffer.getInt());
+                if (op == OP_ENQUEUE) {
+                    pending.add(key);
+                } else if (op == OP_DONE) {
+                    pending.remove(key);
+                } else {
+                    return position;
+                }
+                position += RECORD_SIZE;
+                records++;
+            }
+        }
+        return position;
+    }
+}
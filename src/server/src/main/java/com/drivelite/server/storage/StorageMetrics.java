@@ -0,0 +1,122 @@
+package com.drivelite.server.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters cho storage: cold tier và độ trễ đọc hot/cold.
+ *
+ * "Read time" = tổng thời gian nằm trong read() (gồm giải nén với cold blob),
+ * "first byte" = thời gian từ lúc mở file đến khi trả byte đầu tiên.
+ * So sánh cold với hot cho biết penalty của việc nén at-rest.
+ */
+public class StorageMetrics {
+
+    private static final StorageMetrics INSTANCE = new StorageMetrics();
+
+    // Cold tier job
+    private final AtomicLong versionsCompressed = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private final AtomicLong compressFailures = new AtomicLong();
+
+    // Reads
+    private final ReadStats hotReads = new ReadStats();
+    private final ReadStats coldReads = new ReadStats();
+
+    private StorageMetrics() {
+    }
+
+    public static StorageMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void recordCompressed(long rawBytes, long storedBytes) {
+        versionsCompressed.incrementAndGet();
+        bytesReclaimed.addAndGet(rawBytes - storedBytes);
+    }
+
+    public void recordCompressFailure() {
+        compressFailures.incrementAndGet();
+    }
+
+    void recordRead(boolean cold, long firstByteNanos, long readNanos, long bytes) {
+        (cold ? coldReads : hotReads).record(firstByteNanos, readNanos, bytes);
+    }
+
+    public long getVersionsCompressed() {
+        return versionsCompressed.get();
+    }
+
+    public long getBytesReclaimed() {
+        return bytesReclaimed.get();
+    }
+
+    public long getCompressFailures() {
+        return compressFailures.get();
+    }
+
+    public ReadStats getHotReads() {
+        return hotReads;
+    }
+
+    public ReadStats getColdReads() {
+        return coldReads;
+    }
+
+    /**
+     * Tóm tắt 1 dòng để log.
+     */
+    public String summary() {
+        return "compressed=" + versionsCompressed.get() +
+               ", reclaimed=" + (bytesReclaimed.get() / 1024) + "KB" +
+               ", failures=" + compressFailures.get() +
+               ", hot[" + hotReads + "]" +
+               ", cold[" + coldReads + "]";
+    }
+
+    /**
+     * Thống kê đọc của một tier.
+     */
+    public static class ReadStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong firstByteNanos = new AtomicLong();
+        private final AtomicLong readNanos = new AtomicLong();
+
+        void record(long firstByte, long read, long byteCount) {
+            count.incrementAndGet();
+            bytes.addAndGet(byteCount);
+            firstByteNanos.addAndGet(firstByte);
+            readNanos.addAndGet(read);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        /**
+         * Trung bình thời gian tới byte đầu tiên (micro giây).
+         */
+        public double getAvgFirstByteMicros() {
+            long c = count.get();
+            return c == 0 ? 0 : firstByteNanos.get() / 1000.0 / c;
+        }
+
+        /**
+         * Throughput đọc (MB/s) tính trên thời gian nằm trong read().
+         */
+        public double getReadMBps() {
+            long nanos = readNanos.get();
+            return nanos == 0 ? 0 : (bytes.get() / (1024.0 * 1024.0)) / (nanos / 1_000_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("reads=%d, firstByte=%.0fus, %.1fMB/s",
+                                 getCount(), getAvgFirstByteMicros(), getReadMBps());
+        }
+    }
+}
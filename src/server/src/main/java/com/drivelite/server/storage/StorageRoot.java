@@ -0,0 +1,107 @@
+package com.drivelite.server.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Một thư mục lưu trữ (thường là một disk riêng) trong STORAGE_PATH.
+ *
+ * Theo dõi số I/O đang chạy (upload ghi + download đọc) trên root để placement
+ * chọn disk ít bận nhất, thay vì dồn mọi transfer vào một disk.
+ */
+public class StorageRoot {
+
+    private final int index;
+    private final Path path;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    public StorageRoot(int index, Path path) throws IOException {
+        this.index = index;
+        this.path = path.toAbsolutePath().normalize();
+        Files.createDirectories(this.path);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Số upload/download đang dùng root (xấp xỉ I/O queue depth).
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public void beginIo() {
+        inFlight.incrementAndGet();
+    }
+
+    public void endIo() {
+        inFlight.decrementAndGet();
+    }
+
+    public void recordWrite(long bytes) {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    /**
+     * Dung lượng còn trống (bytes), 0 nếu không đọc được.
+     */
+    public long getUsableSpace() {
+        try {
+            return Files.getFileStore(path).getUsableSpace();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Tỉ lệ đã dùng của disk (0..1).
+     */
+    public double getUsedRatio() {
+        try {
+            long total = Files.getFileStore(path).getTotalSpace();
+            return total == 0 ? 1.0 : 1.0 - (double) Files.getFileStore(path).getUsableSpace() / total;
+        } catch (IOException e) {
+            return 1.0;
+        }
+    }
+
+    /**
+     * Bọc stream đọc để giảm in-flight counter khi download đóng stream.
+     * Caller phải gọi {@link #beginIo()} trước.
+     */
+    public InputStream track(InputStream in) {
+        return new FilterInputStream(in) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    endIo();
+                }
+                super.close();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "root" + index + "=" + path;
+    }
+}
@@ -0,0 +1,260 @@
+package com.drivelite.server.handler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.protocol.MessageType;
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+import com.drivelite.server.db.DatabaseConfig;
+import com.drivelite.server.db.DatabaseManager;
+import com.drivelite.server.db.entity.FileMetadata;
+import com.drivelite.server.db.repository.FilePermissionRepository;
+import com.drivelite.server.db.repository.FileRepository;
+import com.drivelite.server.db.repository.FileVersionRepository;
+import com.drivelite.server.db.repository.UserRepository;
+import com.drivelite.server.net.ClientContext;
+import com.drivelite.server.service.ReplicationService;
+import com.drivelite.server.service.StorageService;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Unit tests cho UploadBatchHandler qua một cặp socket thật trên H2 embedded:
+ * kết quả theo index khi có file sai SHA256, và batch đứt giữa chừng không để lại file record/bytes mồ côi.
+ */
+class UploadBatchHandlerTest {
+
+    private static final int SIZE = 64 * 1024;
+    private static final int READ_TIMEOUT_MS = 10_000;
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicReference<Throwable> clientFailure = new AtomicReference<>();
+    private ServerSocket listener;
+    private Socket client;
+    private Socket serverSide;
+    private StorageService storage;
+    private UploadBatchHandler handler;
+    private ClientContext context;
+    private int userId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DatabaseManager.reset();
+        DatabaseManager.initialize(DatabaseConfig.embedded(tempDir.resolve("db").toString()));
+        userId = new UserRepository().create("owner@test.local", "hash", "Owner").getUserId();
+
+        Files.writeString(tempDir.resolve(".env"), String.join("\n",
+            "STORAGE_PATH=" + tempDir.resolve("storage"),
+            "PACK_SMALL_FILES=false",
+            "STORAGE_REBALANCE_THRESHOLD=-1"));
+        Dotenv dotenv = Dotenv.configure().directory(tempDir.toString()).load();
+        storage = new StorageService(dotenv);
+        // REPLICATION_PATH trống: replication tắt, enqueue không làm gì
+        handler = new UploadBatchHandler(storage, new ReplicationService(dotenv, storage));
+
+        listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        client = new Socket(InetAddress.getLoopbackAddress(), listener.getLocalPort());
+        client.setSoTimeout(READ_TIMEOUT_MS);
+        serverSide = listener.accept();
+        serverSide.setSoTimeout(READ_TIMEOUT_MS);
+        context = new ClientContext(serverSide);
+        context.setSession("token", userId, "owner@test.local");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+        serverSide.close();
+        listener.close();
+        storage.stopMaintenance();
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        }
+        DatabaseManager.reset();
+        assertNull(clientFailure.get());
+    }
+
+    @Test
+    @DisplayName("Batch có file sai SHA256: kết quả đúng theo index, file lỗi không còn record/bytes")
+    void testBadShaEntryReportedPerIndex() throws Exception {
+        byte[] bad = randomBytes(SIZE, 1);
+        byte[] good = randomBytes(SIZE, 2);
+        List<Map<String, Object>> manifest = List.of(
+            entry("bad.bin", SIZE, sha256(randomBytes(SIZE, 99))),
+            entry("empty.bin", 0, sha256(new byte[0])),
+            entry("good.bin", SIZE, sha256(good)));
+
+        Response ready = handler.handleBegin(batchBegin(manifest), context);
+        assertTrue(ready.isOk());
+        List<?> rejected = (List<?>) ((Map<?, ?>) ready.getData()).get("rejected");
+        assertEquals(1, rejected.size());
+        assertEquals(1, ((Number) ((Map<?, ?>) rejected.get(0)).get("index")).intValue());
+
+        // Entry bị loại ở BEGIN không có bytes: client gửi bad rồi good
+        Thread writer = sendBytes(bad, good);
+        assertTrue(handler.handleFileBytes(serverSide.getInputStream(), serverSide.getOutputStream(), context));
+        writer.join(READ_TIMEOUT_MS);
+
+        Response response = JsonCodec.readResponse(client.getInputStream());
+        assertTrue(response.isOk());
+        Map<?, ?> data = (Map<?, ?>) response.getData();
+        assertEquals(1, ((Number) data.get("uploaded")).intValue());
+        assertEquals(1, ((Number) data.get("failed")).intValue());
+        Map<Integer, Map<?, ?>> results = new TreeMap<>();
+        for (Object result : (List<?>) data.get("files")) {
+            Map<?, ?> file = (Map<?, ?>) result;
+            results.put(((Number) file.get("index")).intValue(), file);
+        }
+        assertEquals(List.of(0, 2), new ArrayList<>(results.keySet()));
+        assertEquals(false, results.get(0).get("ok"));
+        assertEquals("SHA256 mismatch", results.get(0).get("message"));
+        assertEquals(true, results.get(2).get("ok"));
+        int goodId = ((Number) results.get(2).get("fileId")).intValue();
+        assertFalse(context.isUploadingBatch());
+
+        // Chỉ file tốt còn trong danh sách của owner, có version 1 và quyền OWNER
+        List<FileMetadata> owned = new FileRepository().findByOwner(userId);
+        assertEquals(1, owned.size());
+        assertEquals(goodId, owned.get(0).getFileId());
+        assertTrue(new FileVersionRepository().findByFileIdAndVersion(goodId, 1).isPresent());
+        assertEquals(Optional.of("OWNER"), new FilePermissionRepository().getPermission(goodId, userId));
+        try (InputStream in = storage.readFile(goodId, 1)) {
+            assertArrayEquals(good, in.readAllBytes());
+        }
+
+        // File sai SHA256: record bị soft delete, không version, không permission, không bytes
+        Map<Integer, Boolean> rows = fileRows();
+        assertEquals(2, rows.size());
+        int badId = rows.keySet().stream().filter(id -> id != goodId).findFirst().orElseThrow();
+        assertTrue(rows.get(badId));
+        assertTrue(new FileVersionRepository().findByFileId(badId).isEmpty());
+        assertEquals(Optional.empty(), new FilePermissionRepository().getPermission(badId, userId));
+        assertFalse(storage.deleteFile(badId, 1), "bytes của file lỗi phải bị xóa");
+    }
+
+    @Test
+    @DisplayName("Batch đứt giữa chừng: mọi file record bị bỏ, bytes đã lưu bị xóa, connection đóng")
+    void testTruncatedBatchDiscarded() throws Exception {
+        byte[] first = randomBytes(SIZE, 3);
+        byte[] second = randomBytes(SIZE, 4);
+        List<Map<String, Object>> manifest = List.of(
+            entry("first.bin", SIZE, sha256(first)),
+            entry("second.bin", SIZE, sha256(second)));
+        assertTrue(handler.handleBegin(batchBegin(manifest), context).isOk());
+
+        // Client mất kết nối sau file đầu và nửa file thứ hai
+        byte[] half = new byte[SIZE / 2];
+        System.arraycopy(second, 0, half, 0, half.length);
+        Thread writer = sendBytes(first, half);
+        writer.join(READ_TIMEOUT_MS);
+        client.shutdownOutput();
+
+        assertFalse(handler.handleFileBytes(serverSide.getInputStream(), serverSide.getOutputStream(), context));
+        assertFalse(context.isUploadingBatch());
+
+        assertTrue(new FileRepository().findByOwner(userId).isEmpty());
+        Map<Integer, Boolean> rows = fileRows();
+        assertEquals(2, rows.size());
+        for (Map.Entry<Integer, Boolean> row : rows.entrySet()) {
+            assertTrue(row.getValue(), "file record " + row.getKey() + " phải bị soft delete");
+            assertTrue(new FileVersionRepository().findByFileId(row.getKey()).isEmpty());
+            assertFalse(storage.deleteFile(row.getKey(), 1), "bytes đã lưu phải bị xóa");
+        }
+    }
+
+    private Request batchBegin(List<Map<String, Object>> manifest) {
+        return new Request(MessageType.UPLOAD_BATCH_BEGIN, "token", "batch-1", Map.of("files", manifest));
+    }
+
+    private static Map<String, Object> entry(String fileName, long fileSize, String sha256) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("fileName", fileName);
+        entry.put("fileSize", fileSize);
+        entry.put("sha256", sha256);
+        return entry;
+    }
+
+    /**
+     * Client ghi bytes của các file nối tiếp (thread riêng: socket buffer có thể đầy trước khi server đọc).
+     */
+    private Thread sendBytes(byte[]... files) {
+        Thread writer = new Thread(() -> {
+            try {
+                OutputStream out = client.getOutputStream();
+                for (byte[] file : files) {
+                    new ByteArrayInputStream(file).transferTo(out);
+                }
+                out.flush();
+            } catch (Throwable t) {
+                clientFailure.set(t);
+            }
+        }, "Test-Client");
+        writer.start();
+        return writer;
+    }
+
+    /**
+     * Mọi file record của owner (kể cả đã soft delete): fileId → IsDeleted.
+     */
+    private Map<Integer, Boolean> fileRows() throws Exception {
+        Map<Integer, Boolean> rows = new TreeMap<>();
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT FileId, IsDeleted FROM Files WHERE OwnerUserId = ?")) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.put(rs.getInt("FileId"), rs.getBoolean("IsDeleted"));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
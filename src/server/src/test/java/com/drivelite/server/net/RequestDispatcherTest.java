@@ -0,0 +1,190 @@
+package com.drivelite.server.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.drivelite.common.codec.JsonCodec;
+import com.drivelite.common.protocol.MessageType;
+import com.drivelite.common.protocol.Request;
+import com.drivelite.common.protocol.Response;
+
+/**
+ * Unit tests cho pipelining của RequestDispatcher qua một cặp socket thật:
+ * response về không theo thứ tự, khớp requestId, giới hạn MAX_PIPELINED_REQUESTS
+ * và request tuần tự chờ request pipelined trước đó.
+ */
+class RequestDispatcherTest {
+
+    private static final int READ_TIMEOUT_MS = 10_000;
+
+    private ServerSocket listener;
+    private Socket client;
+    private Socket serverSide;
+    private RequestDispatcher dispatcher;
+    private Thread readerLoop;
+
+    private final AtomicInteger activePings = new AtomicInteger();
+    private final AtomicInteger maxActivePings = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        client = new Socket(InetAddress.getLoopbackAddress(), listener.getLocalPort());
+        client.setSoTimeout(READ_TIMEOUT_MS);
+        serverSide = listener.accept();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+        serverSide.close();
+        listener.close();
+        if (readerLoop != null) {
+            readerLoop.join(READ_TIMEOUT_MS);
+        }
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Request pipelined: response về không theo thứ tự nhưng đúng requestId")
+    void testOutOfOrderResponsesKeepRequestIds() throws Exception {
+        startDispatcher(8, null);
+        // Request gửi trước chạy lâu hơn → response về theo thứ tự ngược
+        int[] delays = { 400, 300, 200, 100, 0 };
+        for (int i = 0; i < delays.length; i++) {
+            send(ping("p" + i, delays[i]));
+        }
+
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < delays.length; i++) {
+            Response response = JsonCodec.readResponse(client.getInputStream());
+            assertTrue(response.isOk());
+            // Handler trả lại tag của chính request đó
+            assertEquals(response.getRequestId(), ((Map<?, ?>) response.getData()).get("tag"));
+            order.add(response.getRequestId());
+        }
+        assertEquals(Set.of("p0", "p1", "p2", "p3", "p4"), new HashSet<>(order));
+        assertEquals("p4", order.get(0), "request nhanh nhất phải về trước: " + order);
+        assertEquals("p0", order.get(delays.length - 1), "request chậm nhất phải về sau cùng: " + order);
+    }
+
+    @Test
+    @DisplayName("Request tuần tự (LOGIN) chỉ chạy sau khi request pipelined trước đó xong")
+    void testSequentialWaitsForPipelined() throws Exception {
+        AtomicInteger pingsSeenByLogin = new AtomicInteger(-1);
+        startDispatcher(8, null);
+        dispatcher.registerHandler(MessageType.LOGIN, (request, context) -> {
+            pingsSeenByLogin.set(activePings.get());
+            return Response.success(Map.of("tag", request.getRequestId()));
+        });
+
+        send(ping("slow-1", 300));
+        send(ping("slow-2", 200));
+        send(new Request(MessageType.LOGIN, null, "login", Map.of()));
+        send(ping("after", 0));
+
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Response response = JsonCodec.readResponse(client.getInputStream());
+            assertTrue(response.isOk());
+            order.add(response.getRequestId());
+        }
+        assertEquals(0, pingsSeenByLogin.get(), "LOGIN chạy chen với request pipelined");
+        assertEquals(List.of("slow-2", "slow-1", "login", "after"), order);
+    }
+
+    @Test
+    @DisplayName("Mỗi connection chỉ có tối đa MAX_PIPELINED_REQUESTS request đang xử lý")
+    void testPerConnectionPipelineLimit() throws Exception {
+        int total = ClientContext.MAX_PIPELINED_REQUESTS + 8;
+        CountDownLatch release = new CountDownLatch(1);
+        // Worker pool lớn hơn giới hạn: chỉ semaphore của connection chặn được
+        startDispatcher(total * 2, release);
+
+        for (int i = 0; i < total; i++) {
+            send(ping("b" + i, 0));
+        }
+        long deadline = System.currentTimeMillis() + READ_TIMEOUT_MS;
+        while (activePings.get() < ClientContext.MAX_PIPELINED_REQUESTS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // Cho reader thêm thời gian: nếu không bị chặn, request thứ 33+ sẽ vào handler
+        Thread.sleep(300);
+        assertEquals(ClientContext.MAX_PIPELINED_REQUESTS, activePings.get());
+
+        release.countDown();
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < total; i++) {
+            ids.add(JsonCodec.readResponse(client.getInputStream()).getRequestId());
+        }
+        assertEquals(total, ids.size());
+        assertEquals(ClientContext.MAX_PIPELINED_REQUESTS, maxActivePings.get());
+    }
+
+    /**
+     * Dispatcher chỉ có PING: ngủ {@code delayMs} (hoặc chờ {@code release}) rồi trả lại tag = requestId.
+     */
+    private void startDispatcher(int workers, CountDownLatch release) throws IOException {
+        dispatcher = new RequestDispatcher(workers, null, null, null, null, null);
+        dispatcher.registerHandler(MessageType.PING, (request, context) -> {
+            int active = activePings.incrementAndGet();
+            maxActivePings.accumulateAndGet(active, Math::max);
+            try {
+                if (release != null) {
+                    release.await(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } else {
+                    Thread.sleep(((Number) ((Map<?, ?>) request.getData()).get("delayMs")).longValue());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                activePings.decrementAndGet();
+            }
+            return Response.success(Map.of("tag", request.getRequestId()));
+        });
+
+        ClientContext context = new ClientContext(serverSide);
+        context.setPipelining(true);
+        InputStream in = serverSide.getInputStream();
+        OutputStream out = serverSide.getOutputStream();
+        readerLoop = new Thread(() -> {
+            while (dispatcher.processRequest(in, out, context)) {
+                // đọc request tiếp theo
+            }
+        }, "Test-Reader");
+        readerLoop.setDaemon(true);
+        readerLoop.start();
+    }
+
+    private static Request ping(String requestId, int delayMs) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("delayMs", delayMs);
+        return new Request(MessageType.PING, null, requestId, data);
+    }
+
+    private void send(Request request) throws IOException {
+        JsonCodec.writeFrame(client.getOutputStream(), request);
+    }
+}
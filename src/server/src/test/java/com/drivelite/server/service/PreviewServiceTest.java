@@ -0,0 +1,62 @@
+package com.drivelite.server.service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests cho việc tạo thumbnail của PreviewService.
+ */
+class PreviewServiceTest {
+
+    private static final long MAX_PIXELS = 100_000_000L;
+
+    @Test
+    @DisplayName("Ảnh khai báo kích thước khổng lồ: từ chối trước khi decode")
+    void testRejectsDecompressionBomb() throws IOException {
+        // PNG nhỏ nhưng IHDR khai báo 599 x 400000 (~240 triệu pixel)
+        byte[] png = withDimensions(encodePng(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB)), 599, 400_000);
+        IOException e = assertThrows(IOException.class,
+            () -> PreviewService.thumbnail(new ByteArrayInputStream(png), MAX_PIXELS));
+        assertTrue(e.getMessage().contains("599x400000"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Ảnh dài, hẹp: thumbnail vẫn nằm trong khung")
+    void testNarrowImageFitsBox() throws IOException {
+        byte[] png = encodePng(new BufferedImage(100, 8000, BufferedImage.TYPE_INT_RGB));
+        BufferedImage thumb = ImageIO.read(new ByteArrayInputStream(
+            PreviewService.thumbnail(new ByteArrayInputStream(png), MAX_PIXELS)));
+        assertTrue(thumb.getWidth() <= PreviewService.THUMBNAIL_WIDTH, "width=" + thumb.getWidth());
+        assertTrue(thumb.getHeight() <= PreviewService.THUMBNAIL_HEIGHT, "height=" + thumb.getHeight());
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Sửa width/height trong chunk IHDR (ngay sau signature 8 bytes) và tính lại CRC.
+     */
+    private static byte[] withDimensions(byte[] png, int width, int height) {
+        ByteBuffer buffer = ByteBuffer.wrap(png);
+        // signature(8) + length(4) + "IHDR"(4) → width, height
+        buffer.putInt(16, width).putInt(20, height);
+        CRC32 crc = new CRC32();
+        crc.update(png, 12, 4 + 13);
+        buffer.putInt(12 + 4 + 13, (int) crc.getValue());
+        return png;
+    }
+}
@@ -0,0 +1,166 @@
+package com.drivelite.server.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.drivelite.server.db.DatabaseConfig;
+import com.drivelite.server.db.DatabaseManager;
+import com.drivelite.server.db.repository.FileRepository;
+import com.drivelite.server.db.repository.FileVersionRepository;
+import com.drivelite.server.db.repository.UserRepository;
+import com.drivelite.server.storage.ReplicationQueue;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Unit tests cho ReplicationService trên H2 embedded: copy version sang replica,
+ * catch-up các version còn pending sau restart và không xóa khỏi queue khi SHA-256 sai.
+ */
+class ReplicationServiceTest {
+
+    private static final int SIZE = 256 * 1024;
+    private static final long TIMEOUT_MS = 10_000;
+
+    @TempDir
+    Path tempDir;
+
+    private StorageService storage;
+    private ReplicationService replication;
+    private int userId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DatabaseManager.reset();
+        DatabaseManager.initialize(DatabaseConfig.embedded(tempDir.resolve("db").toString()));
+        userId = new UserRepository().create("owner@test.local", "hash", "Owner").getUserId();
+
+        Files.writeString(tempDir.resolve(".env"), String.join("\n",
+            "STORAGE_PATH=" + tempDir.resolve("storage"),
+            "PACK_SMALL_FILES=false",
+            "STORAGE_REBALANCE_THRESHOLD=-1",
+            "REPLICATION_PATH=" + tempDir.resolve("replica"),
+            "REPLICATION_WORKERS=1",
+            "REPLICATION_IO_MBPS=0",
+            "REPLICATION_RETRY_SECONDS=3600"));
+        storage = new StorageService(Dotenv.configure().directory(tempDir.toString()).load());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (replication != null) {
+            replication.stop();
+        }
+        storage.stopMaintenance();
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        }
+        DatabaseManager.reset();
+    }
+
+    @Test
+    @DisplayName("Enqueue: worker copy version sang replica, queue trống, replica đọc được")
+    void testEnqueueCopiesToReplica() throws Exception {
+        byte[] data = randomBytes(SIZE, 1);
+        int fileId = commitVersion("a.bin", data, null);
+        replication = open();
+
+        replication.enqueue(fileId, 1);
+
+        awaitTrue(() -> replication.getPendingCount() == 0 && Files.exists(replicaPath(fileId, 1)));
+        try (InputStream in = replication.openReplica(fileId, 1)) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        assertFalse(Files.exists(replicaPath(fileId, 1).resolveSibling("1.tmp")));
+    }
+
+    @Test
+    @DisplayName("Restart: version còn pending trong queue được copy tiếp, version đã rollback bị bỏ")
+    void testCatchUpPendingAfterRestart() throws Exception {
+        byte[] data = randomBytes(SIZE, 2);
+        int fileId = commitVersion("b.bin", data, null);
+        // Lần chạy trước: enqueue xong thì server dừng, chưa kịp copy
+        ReplicationQueue previous = new ReplicationQueue(storage.getRoots().get(0).getPath().resolve("replication.log"));
+        previous.add(fileId, 1);
+        previous.add(fileId, 2);   // version không còn trong DB (commit bị rollback)
+        previous.close();
+
+        replication = open();
+
+        awaitTrue(() -> replication.getPendingCount() == 0);
+        try (InputStream in = replication.openReplica(fileId, 1)) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        assertFalse(Files.exists(replicaPath(fileId, 2)));
+    }
+
+    @Test
+    @DisplayName("SHA-256 của primary không khớp DB: không tạo replica, version vẫn pending để thử lại")
+    void testShaMismatchKeepsPending() throws Exception {
+        byte[] data = randomBytes(SIZE, 3);
+        int fileId = commitVersion("c.bin", data, "0".repeat(64));
+        replication = open();
+
+        replication.enqueue(fileId, 1);
+
+        awaitTrue(() -> replication.summary().contains("failures=1"));
+        assertEquals(1, replication.getPendingCount());
+        assertFalse(Files.exists(replicaPath(fileId, 1)));
+        assertFalse(Files.exists(replicaPath(fileId, 1).resolveSibling("1.tmp")));
+    }
+
+    private ReplicationService open() throws IOException {
+        ReplicationService service = new ReplicationService(
+            Dotenv.configure().directory(tempDir.toString()).load(), storage);
+        service.start();
+        return service;
+    }
+
+    /**
+     * Lưu bytes vào storage và tạo file + version 1 trong DB.
+     *
+     * @param dbSha256 sha256 ghi vào DB, null = đúng sha256 của bytes
+     */
+    private int commitVersion(String fileName, byte[] data, String dbSha256) throws Exception {
+        int fileId = new FileRepository().create(userId, fileName).getFileId();
+        String sha256 = storage.saveFile(fileId, 1, new ByteArrayInputStream(data), data.length);
+        new FileVersionRepository().create(fileId, 1, storage.getStoredPath(fileId, 1), data.length,
+            dbSha256 != null ? dbSha256 : sha256, userId, null);
+        return fileId;
+    }
+
+    private Path replicaPath(int fileId, int versionNumber) {
+        return tempDir.resolve("replica").resolve(String.valueOf(fileId)).resolve(String.valueOf(versionNumber));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,223 @@
+package com.drivelite.server.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.drivelite.server.net.ClientContext;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Unit tests cho ResumableUploadService: offset resume, cắt phần thừa của part file,
+ * takeover connection cũ, commit vào storage và dọn part file quá hạn.
+ */
+class ResumableUploadServiceTest {
+
+    private static final int SIZE = 256 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<Socket> sockets = new ArrayList<>();
+    private StorageService storage;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        if (storage != null) {
+            storage.stopMaintenance();
+        }
+    }
+
+    @Test
+    @DisplayName("Resume: acquire trả kích thước part file, nhận phần còn lại rồi commit đúng nội dung")
+    void testResumeFromPartFile() throws Exception {
+        ResumableUploadService service = open();
+        byte[] data = randomBytes(SIZE, 1);
+        String key = ResumableUploadService.keyFor(1, 0, sha256(data), data.length);
+        ClientContext first = newContext();
+
+        assertEquals(0, service.acquire(key, first));
+        // Connection đứt sau một nửa
+        InputStream half = new ByteArrayInputStream(data, 0, SIZE / 2);
+        assertThrows(IOException.class, () -> service.receive(key, half, 0, data.length));
+        service.release(key, first);
+
+        ClientContext second = newContext();
+        long offset = service.acquire(key, second);
+        assertEquals(SIZE / 2, offset);
+        service.receive(key, new ByteArrayInputStream(data, (int) offset, SIZE - (int) offset), offset, data.length);
+        assertEquals(sha256(data), service.commit(key, 9, 1, data.length));
+        service.release(key, second);
+
+        assertFalse(Files.exists(partFile(key)));
+        assertArrayEquals(data, readAll(9, 1));
+    }
+
+    @Test
+    @DisplayName("Part file dài hơn offset đã báo: phần thừa bị cắt trước khi ghi tiếp")
+    void testPartFileLongerThanOffsetTruncated() throws Exception {
+        ResumableUploadService service = open();
+        byte[] data = randomBytes(SIZE, 2);
+        String key = ResumableUploadService.keyFor(1, 0, sha256(data), data.length);
+        ClientContext owner = newContext();
+        assertEquals(0, service.acquire(key, owner));
+
+        // Connection cũ ghi thêm bytes rác sau khi offset 100KB đã được báo cho client
+        int offset = 100 * 1024;
+        byte[] stale = Arrays.copyOf(Arrays.copyOf(data, offset), offset + 50_000);
+        Arrays.fill(stale, offset, stale.length, (byte) 0x5A);
+        Files.createDirectories(partFile(key).getParent());
+        Files.write(partFile(key), stale);
+
+        service.receive(key, new ByteArrayInputStream(data, offset, 60_000), offset, offset + 60_000);
+        assertEquals(offset + 60_000, Files.size(partFile(key)));
+        service.receive(key, new ByteArrayInputStream(data, offset, SIZE - offset), offset, data.length);
+        assertEquals(SIZE, Files.size(partFile(key)));
+        assertArrayEquals(data, Files.readAllBytes(partFile(key)));
+
+        assertEquals(sha256(data), service.commit(key, 10, 1, data.length));
+        service.release(key, owner);
+        assertArrayEquals(data, readAll(10, 1));
+    }
+
+    @Test
+    @DisplayName("Takeover: connection mới đóng connection cũ và chờ nó nhả part file")
+    void testTakeoverClosesPreviousLease() throws Exception {
+        ResumableUploadService service = open();
+        String key = ResumableUploadService.keyFor(1, 4, sha256(new byte[0]), SIZE);
+        ClientContext stale = newContext();
+        assertEquals(0, service.acquire(key, stale));
+        Files.createDirectories(partFile(key).getParent());
+        Files.write(partFile(key), new byte[1234]);
+
+        // Thread của connection cũ: block đọc socket, socket bị đóng thì nhả lease như ClientHandler
+        AtomicReference<Throwable> staleFailure = new AtomicReference<>();
+        Thread staleReader = new Thread(() -> {
+            try {
+                stale.getSocket().getInputStream().read();
+            } catch (IOException expected) {
+                // socket bị takeover đóng
+            } catch (Throwable t) {
+                staleFailure.set(t);
+            } finally {
+                service.release(key, stale);
+            }
+        });
+        staleReader.start();
+
+        ClientContext fresh = newContext();
+        AtomicLong offset = new AtomicLong(Long.MIN_VALUE);
+        Thread taker = new Thread(() -> {
+            try {
+                offset.set(service.acquire(key, fresh));
+            } catch (Exception e) {
+                staleFailure.set(e);
+            }
+        });
+        taker.start();
+        taker.join(TimeUnit.SECONDS.toMillis(10));
+        staleReader.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertNull(staleFailure.get());
+        assertTrue(stale.getSocket().isClosed(), "connection cũ phải bị đóng");
+        assertFalse(fresh.getSocket().isClosed());
+        assertEquals(1234, offset.get());
+
+        // Lease giờ thuộc connection mới: connection cũ nhả lại không ảnh hưởng
+        service.release(key, stale);
+        ClientContext third = newContext();
+        service.release(key, fresh);
+        assertEquals(1234, service.acquire(key, third));
+    }
+
+    @Test
+    @DisplayName("Part file bỏ dở quá TTL bị xóa, part file mới còn giữ")
+    void testPurgeExpiredPartFiles() throws Exception {
+        Path partDir = tempDir.resolve("storage").resolve("partial");
+        Files.createDirectories(partDir);
+        Path expired = Files.write(partDir.resolve("1-new-aa-10.part"), new byte[10]);
+        Path recent = Files.write(partDir.resolve("1-new-bb-10.part"), new byte[10]);
+        Files.setLastModifiedTime(expired,
+            FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+
+        open();
+
+        assertFalse(Files.exists(expired));
+        assertTrue(Files.exists(recent));
+    }
+
+    private ResumableUploadService open() throws IOException {
+        Files.writeString(tempDir.resolve(".env"), String.join("\n",
+            "STORAGE_PATH=" + tempDir.resolve("storage"),
+            "PACK_SMALL_FILES=false",
+            "STORAGE_REBALANCE_THRESHOLD=-1",
+            "RESUMABLE_UPLOAD_MIN_BYTES=1024",
+            "RESUMABLE_UPLOAD_TTL_HOURS=1"));
+        Dotenv dotenv = Dotenv.configure().directory(tempDir.toString()).load();
+        storage = new StorageService(dotenv);
+        return new ResumableUploadService(dotenv, storage);
+    }
+
+    private Path partFile(String key) {
+        return tempDir.resolve("storage").resolve("partial").resolve(key + ".part");
+    }
+
+    /**
+     * ClientContext trên đầu server của một cặp socket loopback thật.
+     */
+    private ClientContext newContext() throws IOException {
+        try (ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Socket client = new Socket(InetAddress.getLoopbackAddress(), listener.getLocalPort());
+            Socket serverSide = listener.accept();
+            sockets.add(client);
+            sockets.add(serverSide);
+            return new ClientContext(serverSide);
+        }
+    }
+
+    private byte[] readAll(int fileId, int versionNumber) throws IOException {
+        try (InputStream in = storage.readFile(fileId, versionNumber)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,367 @@
+package com.drivelite.server.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.drivelite.common.compression.CompressionCodec;
+import com.drivelite.server.storage.IoThrottle;
+import com.drivelite.server.storage.StorageRoot;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Unit tests cho placement multi-root và rebalance của StorageService.
+ */
+class StorageServiceTest {
+
+    private static final IoThrottle UNTHROTTLED = new IoThrottle(0);
+    private static final int SIZE = 256 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Placement: version trên root phụ vẫn đọc được sau khi mở lại, xóa được")
+    void testPlacementSurvivesReopen() throws Exception {
+        Path a = tempDir.resolve("a");
+        Path b = tempDir.resolve("b");
+        byte[] data = randomBytes(SIZE, 1);
+
+        StorageService storage = open(a + ";" + b);
+        // Root 0 bận hơn → blob mới vào root 1
+        StorageRoot root0 = storage.getRoots().get(0);
+        root0.beginIo();
+        storage.saveFile(3, 1, new ByteArrayInputStream(data), data.length);
+        root0.endIo();
+        storage.stopMaintenance();
+
+        assertTrue(Files.exists(b.resolve("3").resolve("1")));
+        assertFalse(Files.exists(a.resolve("3").resolve("1")));
+        assertFalse(Files.exists(b.resolve("3").resolve("1.tmp")), "tmp phải được rename");
+
+        StorageService reopened = open(a + ";" + b);
+        assertArrayEquals(data, readAll(reopened, 3, 1));
+        assertEquals(data.length, reopened.getFileSize(3, 1));
+        assertTrue(reopened.deleteFile(3, 1));
+        assertFalse(Files.exists(b.resolve("3").resolve("1")));
+        reopened.stopMaintenance();
+    }
+
+    @Test
+    @DisplayName("Rebalance: chuyển mọi version sang root mới, đọc đúng sau khi mở lại")
+    void testRebalanceMovesBlobs() throws Exception {
+        Path a = tempDir.resolve("a");
+        Path b = tempDir.resolve("b");
+        byte[][] data = new byte[5][];
+
+        StorageService single = open(a.toString());
+        for (int i = 0; i < data.length; i++) {
+            data[i] = randomBytes(SIZE, 10 + i);
+            single.saveFile(20 + i, 1, new ByteArrayInputStream(data[i]), data[i].length);
+        }
+        single.stopMaintenance();
+
+        // Thêm disk mới
+        StorageService storage = open(a + ";" + b);
+        long moved = storage.rebalance(storage.getRoots().get(0), storage.getRoots().get(1), UNTHROTTLED);
+        assertEquals((long) SIZE * data.length, moved);
+        storage.stopMaintenance();
+
+        StorageService reopened = open(a + ";" + b);
+        for (int i = 0; i < data.length; i++) {
+            assertFalse(Files.exists(a.resolve(String.valueOf(20 + i)).resolve("1")));
+            assertTrue(Files.exists(b.resolve(String.valueOf(20 + i)).resolve("1")));
+            assertArrayEquals(data[i], readAll(reopened, 20 + i, 1));
+        }
+        reopened.stopMaintenance();
+    }
+
+    @Test
+    @DisplayName("Rebalance: plain còn sót và bản .dlz được chuyển cùng nhau")
+    void testRebalanceMovesColdSiblings() throws Exception {
+        Path a = tempDir.resolve("a");
+        Path b = tempDir.resolve("b");
+        byte[] data = repeatText(SIZE);
+
+        StorageService single = open(a.toString());
+        String sha256 = single.saveFile(5, 1, new ByteArrayInputStream(data), data.length);
+        assertTrue(single.compressToColdTier(5, 1, sha256, CompressionCodec.LZ4,
+            CompressionCodec.LZ4.getDefaultLevel(), UNTHROTTLED) > 0);
+        // Plain không xóa được lúc nén (vd: đang bị download giữ lock)
+        Files.write(a.resolve("5").resolve("1"), data);
+        single.stopMaintenance();
+
+        StorageService storage = open(a + ";" + b);
+        storage.rebalance(storage.getRoots().get(0), storage.getRoots().get(1), UNTHROTTLED);
+
+        assertFalse(Files.exists(a.resolve("5").resolve("1")));
+        assertFalse(Files.exists(a.resolve("5").resolve("1.dlz")), "bản .dlz không được bỏ lại ở root cũ");
+        assertTrue(Files.exists(b.resolve("5").resolve("1")));
+        assertTrue(Files.exists(b.resolve("5").resolve("1.dlz")));
+        assertTrue(storage.isColdTier(5, 1));
+        assertArrayEquals(data, readAll(storage, 5, 1));
+        storage.stopMaintenance();
+    }
+
+    @Test
+    @DisplayName("Rebalance không chuyển blob đang upload dở")
+    void testRebalanceSkipsInFlightSave() throws Exception {
+        Path a = tempDir.resolve("a");
+        Path b = tempDir.resolve("b");
+        byte[] data = randomBytes(SIZE, 2);
+
+        StorageService storage = open(a + ";" + b);
+        StorageRoot root0 = storage.getRoots().get(0);
+        StorageRoot root1 = storage.getRoots().get(1);
+        // Root 1 bận hơn → upload ghi vào root 0 (nguồn của rebalance)
+        root1.beginIo();
+
+        CountDownLatch halfWritten = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        InputStream slow = new PausingInputStream(data, data.length / 2, halfWritten, resume);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread uploader = new Thread(() -> {
+            try {
+                storage.saveFile(7, 1, slow, data.length);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        uploader.start();
+        halfWritten.await();
+
+        assertEquals(0, storage.rebalance(root0, root1, UNTHROTTLED));
+
+        resume.countDown();
+        uploader.join();
+        root1.endIo();
+        assertNull(failure.get());
+
+        assertTrue(Files.exists(a.resolve("7").resolve("1")));
+        assertFalse(Files.exists(b.resolve("7").resolve("1")));
+        assertArrayEquals(data, readAll(storage, 7, 1));
+
+        // Upload xong thì rebalance chuyển bình thường
+        assertEquals(data.length, storage.rebalance(root0, root1, UNTHROTTLED));
+        assertArrayEquals(data, readAll(storage, 7, 1));
+        storage.stopMaintenance();
+    }
+
+    @Test
+    @DisplayName("Upload vẫn publish được trong lúc rebalance đang copy (không giữ maintenanceLock khi copy)")
+    void testPublishNotBlockedByRebalanceCopy() throws Exception {
+        Path a = tempDir.resolve("a");
+        Path b = tempDir.resolve("b");
+        byte[] moving = randomBytes(SIZE, 30);
+        byte[] upload = randomBytes(SIZE, 31);
+
+        StorageService single = open(a.toString());
+        single.saveFile(30, 1, new ByteArrayInputStream(moving), moving.length);
+        single.stopMaintenance();
+
+        StorageService storage = open(a + ";" + b);
+        PausingThrottle throttle = new PausingThrottle();
+        AtomicReference<Object> moved = new AtomicReference<>();
+        Thread rebalancer = runAsync(moved,
+            () -> storage.rebalance(storage.getRoots().get(0), storage.getRoots().get(1), throttle));
+        throttle.paused.await();
+
+        AtomicReference<Object> saved = new AtomicReference<>();
+        Thread uploader = runAsync(saved,
+            () -> storage.saveFile(31, 1, new ByteArrayInputStream(upload), upload.length));
+        uploader.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(uploader.isAlive(), "upload bị chặn bởi rebalance");
+        assertTrue(saved.get() instanceof String, String.valueOf(saved.get()));
+
+        throttle.resume.countDown();
+        rebalancer.join();
+        assertArrayEquals(moving, readAll(storage, 30, 1));
+        assertArrayEquals(upload, readAll(storage, 31, 1));
+        storage.stopMaintenance();
+    }
+
+    @Test
+    @DisplayName("Blob bị xóa trong lúc rebalance copy: bỏ qua, không để lại bản nào ở root đích")
+    void testRebalanceAbortsWhenBlobDeletedDuringCopy() throws Exception {
+        Path a = tempDir.resolve("a");
+        Path b = tempDir.resolve("b");
+        byte[] data = randomBytes(SIZE, 32);
+
+        StorageService single = open(a.toString());
+        single.saveFile(32, 1, new ByteArrayInputStream(data), data.length);
+        single.stopMaintenance();
+
+        StorageService storage = open(a + ";" + b);
+        PausingThrottle throttle = new PausingThrottle();
+        AtomicReference<Object> moved = new AtomicReference<>();
+        Thread rebalancer = runAsync(moved,
+            () -> storage.rebalance(storage.getRoots().get(0), storage.getRoots().get(1), throttle));
+        throttle.paused.await();
+
+        assertTrue(storage.deleteFile(32, 1));
+        throttle.resume.countDown();
+        rebalancer.join();
+
+        assertEquals(0L, moved.get());
+        assertFalse(Files.exists(b.resolve("32").resolve("1")));
+        assertFalse(Files.exists(b.resolve("32").resolve("1.moving")));
+        storage.stopMaintenance();
+    }
+
+    @Test
+    @DisplayName("Cold tier: blob bị rebalance chuyển đi trong lúc nén thì bỏ bản nén, dữ liệu vẫn đúng")
+    void testColdTierAbortsWhenBlobMovedDuringCompression() throws Exception {
+        Path a = tempDir.resolve("a");
+        Path b = tempDir.resolve("b");
+        byte[] data = repeatText(SIZE);
+
+        StorageService single = open(a.toString());
+        String sha256 = single.saveFile(33, 1, new ByteArrayInputStream(data), data.length);
+        single.stopMaintenance();
+
+        StorageService storage = open(a + ";" + b);
+        PausingThrottle throttle = new PausingThrottle();
+        AtomicReference<Object> saved = new AtomicReference<>();
+        Thread compressor = runAsync(saved, () -> storage.compressToColdTier(33, 1, sha256,
+            CompressionCodec.LZ4, CompressionCodec.LZ4.getDefaultLevel(), throttle));
+        throttle.paused.await();
+
+        // Rebalance không bị cold tier chặn và chuyển được bản plain
+        assertEquals(data.length,
+            storage.rebalance(storage.getRoots().get(0), storage.getRoots().get(1), UNTHROTTLED));
+        throttle.resume.countDown();
+        compressor.join();
+
+        assertEquals(-1L, saved.get());
+        assertFalse(storage.isColdTier(33, 1));
+        assertFalse(Files.exists(a.resolve("33").resolve("1.dlz")));
+        assertFalse(Files.exists(a.resolve("33").resolve("1.dlz.tmp")));
+        assertArrayEquals(data, readAll(storage, 33, 1));
+        storage.stopMaintenance();
+    }
+
+    private StorageService open(String storagePath) throws IOException {
+        Files.writeString(tempDir.resolve(".env"), String.join("\n",
+            "STORAGE_PATH=" + storagePath,
+            "PACK_SMALL_FILES=false",
+            "STORAGE_REBALANCE_THRESHOLD=-1"));
+        return new StorageService(Dotenv.configure().directory(tempDir.toString()).load());
+    }
+
+    private static byte[] readAll(StorageService storage, int fileId, int versionNumber) throws IOException {
+        try (InputStream in = storage.readFile(fileId, versionNumber)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] repeatText(int size) {
+        byte[] line = "Drive-lite cold tier test line 0123456789\n".getBytes(StandardCharsets.UTF_8);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = line[i % line.length];
+        }
+        return data;
+    }
+
+    /**
+     * Chạy {@code action} trên thread riêng; kết quả (hoặc exception) ghi vào {@code result}.
+     */
+    private static Thread runAsync(AtomicReference<Object> result, Callable<?> action) {
+        Thread thread = new Thread(() -> {
+            try {
+                result.set(action.call());
+            } catch (Throwable t) {
+                result.set(t);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Throttle dừng ở lần acquire đầu tiên cho đến khi test cho chạy tiếp.
+     */
+    private static final class PausingThrottle extends IoThrottle {
+        private final CountDownLatch paused = new CountDownLatch(1);
+        private final CountDownLatch resume = new CountDownLatch(1);
+
+        PausingThrottle() {
+            super(0);
+        }
+
+        @Override
+        public void acquire(long bytes) throws InterruptedException {
+            paused.countDown();
+            resume.await();
+        }
+    }
+
+    /**
+     * Trả {@code pauseAt} bytes đầu rồi dừng cho đến khi test cho chạy tiếp.
+     */
+    private static final class PausingInputStream extends InputStream {
+        private final byte[] data;
+        private final int pauseAt;
+        private final CountDownLatch paused;
+        private final CountDownLatch resume;
+        private int position;
+
+        PausingInputStream(byte[] data, int pauseAt, CountDownLatch paused, CountDownLatch resume) {
+            this.data = data;
+            this.pauseAt = pauseAt;
+            this.paused = paused;
+            this.resume = resume;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position == pauseAt) {
+                paused.countDown();
+                try {
+                    resume.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            if (position >= data.length) {
+                return -1;
+            }
+            int limit = position < pauseAt ? pauseAt : data.length;
+            int n = Math.min(len, limit - position);
+            System.arraycopy(data, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+}
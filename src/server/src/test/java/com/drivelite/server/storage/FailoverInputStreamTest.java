@@ -0,0 +1,125 @@
+package com.drivelite.server.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests cho FailoverInputStream: primary lỗi giữa chừng thì đọc tiếp từ replica đúng offset.
+ */
+class FailoverInputStreamTest {
+
+    private static final int SIZE = 100_000;
+
+    @Test
+    @DisplayName("Primary lỗi giữa stream: đọc tiếp replica từ đúng offset, nội dung liền mạch")
+    void testSwitchesToReplicaAtOffset() throws IOException {
+        byte[] data = randomBytes(SIZE, 1);
+        int failAt = 37_123;
+        AtomicInteger replicaOpens = new AtomicInteger();
+        FailoverInputStream in = new FailoverInputStream(new FailingInputStream("primary", data, failAt), () -> {
+            replicaOpens.incrementAndGet();
+            return new ByteArrayInputStream(data);
+        }, "test");
+
+        // Đọc từng khối lẻ để lỗi rơi vào giữa một lần read
+        byte[] result = new byte[SIZE];
+        int total = 0;
+        int n;
+        while ((n = in.read(result, total, Math.min(4096, SIZE - total))) > 0) {
+            total += n;
+        }
+        in.close();
+
+        assertEquals(SIZE, total);
+        assertArrayEquals(data, result);
+        assertTrue(in.isFailedOver());
+        assertEquals(1, replicaOpens.get());
+    }
+
+    @Test
+    @DisplayName("Primary không lỗi: replica không bao giờ được mở")
+    void testNoFailoverWhenPrimaryHealthy() throws IOException {
+        byte[] data = randomBytes(SIZE, 2);
+        FailoverInputStream in = new FailoverInputStream(new ByteArrayInputStream(data), () -> {
+            throw new AssertionError("replica không được mở");
+        }, "test");
+
+        assertArrayEquals(data, in.readAllBytes());
+        assertFalse(in.isFailedOver());
+    }
+
+    @Test
+    @DisplayName("Replica cũng lỗi: chỉ failover một lần, lỗi của primary được ném ra")
+    void testReplicaFailureRethrowsPrimaryError() throws IOException {
+        byte[] data = randomBytes(SIZE, 3);
+        FailoverInputStream in = new FailoverInputStream(new FailingInputStream("primary", data, 10_000),
+            () -> new FailingInputStream("replica", data, 20_000), "test");
+
+        IOException e = assertThrows(IOException.class, in::readAllBytes);
+        assertTrue(in.isFailedOver());
+        assertEquals("replica failed at 20000", e.getMessage());
+
+        FailoverInputStream unavailable = new FailoverInputStream(new FailingInputStream("primary", data, 10_000), () -> {
+            throw new IOException("replica missing");
+        }, "test");
+        IOException primaryError = assertThrows(IOException.class, unavailable::readAllBytes);
+        assertEquals("primary failed at 10000", primaryError.getMessage());
+        assertEquals(1, primaryError.getSuppressed().length);
+        assertSame(IOException.class, primaryError.getSuppressed()[0].getClass());
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Trả {@code data} đến offset {@code failAt} rồi ném IOException (như bad sector).
+     */
+    private static final class FailingInputStream extends InputStream {
+        private final String name;
+        private final byte[] data;
+        private final int failAt;
+        private int position;
+
+        FailingInputStream(String name, byte[] data, int failAt) {
+            this.name = name;
+            this.data = data;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= failAt) {
+                throw new IOException(name + " failed at " + failAt);
+            }
+            if (position >= data.length) {
+                return -1;
+            }
+            int n = Math.min(len, Math.min(failAt, data.length) - position);
+            System.arraycopy(data, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+}
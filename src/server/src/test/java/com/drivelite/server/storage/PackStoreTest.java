@@ -0,0 +1,163 @@
+package com.drivelite.server.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests cho PackStore: append, replay index.log khi mở lại, delete và compaction.
+ */
+class PackStoreTest {
+
+    private static final int LOG_RECORD_SIZE = 1 + 4 + 4 + 4 + 8 + 4;
+    private static final IoThrottle UNTHROTTLED = new IoThrottle(0);
+
+    @TempDir
+    Path packDir;
+
+    @Test
+    @DisplayName("Put → read, mở lại vẫn đọc được từ index.log")
+    void testPutAndReopen() throws IOException {
+        PackStore store = new PackStore(packDir, 1 << 20);
+        byte[][] data = new byte[10][];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = randomBytes(100 + i * 37, i);
+            store.put(1, i + 1, data[i], data[i].length);
+        }
+        assertArrayEquals(data[3], store.read(1, 4));
+        store.close();
+
+        PackStore reopened = new PackStore(packDir, 1 << 20);
+        assertEquals(data.length, reopened.size());
+        for (int i = 0; i < data.length; i++) {
+            assertArrayEquals(data[i], reopened.read(1, i + 1));
+        }
+        assertNull(reopened.read(1, 99));
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Delete: tombstone được replay khi mở lại")
+    void testDeleteSurvivesReopen() throws IOException {
+        PackStore store = new PackStore(packDir, 1 << 20);
+        byte[] data = randomBytes(500, 1);
+        store.put(2, 1, data, data.length);
+        store.put(2, 2, data, data.length);
+        assertTrue(store.delete(2, 1));
+        assertFalse(store.delete(2, 1));
+        store.close();
+
+        PackStore reopened = new PackStore(packDir, 1 << 20);
+        assertNull(reopened.lookup(2, 1));
+        assertArrayEquals(data, reopened.read(2, 2));
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Record ghi dở cuối index.log (crash): bị cắt bỏ, entry trước đó còn nguyên")
+    void testPartialIndexRecordTruncated() throws IOException {
+        PackStore store = new PackStore(packDir, 1 << 20);
+        byte[] first = randomBytes(300, 1);
+        byte[] second = randomBytes(400, 2);
+        store.put(3, 1, first, first.length);
+        store.put(3, 2, second, second.length);
+        store.close();
+
+        // Crash giữa lúc ghi record thứ ba
+        Path indexLog = packDir.resolve("index.log");
+        Files.write(indexLog, new byte[] { 1, 0, 0, 0, 3, 0, 0 }, StandardOpenOption.APPEND);
+
+        PackStore reopened = new PackStore(packDir, 1 << 20);
+        assertEquals(2L * LOG_RECORD_SIZE, Files.size(indexLog));
+        assertArrayEquals(first, reopened.read(3, 1));
+        assertArrayEquals(second, reopened.read(3, 2));
+
+        // Ghi tiếp sau phần đã cắt vẫn replay đúng
+        byte[] third = randomBytes(200, 3);
+        reopened.put(3, 3, third, third.length);
+        reopened.close();
+        PackStore again = new PackStore(packDir, 1 << 20);
+        assertEquals(3, again.size());
+        assertArrayEquals(third, again.read(3, 3));
+        again.close();
+    }
+
+    @Test
+    @DisplayName("Compaction: entry còn sống được giữ nguyên, pack cũ bị xóa, mở lại vẫn đúng")
+    void testCompactionPreservesLiveEntries() throws Exception {
+        // Pack nhỏ: 4 entry 1KB mỗi pack
+        PackStore store = new PackStore(packDir, 4 * 1024);
+        byte[][] data = new byte[12][];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = randomBytes(1024, 100 + i);
+            store.put(4, i + 1, data[i], data[i].length);
+        }
+        assertTrue(Files.exists(packDir.resolve("pack-1.dat")));
+        // Pack 1 (version 1-4): xóa 3/4
+        for (int version = 1; version <= 3; version++) {
+            store.delete(4, version);
+        }
+
+        long reclaimed = store.compact(0.5, UNTHROTTLED);
+        assertEquals(3 * 1024, reclaimed);
+        assertFalse(Files.exists(packDir.resolve("pack-1.dat")));
+        assertEquals(9, store.size());
+        for (int i = 3; i < data.length; i++) {
+            assertArrayEquals(data[i], store.read(4, i + 1));
+        }
+        store.close();
+
+        // index.log đã được ghi lại dạng snapshot: chỉ còn entry sống
+        assertEquals(9L * LOG_RECORD_SIZE, Files.size(packDir.resolve("index.log")));
+        PackStore reopened = new PackStore(packDir, 4 * 1024);
+        for (int version = 1; version <= 3; version++) {
+            assertNull(reopened.lookup(4, version));
+        }
+        for (int i = 3; i < data.length; i++) {
+            assertArrayEquals(data[i], reopened.read(4, i + 1));
+        }
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("PackIndex: xóa nhiều rồi thêm lại (rehash dọn tombstone) không mất entry")
+    void testIndexRehashKeepsEntries() {
+        PackIndex index = new PackIndex(16);
+        for (int v = 1; v <= 1000; v++) {
+            index.put(7, v, v % 3, v * 10L, v);
+        }
+        for (int v = 1; v <= 1000; v += 2) {
+            index.remove(7, v);
+        }
+        for (int v = 1001; v <= 3000; v++) {
+            index.put(7, v, 1, v * 10L, v);
+        }
+        assertEquals(500 + 2000, index.size());
+        for (int v = 1; v <= 3000; v++) {
+            PackIndex.Entry entry = index.get(7, v);
+            if (v <= 1000 && v % 2 == 1) {
+                assertNull(entry, "version " + v);
+            } else {
+                assertEquals(v * 10L, entry.offset, "version " + v);
+                assertEquals(v, entry.length);
+            }
+        }
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,94 @@
+package com.drivelite.server.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests cho ReplicationQueue: replay log khi mở lại và cắt record ghi dở.
+ */
+class ReplicationQueueTest {
+
+    private static final int RECORD_SIZE = 1 + 4 + 4;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Enqueue → complete → mở lại: chỉ còn entry pending, đúng thứ tự enqueue")
+    void testReopenKeepsOnlyPending() throws IOException {
+        Path logPath = dir.resolve("replication.log");
+        ReplicationQueue queue = new ReplicationQueue(logPath);
+        assertTrue(queue.add(1, 1));
+        assertTrue(queue.add(1, 2));
+        assertTrue(queue.add(2, 1));
+        assertFalse(queue.add(1, 2), "version đã pending không được ghi lại");
+        queue.complete(1, 1);
+        queue.complete(1, 1);
+        queue.close();
+
+        ReplicationQueue reopened = new ReplicationQueue(logPath);
+        assertEquals(List.of(ReplicationQueue.key(1, 2), ReplicationQueue.key(2, 1)), reopened.pending());
+        assertEquals(2, reopened.size());
+        // Enqueue, complete, complete lặp lại không ghi: 3 ENQUEUE + 1 DONE
+        assertEquals(4 * RECORD_SIZE, Files.size(logPath));
+
+        // Version đã xong có thể được enqueue lại
+        assertTrue(reopened.add(1, 1));
+        reopened.close();
+        assertEquals(3, new ReplicationQueue(logPath).size());
+    }
+
+    @Test
+    @DisplayName("Record ghi dở cuối log (crash): bị cắt bỏ, entry trước đó còn nguyên, ghi tiếp được")
+    void testPartialRecordTruncated() throws IOException {
+        Path logPath = dir.resolve("replication.log");
+        ReplicationQueue queue = new ReplicationQueue(logPath);
+        queue.add(3, 1);
+        queue.add(3, 2);
+        queue.close();
+
+        // Crash giữa lúc ghi record thứ ba
+        Files.write(logPath, new byte[] { 1, 0, 0, 0, 3, 0 }, StandardOpenOption.APPEND);
+
+        ReplicationQueue reopened = new ReplicationQueue(logPath);
+        assertEquals(List.of(ReplicationQueue.key(3, 1), ReplicationQueue.key(3, 2)), reopened.pending());
+        assertEquals(2 * RECORD_SIZE, Files.size(logPath));
+
+        // Record mới nằm ngay sau record hợp lệ cuối, không lệch vì phần rác
+        reopened.add(3, 3);
+        reopened.complete(3, 1);
+        reopened.close();
+
+        ReplicationQueue again = new ReplicationQueue(logPath);
+        assertEquals(List.of(ReplicationQueue.key(3, 2), ReplicationQueue.key(3, 3)), again.pending());
+        again.close();
+    }
+
+    @Test
+    @DisplayName("Record có op không hợp lệ: replay dừng ở đó, phần sau bị cắt")
+    void testUnknownOpStopsReplay() throws IOException {
+        Path logPath = dir.resolve("replication.log");
+        ReplicationQueue queue = new ReplicationQueue(logPath);
+        queue.add(4, 1);
+        queue.close();
+
+        // Record hỏng rồi một ENQUEUE hợp lệ phía sau: không tin được gì sau chỗ hỏng
+        Files.write(logPath, new byte[] { 9, 0, 0, 0, 4, 0, 0, 0, 2, 1, 0, 0, 0, 4, 0, 0, 0, 3 },
+            StandardOpenOption.APPEND);
+
+        ReplicationQueue reopened = new ReplicationQueue(logPath);
+        assertEquals(List.of(ReplicationQueue.key(4, 1)), reopened.pending());
+        assertEquals(RECORD_SIZE, Files.size(logPath));
+        reopened.close();
+    }
+}